@@ -0,0 +1,44 @@
+package org.rcsb.mmtf.api;
+
+/**
+ * A {@link StructureAdapterInterface} receiving the atoms of each group in a single call,
+ * as runs of the column arrays of the structure, instead of one {@link #setAtomInfo} call per atom.
+ *
+ * <p>
+ * Implementations can copy the runs with {@link System#arraycopy(Object, int, Object, int, int)}.
+ * The default implementation of {@link #setAtoms} passes the atoms one by one to
+ * {@link #setAtomInfo}, so only the bulk method needs to be implemented to benefit from it.
+ * The arrays are owned by the caller and must not be modified or kept.
+ */
+public interface BulkStructureAdapterInterface extends StructureAdapterInterface {
+
+	/**
+	 * Sets the atom level information for the atoms of the current group, i.e. the group
+	 * last set with {@link #setGroupInfo}.
+	 * The group level arrays are indexed from zero for the first atom of the group,
+	 * the atom level arrays are the columns of the whole structure and are indexed
+	 * from <code>from</code> to <code>to</code> (exclusive).
+	 * @param from the index of the first atom of the group in the structure
+	 * @param to the index after the last atom of the group in the structure
+	 * @param atomNames the names of the atoms of the group
+	 * @param elements the elements of the atoms of the group
+	 * @param charges the charges of the atoms of the group
+	 * @param serialNumbers the serial numbers of the atoms of the structure
+	 * @param alternativeLocationIds the alternate location ids of the atoms of the structure
+	 * @param x the x cartesian coordinates of the atoms of the structure
+	 * @param y the y cartesian coordinates of the atoms of the structure
+	 * @param z the z cartesian coordinates of the atoms of the structure
+	 * @param occupancies the occupancies of the atoms of the structure
+	 * @param temperatureFactors the B factors (temperature factors) of the atoms of the structure
+	 */
+	default void setAtoms(int from, int to, String[] atomNames, String[] elements, int[] charges,
+			int[] serialNumbers, char[] alternativeLocationIds, float[] x, float[] y, float[] z,
+			float[] occupancies, float[] temperatureFactors) {
+		for (int atomIndex = from; atomIndex < to; atomIndex++) {
+			int atomInGroup = atomIndex - from;
+			setAtomInfo(atomNames[atomInGroup], serialNumbers[atomIndex], alternativeLocationIds[atomIndex],
+					x[atomIndex], y[atomIndex], z[atomIndex], occupancies[atomIndex], temperatureFactors[atomIndex],
+					elements[atomInGroup], charges[atomInGroup]);
+		}
+	}
+}
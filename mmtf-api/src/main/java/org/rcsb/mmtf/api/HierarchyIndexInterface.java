@@ -0,0 +1,59 @@
+package org.rcsb.mmtf.api;
+
+/**
+ * An interface describing an index of the hierarchy (model to chain to group to atom)
+ * of the flat data of a {@link StructureDataInterface}.
+ *
+ * <p>
+ * The offset arrays are prefix sums of {@link StructureDataInterface#getChainsPerModel()},
+ * {@link StructureDataInterface#getGroupsPerChain()} and of the number of atoms of each group.
+ * They have one more element than the number of parents, so that the children of parent
+ * <code>i</code> are the indices from <code>offsets[i]</code> (inclusive) to <code>offsets[i+1]</code>
+ * (exclusive). For example the atoms of chain <code>c</code> are the atoms from
+ * <code>getAtomOffsets()[getGroupOffsets()[c]]</code> to <code>getAtomOffsets()[getGroupOffsets()[c+1]]</code>.
+ * The back-reference arrays map each child to the index of its parent.
+ *
+ * <p>
+ * The arrays are shared and must not be modified.
+ */
+public interface HierarchyIndexInterface {
+
+	/**
+	 * Returns the index of the first chain of each model.
+	 * @return an array of length the number of models plus one, the last element
+	 * being the total number of chains
+	 */
+	int[] getChainOffsets();
+
+	/**
+	 * Returns the index of the first group of each chain.
+	 * @return an array of length the number of chains plus one, the last element
+	 * being the total number of groups
+	 */
+	int[] getGroupOffsets();
+
+	/**
+	 * Returns the index of the first atom of each group.
+	 * @return an array of length the number of groups plus one, the last element
+	 * being the total number of atoms
+	 */
+	int[] getAtomOffsets();
+
+	/**
+	 * Returns the index of the model of each chain.
+	 * @return an array of length the number of chains
+	 */
+	int[] getChainToModelIndices();
+
+	/**
+	 * Returns the index of the chain of each group.
+	 * @return an array of length the number of groups
+	 */
+	int[] getGroupToChainIndices();
+
+	/**
+	 * Returns the index of the group of each atom.
+	 * @return an array of length the number of atoms
+	 */
+	int[] getAtomToGroupIndices();
+}
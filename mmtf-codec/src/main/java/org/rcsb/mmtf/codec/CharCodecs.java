@@ -1,5 +1,6 @@
 package org.rcsb.mmtf.codec;
 
+import java.nio.ByteBuffer;
 import org.rcsb.mmtf.decoder.ArrayDecoders;
 import org.rcsb.mmtf.encoder.ArrayEncoders;
 
@@ -29,6 +30,11 @@ public enum CharCodecs implements CharCodecInterface, CodecInterface{
 					ArrayDecoders.runlengthDecode(
 							org.rcsb.mmtf.codec.ArrayConverters.convertFourByteToIntegers(inputData)));
 		}
+
+		@Override
+		public char[] decode(ByteBuffer inputData, int length) {
+			return ArrayConverters.convertIntegerToChar(ArrayDecoders.runlengthDecode(inputData, length));
+		}
 		
 		
 	};
@@ -41,6 +47,14 @@ public enum CharCodecs implements CharCodecInterface, CodecInterface{
 		this.codecName = name;
 	}
 	
+	/**
+	 * Decode the first chars of a byte array, without decoding the rest of it.
+	 * @param inputData the input data, from its position
+	 * @param length the number of chars to decode
+	 * @return the decoded char array
+	 */
+	public abstract char[] decode(ByteBuffer inputData, int length);
+
 	/**
 	 * Get the codec from an input integer. 
 	 * @param inputInt the integer defining the coding
@@ -68,6 +82,22 @@ public enum CharCodecs implements CharCodecInterface, CodecInterface{
 		CharCodecs codecs = CharCodecs.getCodec(optionParser.methodNumber);
 		return codecs.decode(optionParser.data, optionParser.param);
 	}
+
+	/**
+	 * Decode the first chars of a byte array from an input array, e.g. the atoms up to
+	 * the last one needed.
+	 * @param inputData the byte array of data
+	 * @param length the number of chars to decode
+	 * @return the decoded array as a char array - shorter if the array holds fewer values
+	 */
+	public static char[] decodeArr(byte[] inputData, int length){
+		ByteBuffer buffer = ByteBuffer.wrap(inputData);
+		CharCodecs codecs = CharCodecs.getCodec(buffer.getInt());
+		int outputLength = buffer.getInt();
+		// Skip the parameter
+		buffer.getInt();
+		return codecs.decode(buffer, Math.min(length, outputLength));
+	}
 	
 	@Override
 	public String getCodecName() {
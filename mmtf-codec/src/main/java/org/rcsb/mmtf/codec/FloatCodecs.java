@@ -1,5 +1,6 @@
 package org.rcsb.mmtf.codec;
 
+import java.nio.ByteBuffer;
 
 import org.rcsb.mmtf.decoder.ArrayDecoders;
 import org.rcsb.mmtf.encoder.ArrayEncoders;
@@ -26,11 +27,20 @@ public enum FloatCodecs implements FloatCodecInterface, CodecInterface {
 
 		@Override
 		public float[] decode(byte[] inputData, int param) {
-			int[] intArr = ArrayDecoders.deltaDecode(
+			return ArrayConverters.convertIntsToFloats(decodeToInts(inputData),param);
+			}
+
+		@Override
+		public int[] decodeToInts(byte[] inputData) {
+			return ArrayDecoders.deltaDecode(
 					ArrayConverters.recursiveIndexDecode(
 							ArrayConverters.convertTwoByteToIntegers(inputData)));
-			return ArrayConverters.convertIntsToFloats(intArr,param);
-			}
+		}
+
+		@Override
+		public int[] decodeToInts(ByteBuffer inputData, int length) {
+			return ArrayDecoders.recursiveIndexDeltaDecode(inputData, length);
+		}
  	},
 	
 	
@@ -50,10 +60,18 @@ public enum FloatCodecs implements FloatCodecInterface, CodecInterface {
 
 		@Override
 		public float[] decode(byte[] inputData, int param) {
-			return ArrayConverters.convertIntsToFloats(
-					ArrayDecoders.runlengthDecode(
-							ArrayConverters.convertFourByteToIntegers(inputData)),
-					param);
+			return ArrayConverters.convertIntsToFloats(decodeToInts(inputData), param);
+		}
+
+		@Override
+		public int[] decodeToInts(byte[] inputData) {
+			return ArrayDecoders.runlengthDecode(
+					ArrayConverters.convertFourByteToIntegers(inputData));
+		}
+
+		@Override
+		public int[] decodeToInts(ByteBuffer inputData, int length) {
+			return ArrayDecoders.runlengthDecode(inputData, length);
 		}
  		
  	};
@@ -74,6 +92,22 @@ public enum FloatCodecs implements FloatCodecInterface, CodecInterface {
 		this.codecName = codecName;
 	}
 
+	/**
+	 * Decode a byte array to the integers the floats were quantized to,
+	 * i.e. without dividing by the parameter.
+	 * @param inputData the input byte array
+	 * @return the decoded integer array
+	 */
+	public abstract int[] decodeToInts(byte[] inputData);
+
+	/**
+	 * Decode the first integers of a byte array, without decoding the rest of it.
+	 * @param inputData the input data, from its position
+	 * @param length the number of integers to decode
+	 * @return the decoded integer array
+	 */
+	public abstract int[] decodeToInts(ByteBuffer inputData, int length);
+
 	/**
 	 * Get the codec from an input byte. 
 	 * @param codecId the integer defining the coding
@@ -102,6 +136,35 @@ public enum FloatCodecs implements FloatCodecInterface, CodecInterface {
 		FloatCodecs codecs = getCodec(optionParser.methodNumber);
 		return codecs.decode(optionParser.data,optionParser.param);
 	}
+
+	/**
+	 * Decode a byte array from an input array to the quantized integers.
+	 * The divider to convert them to floats is the parameter of the header.
+	 * @param inputData the byte array of data
+	 * @return the decoded array as an integer array
+	 */
+	public static int[] decodeArrToInts(byte[] inputData){
+		OptionParser optionParser = new OptionParser(inputData);
+		FloatCodecs codecs = getCodec(optionParser.methodNumber);
+		return codecs.decodeToInts(optionParser.data);
+	}
+
+	/**
+	 * Decode the first quantized integers of a byte array from an input array,
+	 * e.g. the atoms up to the last one needed, as the delta and run length encodings
+	 * can only be decoded from the start of the array.
+	 * @param inputData the byte array of data
+	 * @param length the number of integers to decode
+	 * @return the decoded array as an integer array - shorter if the array holds fewer values
+	 */
+	public static int[] decodeArrToInts(byte[] inputData, int length){
+		ByteBuffer buffer = ByteBuffer.wrap(inputData);
+		FloatCodecs codecs = getCodec(buffer.getInt());
+		int outputLength = buffer.getInt();
+		// Skip the parameter
+		buffer.getInt();
+		return codecs.decodeToInts(buffer, Math.min(length, outputLength));
+	}
 	
 
 	
@@ -1,5 +1,6 @@
 package org.rcsb.mmtf.codec;
 
+import java.nio.ByteBuffer;
 import org.rcsb.mmtf.decoder.ArrayDecoders;
 import org.rcsb.mmtf.encoder.ArrayEncoders;
 
@@ -32,6 +33,15 @@ public enum IntCodecs implements IntCodecInterface, CodecInterface {
 					ArrayDecoders.runlengthDecode(
 							ArrayConverters.convertFourByteToIntegers(inputData)));
 		}
+
+		@Override
+		public int[] decode(ByteBuffer inputData, int length){
+			int[] outArray = ArrayDecoders.runlengthDecode(inputData, length);
+			for (int i = 1; i < outArray.length; i++) {
+				outArray[i] += outArray[i-1];
+			}
+			return outArray;
+		}
 	},
 	/**
 	 * Convert integers to a byte array - encoding each integer as a four byte integer.
@@ -47,6 +57,13 @@ public enum IntCodecs implements IntCodecInterface, CodecInterface {
 		public int[] decode(byte[] inputData, int param){
 			return ArrayConverters.convertFourByteToIntegers(inputData);
 		}
+
+		@Override
+		public int[] decode(ByteBuffer inputData, int length){
+			int[] outArray = new int[Math.min(length, inputData.remaining() / Integer.BYTES)];
+			inputData.asIntBuffer().get(outArray);
+			return outArray;
+		}
 		
 	},
 	/**
@@ -63,6 +80,15 @@ public enum IntCodecs implements IntCodecInterface, CodecInterface {
 		public int[] decode(byte[] inputData, int param){
 			return ArrayConverters.convertByteToIntegers(inputData);
 		}
+
+		@Override
+		public int[] decode(ByteBuffer inputData, int length){
+			int[] outArray = new int[Math.min(length, inputData.remaining())];
+			for (int i = 0; i < outArray.length; i++) {
+				outArray[i] = inputData.get();
+			}
+			return outArray;
+		}
 		
 	};
 	
@@ -78,6 +104,14 @@ public enum IntCodecs implements IntCodecInterface, CodecInterface {
 		this.codecName = codecName;
 	}
 
+	/**
+	 * Decode the first integers of a byte array, without decoding the rest of it.
+	 * @param inputData the input data, from its position
+	 * @param length the number of integers to decode
+	 * @return the decoded integer array
+	 */
+	public abstract int[] decode(ByteBuffer inputData, int length);
+
 	/**
 	 * Get the codec from an input byte. 
 	 * @param codecId the byte defining the coding
@@ -105,6 +139,22 @@ public enum IntCodecs implements IntCodecInterface, CodecInterface {
 		return codecs.decode(optionParser.data, optionParser.param);
 	}
 
+	/**
+	 * Decode the first integers of a byte array from an input array, e.g. the atoms up to
+	 * the last one needed.
+	 * @param inputData the byte array of data
+	 * @param length the number of integers to decode
+	 * @return the decoded array as a int array - shorter if the array holds fewer values
+	 */
+	public static int[] decodeArr(byte[] inputData, int length){
+		ByteBuffer buffer = ByteBuffer.wrap(inputData);
+		IntCodecs codecs = getCodec(buffer.getInt());
+		int outputLength = buffer.getInt();
+		// Skip the parameter
+		buffer.getInt();
+		return codecs.decode(buffer, Math.min(length, outputLength));
+	}
+
 	/**
 	 * @return the codec name - a string naming the codec
 	 */
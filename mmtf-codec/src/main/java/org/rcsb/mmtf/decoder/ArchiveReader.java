@@ -0,0 +1,235 @@
+package org.rcsb.mmtf.decoder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+import org.rcsb.mmtf.encoder.ArchiveWriter;
+
+/**
+ * Reads the structures of an archive written by the {@link ArchiveWriter}.
+ * <p>
+ * The archive is memory mapped: the data of a structure is found by a binary search of the
+ * index and returned as a read-only view of the mapping, without copying it. Iterating over the
+ * reader gives the ids of the structures in the order of their data in the file, so that a full
+ * scan reads the file sequentially. The reader can be shared between threads.
+ */
+public class ArchiveReader implements Closeable, Iterable<String> {
+
+	/** The size of the mappings of the data, as a single mapping cannot exceed 2GB */
+	private static final long SEGMENT_SIZE = 1L << 30;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	/** The ids of the structures, sorted */
+	private final String[] structureIds;
+	private final long[] offsets;
+	private final int[] lengths;
+	/** The indices of the structures in the order of their data in the file */
+	private final int[] fileOrder;
+
+	/**
+	 * Open an archive and read its index.
+	 * @param path the path of the archive
+	 * @throws IOException an error reading the file, or if it is not an archive
+	 */
+	public ArchiveReader(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			byte[] magic = ArchiveWriter.MAGIC;
+			if (size < magic.length + ArchiveWriter.TRAILER_LENGTH) {
+				throw new IOException("Not an MMTF archive: "+path);
+			}
+			ByteBuffer trailer = channel.map(MapMode.READ_ONLY, size - ArchiveWriter.TRAILER_LENGTH, ArchiveWriter.TRAILER_LENGTH);
+			long indexOffset = trailer.getLong();
+			int numStructures = trailer.getInt();
+			byte[] endMagic = new byte[magic.length];
+			trailer.get(endMagic);
+			if (!Arrays.equals(magic, endMagic) || indexOffset < magic.length || indexOffset > size - ArchiveWriter.TRAILER_LENGTH) {
+				throw new IOException("Not an MMTF archive, or an archive not closed: "+path);
+			}
+			ByteBuffer index = channel.map(MapMode.READ_ONLY, indexOffset, size - ArchiveWriter.TRAILER_LENGTH - indexOffset);
+			structureIds = new String[numStructures];
+			offsets = new long[numStructures];
+			lengths = new int[numStructures];
+			for (int i = 0; i < numStructures; i++) {
+				byte[] structureId = new byte[index.getShort()];
+				index.get(structureId);
+				structureIds[i] = new String(structureId, StandardCharsets.UTF_8);
+				offsets[i] = index.getLong();
+				lengths[i] = index.getInt();
+			}
+			fileOrder = new int[numStructures];
+			Integer[] order = new Integer[numStructures];
+			for (int i = 0; i < numStructures; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> Long.compare(offsets[a], offsets[b]));
+			for (int i = 0; i < numStructures; i++) {
+				fileOrder[i] = order[i];
+			}
+			segments = new MappedByteBuffer[(int) ((indexOffset + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = i * SEGMENT_SIZE;
+				segments[i] = channel.map(MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, indexOffset - start));
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the number of structures in the archive
+	 */
+	public int size() {
+		return structureIds.length;
+	}
+
+	/**
+	 * @return the ids of the structures in the archive, sorted
+	 */
+	public List<String> getStructureIds() {
+		return Collections.unmodifiableList(Arrays.asList(structureIds));
+	}
+
+	/**
+	 * @param structureId the id of a structure
+	 * @return true if the structure is in the archive
+	 */
+	public boolean contains(String structureId) {
+		return Arrays.binarySearch(structureIds, structureId) >= 0;
+	}
+
+	/**
+	 * Get the data of a structure, as it was added to the archive (GZIP compressed or not).
+	 * @param structureId the id of the structure
+	 * @return a read-only view of the data, or null if the structure is not in the archive
+	 * @throws IOException an error mapping the data
+	 */
+	public ByteBuffer getBuffer(String structureId) throws IOException {
+		int index = Arrays.binarySearch(structureIds, structureId);
+		return index < 0 ? null : getBuffer(index);
+	}
+
+	/**
+	 * Get and deserialize the data of a structure.
+	 * @param structureId the id of the structure
+	 * @return the structure, or null if it is not in the archive
+	 * @throws IOException an error reading the data
+	 */
+	public MmtfStructure getData(String structureId) throws IOException {
+		ByteBuffer buffer = getBuffer(structureId);
+		if (buffer == null) {
+			return null;
+		}
+		InputStream inputStream = new ByteBufferInputStream(buffer);
+		if (buffer.remaining() > 1 && (buffer.get(0) & 0xff) == 0x1f && (buffer.get(1) & 0xff) == 0x8b) {
+			inputStream = new GZIPInputStream(inputStream, 65536);
+		}
+		try (InputStream is = inputStream) {
+			return ReaderUtils.getDataFromInputStream(is);
+		}
+	}
+
+	/**
+	 * Iterate over the ids of the structures in the order of their data in the file.
+	 * @return an iterator over the structure ids
+	 */
+	@Override
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < fileOrder.length;
+			}
+
+			@Override
+			public String next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return structureIds[fileOrder[next++]];
+			}
+		};
+	}
+
+	/**
+	 * Close the file. The buffers already returned stay valid until they are garbage collected.
+	 * @throws IOException an error closing the file
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private ByteBuffer getBuffer(int index) throws IOException {
+		long offset = offsets[index];
+		int length = lengths[index];
+		int segment = (int) (offset / SEGMENT_SIZE);
+		int start = (int) (offset - segment * SEGMENT_SIZE);
+		if (start + (long) length <= segments[segment].capacity()) {
+			// Duplicate, so that the position of the shared mapping is never changed
+			ByteBuffer buffer = segments[segment].duplicate();
+			buffer.position(start);
+			buffer.limit(start + length);
+			return buffer.slice().asReadOnlyBuffer();
+		}
+		// The data crosses two segments
+		return channel.map(MapMode.READ_ONLY, offset, length).asReadOnlyBuffer();
+	}
+
+	/**
+	 * An input stream reading a byte buffer.
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (length == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int read = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, read);
+			return read;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
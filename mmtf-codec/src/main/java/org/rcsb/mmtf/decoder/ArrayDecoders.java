@@ -1,5 +1,8 @@
 package org.rcsb.mmtf.decoder;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 /**
  * A class of array decoders.
  * @author Anthony Bradley
@@ -45,4 +48,48 @@ public class ArrayDecoders {
 		}
 		return outArray;
 	}
+
+	/**
+	 * Run length decode the first values of an array of four byte integers, without reading the
+	 * rest of the array.
+	 * @param fourByteData the encoded data, from its position
+	 * @param length the number of values to decode
+	 * @return the decoded integer array - shorter if the data holds fewer values
+	 */
+	public static int[] runlengthDecode(ByteBuffer fourByteData, int length) {
+		int[] outArray = new int[length];
+		int index = 0;
+		while (index < length && fourByteData.remaining() >= 2 * Integer.BYTES) {
+			int currentInt = fourByteData.getInt();
+			int currentCount = Math.min(fourByteData.getInt(), length - index);
+			Arrays.fill(outArray, index, index + currentCount, currentInt);
+			index += currentCount;
+		}
+		return index == length ? outArray : Arrays.copyOf(outArray, index);
+	}
+
+	/**
+	 * Recursive index and delta decode the first values of an array of two byte integers,
+	 * without reading the rest of the array.
+	 * @param twoByteData the encoded data, from its position
+	 * @param length the number of values to decode
+	 * @return the decoded integer array - shorter if the data holds fewer values
+	 */
+	public static int[] recursiveIndexDeltaDecode(ByteBuffer twoByteData, int length) {
+		int[] outArray = new int[length];
+		int index = 0;
+		int delta = 0;
+		int value = 0;
+		while (index < length && twoByteData.remaining() >= Short.BYTES) {
+			short encoded = twoByteData.getShort();
+			delta += encoded;
+			// The delta goes on while the reduced alphabet is exceeded
+			if (encoded != Short.MAX_VALUE && encoded != Short.MIN_VALUE) {
+				value += delta;
+				outArray[index++] = value;
+				delta = 0;
+			}
+		}
+		return index == length ? outArray : Arrays.copyOf(outArray, index);
+	}
 }
@@ -0,0 +1,122 @@
+package org.rcsb.mmtf.decoder;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+
+/**
+ * A cursor over atoms.
+ * @see StructureCursor
+ */
+public class AtomCursor extends StructureCursor {
+
+	/**
+	 * Constructor for a cursor over all the atoms of a structure.
+	 * @param structureDataInterface the structure to go through
+	 */
+	public AtomCursor(StructureDataInterface structureDataInterface) {
+		this(new CursorData(structureDataInterface));
+	}
+
+	AtomCursor(CursorData data) {
+		super(data, data.xCoords.length);
+	}
+
+	/**
+	 * Returns the X coordinate of the current atom.
+	 * @return the X coordinate in Angstroms
+	 */
+	public float x() {
+		return data.xCoords[index];
+	}
+
+	/**
+	 * Returns the Y coordinate of the current atom.
+	 * @return the Y coordinate in Angstroms
+	 */
+	public float y() {
+		return data.yCoords[index];
+	}
+
+	/**
+	 * Returns the Z coordinate of the current atom.
+	 * @return the Z coordinate in Angstroms
+	 */
+	public float z() {
+		return data.zCoords[index];
+	}
+
+	/**
+	 * Returns the B-factor of the current atom.
+	 * @return the B-factor in Angstroms^2
+	 */
+	public float bFactor() {
+		return data.bFactors[index];
+	}
+
+	/**
+	 * Returns the occupancy of the current atom.
+	 * @return the occupancy
+	 */
+	public float occupancy() {
+		return data.occupancies[index];
+	}
+
+	/**
+	 * Returns the serial id of the current atom.
+	 * @return the atom id (_atom_site.id in mmCIF dictionary)
+	 */
+	public int id() {
+		return data.atomIds[index];
+	}
+
+	/**
+	 * Returns the alternate location id of the current atom.
+	 * @return the alternate location id, '\0' if there is none
+	 */
+	public char altLocId() {
+		return data.altLocIds[index];
+	}
+
+	/**
+	 * Returns the name of the current atom.
+	 * @return the atom name, e.g. "CA"
+	 */
+	public String name() {
+		return data.structure.getGroupAtomNames(groupType())[atomInGroup()];
+	}
+
+	/**
+	 * Returns the element of the current atom.
+	 * @return the element, e.g. "C"
+	 */
+	public String element() {
+		return data.structure.getGroupElementNames(groupType())[atomInGroup()];
+	}
+
+	/**
+	 * Returns the formal charge of the current atom.
+	 * @return the charge
+	 */
+	public int charge() {
+		return data.structure.getGroupAtomCharges(groupType())[atomInGroup()];
+	}
+
+	/**
+	 * Returns the index of the group of the current atom.
+	 * @return the index of the group in the structure
+	 */
+	public int groupIndex() {
+		return data.hierarchyIndex.getAtomToGroupIndices()[index];
+	}
+
+	/**
+	 * Returns the index of the current atom within its group.
+	 * @return the index of the atom in the group level arrays, e.g. {@link StructureDataInterface#getGroupAtomNames(int)}
+	 */
+	public int atomInGroup() {
+		return index - data.hierarchyIndex.getAtomOffsets()[groupIndex()];
+	}
+
+	private int groupType() {
+		return data.groupTypeIndices[groupIndex()];
+	}
+}
@@ -0,0 +1,330 @@
+package org.rcsb.mmtf.decoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+
+/**
+ * A loader of many local MMTF files, plain or GZIP compressed.
+ * <p>
+ * The files go through a pipeline of four stages: reading, inflating, parsing the MessagePack data and
+ * decoding. Each stage has its own threads, and the stages are linked by queues of bounded capacity:
+ * when the structures are not consumed as fast as they are loaded, the stages block on their
+ * queues, so that the number of structures in memory is bounded whatever the number of files.
+ * The structures are given in the order they are loaded, not the order of the files.
+ * A file that cannot be loaded gives a {@link Result} holding the exception or error, and the
+ * other files are still loaded. The setters return the loader so they can be chained, e.g.
+ * <code>new BatchLoader().setDecodeThreads(8).setQueueCapacity(16)</code>.
+ */
+public class BatchLoader {
+
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+	private int readThreads = 2;
+	private int inflateThreads = Runtime.getRuntime().availableProcessors();
+	private int parseThreads = Runtime.getRuntime().availableProcessors();
+	private int decodeThreads = Runtime.getRuntime().availableProcessors();
+	private int queueCapacity = 64;
+	private Function<MmtfStructure, StructureDataInterface> decoder = GenericDecoder::new;
+
+	/**
+	 * List the MMTF files (.mmtf and .mmtf.gz) of a directory and its subdirectories.
+	 * @param directory the directory
+	 * @return the paths of the files, sorted
+	 * @throws IOException an error listing the directory
+	 */
+	public static List<Path> listFiles(Path directory) throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			return paths.filter(path -> {
+				String name = path.getFileName().toString();
+				return Files.isRegularFile(path) && (name.endsWith(".mmtf") || name.endsWith(".mmtf.gz"));
+			}).sorted().collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Load files, giving the structures to a consumer on the calling thread as they are loaded.
+	 * The loading is held back while the consumer is busy. This method returns when all the
+	 * files have been given to the consumer.
+	 * @param paths the paths of the files
+	 * @param consumer the consumer of the results
+	 */
+	public void load(Collection<Path> paths, Consumer<Result> consumer) {
+		try (Results results = load(paths)) {
+			while (results.hasNext()) {
+				consumer.accept(results.next());
+			}
+		}
+	}
+
+	/**
+	 * Start loading files. The loading threads stop once all the results are consumed, or
+	 * {@link Results#hasNext()} returns false. Otherwise the results must be closed to stop them.
+	 * @param paths the paths of the files
+	 * @return an iterator over the results, waiting for the next structure to be loaded
+	 */
+	public Results load(Collection<Path> paths) {
+		return new Results(new ArrayList<>(paths));
+	}
+
+	/**
+	 * @param readThreads the number of threads reading the files
+	 * @return the loader
+	 */
+	public BatchLoader setReadThreads(int readThreads) {
+		this.readThreads = checkThreads(readThreads);
+		return this;
+	}
+
+	/**
+	 * @param inflateThreads the number of threads inflating the GZIP compressed data
+	 * @return the loader
+	 */
+	public BatchLoader setInflateThreads(int inflateThreads) {
+		this.inflateThreads = checkThreads(inflateThreads);
+		return this;
+	}
+
+	/**
+	 * @param parseThreads the number of threads parsing the MessagePack data
+	 * @return the loader
+	 */
+	public BatchLoader setParseThreads(int parseThreads) {
+		this.parseThreads = checkThreads(parseThreads);
+		return this;
+	}
+
+	/**
+	 * @param decodeThreads the number of threads decoding the structures
+	 * @return the loader
+	 */
+	public BatchLoader setDecodeThreads(int decodeThreads) {
+		this.decodeThreads = checkThreads(decodeThreads);
+		return this;
+	}
+
+	/**
+	 * @param queueCapacity the number of files waiting between two stages
+	 * @return the loader
+	 */
+	public BatchLoader setQueueCapacity(int queueCapacity) {
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("The queue capacity must be positive: "+queueCapacity);
+		}
+		this.queueCapacity = queueCapacity;
+		return this;
+	}
+
+	/**
+	 * Set the decoder of the structures, e.g. <code>LazyDecoder::new</code>.
+	 * By default the {@link GenericDecoder} is used.
+	 * @param decoder the function decoding an {@link MmtfStructure}
+	 * @return the loader
+	 */
+	public BatchLoader setDecoder(Function<MmtfStructure, StructureDataInterface> decoder) {
+		this.decoder = decoder;
+		return this;
+	}
+
+	private static int checkThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be positive: "+threads);
+		}
+		return threads;
+	}
+
+	/**
+	 * The outcome of loading a file: the structure, or the exception or error thrown loading it.
+	 */
+	public static final class Result {
+
+		private final Path path;
+		private byte[] bytes;
+		private MmtfStructure mmtfStructure;
+		private StructureDataInterface structure;
+		private Throwable exception;
+
+		private Result(Path path) {
+			this.path = path;
+		}
+
+		/**
+		 * @return the path of the file
+		 */
+		public Path getPath() {
+			return path;
+		}
+
+		/**
+		 * @return the structure, or null if the file could not be loaded
+		 */
+		public StructureDataInterface getStructure() {
+			return structure;
+		}
+
+		/**
+		 * @return the exception or error (e.g. an {@link OutOfMemoryError}) thrown loading the file,
+		 * or null if it was loaded
+		 */
+		public Throwable getException() {
+			return exception;
+		}
+	}
+
+	/**
+	 * A stage of the pipeline, filling in a result from the previous stage.
+	 */
+	@FunctionalInterface
+	private interface Stage {
+		void process(Result result) throws IOException;
+	}
+
+	/**
+	 * The results of loading files, as they are loaded.
+	 */
+	public final class Results implements Iterator<Result>, AutoCloseable {
+
+		private final int numFiles;
+		private final BlockingQueue<Result> output = new ArrayBlockingQueue<>(queueCapacity);
+		private final ExecutorService executor;
+		private int numReturned;
+
+		private Results(List<Path> paths) {
+			numFiles = paths.size();
+			executor = Executors.newFixedThreadPool(readThreads + inflateThreads + parseThreads + decodeThreads, runnable -> {
+				Thread thread = new Thread(runnable, "mmtf-batch-loader-"+THREAD_COUNT.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+			BlockingQueue<Result> read = new ArrayBlockingQueue<>(queueCapacity);
+			BlockingQueue<Result> inflated = new ArrayBlockingQueue<>(queueCapacity);
+			BlockingQueue<Result> parsed = new ArrayBlockingQueue<>(queueCapacity);
+			Function<MmtfStructure, StructureDataInterface> decoder = BatchLoader.this.decoder;
+			AtomicInteger nextPath = new AtomicInteger();
+			for (int i = 0; i < readThreads; i++) {
+				executor.execute(() -> {
+					try {
+						int index;
+						while ((index = nextPath.getAndIncrement()) < numFiles) {
+							Result result = new Result(paths.get(index));
+							process(result, r -> r.bytes = Files.readAllBytes(r.path));
+							read.put(result);
+						}
+					}
+					catch (InterruptedException e) {
+						// Closed
+					}
+				});
+			}
+			startStage(inflateThreads, read, inflated, r -> {
+				if (ReaderUtils.isGzip(r.bytes)) {
+					r.bytes = ReaderUtils.deflateGzip(r.bytes);
+				}
+			});
+			startStage(parseThreads, inflated, parsed, r -> {
+				r.mmtfStructure = ReaderUtils.getDataFromInputStream(new ByteArrayInputStream(r.bytes));
+				r.bytes = null;
+			});
+			startStage(decodeThreads, parsed, output, r -> {
+				r.structure = decoder.apply(r.mmtfStructure);
+				r.mmtfStructure = null;
+			});
+			if (numFiles == 0) {
+				close();
+			}
+		}
+
+		private void startStage(int threads, BlockingQueue<Result> input, BlockingQueue<Result> output, Stage stage) {
+			for (int i = 0; i < threads; i++) {
+				executor.execute(() -> {
+					try {
+						while (true) {
+							Result result = input.take();
+							if (result.exception == null) {
+								process(result, stage);
+							}
+							output.put(result);
+						}
+					}
+					catch (InterruptedException e) {
+						// Closed
+					}
+				});
+			}
+		}
+
+		private void process(Result result, Stage stage) {
+			try {
+				stage.process(result);
+			}
+			catch (Throwable e) {
+				// Errors too, so that the result still goes down the pipeline
+				result.exception = e;
+				result.bytes = null;
+				result.mmtfStructure = null;
+			}
+		}
+
+		/**
+		 * The loading threads are stopped as soon as there are no results left.
+		 * @return true if there are results left, and the results have not been closed
+		 */
+		@Override
+		public boolean hasNext() {
+			if (numReturned < numFiles && !executor.isShutdown()) {
+				return true;
+			}
+			close();
+			return false;
+		}
+
+		/**
+		 * Wait for the next structure to be loaded.
+		 * @throws IllegalStateException if the thread is interrupted while waiting
+		 */
+		@Override
+		public Result next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			try {
+				Result result = output.take();
+				if (++numReturned == numFiles) {
+					close();
+				}
+				return result;
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				throw new IllegalStateException("Interrupted while waiting for a structure", e);
+			}
+		}
+
+		/**
+		 * Stop the loading threads.
+		 */
+		@Override
+		public void close() {
+			executor.shutdownNow();
+		}
+	}
+}
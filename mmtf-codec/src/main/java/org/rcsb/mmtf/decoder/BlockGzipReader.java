@@ -0,0 +1,316 @@
+package org.rcsb.mmtf.decoder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessageUnpacker;
+import org.rcsb.mmtf.encoder.BlockGzipWriter;
+
+/**
+ * Reads a blocked gzip (BGZF style) container, as written by {@link BlockGzipWriter}.
+ * <p>
+ * The block layout is found by hopping over the block headers, without inflating anything.
+ * The whole container can then be inflated with the blocks spread over a {@link ForkJoinPool},
+ * or a single range (or a single indexed MessagePack column) can be inflated on its own.
+ */
+public class BlockGzipReader {
+
+	/** The number of blocks below which a task is not split any further. */
+	private static final int BLOCKS_PER_TASK = 2;
+
+	private final byte[] data;
+	/** The offset of the compressed data of each block. */
+	private final int[] compressedOffsets;
+	/** The length of the compressed data of each block. */
+	private final int[] compressedLengths;
+	/** The offset of each block in the uncompressed data. Has one extra entry for the total length. */
+	private final int[] uncompressedOffsets;
+	/** The column index found in the container (empty if none). */
+	private final Map<String, int[]> columnIndex;
+
+	/**
+	 * Constructor that reads the block layout of the container.
+	 * @param data the blocked gzip data
+	 * @throws IOException if the data is not a blocked gzip container
+	 */
+	public BlockGzipReader(byte[] data) throws IOException {
+		this.data = data;
+		int numBlocks = 0;
+		int[] offsets = new int[16];
+		int[] lengths = new int[16];
+		int[] uncompressed = new int[17];
+		Map<String, int[]> index = Collections.emptyMap();
+		ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+		int position = 0;
+		while (position < data.length) {
+			if (!isBlockHeader(data, position)) {
+				throw new IOException("Not a blocked gzip block at offset "+position);
+			}
+			int extraLength = buffer.getShort(position + 10) & 0xffff;
+			int blockSize = -1;
+			for (int i = position + 12; i < position + 12 + extraLength;) {
+				int subfieldLength = buffer.getShort(i + 2) & 0xffff;
+				if (data[i] == 'B' && data[i + 1] == 'C' && subfieldLength == 2) {
+					blockSize = (buffer.getShort(i + 4) & 0xffff) + 1;
+				}
+				else if (data[i] == 'M' && data[i + 1] == 'I') {
+					index = decodeIndex(buffer, i + 4);
+				}
+				i += 4 + subfieldLength;
+			}
+			if (blockSize < 0 || position + blockSize > data.length) {
+				throw new IOException("Invalid block size at offset "+position);
+			}
+			if (numBlocks == offsets.length) {
+				offsets = Arrays.copyOf(offsets, numBlocks * 2);
+				lengths = Arrays.copyOf(lengths, numBlocks * 2);
+				uncompressed = Arrays.copyOf(uncompressed, numBlocks * 2 + 1);
+			}
+			offsets[numBlocks] = position + 12 + extraLength;
+			lengths[numBlocks] = blockSize - 12 - extraLength - 8;
+			uncompressed[numBlocks + 1] = uncompressed[numBlocks] + buffer.getInt(position + blockSize - 4);
+			numBlocks++;
+			position += blockSize;
+		}
+		compressedOffsets = Arrays.copyOf(offsets, numBlocks);
+		compressedLengths = Arrays.copyOf(lengths, numBlocks);
+		uncompressedOffsets = Arrays.copyOf(uncompressed, numBlocks + 1);
+		columnIndex = index;
+	}
+
+	/**
+	 * Check whether a byte array starts with a blocked gzip block.
+	 * @param data the input byte array
+	 * @return true if the first gzip member carries the BGZF block size subfield
+	 */
+	public static boolean isBlockGzip(byte[] data) {
+		return data.length >= 18 && isBlockHeader(data, 0) && data[12] == 'B' && data[13] == 'C';
+	}
+
+	/**
+	 * Get the number of blocks in the container (including the terminating empty block).
+	 * @return the number of blocks
+	 */
+	public int getNumBlocks() {
+		return compressedOffsets.length;
+	}
+
+	/**
+	 * Get the total length of the uncompressed data.
+	 * @return the number of uncompressed bytes
+	 */
+	public int getUncompressedLength() {
+		return uncompressedOffsets[uncompressedOffsets.length - 1];
+	}
+
+	/**
+	 * Get the names of the indexed columns.
+	 * @return the column names, empty if the container has no index
+	 */
+	public Set<String> getColumnNames() {
+		return columnIndex.keySet();
+	}
+
+	/**
+	 * Inflate the whole container, using the common {@link ForkJoinPool}.
+	 * @return the uncompressed data
+	 * @throws IOException an error inflating the data
+	 */
+	public byte[] inflate() throws IOException {
+		return inflate(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Inflate the whole container, with the blocks inflated concurrently on a pool.
+	 * @param pool the pool to inflate the blocks on
+	 * @return the uncompressed data
+	 * @throws IOException an error inflating the data
+	 */
+	public byte[] inflate(ForkJoinPool pool) throws IOException {
+		byte[] outputData = new byte[getUncompressedLength()];
+		try {
+			pool.invoke(new InflateTask(outputData, 0, getNumBlocks()));
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return outputData;
+	}
+
+	/**
+	 * Inflate a range of the uncompressed data, only inflating the blocks covering it.
+	 * @param offset the offset in the uncompressed data
+	 * @param length the number of bytes to read
+	 * @return the uncompressed bytes
+	 * @throws IOException an error inflating the data
+	 */
+	public byte[] read(int offset, int length) throws IOException {
+		if (offset < 0 || length < 0 || offset + length > getUncompressedLength()) {
+			throw new IndexOutOfBoundsException("Range "+offset+"+"+length+" outside of "+getUncompressedLength());
+		}
+		byte[] outputData = new byte[length];
+		int block = findBlock(offset);
+		int written = 0;
+		while (written < length) {
+			int blockStart = uncompressedOffsets[block];
+			byte[] blockData = new byte[uncompressedOffsets[block + 1] - blockStart];
+			inflateBlock(block, blockData, 0);
+			int from = offset + written - blockStart;
+			int count = Math.min(blockData.length - from, length - written);
+			System.arraycopy(blockData, from, outputData, written, count);
+			written += count;
+			block++;
+		}
+		return outputData;
+	}
+
+	/**
+	 * Read the MessagePack serialized value of an indexed column.
+	 * @param columnName the name of the column, e.g. xCoordList
+	 * @return the serialized value or null if the column is not indexed
+	 * @throws IOException an error inflating the data
+	 */
+	public byte[] readColumn(String columnName) throws IOException {
+		int[] entry = columnIndex.get(columnName);
+		if (entry == null) {
+			return null;
+		}
+		return read(entry[0], entry[1]);
+	}
+
+	/**
+	 * Read an indexed binary column, e.g. to be passed to
+	 * {@link org.rcsb.mmtf.codec.FloatCodecs#decodeArr(byte[])}.
+	 * @param columnName the name of the column, e.g. xCoordList
+	 * @return the binary data or null if the column is not indexed or is nil
+	 * @throws IOException an error inflating the data or if the column is not binary
+	 */
+	public byte[] readBinaryColumn(String columnName) throws IOException {
+		byte[] value = readColumn(columnName);
+		if (value == null) {
+			return null;
+		}
+		try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(value)) {
+			if (unpacker.tryUnpackNil()) {
+				return null;
+			}
+			return unpacker.readPayload(unpacker.unpackBinaryHeader());
+		}
+	}
+
+	/**
+	 * Find the block containing an offset in the uncompressed data.
+	 */
+	private int findBlock(int offset) {
+		int block = Arrays.binarySearch(uncompressedOffsets, offset);
+		if (block < 0) {
+			return -block - 2;
+		}
+		// Skip any empty blocks starting at this offset
+		while (block < getNumBlocks() - 1 && uncompressedOffsets[block + 1] == offset) {
+			block++;
+		}
+		return block;
+	}
+
+	/**
+	 * Inflate a single block into an output array and check its CRC.
+	 */
+	private void inflateBlock(int block, byte[] outputData, int outputOffset) throws IOException {
+		int length = uncompressedOffsets[block + 1] - uncompressedOffsets[block];
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(data, compressedOffsets[block], compressedLengths[block]);
+			int inflated = 0;
+			while (inflated < length) {
+				int count = inflater.inflate(outputData, outputOffset + inflated, length - inflated);
+				if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+					break;
+				}
+				inflated += count;
+			}
+			if (inflated != length) {
+				throw new IOException("Truncated block "+block);
+			}
+		}
+		catch (DataFormatException e) {
+			throw new IOException("Corrupt block "+block, e);
+		}
+		finally {
+			inflater.end();
+		}
+		CRC32 crc = new CRC32();
+		crc.update(outputData, outputOffset, length);
+		int expected = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN)
+				.getInt(compressedOffsets[block] + compressedLengths[block]);
+		if ((int) crc.getValue() != expected) {
+			throw new IOException("CRC mismatch in block "+block);
+		}
+	}
+
+	private static boolean isBlockHeader(byte[] data, int position) {
+		return position + 12 <= data.length && data[position] == 31 && data[position + 1] == (byte) 139
+				&& data[position + 2] == 8 && (data[position + 3] & 4) != 0;
+	}
+
+	private static Map<String, int[]> decodeIndex(ByteBuffer buffer, int position) {
+		Map<String, int[]> index = new LinkedHashMap<>();
+		int numEntries = buffer.getInt(position);
+		position += 4;
+		for (int i = 0; i < numEntries; i++) {
+			int nameLength = buffer.get(position) & 0xff;
+			String name = new String(buffer.array(), position + 1, nameLength, StandardCharsets.UTF_8);
+			position += 1 + nameLength;
+			index.put(name, new int[] {buffer.getInt(position), buffer.getInt(position + 4)});
+			position += 8;
+		}
+		return index;
+	}
+
+	/**
+	 * Fork-join task inflating a range of blocks into their place in the output.
+	 */
+	private class InflateTask extends RecursiveAction {
+		private static final long serialVersionUID = -2350465407745960391L;
+		private final byte[] outputData;
+		private final int startBlock;
+		private final int endBlock;
+
+		InflateTask(byte[] outputData, int startBlock, int endBlock) {
+			this.outputData = outputData;
+			this.startBlock = startBlock;
+			this.endBlock = endBlock;
+		}
+
+		@Override
+		protected void compute() {
+			if (endBlock - startBlock <= BLOCKS_PER_TASK) {
+				try {
+					for (int block = startBlock; block < endBlock; block++) {
+						inflateBlock(block, outputData, uncompressedOffsets[block]);
+					}
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return;
+			}
+			int middle = (startBlock + endBlock) >>> 1;
+			invokeAll(new InflateTask(outputData, startBlock, middle), new InflateTask(outputData, middle, endBlock));
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package org.rcsb.mmtf.decoder;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+
+/**
+ * A cursor over chains.
+ * @see StructureCursor
+ */
+public class ChainCursor extends StructureCursor {
+
+	/** The cursor over the groups of the current chain */
+	private GroupCursor groupCursor;
+
+	/** The cursor over the atoms of the current chain */
+	private AtomCursor atomCursor;
+
+	/**
+	 * Constructor for a cursor over all the chains of a structure.
+	 * @param structureDataInterface the structure to go through
+	 */
+	public ChainCursor(StructureDataInterface structureDataInterface) {
+		this(new CursorData(structureDataInterface));
+	}
+
+	ChainCursor(CursorData data) {
+		super(data, data.chainIds.length);
+	}
+
+	/**
+	 * Returns the id of the current chain.
+	 * @return the chain id (asym_id in mmCIF dictionary)
+	 */
+	public String id() {
+		return data.chainIds[index];
+	}
+
+	/**
+	 * Returns the name of the current chain.
+	 * @return the chain name (auth_asym_id in mmCIF dictionary)
+	 */
+	public String name() {
+		return data.chainNames[index];
+	}
+
+	/**
+	 * Returns the index of the model of the current chain.
+	 * @return the index of the model in the structure
+	 */
+	public int modelIndex() {
+		return data.hierarchyIndex.getChainToModelIndices()[index];
+	}
+
+	/**
+	 * Returns the number of groups of the current chain.
+	 * @return the number of groups
+	 */
+	public int numGroups() {
+		int[] groupOffsets = data.hierarchyIndex.getGroupOffsets();
+		return groupOffsets[index + 1] - groupOffsets[index];
+	}
+
+	/**
+	 * Returns the cursor over the groups of the current chain.
+	 * @return the group cursor, positioned before the first group of the chain
+	 */
+	public GroupCursor groups() {
+		if (groupCursor == null) {
+			groupCursor = new GroupCursor(data);
+		}
+		int[] groupOffsets = data.hierarchyIndex.getGroupOffsets();
+		groupCursor.reset(groupOffsets[index], groupOffsets[index + 1]);
+		return groupCursor;
+	}
+
+	/**
+	 * Returns the cursor over the atoms of the current chain.
+	 * @return the atom cursor, positioned before the first atom of the chain
+	 */
+	public AtomCursor atoms() {
+		if (atomCursor == null) {
+			atomCursor = new AtomCursor(data);
+		}
+		int[] groupOffsets = data.hierarchyIndex.getGroupOffsets();
+		int[] atomOffsets = data.hierarchyIndex.getAtomOffsets();
+		atomCursor.reset(atomOffsets[groupOffsets[index]], atomOffsets[groupOffsets[index + 1]]);
+		return atomCursor;
+	}
+}
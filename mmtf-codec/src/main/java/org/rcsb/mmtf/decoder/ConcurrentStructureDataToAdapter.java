@@ -0,0 +1,194 @@
+package org.rcsb.mmtf.decoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.rcsb.mmtf.api.ConcurrentStructureAdapterInterface;
+import org.rcsb.mmtf.api.StructureDataInterface;
+
+/**
+ * Pass data from a {@link StructureDataInterface} into a {@link ConcurrentStructureAdapterInterface},
+ * with the chains of the structure passed in parallel. The models are dispatched
+ * to the worker threads instead if there are several, e.g. for NMR ensembles.
+ * <p>
+ * The atom, group and chain of each call are found with a {@link HierarchyIndex},
+ * so no state is shared between the threads.
+ */
+public class ConcurrentStructureDataToAdapter {
+
+	/** The struct inflator. */
+	private final ConcurrentStructureAdapterInterface structInflator;
+
+	/** The api to the data */
+	private final StructureDataInterface dataApi;
+
+	/** The offsets of the hierarchy */
+	private final HierarchyIndex hierarchyIndex;
+
+	// The columns of the data, only fetched once
+	private final int[] groupTypeIndices;
+	private final int[] groupIds;
+	private final char[] insCodes;
+	private final int[] groupSequenceIndices;
+	private final int[] secStructList;
+	private final int[] atomIds;
+	private final char[] altLocIds;
+	private final float[] xCoords;
+	private final float[] yCoords;
+	private final float[] zCoords;
+	private final float[] occupancies;
+	private final float[] bFactors;
+	private final String[] chainIds;
+	private final String[] chainNames;
+
+	/**
+	 * Passes data from the data interface to the inflator interface, using the common pool.
+	 * @param inputApi the interface to the decoded data
+	 * @param inputInflator the interface to put the data into the client object
+	 */
+	public ConcurrentStructureDataToAdapter(StructureDataInterface inputApi, ConcurrentStructureAdapterInterface inputInflator) {
+		this(inputApi, inputInflator, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Passes data from the data interface to the inflator interface.
+	 * @param inputApi the interface to the decoded data
+	 * @param inputInflator the interface to put the data into the client object
+	 * @param executor the executor passing the chains (or models) to the inflator
+	 */
+	public ConcurrentStructureDataToAdapter(StructureDataInterface inputApi, ConcurrentStructureAdapterInterface inputInflator,
+			Executor executor) {
+		dataApi = inputApi;
+		structInflator = inputInflator;
+		hierarchyIndex = new HierarchyIndex(dataApi);
+		groupTypeIndices = dataApi.getGroupTypeIndices();
+		groupIds = dataApi.getGroupIds();
+		insCodes = dataApi.getInsCodes();
+		groupSequenceIndices = dataApi.getGroupSequenceIndices();
+		secStructList = dataApi.getSecStructList();
+		atomIds = dataApi.getAtomIds();
+		altLocIds = dataApi.getAltLocIds();
+		xCoords = dataApi.getxCoords();
+		yCoords = dataApi.getyCoords();
+		zCoords = dataApi.getzCoords();
+		occupancies = dataApi.getOccupancies();
+		bFactors = dataApi.getbFactors();
+		chainIds = dataApi.getChainIds();
+		chainNames = dataApi.getChainNames();
+		// Do any required preparation
+		structInflator.initStructure(dataApi.getNumBonds(), dataApi.getNumAtoms(), dataApi.getNumGroups(),
+				dataApi.getNumChains(), dataApi.getNumModels(), dataApi.getStructureId());
+		int[] chainOffsets = hierarchyIndex.getChainOffsets();
+		int numModels = chainOffsets.length - 1;
+		for (int modelIndex = 0; modelIndex < numModels; modelIndex++) {
+			structInflator.setModelInfo(modelIndex, chainOffsets[modelIndex],
+					chainOffsets[modelIndex + 1] - chainOffsets[modelIndex]);
+		}
+		// Now add the chains in parallel - by model if there are several
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		if (numModels > 1) {
+			for (int modelIndex = 0; modelIndex < numModels; modelIndex++) {
+				int firstChain = chainOffsets[modelIndex];
+				int lastChain = chainOffsets[modelIndex + 1];
+				futures.add(CompletableFuture.runAsync(() -> addChains(firstChain, lastChain), executor));
+			}
+		}
+		else {
+			for (int chainIndex = 0; chainIndex < dataApi.getNumChains(); chainIndex++) {
+				int firstChain = chainIndex;
+				futures.add(CompletableFuture.runAsync(() -> addChains(firstChain, firstChain + 1), executor));
+			}
+		}
+		join(CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])));
+		// Now add the structure level information
+		structInflator.setHeaderInfo(dataApi.getRfree(), dataApi.getRwork(), dataApi.getResolution(),
+				dataApi.getTitle(), dataApi.getDepositionDate(), dataApi.getReleaseDate(), dataApi.getExperimentalMethods());
+		if (dataApi.getUnitCell() != null) {
+			structInflator.setXtalInfo(dataApi.getSpaceGroup(), dataApi.getUnitCell(), dataApi.getNcsOperatorList());
+		}
+		for (int i = 0; i < dataApi.getNumBioassemblies(); i++) {
+			for (int j = 0; j < dataApi.getNumTransInBioassembly(i); j++) {
+				structInflator.setBioAssemblyTrans(i, dataApi.getChainIndexListForTransform(i, j),
+						dataApi.getMatrixForTransform(i, j), Integer.toString(i + 1));
+			}
+		}
+		int[] interGroupBondIndices = dataApi.getInterGroupBondIndices();
+		int[] interGroupBondOrders = dataApi.getInterGroupBondOrders();
+		for (int i = 0; i < interGroupBondOrders.length; i++) {
+			structInflator.setInterGroupBond(interGroupBondIndices[i * 2], interGroupBondIndices[i * 2 + 1],
+					interGroupBondOrders[i]);
+		}
+		for (int i = 0; i < dataApi.getNumEntities(); i++) {
+			structInflator.setEntityInfo(dataApi.getEntityChainIndexList(i), dataApi.getEntitySequence(i),
+					dataApi.getEntityDescription(i), dataApi.getEntityType(i));
+		}
+		// Now do any required cleanup
+		structInflator.finalizeStructure();
+	}
+
+	/**
+	 * Add a range of chains, with their groups and atoms.
+	 * @param firstChain the index of the first chain
+	 * @param lastChain the index after the last chain
+	 */
+	private void addChains(int firstChain, int lastChain) {
+		int[] groupOffsets = hierarchyIndex.getGroupOffsets();
+		int[] chainToModel = hierarchyIndex.getChainToModelIndices();
+		for (int chainIndex = firstChain; chainIndex < lastChain; chainIndex++) {
+			structInflator.setChainInfo(chainIndex, chainToModel[chainIndex], chainIds[chainIndex], chainNames[chainIndex],
+					groupOffsets[chainIndex + 1] - groupOffsets[chainIndex]);
+			for (int groupIndex = groupOffsets[chainIndex]; groupIndex < groupOffsets[chainIndex + 1]; groupIndex++) {
+				addGroup(groupIndex, chainIndex);
+			}
+		}
+	}
+
+	/**
+	 * Add a group, with its atoms and bonds.
+	 * @param groupIndex the index of the group in the structure
+	 * @param chainIndex the index of the chain of the group
+	 */
+	private void addGroup(int groupIndex, int chainIndex) {
+		int groupType = groupTypeIndices[groupIndex];
+		int[] bondIndices = dataApi.getGroupBondIndices(groupType);
+		int[] bondOrders = dataApi.getGroupBondOrders(groupType);
+		int firstAtom = hierarchyIndex.getAtomOffsets()[groupIndex];
+		int atomCount = hierarchyIndex.getAtomOffsets()[groupIndex + 1] - firstAtom;
+		structInflator.setGroupInfo(groupIndex, chainIndex, dataApi.getGroupName(groupType), groupIds[groupIndex],
+				insCodes[groupIndex], dataApi.getGroupChemCompType(groupType), atomCount, bondOrders.length,
+				dataApi.getGroupSingleLetterCode(groupType), groupSequenceIndices[groupIndex], secStructList[groupIndex]);
+		String[] atomNames = dataApi.getGroupAtomNames(groupType);
+		String[] elementNames = dataApi.getGroupElementNames(groupType);
+		int[] atomCharges = dataApi.getGroupAtomCharges(groupType);
+		for (int atomInGroup = 0; atomInGroup < atomCount; atomInGroup++) {
+			int atomIndex = firstAtom + atomInGroup;
+			structInflator.setAtomInfo(atomIndex, groupIndex, atomInGroup, atomNames[atomInGroup], atomIds[atomIndex],
+					altLocIds[atomIndex], xCoords[atomIndex], yCoords[atomIndex], zCoords[atomIndex],
+					occupancies[atomIndex], bFactors[atomIndex], elementNames[atomInGroup], atomCharges[atomInGroup]);
+		}
+		for (int bondIndex = 0; bondIndex < bondOrders.length; bondIndex++) {
+			structInflator.setGroupBond(groupIndex, bondIndex, bondIndices[bondIndex * 2], bondIndices[bondIndex * 2 + 1],
+					bondOrders[bondIndex]);
+		}
+	}
+
+	/**
+	 * Wait for a future, rethrowing the cause of a failure.
+	 * @param future the future to wait for
+	 */
+	private static void join(CompletableFuture<?> future) {
+		try {
+			future.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+}
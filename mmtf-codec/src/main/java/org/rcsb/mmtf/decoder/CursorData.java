@@ -0,0 +1,46 @@
+package org.rcsb.mmtf.decoder;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+
+/**
+ * The columns of a {@link StructureDataInterface} and its {@link HierarchyIndex},
+ * fetched once and shared by the cursors over it.
+ */
+final class CursorData {
+
+	final StructureDataInterface structure;
+	final HierarchyIndex hierarchyIndex;
+	final float[] xCoords;
+	final float[] yCoords;
+	final float[] zCoords;
+	final float[] bFactors;
+	final float[] occupancies;
+	final int[] atomIds;
+	final char[] altLocIds;
+	final int[] groupTypeIndices;
+	final int[] groupIds;
+	final char[] insCodes;
+	final int[] groupSequenceIndices;
+	final int[] secStructList;
+	final String[] chainIds;
+	final String[] chainNames;
+
+	CursorData(StructureDataInterface structure) {
+		this.structure = structure;
+		hierarchyIndex = new HierarchyIndex(structure);
+		xCoords = structure.getxCoords();
+		yCoords = structure.getyCoords();
+		zCoords = structure.getzCoords();
+		bFactors = structure.getbFactors();
+		occupancies = structure.getOccupancies();
+		atomIds = structure.getAtomIds();
+		altLocIds = structure.getAltLocIds();
+		groupTypeIndices = structure.getGroupTypeIndices();
+		groupIds = structure.getGroupIds();
+		insCodes = structure.getInsCodes();
+		groupSequenceIndices = structure.getGroupSequenceIndices();
+		secStructList = structure.getSecStructList();
+		chainIds = structure.getChainIds();
+		chainNames = structure.getChainNames();
+	}
+}
@@ -0,0 +1,90 @@
+package org.rcsb.mmtf.decoder;
+
+import java.io.Serializable;
+
+/**
+ * The parts of a structure to keep when decoding with the {@link FilteredDecoder}.
+ * By default everything is kept. The setters return the options so they can be chained, e.g.
+ * <code>new DecoderOptions().setModelIndex(0).setExcludeHydrogens(true)</code>.
+ */
+public class DecoderOptions implements Serializable {
+
+	private static final long serialVersionUID = -1540357386405931612L;
+
+	/** The value of the model index to keep all the models */
+	public static final int ALL_MODELS = -1;
+
+	private int modelIndex = ALL_MODELS;
+	private boolean polymerChainsOnly;
+	private boolean excludeHydrogens;
+	private boolean firstAltLocOnly;
+
+	/**
+	 * @return the index of the model to keep, or {@link #ALL_MODELS}
+	 */
+	public int getModelIndex() {
+		return modelIndex;
+	}
+
+	/**
+	 * Keep a single model, e.g. 0 for the first model of an NMR ensemble.
+	 * @param modelIndex the index of the model to keep, or {@link #ALL_MODELS}
+	 * @return these options
+	 */
+	public DecoderOptions setModelIndex(int modelIndex) {
+		this.modelIndex = modelIndex;
+		return this;
+	}
+
+	/**
+	 * @return true if only the chains of polymer entities are kept
+	 */
+	public boolean isPolymerChainsOnly() {
+		return polymerChainsOnly;
+	}
+
+	/**
+	 * Keep only the chains of polymer entities, i.e. drop the ligand and water chains.
+	 * @param polymerChainsOnly true to keep only the polymer chains
+	 * @return these options
+	 */
+	public DecoderOptions setPolymerChainsOnly(boolean polymerChainsOnly) {
+		this.polymerChainsOnly = polymerChainsOnly;
+		return this;
+	}
+
+	/**
+	 * @return true if the hydrogen (and deuterium) atoms are dropped
+	 */
+	public boolean isExcludeHydrogens() {
+		return excludeHydrogens;
+	}
+
+	/**
+	 * Drop the hydrogen and deuterium atoms.
+	 * @param excludeHydrogens true to drop the hydrogen atoms
+	 * @return these options
+	 */
+	public DecoderOptions setExcludeHydrogens(boolean excludeHydrogens) {
+		this.excludeHydrogens = excludeHydrogens;
+		return this;
+	}
+
+	/**
+	 * @return true if only the first alternate location of each group is kept
+	 */
+	public boolean isFirstAltLocOnly() {
+		return firstAltLocOnly;
+	}
+
+	/**
+	 * Keep only the atoms without alternate location and the atoms of the first
+	 * alternate location found in each group.
+	 * @param firstAltLocOnly true to keep only the first alternate location
+	 * @return these options
+	 */
+	public DecoderOptions setFirstAltLocOnly(boolean firstAltLocOnly) {
+		this.firstAltLocOnly = firstAltLocOnly;
+		return this;
+	}
+}
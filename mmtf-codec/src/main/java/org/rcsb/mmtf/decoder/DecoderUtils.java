@@ -1,5 +1,8 @@
 	package org.rcsb.mmtf.decoder;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import org.rcsb.mmtf.api.StructureDataInterface;
 import org.rcsb.mmtf.api.StructureAdapterInterface;
 
@@ -31,10 +34,12 @@ public class DecoderUtils {
 	 * @param structInflator the interface to put the data into the client object
 	 */
 	public static void addInterGroupBonds(StructureDataInterface dataApi, StructureAdapterInterface structInflator) {
-		for (int i = 0; i < dataApi.getInterGroupBondOrders().length; i++) {
-			structInflator.setInterGroupBond(dataApi.getInterGroupBondIndices()[i * 2],
-					dataApi.getInterGroupBondIndices()[i * 2 + 1], dataApi.getInterGroupBondOrders()[i]);
-		} 		
+		// The getters may copy the columns, so they are only called once
+		int[] bondIndices = dataApi.getInterGroupBondIndices();
+		int[] bondOrders = dataApi.getInterGroupBondOrders();
+		for (int i = 0; i < bondOrders.length; i++) {
+			structInflator.setInterGroupBond(bondIndices[i * 2], bondIndices[i * 2 + 1], bondOrders[i]);
+		}
 	}
 
 	/**
@@ -70,5 +75,28 @@ public class DecoderUtils {
 		}			
 	}
 
-}
+	/**
+	 * Find the chains of polymer entities: the chains sharing the id of a chain listed
+	 * by a polymer entity, so that the chains of the models other than the one listed
+	 * in the entities are found too. Chains with no entity are not polymer chains.
+	 * @param dataApi the interface to the decoded data
+	 * @return for each chain, true if it is a polymer chain
+	 */
+	public static boolean[] getPolymerChains(StructureDataInterface dataApi) {
+		String[] chainIds = dataApi.getChainIds();
+		Set<String> polymerChainIds = new HashSet<>();
+		for (int i = 0; i < dataApi.getNumEntities(); i++) {
+			if ("polymer".equalsIgnoreCase(dataApi.getEntityType(i))) {
+				for (int chainIndex : dataApi.getEntityChainIndexList(i)) {
+					polymerChainIds.add(chainIds[chainIndex]);
+				}
+			}
+		}
+		boolean[] polymerChains = new boolean[chainIds.length];
+		for (int i = 0; i < chainIds.length; i++) {
+			polymerChains[i] = polymerChainIds.contains(chainIds[i]);
+		}
+		return polymerChains;
+	}
 
+}
@@ -0,0 +1,22 @@
+package org.rcsb.mmtf.decoder;
+
+import java.io.IOException;
+
+/**
+ * A source of the data of PDB entries, tried by {@link ReaderUtils} before the {@link UrlCache}
+ * and the MMTF servers once set with {@link ReaderUtils#setEntryResolvers(EntryResolver...)}.
+ *
+ * @see LocalMirror
+ */
+@FunctionalInterface
+public interface EntryResolver {
+
+	/**
+	 * Get the MMTF data of an entry.
+	 * @param pdbId the PDB id of the entry
+	 * @param reduced true for the reduced representation, false for the full one
+	 * @return the MessagePack data, GZIP compressed or not, or null if this source does not have the entry
+	 * @throws IOException an error reading the data
+	 */
+	byte[] getData(String pdbId, boolean reduced) throws IOException;
+}
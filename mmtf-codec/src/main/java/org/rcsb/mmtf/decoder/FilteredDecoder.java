@@ -0,0 +1,331 @@
+package org.rcsb.mmtf.decoder;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+import org.rcsb.mmtf.codec.CharCodecs;
+import org.rcsb.mmtf.codec.FloatCodecs;
+import org.rcsb.mmtf.codec.IntCodecs;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+import org.rcsb.mmtf.encoder.AdapterToStructureData;
+
+/**
+ * A decoder keeping only the parts of a structure selected by {@link DecoderOptions}.
+ * <p>
+ * The models and chains to keep are selected from the chain and entity data, then the atoms from
+ * the group level data (and the alternate locations, if only the first one is kept).
+ * The delta and run length encoded atom level columns can only be decoded from their start, so
+ * they are decoded up to the last atom kept and no further: keeping the first model of an NMR
+ * ensemble decodes the atoms of that model only. The coordinates, B-factors and occupancies are
+ * only converted to floats for the atoms kept.
+ * The result is a compacted structure: the groups from which atoms were dropped get their own
+ * group types, and the inter-group bonds, entities and bioassemblies refer to the new indices.
+ */
+public class FilteredDecoder {
+
+	/** The offset of the parameter in the header of an encoded array. */
+	private static final int PARAM_OFFSET = 8;
+
+	private final LazyDecoder source;
+	private final MmtfStructure inputData;
+	private final DecoderOptions options;
+	private final HierarchyIndex hierarchyIndex;
+
+	/** The new index of each chain - -1 if it is dropped */
+	private final int[] chainMap;
+
+	/** The new index of each atom - -1 if it is dropped */
+	private final int[] atomMap;
+
+	/** The number of atoms kept in each group */
+	private final int[] atomsKeptInGroup;
+
+	/** The number of atoms to decode: up to the last atom kept */
+	private int atomLimit;
+
+	private int numChainsKept;
+	private int numGroupsKept;
+	private int numAtomsKept;
+	private int numBondsKept;
+
+	/**
+	 * Decode the parts of a structure selected by the options.
+	 * @param inputData the encoded data
+	 * @param options the parts of the structure to keep
+	 * @return the decoded structure, holding only the selected parts
+	 */
+	public static StructureDataInterface decode(MmtfStructure inputData, DecoderOptions options) {
+		return new FilteredDecoder(inputData, options).write();
+	}
+
+	private FilteredDecoder(MmtfStructure inputData, DecoderOptions options) {
+		this.inputData = inputData;
+		this.options = options;
+		source = new LazyDecoder(inputData);
+		hierarchyIndex = new HierarchyIndex(source);
+		chainMap = new int[source.getNumChains()];
+		atomMap = new int[source.getNumAtoms()];
+		atomsKeptInGroup = new int[source.getNumGroups()];
+		Arrays.fill(chainMap, -1);
+		Arrays.fill(atomMap, -1);
+		selectAtoms(selectChains());
+		countBonds();
+	}
+
+	/**
+	 * Select the chains of the model and entity types to keep.
+	 * @return for each chain, true if it should be kept
+	 */
+	private boolean[] selectChains() {
+		boolean[] polymerChains = DecoderUtils.getPolymerChains(source);
+		boolean[] keepChain = new boolean[polymerChains.length];
+		int[] chainToModel = hierarchyIndex.getChainToModelIndices();
+		for (int i = 0; i < keepChain.length; i++) {
+			keepChain[i] = (options.getModelIndex() == DecoderOptions.ALL_MODELS || chainToModel[i] == options.getModelIndex())
+					&& (!options.isPolymerChainsOnly() || polymerChains[i]);
+		}
+		return keepChain;
+	}
+
+	/**
+	 * Select the atoms to keep in the chains to keep.
+	 * Groups and chains left without atoms are dropped.
+	 * @param keepChain for each chain, true if it should be kept
+	 */
+	private void selectAtoms(boolean[] keepChain) {
+		int[] groupTypeIndices = source.getGroupTypeIndices();
+		int[] groupOffsets = hierarchyIndex.getGroupOffsets();
+		int[] atomOffsets = hierarchyIndex.getAtomOffsets();
+		int lastChain = keepChain.length - 1;
+		while (lastChain >= 0 && !keepChain[lastChain]) {
+			lastChain--;
+		}
+		// The alternate locations up to the end of the last chain kept
+		char[] altLocIds = options.isFirstAltLocOnly() && lastChain >= 0
+				? CharCodecs.decodeArr(inputData.getAltLocList(), atomOffsets[groupOffsets[lastChain + 1]]) : null;
+		for (int chainIndex = 0; chainIndex < keepChain.length; chainIndex++) {
+			if (!keepChain[chainIndex]) {
+				continue;
+			}
+			int numGroupsBefore = numGroupsKept;
+			for (int groupIndex = groupOffsets[chainIndex]; groupIndex < groupOffsets[chainIndex + 1]; groupIndex++) {
+				String[] elements = source.getGroupElementNames(groupTypeIndices[groupIndex]);
+				char firstAltLoc = '\0';
+				for (int atomIndex = atomOffsets[groupIndex]; atomIndex < atomOffsets[groupIndex + 1]; atomIndex++) {
+					if (options.isExcludeHydrogens() && isHydrogen(elements[atomIndex - atomOffsets[groupIndex]])) {
+						continue;
+					}
+					if (altLocIds != null && altLocIds[atomIndex] != '\0') {
+						if (firstAltLoc == '\0') {
+							firstAltLoc = altLocIds[atomIndex];
+						}
+						else if (altLocIds[atomIndex] != firstAltLoc) {
+							continue;
+						}
+					}
+					atomMap[atomIndex] = numAtomsKept++;
+					atomsKeptInGroup[groupIndex]++;
+					atomLimit = atomIndex + 1;
+				}
+				if (atomsKeptInGroup[groupIndex] > 0) {
+					numGroupsKept++;
+				}
+			}
+			if (numGroupsKept > numGroupsBefore) {
+				chainMap[chainIndex] = numChainsKept++;
+			}
+		}
+	}
+
+	private static boolean isHydrogen(String element) {
+		return "H".equalsIgnoreCase(element) || "D".equalsIgnoreCase(element);
+	}
+
+	/**
+	 * Count the intra-group and inter-group bonds between atoms kept.
+	 */
+	private void countBonds() {
+		int[] groupTypeIndices = source.getGroupTypeIndices();
+		int[] atomOffsets = hierarchyIndex.getAtomOffsets();
+		for (int groupIndex = 0; groupIndex < atomsKeptInGroup.length; groupIndex++) {
+			if (atomsKeptInGroup[groupIndex] > 0) {
+				numBondsKept += countGroupBonds(source.getGroupBondIndices(groupTypeIndices[groupIndex]), atomOffsets[groupIndex]);
+			}
+		}
+		int[] interGroupBondIndices = source.getInterGroupBondIndices();
+		for (int i = 0; i < interGroupBondIndices.length; i += 2) {
+			if (atomMap[interGroupBondIndices[i]] >= 0 && atomMap[interGroupBondIndices[i + 1]] >= 0) {
+				numBondsKept++;
+			}
+		}
+	}
+
+	private int countGroupBonds(int[] bondIndices, int firstAtom) {
+		int count = 0;
+		for (int i = 0; i < bondIndices.length; i += 2) {
+			if (atomMap[firstAtom + bondIndices[i]] >= 0 && atomMap[firstAtom + bondIndices[i + 1]] >= 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Decode the atom level columns and pass the selected data to a new structure.
+	 * @return the new structure
+	 */
+	private StructureDataInterface write() {
+		AdapterToStructureData output = new AdapterToStructureData();
+		output.initStructure(numBondsKept, numAtomsKept, numGroupsKept, numChainsKept,
+				countModelsKept(), source.getStructureId());
+		output.setMmtfProducer(source.getMmtfProducer());
+		writeAtomicInformation(output);
+		output.setHeaderInfo(source.getRfree(), source.getRwork(), source.getResolution(), source.getTitle(),
+				source.getDepositionDate(), source.getReleaseDate(), source.getExperimentalMethods());
+		if (source.getUnitCell() != null) {
+			output.setXtalInfo(source.getSpaceGroup(), source.getUnitCell(), source.getNcsOperatorList());
+		}
+		for (int i = 0; i < source.getNumBioassemblies(); i++) {
+			for (int j = 0; j < source.getNumTransInBioassembly(i); j++) {
+				int[] chainIndices = remapChains(source.getChainIndexListForTransform(i, j));
+				if (chainIndices.length > 0) {
+					output.setBioAssemblyTrans(i, chainIndices, source.getMatrixForTransform(i, j), source.getBioassemblyName(i));
+				}
+			}
+		}
+		int[] interGroupBondIndices = source.getInterGroupBondIndices();
+		int[] interGroupBondOrders = source.getInterGroupBondOrders();
+		for (int i = 0; i < interGroupBondOrders.length; i++) {
+			int atomOne = atomMap[interGroupBondIndices[i * 2]];
+			int atomTwo = atomMap[interGroupBondIndices[i * 2 + 1]];
+			if (atomOne >= 0 && atomTwo >= 0) {
+				output.setInterGroupBond(atomOne, atomTwo, interGroupBondOrders[i]);
+			}
+		}
+		for (int i = 0; i < source.getNumEntities(); i++) {
+			int[] chainIndices = remapChains(source.getEntityChainIndexList(i));
+			if (chainIndices.length > 0) {
+				output.setEntityInfo(chainIndices, source.getEntitySequence(i), source.getEntityDescription(i),
+						source.getEntityType(i));
+			}
+		}
+		output.finalizeStructure();
+		return output;
+	}
+
+	private int countModelsKept() {
+		int[] chainOffsets = hierarchyIndex.getChainOffsets();
+		int count = 0;
+		for (int modelIndex = 0; modelIndex < chainOffsets.length - 1; modelIndex++) {
+			if (countChainsKept(chainOffsets[modelIndex], chainOffsets[modelIndex + 1]) > 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private int countChainsKept(int firstChain, int lastChain) {
+		int count = 0;
+		for (int chainIndex = firstChain; chainIndex < lastChain; chainIndex++) {
+			if (chainMap[chainIndex] >= 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private int[] remapChains(int[] chainIndices) {
+		return Arrays.stream(chainIndices).map(chainIndex -> chainMap[chainIndex]).filter(chainIndex -> chainIndex >= 0).toArray();
+	}
+
+	/**
+	 * Pass the kept models, chains, groups and atoms to the output.
+	 * @param output the new structure
+	 */
+	private void writeAtomicInformation(AdapterToStructureData output) {
+		// The atom level columns up to the last atom kept - decoded to integers,
+		// only the atoms kept are converted to floats
+		int[] xCoords = FloatCodecs.decodeArrToInts(inputData.getxCoordList(), atomLimit);
+		int[] yCoords = FloatCodecs.decodeArrToInts(inputData.getyCoordList(), atomLimit);
+		int[] zCoords = FloatCodecs.decodeArrToInts(inputData.getzCoordList(), atomLimit);
+		int[] bFactors = FloatCodecs.decodeArrToInts(inputData.getbFactorList(), atomLimit);
+		int[] occupancies = FloatCodecs.decodeArrToInts(inputData.getOccupancyList(), atomLimit);
+		float coordDivider = getDivider(inputData.getxCoordList());
+		float bFactorDivider = getDivider(inputData.getbFactorList());
+		float occupancyDivider = getDivider(inputData.getOccupancyList());
+		int[] atomIds = IntCodecs.decodeArr(inputData.getAtomIdList(), atomLimit);
+		char[] altLocIds = CharCodecs.decodeArr(inputData.getAltLocList(), atomLimit);
+		int[] groupTypeIndices = source.getGroupTypeIndices();
+		int[] chainOffsets = hierarchyIndex.getChainOffsets();
+		int[] groupOffsets = hierarchyIndex.getGroupOffsets();
+		int[] atomOffsets = hierarchyIndex.getAtomOffsets();
+		int modelsKept = 0;
+		for (int modelIndex = 0; modelIndex < chainOffsets.length - 1; modelIndex++) {
+			int chainsKept = countChainsKept(chainOffsets[modelIndex], chainOffsets[modelIndex + 1]);
+			if (chainsKept == 0) {
+				continue;
+			}
+			output.setModelInfo(modelsKept++, chainsKept);
+			for (int chainIndex = chainOffsets[modelIndex]; chainIndex < chainOffsets[modelIndex + 1]; chainIndex++) {
+				if (chainMap[chainIndex] < 0) {
+					continue;
+				}
+				int groupsKept = 0;
+				for (int groupIndex = groupOffsets[chainIndex]; groupIndex < groupOffsets[chainIndex + 1]; groupIndex++) {
+					if (atomsKeptInGroup[groupIndex] > 0) {
+						groupsKept++;
+					}
+				}
+				output.setChainInfo(source.getChainIds()[chainIndex], source.getChainNames()[chainIndex], groupsKept);
+				for (int groupIndex = groupOffsets[chainIndex]; groupIndex < groupOffsets[chainIndex + 1]; groupIndex++) {
+					if (atomsKeptInGroup[groupIndex] == 0) {
+						continue;
+					}
+					int groupType = groupTypeIndices[groupIndex];
+					int firstAtom = atomOffsets[groupIndex];
+					int[] bondIndices = source.getGroupBondIndices(groupType);
+					int[] bondOrders = source.getGroupBondOrders(groupType);
+					output.setGroupInfo(source.getGroupName(groupType), source.getGroupIds()[groupIndex],
+							source.getInsCodes()[groupIndex], source.getGroupChemCompType(groupType),
+							atomsKeptInGroup[groupIndex], countGroupBonds(bondIndices, firstAtom),
+							source.getGroupSingleLetterCode(groupType), source.getGroupSequenceIndices()[groupIndex],
+							source.getSecStructList()[groupIndex]);
+					String[] atomNames = source.getGroupAtomNames(groupType);
+					String[] elements = source.getGroupElementNames(groupType);
+					int[] charges = source.getGroupAtomCharges(groupType);
+					int newFirstAtom = -1;
+					for (int atomIndex = firstAtom; atomIndex < atomOffsets[groupIndex + 1]; atomIndex++) {
+						if (atomMap[atomIndex] < 0) {
+							continue;
+						}
+						if (newFirstAtom < 0) {
+							newFirstAtom = atomMap[atomIndex];
+						}
+						int atomInGroup = atomIndex - firstAtom;
+						output.setAtomInfo(atomNames[atomInGroup], atomIds[atomIndex], altLocIds[atomIndex],
+								xCoords[atomIndex] / coordDivider, yCoords[atomIndex] / coordDivider,
+								zCoords[atomIndex] / coordDivider, occupancies[atomIndex] / occupancyDivider,
+								bFactors[atomIndex] / bFactorDivider, elements[atomInGroup], charges[atomInGroup]);
+					}
+					for (int i = 0; i < bondOrders.length; i++) {
+						int atomOne = atomMap[firstAtom + bondIndices[i * 2]];
+						int atomTwo = atomMap[firstAtom + bondIndices[i * 2 + 1]];
+						if (atomOne >= 0 && atomTwo >= 0) {
+							output.setGroupBond(atomOne - newFirstAtom, atomTwo - newFirstAtom, bondOrders[i]);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the divider of encoded floats from the parameter in their header.
+	 * @param encoded the encoded array
+	 * @return the divider to convert the decoded integers to floats
+	 */
+	private static int getDivider(byte[] encoded) {
+		return ByteBuffer.wrap(encoded).getInt(PARAM_OFFSET);
+	}
+}
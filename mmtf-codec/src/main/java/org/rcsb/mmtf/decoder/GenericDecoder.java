@@ -3,6 +3,9 @@ package org.rcsb.mmtf.decoder;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.rcsb.mmtf.api.StructureDataInterface;
 import org.rcsb.mmtf.codec.CharCodecs;
@@ -22,11 +25,72 @@ import org.rcsb.mmtf.dataholders.MmtfStructure;
 public class GenericDecoder  implements StructureDataInterface, Serializable {
 	private static final long serialVersionUID = 1109812420718081496L;
 
+	/** The default number of atoms above which columns are decoded in parallel. */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 20000;
+
 	/**
 	 * Constructor for the default decoder.
 	 * @param inputData The input mmtfBean data to be decompressed.
 	 */
 	public GenericDecoder(MmtfStructure inputData) {
+		decodeAtomColumns(inputData);
+		decodeGroupColumns(inputData);
+		decodeChainAndBondColumns(inputData);
+		setNonEncodedData(inputData);
+	}
+
+	/**
+	 * Constructor for a decoder that decodes the columns in parallel for structures
+	 * with at least {@link #DEFAULT_PARALLEL_THRESHOLD} atoms.
+	 * @param inputData The input mmtfBean data to be decompressed.
+	 * @param executor the executor to decode the columns on, e.g. {@link java.util.concurrent.ForkJoinPool#commonPool()}
+	 */
+	public GenericDecoder(MmtfStructure inputData, Executor executor) {
+		this(inputData, executor, DEFAULT_PARALLEL_THRESHOLD);
+	}
+
+	/**
+	 * Constructor for a decoder that decodes the columns in parallel for large structures.
+	 * Each atom level column is decoded as a separate task, the group level and chain level columns
+	 * as two more tasks. Smaller structures are decoded on the calling thread.
+	 * @param inputData The input mmtfBean data to be decompressed.
+	 * @param executor the executor to decode the columns on, e.g. {@link java.util.concurrent.ForkJoinPool#commonPool()}
+	 * @param parallelThreshold the number of atoms from which the columns are decoded in parallel
+	 */
+	public GenericDecoder(MmtfStructure inputData, Executor executor, int parallelThreshold) {
+		if (inputData.getNumAtoms() < parallelThreshold) {
+			decodeAtomColumns(inputData);
+			decodeGroupColumns(inputData);
+			decodeChainAndBondColumns(inputData);
+		}
+		else {
+			CompletableFuture<float[]> xFuture = CompletableFuture.supplyAsync(() -> FloatCodecs.decodeArr(inputData.getxCoordList()), executor);
+			CompletableFuture<float[]> yFuture = CompletableFuture.supplyAsync(() -> FloatCodecs.decodeArr(inputData.getyCoordList()), executor);
+			CompletableFuture<float[]> zFuture = CompletableFuture.supplyAsync(() -> FloatCodecs.decodeArr(inputData.getzCoordList()), executor);
+			CompletableFuture<float[]> bFactorFuture = CompletableFuture.supplyAsync(() -> FloatCodecs.decodeArr(inputData.getbFactorList()), executor);
+			CompletableFuture<float[]> occupancyFuture = CompletableFuture.supplyAsync(() -> FloatCodecs.decodeArr(inputData.getOccupancyList()), executor);
+			CompletableFuture<int[]> atomIdFuture = CompletableFuture.supplyAsync(() -> IntCodecs.decodeArr(inputData.getAtomIdList()), executor);
+			CompletableFuture<Void> groupFuture = CompletableFuture.runAsync(() -> decodeGroupColumns(inputData), executor);
+			CompletableFuture<Void> chainFuture = CompletableFuture.runAsync(() -> decodeChainAndBondColumns(inputData), executor);
+			// The smallest atom level column is decoded on this thread
+			altId = CharCodecs.decodeArr(inputData.getAltLocList());
+			cartnX = join(xFuture);
+			cartnY = join(yFuture);
+			cartnZ = join(zFuture);
+			bFactor = join(bFactorFuture);
+			occupancy = join(occupancyFuture);
+			atomId = join(atomIdFuture);
+			join(groupFuture);
+			join(chainFuture);
+		}
+		setNonEncodedData(inputData);
+	}
+
+	/**
+	 * Decode the atom level columns.
+	 * @param inputData The input mmtfBean data to be decompressed.
+	 */
+	private void decodeAtomColumns(MmtfStructure inputData) {
 		// Decode the coordinate  and B-factor arrays.
 		cartnX = FloatCodecs.decodeArr(inputData.getxCoordList());
 		cartnY = FloatCodecs.decodeArr(inputData.getyCoordList());
@@ -38,20 +102,58 @@ public class GenericDecoder  implements StructureDataInterface, Serializable {
 		atomId = IntCodecs.decodeArr(inputData.getAtomIdList());
 		// Run length encoded
 		altId = CharCodecs.decodeArr(inputData.getAltLocList());
+	}
+
+	/**
+	 * Decode the group level columns.
+	 * @param inputData The input mmtfBean data to be decompressed.
+	 */
+	private void decodeGroupColumns(MmtfStructure inputData) {
 		insertionCodeList = CharCodecs.decodeArr(inputData.getInsCodeList());
 		// Get the groupNumber
 		groupNum = IntCodecs.decodeArr(inputData.getGroupIdList());
-		// Get the group map (all the unique groups in the structure).
-		groupMap = inputData.getGroupList();
 		// Get the seqRes groups
 		seqResGroupList = IntCodecs.decodeArr(inputData.getSequenceIndexList());
 		groupList = IntCodecs.decodeArr(inputData.getGroupTypeList());
+		secStructInfo = IntCodecs.decodeArr(inputData.getSecStructList());
+	}
+
+	/**
+	 * Decode the chain level columns and the inter group bonds.
+	 * @param inputData The input mmtfBean data to be decompressed.
+	 */
+	private void decodeChainAndBondColumns(MmtfStructure inputData) {
 		// Get the internal and public facing chain ids
 		publicChainIds = StringCodecs.decodeArr(inputData.getChainNameList());
 		chainList =  StringCodecs.decodeArr(inputData.getChainIdList());
 		interGroupBondIndices = IntCodecs.decodeArr(inputData.getBondAtomList());
 		interGroupBondOrders = IntCodecs.decodeArr(inputData.getBondOrderList());
-		secStructInfo = IntCodecs.decodeArr(inputData.getSecStructList());
+	}
+
+	/**
+	 * Wait for a column to be decoded, rethrowing any exception thrown while decoding.
+	 * @param future the future of the decoded column
+	 * @return the decoded column
+	 */
+	private static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Set the data that does not need to be decoded.
+	 * @param inputData The input mmtfBean data to be decompressed.
+	 */
+	private void setNonEncodedData(MmtfStructure inputData) {
+		// Get the group map (all the unique groups in the structure).
+		groupMap = inputData.getGroupList();
 		// Get the number of chains per model
 		chainsPerModel = inputData.getChainsPerModel();
 		groupsPerChain = inputData.getGroupsPerChain();
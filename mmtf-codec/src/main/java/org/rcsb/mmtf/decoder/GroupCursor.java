@@ -0,0 +1,120 @@
+package org.rcsb.mmtf.decoder;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+
+/**
+ * A cursor over groups (residues).
+ * @see StructureCursor
+ */
+public class GroupCursor extends StructureCursor {
+
+	/** The cursor over the atoms of the current group */
+	private AtomCursor atomCursor;
+
+	/**
+	 * Constructor for a cursor over all the groups of a structure.
+	 * @param structureDataInterface the structure to go through
+	 */
+	public GroupCursor(StructureDataInterface structureDataInterface) {
+		this(new CursorData(structureDataInterface));
+	}
+
+	GroupCursor(CursorData data) {
+		super(data, data.groupTypeIndices.length);
+	}
+
+	/**
+	 * Returns the index of the group type of the current group, to be used with
+	 * the group level getters of {@link StructureDataInterface}.
+	 * @return the group type index
+	 */
+	public int groupType() {
+		return data.groupTypeIndices[index];
+	}
+
+	/**
+	 * Returns the name of the current group.
+	 * @return the 3 letter code name of the group, e.g. "ALA"
+	 */
+	public String name() {
+		return data.structure.getGroupName(groupType());
+	}
+
+	/**
+	 * Returns the chemical component type of the current group.
+	 * @return the type as found in the chemcomp dictionary, e.g. "L-PEPTIDE LINKING"
+	 */
+	public String chemCompType() {
+		return data.structure.getGroupChemCompType(groupType());
+	}
+
+	/**
+	 * Returns the single letter code of the current group.
+	 * @return the single letter code
+	 */
+	public char singleLetterCode() {
+		return data.structure.getGroupSingleLetterCode(groupType());
+	}
+
+	/**
+	 * Returns the residue number of the current group.
+	 * @return the residue number (auth_seq_id in mmCIF dictionary)
+	 */
+	public int groupNumber() {
+		return data.groupIds[index];
+	}
+
+	/**
+	 * Returns the insertion code of the current group.
+	 * @return the insertion code, '\0' if there is none
+	 */
+	public char insCode() {
+		return data.insCodes[index];
+	}
+
+	/**
+	 * Returns the index of the current group in the sequence of its entity.
+	 * @return the sequence index, -1 if the group is not in the sequence
+	 */
+	public int sequenceIndex() {
+		return data.groupSequenceIndices[index];
+	}
+
+	/**
+	 * Returns the DSSP secondary structure code of the current group.
+	 * @return the secondary structure code, -1 if undefined
+	 */
+	public int secStruct() {
+		return data.secStructList[index];
+	}
+
+	/**
+	 * Returns the index of the chain of the current group.
+	 * @return the index of the chain in the structure
+	 */
+	public int chainIndex() {
+		return data.hierarchyIndex.getGroupToChainIndices()[index];
+	}
+
+	/**
+	 * Returns the number of atoms of the current group.
+	 * @return the number of atoms
+	 */
+	public int numAtoms() {
+		int[] atomOffsets = data.hierarchyIndex.getAtomOffsets();
+		return atomOffsets[index + 1] - atomOffsets[index];
+	}
+
+	/**
+	 * Returns the cursor over the atoms of the current group.
+	 * @return the atom cursor, positioned before the first atom of the group
+	 */
+	public AtomCursor atoms() {
+		if (atomCursor == null) {
+			atomCursor = new AtomCursor(data);
+		}
+		int[] atomOffsets = data.hierarchyIndex.getAtomOffsets();
+		atomCursor.reset(atomOffsets[index], atomOffsets[index + 1]);
+		return atomCursor;
+	}
+}
@@ -0,0 +1,142 @@
+package org.rcsb.mmtf.decoder;
+
+import java.io.Serializable;
+
+import org.rcsb.mmtf.api.HierarchyIndexInterface;
+import org.rcsb.mmtf.api.StructureDataInterface;
+
+/**
+ * The {@link HierarchyIndexInterface} of a {@link StructureDataInterface},
+ * built in a single pass over its groups.
+ * <p>
+ * Once built, finding the atoms of a given chain of a given model, or the model
+ * of a given atom, only takes array lookups instead of walking the counts from the start.
+ */
+public class HierarchyIndex implements HierarchyIndexInterface, Serializable {
+
+	private static final long serialVersionUID = -5315869839306290787L;
+
+	private final int[] chainOffsets;
+	private final int[] groupOffsets;
+	private final int[] atomOffsets;
+	private final int[] chainToModel;
+	private final int[] groupToChain;
+	private final int[] atomToGroup;
+
+	/**
+	 * Build the index of a structure.
+	 * @param structureDataInterface the structure to index
+	 */
+	public HierarchyIndex(StructureDataInterface structureDataInterface) {
+		int[] chainsPerModel = structureDataInterface.getChainsPerModel();
+		int[] groupsPerChain = structureDataInterface.getGroupsPerChain();
+		int[] groupTypeIndices = structureDataInterface.getGroupTypeIndices();
+		int numModels = chainsPerModel.length;
+		int numChains = groupsPerChain.length;
+		int numGroups = groupTypeIndices.length;
+		chainOffsets = new int[numModels + 1];
+		groupOffsets = new int[numChains + 1];
+		atomOffsets = new int[numGroups + 1];
+		chainToModel = new int[numChains];
+		groupToChain = new int[numGroups];
+		atomToGroup = new int[structureDataInterface.getNumAtoms()];
+		int chainIndex = 0;
+		int groupIndex = 0;
+		int atomIndex = 0;
+		for (int modelIndex = 0; modelIndex < numModels; modelIndex++) {
+			chainOffsets[modelIndex] = chainIndex;
+			int lastChain = chainIndex + chainsPerModel[modelIndex];
+			for (; chainIndex < lastChain; chainIndex++) {
+				chainToModel[chainIndex] = modelIndex;
+				groupOffsets[chainIndex] = groupIndex;
+				int lastGroup = groupIndex + groupsPerChain[chainIndex];
+				for (; groupIndex < lastGroup; groupIndex++) {
+					groupToChain[groupIndex] = chainIndex;
+					atomOffsets[groupIndex] = atomIndex;
+					int lastAtom = atomIndex + structureDataInterface.getNumAtomsInGroup(groupTypeIndices[groupIndex]);
+					for (; atomIndex < lastAtom; atomIndex++) {
+						atomToGroup[atomIndex] = groupIndex;
+					}
+				}
+			}
+		}
+		chainOffsets[numModels] = chainIndex;
+		groupOffsets[numChains] = groupIndex;
+		atomOffsets[numGroups] = atomIndex;
+	}
+
+	@Override
+	public int[] getChainOffsets() {
+		return chainOffsets;
+	}
+
+	@Override
+	public int[] getGroupOffsets() {
+		return groupOffsets;
+	}
+
+	@Override
+	public int[] getAtomOffsets() {
+		return atomOffsets;
+	}
+
+	@Override
+	public int[] getChainToModelIndices() {
+		return chainToModel;
+	}
+
+	@Override
+	public int[] getGroupToChainIndices() {
+		return groupToChain;
+	}
+
+	@Override
+	public int[] getAtomToGroupIndices() {
+		return atomToGroup;
+	}
+
+	/**
+	 * Returns the number of atoms in a chain.
+	 * @param chainIndex the index of the chain in the structure
+	 * @return the number of atoms of all the groups of the chain
+	 */
+	public int getNumAtomsInChain(int chainIndex) {
+		return atomOffsets[groupOffsets[chainIndex + 1]] - atomOffsets[groupOffsets[chainIndex]];
+	}
+
+	/**
+	 * Returns the index of the first atom of a chain.
+	 * @param chainIndex the index of the chain in the structure
+	 * @return the index of the first atom of the chain in the structure
+	 */
+	public int getFirstAtomInChain(int chainIndex) {
+		return atomOffsets[groupOffsets[chainIndex]];
+	}
+
+	/**
+	 * Returns the index of the first atom of a model.
+	 * @param modelIndex the index of the model in the structure
+	 * @return the index of the first atom of the model in the structure
+	 */
+	public int getFirstAtomInModel(int modelIndex) {
+		return atomOffsets[groupOffsets[chainOffsets[modelIndex]]];
+	}
+
+	/**
+	 * Returns the index of the chain of an atom.
+	 * @param atomIndex the index of the atom in the structure
+	 * @return the index of the chain in the structure
+	 */
+	public int getChainForAtom(int atomIndex) {
+		return groupToChain[atomToGroup[atomIndex]];
+	}
+
+	/**
+	 * Returns the index of the model of an atom.
+	 * @param atomIndex the index of the atom in the structure
+	 * @return the index of the model in the structure
+	 */
+	public int getModelForAtom(int atomIndex) {
+		return chainToModel[groupToChain[atomToGroup[atomIndex]]];
+	}
+}
@@ -0,0 +1,581 @@
+package org.rcsb.mmtf.decoder;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+import org.rcsb.mmtf.codec.CharCodecs;
+import org.rcsb.mmtf.codec.FloatCodecs;
+import org.rcsb.mmtf.codec.IntCodecs;
+import org.rcsb.mmtf.codec.StringCodecs;
+import org.rcsb.mmtf.dataholders.BioAssemblyData;
+import org.rcsb.mmtf.dataholders.Entity;
+import org.rcsb.mmtf.dataholders.Group;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+
+/**
+ * A decoder of MMTF data that decodes each encoded column on first access.
+ * <p>
+ * Unlike the {@link GenericDecoder} the constructor does not decode anything: the encoded
+ * byte arrays are taken from the {@link MmtfStructure} and each one is decoded the first
+ * time its getter is called. Decoding is thread-safe and happens at most once per column.
+ * The reference to the encoded bytes of a column is dropped once it has been decoded.
+ */
+public class LazyDecoder implements StructureDataInterface, Serializable {
+	private static final long serialVersionUID = -3177372218398151009L;
+
+	/** The offset of the output length in the header of an encoded array. */
+	private static final int OUTPUT_LENGTH_OFFSET = 4;
+
+	/**
+	 * Constructor for the lazy decoder.
+	 * @param inputData The input mmtfBean data to be decompressed on demand.
+	 */
+	public LazyDecoder(MmtfStructure inputData) {
+		cartnX = new Column<>(ColumnType.FLOAT, inputData.getxCoordList());
+		cartnY = new Column<>(ColumnType.FLOAT, inputData.getyCoordList());
+		cartnZ = new Column<>(ColumnType.FLOAT, inputData.getzCoordList());
+		bFactor = new Column<>(ColumnType.FLOAT, inputData.getbFactorList());
+		occupancy = new Column<>(ColumnType.FLOAT, inputData.getOccupancyList());
+		atomId = new Column<>(ColumnType.INT, inputData.getAtomIdList());
+		altId = new Column<>(ColumnType.CHAR, inputData.getAltLocList());
+		insertionCodeList = new Column<>(ColumnType.CHAR, inputData.getInsCodeList());
+		groupNum = new Column<>(ColumnType.INT, inputData.getGroupIdList());
+		seqResGroupList = new Column<>(ColumnType.INT, inputData.getSequenceIndexList());
+		groupList = new Column<>(ColumnType.INT, inputData.getGroupTypeList());
+		publicChainIds = new Column<>(ColumnType.STRING, inputData.getChainNameList());
+		chainList = new Column<>(ColumnType.STRING, inputData.getChainIdList());
+		interGroupBondIndices = new Column<>(ColumnType.INT, inputData.getBondAtomList());
+		interGroupBondOrders = new Column<>(ColumnType.INT, inputData.getBondOrderList());
+		secStructInfo = new Column<>(ColumnType.INT, inputData.getSecStructList());
+		// The number of atoms is in the header of the encoded coordinates
+		numAtoms = ByteBuffer.wrap(inputData.getxCoordList()).getInt(OUTPUT_LENGTH_OFFSET);
+		// Non-encoded data is taken as is
+		groupMap = inputData.getGroupList();
+		chainsPerModel = inputData.getChainsPerModel();
+		groupsPerChain = inputData.getGroupsPerChain();
+		spaceGroup = inputData.getSpaceGroup();
+		unitCell = inputData.getUnitCell();
+		bioAssembly  = inputData.getBioAssemblyList();
+		mmtfVersion = inputData.getMmtfVersion();
+		mmtfProducer = inputData.getMmtfProducer();
+		entityList = inputData.getEntityList();
+		pdbId = inputData.getStructureId();
+		rFree = inputData.getrFree();
+		rWork = inputData.getrWork();
+		resolution = inputData.getResolution();
+		title = inputData.getTitle();
+		experimentalMethods = inputData.getExperimentalMethods();
+		depositionDate = inputData.getDepositionDate();
+		releaseDate = inputData.getReleaseDate();
+		numGroups = inputData.getNumGroups();
+		numChains = inputData.getNumChains();
+		numModels = inputData.getNumModels();
+		ncsOperMatrixList = inputData.getNcsOperatorList();
+	}
+
+	/** The X coordinates */
+	private final Column<float[]> cartnX;
+
+	/** The Y coordinates */
+	private final Column<float[]> cartnY;
+
+	/** The Z coordinates */
+	private final Column<float[]> cartnZ;
+
+	/** The B factors */
+	private final Column<float[]> bFactor;
+
+	/** The occupancies */
+	private final Column<float[]> occupancy;
+
+	/** The atom id. */
+	private final Column<int[]> atomId;
+
+	/** The alt id. */
+	private final Column<char[]> altId;
+
+	/** The ins code. */
+	private final Column<char[]> insertionCodeList;
+
+	/** The group num. */
+	private final Column<int[]> groupNum;
+
+	/** The sequence ids of the groups */
+	private final Column<int[]> seqResGroupList;
+
+	/** The group list. */
+	private final Column<int[]> groupList;
+
+	/** The public facing chain ids*/
+	private final Column<String[]> publicChainIds;
+
+	/** The chosen list of chain ids */
+	private final Column<String[]> chainList;
+
+	/** The bond indices for bonds between groups*/
+	private final Column<int[]> interGroupBondIndices;
+
+	/** The bond orders for bonds between groups*/
+	private final Column<int[]> interGroupBondOrders;
+
+	/** The secondary structure information */
+	private final Column<int[]> secStructInfo;
+
+	/** The group map. */
+	private final Group[] groupMap;
+
+	/** The number of chains per model*/
+	private final int[] chainsPerModel;
+
+	/** The number of groups per (internal) chain*/
+	private final int[] groupsPerChain;
+
+	/** The space group of the structure*/
+	private final String spaceGroup;
+
+	/** The unit cell of the structure*/
+	private final float[] unitCell;
+
+	/** The bioassembly information for the structure*/
+	private final List<BioAssemblyData> bioAssembly;
+
+	/** The mmtf version */
+	private final String mmtfVersion;
+
+	/** The mmtf prodcuer */
+	private final String mmtfProducer;
+
+	/** The list of entities in this structure. */
+	private final Entity[] entityList;
+
+	/** The PDB id	 */
+	private final String pdbId;
+
+	/** The reported resolution of the dataset. */
+	private final Float resolution;
+
+	/** The reported R Free of the model. */
+	private final Float rFree;
+
+	/** The reported R Work of the model. */
+	private final Float rWork;
+
+	/** The title of the model. */
+	private final String title;
+
+	/** The list of experimental methods. */
+	private final String[] experimentalMethods;
+
+	/** The deposition date of the structure */
+	private final String depositionDate;
+
+	/** The release date of the  structure */
+	private final String releaseDate;
+
+	private final int numAtoms;
+
+	private final int numModels;
+
+	private final int numChains;
+
+	private final int numGroups;
+
+	private final double[][] ncsOperMatrixList;
+
+	/** The number of bonds - computed on first access as it needs two decoded columns. */
+	private volatile Integer numBonds;
+
+	/**
+	 * Check whether a column has already been decoded, e.g. to monitor which columns a workload uses.
+	 * @param columnName the name of the column in the {@link MmtfStructure}, e.g. xCoordList
+	 * @return true if the column has been decoded
+	 */
+	public boolean isDecoded(String columnName) {
+		switch (columnName) {
+		case "xCoordList": return cartnX.isDecoded();
+		case "yCoordList": return cartnY.isDecoded();
+		case "zCoordList": return cartnZ.isDecoded();
+		case "bFactorList": return bFactor.isDecoded();
+		case "occupancyList": return occupancy.isDecoded();
+		case "atomIdList": return atomId.isDecoded();
+		case "altLocList": return altId.isDecoded();
+		case "insCodeList": return insertionCodeList.isDecoded();
+		case "groupIdList": return groupNum.isDecoded();
+		case "sequenceIndexList": return seqResGroupList.isDecoded();
+		case "groupTypeList": return groupList.isDecoded();
+		case "chainNameList": return publicChainIds.isDecoded();
+		case "chainIdList": return chainList.isDecoded();
+		case "bondAtomList": return interGroupBondIndices.isDecoded();
+		case "bondOrderList": return interGroupBondOrders.isDecoded();
+		case "secStructList": return secStructInfo.isDecoded();
+		default:
+			throw new IllegalArgumentException(columnName+" is not an encoded column.");
+		}
+	}
+
+	@Override
+	public float[] getxCoords() {
+		return cartnX.get();
+	}
+
+	@Override
+	public float[] getyCoords() {
+		return cartnY.get();
+	}
+
+	@Override
+	public float[] getzCoords() {
+		return cartnZ.get();
+	}
+
+	@Override
+	public float[] getbFactors() {
+		return bFactor.get();
+	}
+
+	@Override
+	public float[] getOccupancies() {
+		return occupancy.get();
+	}
+
+	@Override
+	public int[] getAtomIds() {
+		return atomId.get();
+	}
+
+	@Override
+	public char[] getAltLocIds() {
+		return altId.get();
+	}
+
+	@Override
+	public char[] getInsCodes() {
+		return insertionCodeList.get();
+	}
+
+	@Override
+	public int[] getGroupIds() {
+		return groupNum.get();
+	}
+
+	@Override
+	public int[] getGroupTypeIndices() {
+		return groupList.get();
+	}
+
+	@Override
+	public int[] getGroupSequenceIndices() {
+		return seqResGroupList.get();
+	}
+
+	@Override
+	public String[] getChainNames() {
+		return publicChainIds.get();
+	}
+
+	@Override
+	public int[] getChainsPerModel() {
+		return chainsPerModel;
+	}
+
+	@Override
+	public int[] getGroupsPerChain() {
+		return groupsPerChain;
+	}
+
+	@Override
+	public String getSpaceGroup() {
+		return spaceGroup;
+	}
+
+	@Override
+	public float[] getUnitCell() {
+		return unitCell;
+	}
+
+	@Override
+	public int[] getInterGroupBondIndices() {
+		return interGroupBondIndices.get();
+	}
+
+	@Override
+	public int[] getInterGroupBondOrders() {
+		return interGroupBondOrders.get();
+	}
+
+	@Override
+	public String[] getChainIds() {
+		return chainList.get();
+	}
+
+	@Override
+	public String getMmtfVersion() {
+		return mmtfVersion;
+	}
+
+	@Override
+	public String getMmtfProducer() {
+		return mmtfProducer;
+	}
+
+	@Override
+	public String getStructureId() {
+		return pdbId;
+	}
+
+	@Override
+	public int getNumGroups() {
+		return numGroups;
+	}
+
+	@Override
+	public int getNumChains() {
+		return numChains;
+	}
+
+	@Override
+	public int getNumModels() {
+		return numModels;
+	}
+
+	@Override
+	public int getNumAtoms() {
+		return numAtoms;
+	}
+
+	@Override
+	public float getRfree() {
+		if (rFree==null|| rFree ==0.0f) {
+			return MmtfStructure.UNAVAILABLE_R_VALUE;
+		}
+		return rFree;
+	}
+
+	@Override
+	public float getResolution() {
+		if (resolution==null || resolution==0.0f) {
+			return MmtfStructure.UNAVAILABLE_RESOLUTION_VALUE;
+		}
+		return resolution;
+	}
+
+	@Override
+	public float getRwork() {
+		if (rWork==null|| rWork ==0.0f) {
+			return MmtfStructure.UNAVAILABLE_R_VALUE;
+		}
+		return rWork;
+	}
+
+	@Override
+	public String getTitle() {
+		return title;
+	}
+
+	@Override
+	public String[] getExperimentalMethods() {
+		return experimentalMethods;
+	}
+
+	@Override
+	public String getGroupName(int groupInd) {
+		return groupMap[groupInd].getGroupName();
+	}
+
+	@Override
+	public int getNumAtomsInGroup(int groupInd) {
+		return groupMap[groupInd].getFormalChargeList().length;
+	}
+
+	@Override
+	public String[] getGroupAtomNames(int groupInd) {
+		return groupMap[groupInd].getAtomNameList();
+	}
+
+	@Override
+	public String[] getGroupElementNames(int groupInd) {
+		return groupMap[groupInd].getElementList();
+	}
+
+	@Override
+	public int[] getGroupBondOrders(int groupInd) {
+		return groupMap[groupInd].getBondOrderList();
+	}
+
+	@Override
+	public int[] getGroupBondIndices(int groupInd) {
+		return groupMap[groupInd].getBondAtomList();
+	}
+
+	@Override
+	public int[] getGroupAtomCharges(int groupInd) {
+		return groupMap[groupInd].getFormalChargeList();
+	}
+
+	@Override
+	public char getGroupSingleLetterCode(int groupInd) {
+		return groupMap[groupInd].getSingleLetterCode();
+	}
+
+	@Override
+	public String getGroupChemCompType(int groupInd) {
+		return groupMap[groupInd].getChemCompType();
+	}
+
+	@Override
+	public String getEntityDescription(int entityInd) {
+		return entityList[entityInd].getDescription();
+	}
+
+	@Override
+	public String getEntityType(int entityInd) {
+		return entityList[entityInd].getType();
+	}
+
+	@Override
+	public int[] getEntityChainIndexList(int entityInd) {
+		return entityList[entityInd].getChainIndexList();
+	}
+
+	@Override
+	public String getEntitySequence(int entityInd) {
+		return entityList[entityInd].getSequence();
+	}
+
+	@Override
+	public int getNumEntities() {
+		return entityList.length;
+	}
+
+	@Override
+	public int getNumBioassemblies() {
+		return bioAssembly.size();
+	}
+
+	@Override
+	public int getNumTransInBioassembly(int bioassemblyIndex) {
+		return bioAssembly.get(bioassemblyIndex).getTransformList().size();
+	}
+
+	@Override
+	public int[] getChainIndexListForTransform(int bioassemblyIndex, int transformationIndex) {
+		return bioAssembly.get(bioassemblyIndex).getTransformList().get(transformationIndex).getChainIndexList();
+	}
+
+	@Override
+	public double[] getMatrixForTransform(int bioassemblyIndex, int transformationIndex) {
+		return bioAssembly.get(bioassemblyIndex).getTransformList().get(transformationIndex).getMatrix();
+	}
+
+	@Override
+	public String getDepositionDate() {
+		return depositionDate;
+	}
+
+	@Override
+	public int getNumBonds() {
+		Integer bonds = numBonds;
+		if (bonds == null) {
+			int sum = getInterGroupBondOrders().length;
+			for(int groupIndex : getGroupTypeIndices()) {
+				sum += groupMap[groupIndex].getBondOrderList().length;
+			}
+			bonds = sum;
+			numBonds = bonds;
+		}
+		return bonds;
+	}
+
+	@Override
+	public int[] getSecStructList() {
+		return secStructInfo.get();
+	}
+
+	@Override
+	public String getReleaseDate() {
+		return releaseDate;
+	}
+
+	@Override
+	public double[][] getNcsOperatorList() {
+		return ncsOperMatrixList;
+	}
+
+	@Override
+	public String getBioassemblyName(int bioassemblyIndex) {
+		return bioAssembly.get(bioassemblyIndex).getName();
+	}
+
+	/**
+	 * The decoding strategy of a column, as given by the type of the decoded array.
+	 */
+	private enum ColumnType {
+		FLOAT {
+			@Override
+			Object decode(byte[] encoded) {
+				return FloatCodecs.decodeArr(encoded);
+			}
+		},
+		INT {
+			@Override
+			Object decode(byte[] encoded) {
+				return IntCodecs.decodeArr(encoded);
+			}
+		},
+		CHAR {
+			@Override
+			Object decode(byte[] encoded) {
+				return CharCodecs.decodeArr(encoded);
+			}
+		},
+		STRING {
+			@Override
+			Object decode(byte[] encoded) {
+				return StringCodecs.decodeArr(encoded);
+			}
+		};
+
+		abstract Object decode(byte[] encoded);
+	}
+
+	/**
+	 * An encoded column that is decoded once, on first access.
+	 * @param <T> the type of the decoded array
+	 */
+	private static final class Column<T> implements Serializable {
+		private static final long serialVersionUID = 6412318950381069842L;
+
+		private final ColumnType type;
+		/** The encoded data - null once decoded. */
+		private byte[] encoded;
+		/** The decoded data - null until first access. */
+		private volatile T decoded;
+
+		Column(ColumnType type, byte[] encoded) {
+			this.type = type;
+			this.encoded = encoded;
+		}
+
+		boolean isDecoded() {
+			return decoded != null;
+		}
+
+		@SuppressWarnings("unchecked")
+		T get() {
+			T result = decoded;
+			if (result == null) {
+				synchronized (this) {
+					result = decoded;
+					if (result == null) {
+						result = (T) type.decode(encoded);
+						decoded = result;
+						encoded = null;
+					}
+				}
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package org.rcsb.mmtf.decoder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A local copy of the MMTF files, e.g. on storage shared by the nodes of a cluster.
+ * <p>
+ * The files of the full and the reduced representations are in separate directories. They are
+ * named after the PDB id in upper or lower case, with the extension .mmtf.gz or .mmtf, and are
+ * either all in their directory ({@link Layout#FLAT}) or in subdirectories named after the middle two
+ * characters of the PDB id in lower case, e.g. cu/4CUP.mmtf.gz ({@link Layout#HASHED}), as in the
+ * PDB archive.
+ * <p>
+ * A mirror can be set without changing any code through the system properties
+ * {@value #FULL_PROPERTY}, {@value #REDUCED_PROPERTY} and {@value #LAYOUT_PROPERTY}
+ * (flat or hashed, hashed by default): {@link ReaderUtils} then reads the entries of the mirror
+ * instead of fetching them.
+ */
+public class LocalMirror implements EntryResolver {
+
+	/** The system property of the directory of the full representation */
+	public static final String FULL_PROPERTY = "mmtf.mirror.full";
+	/** The system property of the directory of the reduced representation */
+	public static final String REDUCED_PROPERTY = "mmtf.mirror.reduced";
+	/** The system property of the layout of the mirror */
+	public static final String LAYOUT_PROPERTY = "mmtf.mirror.layout";
+
+	private static final String[] EXTENSIONS = {".mmtf.gz", ".mmtf"};
+	private static final Pattern PDB_ID_PATTERN = Pattern.compile("[A-Za-z0-9_]+");
+
+	/**
+	 * The layouts of the files of a mirror.
+	 */
+	public enum Layout {
+		/** All the files in one directory */
+		FLAT,
+		/** The files in subdirectories named after the middle two characters of the PDB id, in lower case */
+		HASHED
+	}
+
+	private final Path fullDirectory;
+	private final Path reducedDirectory;
+	private final Layout layout;
+
+	/**
+	 * A mirror of the full representation only.
+	 * @param fullDirectory the directory of the full representation
+	 * @param layout the layout of the files
+	 */
+	public LocalMirror(Path fullDirectory, Layout layout) {
+		this(fullDirectory, null, layout);
+	}
+
+	/**
+	 * @param fullDirectory the directory of the full representation - null if not mirrored
+	 * @param reducedDirectory the directory of the reduced representation - null if not mirrored
+	 * @param layout the layout of the files
+	 */
+	public LocalMirror(Path fullDirectory, Path reducedDirectory, Layout layout) {
+		this.fullDirectory = fullDirectory;
+		this.reducedDirectory = reducedDirectory;
+		this.layout = layout;
+	}
+
+	/**
+	 * Get the mirror set by the system properties.
+	 * @return the mirror, or null if neither directory is set
+	 * @throws IOException if the layout is not flat or hashed, or a directory is not a valid path
+	 */
+	public static LocalMirror fromSystemProperties() throws IOException {
+		String full = System.getProperty(FULL_PROPERTY);
+		String reduced = System.getProperty(REDUCED_PROPERTY);
+		if (full == null && reduced == null) {
+			return null;
+		}
+		String layout = System.getProperty(LAYOUT_PROPERTY, "hashed");
+		try {
+			return new LocalMirror(full == null ? null : Paths.get(full), reduced == null ? null : Paths.get(reduced),
+					Layout.valueOf(layout.toUpperCase(Locale.ROOT)));
+		}
+		catch (IllegalArgumentException e) {
+			throw new IOException("Invalid mirror set by the system properties, with the layout "+layout
+					+": "+e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Find the file of an entry.
+	 * @param pdbId the PDB id of the entry
+	 * @param reduced true for the reduced representation, false for the full one
+	 * @return the path of the file, or null if the mirror does not have it
+	 * @throws IllegalArgumentException if the PDB id has other characters than digits, letters and underscores
+	 */
+	public Path getPath(String pdbId, boolean reduced) {
+		if (!PDB_ID_PATTERN.matcher(pdbId).matches()) {
+			throw new IllegalArgumentException("Invalid PDB id: "+pdbId);
+		}
+		Path directory = reduced ? reducedDirectory : fullDirectory;
+		if (directory == null) {
+			return null;
+		}
+		if (layout == Layout.HASHED) {
+			if (pdbId.length() < 3) {
+				return null;
+			}
+			directory = directory.resolve(pdbId.substring(1, 3).toLowerCase(Locale.ROOT));
+		}
+		for (String name : new String[] {pdbId.toUpperCase(Locale.ROOT), pdbId.toLowerCase(Locale.ROOT)}) {
+			for (String extension : EXTENSIONS) {
+				Path path = directory.resolve(name + extension);
+				if (Files.isRegularFile(path)) {
+					return path;
+				}
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public byte[] getData(String pdbId, boolean reduced) throws IOException {
+		Path path = getPath(pdbId, reduced);
+		if (path == null) {
+			return null;
+		}
+		try {
+			return Files.readAllBytes(path);
+		}
+		catch (NoSuchFileException e) {
+			// Removed since it was found
+			return null;
+		}
+	}
+}
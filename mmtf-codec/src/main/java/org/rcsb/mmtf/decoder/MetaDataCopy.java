@@ -0,0 +1,272 @@
+package org.rcsb.mmtf.decoder;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+import org.rcsb.mmtf.codec.StringCodecs;
+import org.rcsb.mmtf.dataholders.BioAssemblyData;
+import org.rcsb.mmtf.dataholders.Entity;
+import org.rcsb.mmtf.dataholders.Group;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+import org.rcsb.mmtf.encoder.EncoderUtils;
+
+/**
+ * The non-columnar data of a structure (group types, chains, entities, bioassemblies, header...),
+ * held on the heap by the structures storing their columns in another form, so that the
+ * columns of their input do not stay reachable.
+ */
+final class MetaDataCopy implements Serializable {
+	private static final long serialVersionUID = -6022569597880339035L;
+
+	private final Group[] groupList;
+	private final List<BioAssemblyData> bioAssemblies;
+	private final Entity[] entityList;
+	private final String[] chainIds;
+	private final String[] chainNames;
+	private final int[] chainsPerModel;
+	private final int[] groupsPerChain;
+	private final String spaceGroup;
+	private final float[] unitCell;
+	private final double[][] ncsOperatorList;
+	private final String mmtfVersion;
+	private final String mmtfProducer;
+	private final String structureId;
+	private final int numModels;
+	private final int numChains;
+	private final float rFree;
+	private final float rWork;
+	private final float resolution;
+	private final String title;
+	private final String[] experimentalMethods;
+	private final String depositionDate;
+	private final String releaseDate;
+
+	/**
+	 * Keep the non-columnar data of an {@link MmtfStructure} as is, only decoding the chain columns.
+	 * @param inputData the encoded data
+	 */
+	MetaDataCopy(MmtfStructure inputData) {
+		groupList = inputData.getGroupList();
+		bioAssemblies = inputData.getBioAssemblyList();
+		entityList = inputData.getEntityList();
+		chainIds = StringCodecs.decodeArr(inputData.getChainIdList());
+		chainNames = StringCodecs.decodeArr(inputData.getChainNameList());
+		chainsPerModel = inputData.getChainsPerModel();
+		groupsPerChain = inputData.getGroupsPerChain();
+		spaceGroup = inputData.getSpaceGroup();
+		unitCell = inputData.getUnitCell();
+		ncsOperatorList = inputData.getNcsOperatorList();
+		mmtfVersion = inputData.getMmtfVersion();
+		mmtfProducer = inputData.getMmtfProducer();
+		structureId = inputData.getStructureId();
+		numModels = inputData.getNumModels();
+		numChains = inputData.getNumChains();
+		rFree = orUnavailable(inputData.getrFree(), MmtfStructure.UNAVAILABLE_R_VALUE);
+		rWork = orUnavailable(inputData.getrWork(), MmtfStructure.UNAVAILABLE_R_VALUE);
+		resolution = orUnavailable(inputData.getResolution(), MmtfStructure.UNAVAILABLE_RESOLUTION_VALUE);
+		title = inputData.getTitle();
+		experimentalMethods = inputData.getExperimentalMethods();
+		depositionDate = inputData.getDepositionDate();
+		releaseDate = inputData.getReleaseDate();
+	}
+
+	/**
+	 * Copy the non-columnar data of a {@link StructureDataInterface}.
+	 * @param source the data to copy
+	 */
+	MetaDataCopy(StructureDataInterface source) {
+		groupList = EncoderUtils.generateGroupList(source);
+		bioAssemblies = EncoderUtils.generateBioassemblies(source);
+		entityList = EncoderUtils.generateEntityList(source);
+		chainIds = source.getChainIds().clone();
+		chainNames = source.getChainNames().clone();
+		chainsPerModel = source.getChainsPerModel().clone();
+		groupsPerChain = source.getGroupsPerChain().clone();
+		spaceGroup = source.getSpaceGroup();
+		unitCell = source.getUnitCell();
+		ncsOperatorList = source.getNcsOperatorList();
+		mmtfVersion = source.getMmtfVersion();
+		mmtfProducer = source.getMmtfProducer();
+		structureId = source.getStructureId();
+		numModels = source.getNumModels();
+		numChains = source.getNumChains();
+		rFree = source.getRfree();
+		rWork = source.getRwork();
+		resolution = source.getResolution();
+		title = source.getTitle();
+		experimentalMethods = source.getExperimentalMethods();
+		depositionDate = source.getDepositionDate();
+		releaseDate = source.getReleaseDate();
+	}
+
+	private static float orUnavailable(Float value, float unavailable) {
+		return value == null || value == 0.0f ? unavailable : value;
+	}
+
+	/**
+	 * Count the bonds of a structure with these group types.
+	 * @param groupTypeIndices the group type of each group
+	 * @param interGroupBondOrders the orders of the bonds between groups
+	 * @return the number of bonds within and between groups
+	 */
+	int getNumBonds(int[] groupTypeIndices, int[] interGroupBondOrders) {
+		int numBonds = interGroupBondOrders.length;
+		for (int groupType : groupTypeIndices) {
+			numBonds += groupList[groupType].getBondOrderList().length;
+		}
+		return numBonds;
+	}
+
+	String getGroupName(int groupInd) {
+		return groupList[groupInd].getGroupName();
+	}
+
+	int getNumAtomsInGroup(int groupInd) {
+		return groupList[groupInd].getFormalChargeList().length;
+	}
+
+	String[] getGroupAtomNames(int groupInd) {
+		return groupList[groupInd].getAtomNameList();
+	}
+
+	String[] getGroupElementNames(int groupInd) {
+		return groupList[groupInd].getElementList();
+	}
+
+	int[] getGroupBondOrders(int groupInd) {
+		return groupList[groupInd].getBondOrderList();
+	}
+
+	int[] getGroupBondIndices(int groupInd) {
+		return groupList[groupInd].getBondAtomList();
+	}
+
+	int[] getGroupAtomCharges(int groupInd) {
+		return groupList[groupInd].getFormalChargeList();
+	}
+
+	char getGroupSingleLetterCode(int groupInd) {
+		return groupList[groupInd].getSingleLetterCode();
+	}
+
+	String getGroupChemCompType(int groupInd) {
+		return groupList[groupInd].getChemCompType();
+	}
+
+	String[] getChainIds() {
+		return chainIds;
+	}
+
+	String[] getChainNames() {
+		return chainNames;
+	}
+
+	int[] getChainsPerModel() {
+		return chainsPerModel;
+	}
+
+	int[] getGroupsPerChain() {
+		return groupsPerChain;
+	}
+
+	String getSpaceGroup() {
+		return spaceGroup;
+	}
+
+	float[] getUnitCell() {
+		return unitCell;
+	}
+
+	int getNumBioassemblies() {
+		return bioAssemblies.size();
+	}
+
+	int getNumTransInBioassembly(int bioassemblyIndex) {
+		return bioAssemblies.get(bioassemblyIndex).getTransformList().size();
+	}
+
+	String getBioassemblyName(int bioassemblyIndex) {
+		return bioAssemblies.get(bioassemblyIndex).getName();
+	}
+
+	int[] getChainIndexListForTransform(int bioassemblyIndex, int transformationIndex) {
+		return bioAssemblies.get(bioassemblyIndex).getTransformList().get(transformationIndex).getChainIndexList();
+	}
+
+	double[] getMatrixForTransform(int bioassemblyIndex, int transformationIndex) {
+		return bioAssemblies.get(bioassemblyIndex).getTransformList().get(transformationIndex).getMatrix();
+	}
+
+	String getMmtfVersion() {
+		return mmtfVersion;
+	}
+
+	String getMmtfProducer() {
+		return mmtfProducer;
+	}
+
+	int getNumEntities() {
+		return entityList.length;
+	}
+
+	String getEntityDescription(int entityInd) {
+		return entityList[entityInd].getDescription();
+	}
+
+	String getEntityType(int entityInd) {
+		return entityList[entityInd].getType();
+	}
+
+	int[] getEntityChainIndexList(int entityInd) {
+		return entityList[entityInd].getChainIndexList();
+	}
+
+	String getEntitySequence(int entityInd) {
+		return entityList[entityInd].getSequence();
+	}
+
+	String getStructureId() {
+		return structureId;
+	}
+
+	int getNumModels() {
+		return numModels;
+	}
+
+	int getNumChains() {
+		return numChains;
+	}
+
+	float getRfree() {
+		return rFree;
+	}
+
+	float getRwork() {
+		return rWork;
+	}
+
+	float getResolution() {
+		return resolution;
+	}
+
+	String getTitle() {
+		return title;
+	}
+
+	String[] getExperimentalMethods() {
+		return experimentalMethods;
+	}
+
+	String getDepositionDate() {
+		return depositionDate;
+	}
+
+	String getReleaseDate() {
+		return releaseDate;
+	}
+
+	double[][] getNcsOperatorList() {
+		return ncsOperatorList;
+	}
+}
@@ -0,0 +1,276 @@
+package org.rcsb.mmtf.decoder;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+import org.rcsb.mmtf.utils.CodecUtils;
+
+/**
+ * Fetches structures from the MMTF servers asynchronously.
+ * <p>
+ * At most a given number of requests are in flight at once, the others waiting their turn.
+ * A request failing with an I/O error, a server error (5xx) or a 429 response is retried
+ * after a delay doubling at each attempt, whereas other responses fail at once.
+ * The data is inflated and parsed as it is received, without buffering the whole response.
+ * The connections are reused between requests through the keep-alive support of
+ * {@link HttpURLConnection}: each response is read to its end and its stream closed.
+ * The setters return the fetcher so they can be chained, e.g.
+ * <code>new MmtfFetcher(16).setReduced(true).setMaxRetries(5)</code>.
+ */
+public class MmtfFetcher implements AutoCloseable {
+
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+	private static final int HTTP_TOO_MANY_REQUESTS = 429;
+	private static final int BUFFER_SIZE = 65536;
+
+	private final ScheduledThreadPoolExecutor executor;
+	/** The futures not completed yet, failed when the fetcher is closed */
+	private final Set<CompletableFuture<MmtfStructure>> pending = ConcurrentHashMap.newKeySet();
+	private volatile String baseUrl = CodecUtils.getMmtfBaseUrl(false, false);
+	private volatile int maxRetries = 3;
+	private volatile long retryDelay = 500;
+	private volatile int connectTimeout = 10000;
+	private volatile int readTimeout = 30000;
+
+	/**
+	 * A fetcher with at most 8 requests in flight.
+	 */
+	public MmtfFetcher() {
+		this(8);
+	}
+
+	/**
+	 * @param maxInFlight the largest number of requests in flight at once
+	 */
+	public MmtfFetcher(int maxInFlight) {
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("The number of requests in flight must be positive: "+maxInFlight);
+		}
+		executor = new ScheduledThreadPoolExecutor(maxInFlight, runnable -> {
+			Thread thread = new Thread(runnable, "mmtf-fetcher-"+THREAD_COUNT.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Fetch a structure.
+	 * @param pdbId the PDB id of the structure
+	 * @return the future structure, completed exceptionally with the {@link IOException} of the last
+	 * attempt if it cannot be fetched, or with a {@link RejectedExecutionException} if the fetcher is closed
+	 */
+	public CompletableFuture<MmtfStructure> fetch(String pdbId) {
+		CompletableFuture<MmtfStructure> future = new CompletableFuture<>();
+		URL url;
+		try {
+			url = new URL(baseUrl + pdbId);
+		}
+		catch (MalformedURLException e) {
+			future.completeExceptionally(e);
+			return future;
+		}
+		pending.add(future);
+		future.whenComplete((structure, throwable) -> pending.remove(future));
+		submit(() -> attempt(url, 0, future), 0, future);
+		return future;
+	}
+
+	/**
+	 * Fetch many structures. The requests are made in the order of the ids.
+	 * @param pdbIds the PDB ids of the structures
+	 * @return the future structures by PDB id, in the order of the ids
+	 */
+	public Map<String, CompletableFuture<MmtfStructure>> fetchAll(Collection<String> pdbIds) {
+		Map<String, CompletableFuture<MmtfStructure>> futures = new LinkedHashMap<>();
+		for (String pdbId : pdbIds) {
+			futures.computeIfAbsent(pdbId, this::fetch);
+		}
+		return futures;
+	}
+
+	/**
+	 * Fetch from the MMTF servers with http or https, in the full or reduced representation.
+	 * @param https true to use https
+	 * @param reduced true for the reduced representation
+	 * @return the fetcher
+	 */
+	public MmtfFetcher setServer(boolean https, boolean reduced) {
+		return setBaseUrl(CodecUtils.getMmtfBaseUrl(https, reduced));
+	}
+
+	/**
+	 * Fetch from the reduced representation (or the full one) of the MMTF servers, over http.
+	 * @param reduced true for the reduced representation
+	 * @return the fetcher
+	 */
+	public MmtfFetcher setReduced(boolean reduced) {
+		return setServer(false, reduced);
+	}
+
+	/**
+	 * @param baseUrl the URL the PDB ids are appended to, e.g. a mirror of the MMTF servers
+	 * @return the fetcher
+	 */
+	public MmtfFetcher setBaseUrl(String baseUrl) {
+		this.baseUrl = baseUrl;
+		return this;
+	}
+
+	/**
+	 * @param maxRetries the number of times a failed request is retried
+	 * @return the fetcher
+	 */
+	public MmtfFetcher setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+		return this;
+	}
+
+	/**
+	 * @param retryDelay the delay in milliseconds before the first retry, doubled for each of the next ones
+	 * @return the fetcher
+	 */
+	public MmtfFetcher setRetryDelay(long retryDelay) {
+		this.retryDelay = retryDelay;
+		return this;
+	}
+
+	/**
+	 * @param connectTimeout the timeout in milliseconds to connect to the server
+	 * @param readTimeout the timeout in milliseconds waiting for data from the server
+	 * @return the fetcher
+	 */
+	public MmtfFetcher setTimeouts(int connectTimeout, int readTimeout) {
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+		return this;
+	}
+
+	/**
+	 * Stop the threads of the fetcher. The structures not fetched yet, including those
+	 * being fetched, are completed exceptionally with a {@link RejectedExecutionException}.
+	 */
+	@Override
+	public void close() {
+		executor.shutdownNow();
+		for (CompletableFuture<MmtfStructure> future : pending) {
+			future.completeExceptionally(new RejectedExecutionException("The fetcher is closed"));
+		}
+	}
+
+	/**
+	 * Run an attempt after a delay, failing the future if the fetcher is closed.
+	 */
+	private void submit(Runnable attempt, long delay, CompletableFuture<MmtfStructure> future) {
+		try {
+			executor.schedule(attempt, delay, TimeUnit.MILLISECONDS);
+		}
+		catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+	}
+
+	private void attempt(URL url, int attempt, CompletableFuture<MmtfStructure> future) {
+		if (future.isDone()) {
+			// Cancelled
+			return;
+		}
+		try {
+			future.complete(download(url));
+		}
+		catch (IOException e) {
+			if (attempt < maxRetries && isRetryable(e)) {
+				submit(() -> attempt(url, attempt + 1, future), retryDelay << attempt, future);
+			}
+			else {
+				future.completeExceptionally(e);
+			}
+		}
+		catch (Throwable e) {
+			// Also errors, e.g. running out of memory, so that the future does not stay incomplete
+			future.completeExceptionally(e);
+		}
+	}
+
+	private MmtfStructure download(URL url) throws IOException {
+		URLConnection connection = url.openConnection();
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+		if (connection instanceof HttpURLConnection) {
+			HttpURLConnection httpConnection = (HttpURLConnection) connection;
+			int responseCode = httpConnection.getResponseCode();
+			if (responseCode != HttpURLConnection.HTTP_OK) {
+				// Read the error to its end, so that the connection can be reused
+				InputStream errorStream = httpConnection.getErrorStream();
+				if (errorStream != null) {
+					try (InputStream is = errorStream) {
+						drain(is);
+					}
+				}
+				throw new HttpStatusException(responseCode, url);
+			}
+		}
+		try (InputStream inputStream = new BufferedInputStream(connection.getInputStream(), BUFFER_SIZE)) {
+			inputStream.mark(2);
+			boolean gzip = inputStream.read() == 0x1f && inputStream.read() == 0x8b;
+			inputStream.reset();
+			MmtfStructure mmtfStructure = ReaderUtils.getDataFromInputStream(
+					gzip ? new BufferedInputStream(new GZIPInputStream(inputStream, BUFFER_SIZE), BUFFER_SIZE) : inputStream);
+			drain(inputStream);
+			return mmtfStructure;
+		}
+	}
+
+	private static void drain(InputStream inputStream) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		while (inputStream.read(buffer) >= 0) {
+			// Discard
+		}
+	}
+
+	private static boolean isRetryable(IOException e) {
+		if (e instanceof HttpStatusException) {
+			int status = ((HttpStatusException) e).getStatus();
+			return status >= 500 || status == HTTP_TOO_MANY_REQUESTS;
+		}
+		return true;
+	}
+
+	/**
+	 * A response other than 200 from the server.
+	 */
+	public static class HttpStatusException extends IOException {
+
+		private static final long serialVersionUID = 4618472963013746539L;
+
+		private final int status;
+
+		HttpStatusException(int status, URL url) {
+			super("Server returned HTTP response code "+status+" for URL: "+url);
+			this.status = status;
+		}
+
+		/**
+		 * @return the HTTP status code
+		 */
+		public int getStatus() {
+			return status;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package org.rcsb.mmtf.decoder;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+
+/**
+ * A cursor over the models of a structure.
+ * @see StructureCursor
+ */
+public class ModelCursor extends StructureCursor {
+
+	/** The cursor over the chains of the current model */
+	private ChainCursor chainCursor;
+
+	/**
+	 * Constructor for a cursor over all the models of a structure.
+	 * @param structureDataInterface the structure to go through
+	 */
+	public ModelCursor(StructureDataInterface structureDataInterface) {
+		this(new CursorData(structureDataInterface));
+	}
+
+	ModelCursor(CursorData data) {
+		super(data, data.hierarchyIndex.getChainOffsets().length - 1);
+	}
+
+	/**
+	 * Returns the number of chains of the current model.
+	 * @return the number of chains
+	 */
+	public int numChains() {
+		int[] chainOffsets = data.hierarchyIndex.getChainOffsets();
+		return chainOffsets[index + 1] - chainOffsets[index];
+	}
+
+	/**
+	 * Returns the cursor over the chains of the current model.
+	 * @return the chain cursor, positioned before the first chain of the model
+	 */
+	public ChainCursor chains() {
+		if (chainCursor == null) {
+			chainCursor = new ChainCursor(data);
+		}
+		int[] chainOffsets = data.hierarchyIndex.getChainOffsets();
+		chainCursor.reset(chainOffsets[index], chainOffsets[index + 1]);
+		return chainCursor;
+	}
+}
@@ -0,0 +1,689 @@
+package org.rcsb.mmtf.decoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+import org.rcsb.mmtf.codec.CharCodecs;
+import org.rcsb.mmtf.codec.FloatCodecs;
+import org.rcsb.mmtf.codec.IntCodecs;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+
+/**
+ * A {@link StructureDataInterface} whose atom level columns live off-heap,
+ * in direct {@link ByteBuffer}s.
+ * <p>
+ * Caching many of these keeps the bulk of the data out of the Java heap. The atom columns are
+ * accessed without copying through the buffer accessors (e.g. {@link #getxCoordBuffer()})
+ * or the per-element accessors (e.g. {@link #getxCoord(int)}). The atom array getters of
+ * {@link StructureDataInterface} (e.g. {@link #getxCoords()}) have to copy the column onto the
+ * heap on <em>every</em> call, so they should be called once and the array kept, not called
+ * per atom. The group and inter-group bond columns are much smaller and are kept on the heap,
+ * so that their getters return the same arrays without copying.
+ * <p>
+ * {@link #close()} drops the columns, after which the accessors throw an {@link IllegalStateException}.
+ * The native memory is released by the garbage collector once neither the structure nor any
+ * buffer returned by the buffer accessors is reachable, so that such buffers stay valid.
+ */
+public class OffHeapStructureData implements StructureDataInterface, AutoCloseable {
+
+	/** The X coordinates */
+	private FloatBuffer cartnX;
+
+	/** The Y coordinates */
+	private FloatBuffer cartnY;
+
+	/** The Z coordinates */
+	private FloatBuffer cartnZ;
+
+	/** The B factors */
+	private FloatBuffer bFactor;
+
+	/** The occupancies */
+	private FloatBuffer occupancy;
+
+	/** The atom ids */
+	private IntBuffer atomId;
+
+	/** The alt ids */
+	private CharBuffer altId;
+
+	/** The ins codes */
+	private char[] insertionCodeList;
+
+	/** The group numbers */
+	private int[] groupNum;
+
+	/** The group type indices */
+	private int[] groupList;
+
+	/** The sequence ids of the groups */
+	private int[] seqResGroupList;
+
+	/** The secondary structure information */
+	private int[] secStructInfo;
+
+	/** The bond indices for bonds between groups*/
+	private int[] interGroupBondIndices;
+
+	/** The bond orders for bonds between groups*/
+	private int[] interGroupBondOrders;
+
+	/** The number of bytes allocated off-heap */
+	private long offHeapSize;
+
+	/** Whether the columns have been dropped */
+	private volatile boolean closed;
+
+	/** The on-heap data that is not stored in columns (groups, chains, header...) */
+	private final MetaDataCopy metaData;
+
+	private final int numAtoms;
+
+	private final int numGroups;
+
+	private final int numBonds;
+
+	/**
+	 * Constructor copying the columns of an existing {@link StructureDataInterface} off-heap.
+	 * Only the group and bond columns and the small non-columnar data (chains, group types, header...)
+	 * are copied onto the heap, so the input can be discarded afterwards.
+	 * @param structureDataInterface the data to copy
+	 */
+	public OffHeapStructureData(StructureDataInterface structureDataInterface) {
+		numAtoms = structureDataInterface.getNumAtoms();
+		numGroups = structureDataInterface.getNumGroups();
+		numBonds = structureDataInterface.getNumBonds();
+		cartnX = allocate(structureDataInterface.getxCoords());
+		cartnY = allocate(structureDataInterface.getyCoords());
+		cartnZ = allocate(structureDataInterface.getzCoords());
+		bFactor = allocate(structureDataInterface.getbFactors());
+		occupancy = allocate(structureDataInterface.getOccupancies());
+		atomId = allocate(structureDataInterface.getAtomIds());
+		altId = allocate(structureDataInterface.getAltLocIds());
+		insertionCodeList = structureDataInterface.getInsCodes().clone();
+		groupNum = structureDataInterface.getGroupIds().clone();
+		groupList = structureDataInterface.getGroupTypeIndices().clone();
+		seqResGroupList = structureDataInterface.getGroupSequenceIndices().clone();
+		secStructInfo = structureDataInterface.getSecStructList().clone();
+		interGroupBondIndices = structureDataInterface.getInterGroupBondIndices().clone();
+		interGroupBondOrders = structureDataInterface.getInterGroupBondOrders().clone();
+		metaData = new MetaDataCopy(structureDataInterface);
+	}
+
+	/**
+	 * Constructor decoding an {@link MmtfStructure} directly into off-heap columns.
+	 * Each atom column is decoded and copied off-heap in turn, so that at most one decoded
+	 * atom column is on the heap at any time.
+	 * @param inputData the encoded data
+	 */
+	public OffHeapStructureData(MmtfStructure inputData) {
+		cartnX = allocate(FloatCodecs.decodeArr(inputData.getxCoordList()));
+		cartnY = allocate(FloatCodecs.decodeArr(inputData.getyCoordList()));
+		cartnZ = allocate(FloatCodecs.decodeArr(inputData.getzCoordList()));
+		bFactor = allocate(FloatCodecs.decodeArr(inputData.getbFactorList()));
+		occupancy = allocate(FloatCodecs.decodeArr(inputData.getOccupancyList()));
+		atomId = allocate(IntCodecs.decodeArr(inputData.getAtomIdList()));
+		altId = allocate(CharCodecs.decodeArr(inputData.getAltLocList()));
+		insertionCodeList = CharCodecs.decodeArr(inputData.getInsCodeList());
+		groupNum = IntCodecs.decodeArr(inputData.getGroupIdList());
+		groupList = IntCodecs.decodeArr(inputData.getGroupTypeList());
+		seqResGroupList = IntCodecs.decodeArr(inputData.getSequenceIndexList());
+		secStructInfo = IntCodecs.decodeArr(inputData.getSecStructList());
+		interGroupBondIndices = IntCodecs.decodeArr(inputData.getBondAtomList());
+		interGroupBondOrders = IntCodecs.decodeArr(inputData.getBondOrderList());
+		numAtoms = cartnX.limit();
+		numGroups = groupList.length;
+		metaData = new MetaDataCopy(inputData);
+		numBonds = metaData.getNumBonds(groupList, interGroupBondOrders);
+	}
+
+	/**
+	 * Memory-map an uncompressed MMTF file and decode it into off-heap columns.
+	 * The file is parsed from the mapping rather than read whole into a heap byte array,
+	 * but the parsed MessagePack data, with its encoded columns, and each decoded column
+	 * are still held on the heap while they are copied off-heap.
+	 * @param filePath the path of the uncompressed MMTF file
+	 * @return the off-heap structure data
+	 * @throws IOException an error reading the file
+	 */
+	public static OffHeapStructureData fromFile(Path filePath) throws IOException {
+		MmtfStructure mmtfStructure;
+		try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			mmtfStructure = ReaderUtils.getDataFromInputStream(new ByteBufferInputStream(mapped));
+		}
+		return new OffHeapStructureData(mmtfStructure);
+	}
+
+	/**
+	 * Get the number of bytes held off-heap.
+	 * @return the number of bytes allocated for the columns
+	 */
+	public long getOffHeapSize() {
+		return offHeapSize;
+	}
+
+	/**
+	 * Check whether the columns have been dropped.
+	 * @return true if {@link #close()} has been called
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Drop the columns, so that the off-heap memory is released by the garbage collector once the
+	 * buffers returned by the buffer accessors are no longer used. The data cannot be accessed
+	 * through this structure afterwards. The memory is not freed at once, as a thread may still
+	 * be reading a buffer.
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		cartnX = cartnY = cartnZ = bFactor = occupancy = null;
+		atomId = null;
+		altId = null;
+		groupNum = groupList = seqResGroupList = secStructInfo = null;
+		interGroupBondIndices = interGroupBondOrders = null;
+		insertionCodeList = null;
+	}
+
+	/**
+	 * Returns a read-only view (no copy) of the X coordinates.
+	 * @return the X coordinates of all atoms
+	 */
+	public FloatBuffer getxCoordBuffer() {
+		return view(cartnX);
+	}
+
+	/**
+	 * Returns a read-only view (no copy) of the Y coordinates.
+	 * @return the Y coordinates of all atoms
+	 */
+	public FloatBuffer getyCoordBuffer() {
+		return view(cartnY);
+	}
+
+	/**
+	 * Returns a read-only view (no copy) of the Z coordinates.
+	 * @return the Z coordinates of all atoms
+	 */
+	public FloatBuffer getzCoordBuffer() {
+		return view(cartnZ);
+	}
+
+	/**
+	 * Returns a read-only view (no copy) of the B-factors.
+	 * @return the B-factors of all atoms
+	 */
+	public FloatBuffer getbFactorBuffer() {
+		return view(bFactor);
+	}
+
+	/**
+	 * Returns a read-only view (no copy) of the occupancies.
+	 * @return the occupancies of all atoms
+	 */
+	public FloatBuffer getOccupancyBuffer() {
+		return view(occupancy);
+	}
+
+	/**
+	 * Returns a read-only view (no copy) of the atom ids.
+	 * @return the atom ids of all atoms
+	 */
+	public IntBuffer getAtomIdBuffer() {
+		return view(atomId);
+	}
+
+	/**
+	 * Returns a read-only view (no copy) of the alternate location ids.
+	 * @return the alternate location ids of all atoms
+	 */
+	public CharBuffer getAltLocIdBuffer() {
+		return view(altId);
+	}
+
+	/**
+	 * Returns a read-only view (no copy) of the group type indices.
+	 * @return the group type indices of all groups
+	 */
+	public IntBuffer getGroupTypeIndexBuffer() {
+		return IntBuffer.wrap(checkOpen(groupList)).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns the X coordinate of an atom.
+	 * @param atomIndex the index of the atom in the structure
+	 * @return the X coordinate
+	 */
+	public float getxCoord(int atomIndex) {
+		return checkOpen(cartnX).get(atomIndex);
+	}
+
+	/**
+	 * Returns the Y coordinate of an atom.
+	 * @param atomIndex the index of the atom in the structure
+	 * @return the Y coordinate
+	 */
+	public float getyCoord(int atomIndex) {
+		return checkOpen(cartnY).get(atomIndex);
+	}
+
+	/**
+	 * Returns the Z coordinate of an atom.
+	 * @param atomIndex the index of the atom in the structure
+	 * @return the Z coordinate
+	 */
+	public float getzCoord(int atomIndex) {
+		return checkOpen(cartnZ).get(atomIndex);
+	}
+
+	/**
+	 * Returns the B-factor of an atom.
+	 * @param atomIndex the index of the atom in the structure
+	 * @return the B-factor
+	 */
+	public float getbFactor(int atomIndex) {
+		return checkOpen(bFactor).get(atomIndex);
+	}
+
+	/**
+	 * Returns the occupancy of an atom.
+	 * @param atomIndex the index of the atom in the structure
+	 * @return the occupancy
+	 */
+	public float getOccupancy(int atomIndex) {
+		return checkOpen(occupancy).get(atomIndex);
+	}
+
+	/**
+	 * Returns the group type index of a group.
+	 * @param groupIndex the index of the group in the structure
+	 * @return the index to be used with the group level getters, e.g. {@link #getGroupName(int)}
+	 */
+	public int getGroupTypeIndex(int groupIndex) {
+		return checkOpen(groupList)[groupIndex];
+	}
+
+	@Override
+	public float[] getxCoords() {
+		return toArray(checkOpen(cartnX));
+	}
+
+	@Override
+	public float[] getyCoords() {
+		return toArray(checkOpen(cartnY));
+	}
+
+	@Override
+	public float[] getzCoords() {
+		return toArray(checkOpen(cartnZ));
+	}
+
+	@Override
+	public float[] getbFactors() {
+		return toArray(checkOpen(bFactor));
+	}
+
+	@Override
+	public float[] getOccupancies() {
+		return toArray(checkOpen(occupancy));
+	}
+
+	@Override
+	public int[] getAtomIds() {
+		return toArray(checkOpen(atomId));
+	}
+
+	@Override
+	public char[] getAltLocIds() {
+		return toArray(checkOpen(altId));
+	}
+
+	@Override
+	public char[] getInsCodes() {
+		return checkOpen(insertionCodeList);
+	}
+
+	@Override
+	public int[] getGroupIds() {
+		return checkOpen(groupNum);
+	}
+
+	@Override
+	public int[] getGroupTypeIndices() {
+		return checkOpen(groupList);
+	}
+
+	@Override
+	public int[] getGroupSequenceIndices() {
+		return checkOpen(seqResGroupList);
+	}
+
+	@Override
+	public int[] getSecStructList() {
+		return checkOpen(secStructInfo);
+	}
+
+	@Override
+	public int[] getInterGroupBondIndices() {
+		return checkOpen(interGroupBondIndices);
+	}
+
+	@Override
+	public int[] getInterGroupBondOrders() {
+		return checkOpen(interGroupBondOrders);
+	}
+
+	@Override
+	public int getNumAtoms() {
+		return numAtoms;
+	}
+
+	@Override
+	public int getNumGroups() {
+		return numGroups;
+	}
+
+	@Override
+	public int getNumBonds() {
+		return numBonds;
+	}
+
+	@Override
+	public String getGroupName(int groupInd) {
+		return metaData.getGroupName(groupInd);
+	}
+
+	@Override
+	public int getNumAtomsInGroup(int groupInd) {
+		return metaData.getNumAtomsInGroup(groupInd);
+	}
+
+	@Override
+	public String[] getGroupAtomNames(int groupInd) {
+		return metaData.getGroupAtomNames(groupInd);
+	}
+
+	@Override
+	public String[] getGroupElementNames(int groupInd) {
+		return metaData.getGroupElementNames(groupInd);
+	}
+
+	@Override
+	public int[] getGroupBondOrders(int groupInd) {
+		return metaData.getGroupBondOrders(groupInd);
+	}
+
+	@Override
+	public int[] getGroupBondIndices(int groupInd) {
+		return metaData.getGroupBondIndices(groupInd);
+	}
+
+	@Override
+	public int[] getGroupAtomCharges(int groupInd) {
+		return metaData.getGroupAtomCharges(groupInd);
+	}
+
+	@Override
+	public char getGroupSingleLetterCode(int groupInd) {
+		return metaData.getGroupSingleLetterCode(groupInd);
+	}
+
+	@Override
+	public String getGroupChemCompType(int groupInd) {
+		return metaData.getGroupChemCompType(groupInd);
+	}
+
+	@Override
+	public String[] getChainIds() {
+		return metaData.getChainIds();
+	}
+
+	@Override
+	public String[] getChainNames() {
+		return metaData.getChainNames();
+	}
+
+	@Override
+	public int[] getChainsPerModel() {
+		return metaData.getChainsPerModel();
+	}
+
+	@Override
+	public int[] getGroupsPerChain() {
+		return metaData.getGroupsPerChain();
+	}
+
+	@Override
+	public String getSpaceGroup() {
+		return metaData.getSpaceGroup();
+	}
+
+	@Override
+	public float[] getUnitCell() {
+		return metaData.getUnitCell();
+	}
+
+	@Override
+	public int getNumBioassemblies() {
+		return metaData.getNumBioassemblies();
+	}
+
+	@Override
+	public int getNumTransInBioassembly(int bioassemblyIndex) {
+		return metaData.getNumTransInBioassembly(bioassemblyIndex);
+	}
+
+	@Override
+	public String getBioassemblyName(int bioassemblyIndex) {
+		return metaData.getBioassemblyName(bioassemblyIndex);
+	}
+
+	@Override
+	public int[] getChainIndexListForTransform(int bioassemblyIndex, int transformationIndex) {
+		return metaData.getChainIndexListForTransform(bioassemblyIndex, transformationIndex);
+	}
+
+	@Override
+	public double[] getMatrixForTransform(int bioassemblyIndex, int transformationIndex) {
+		return metaData.getMatrixForTransform(bioassemblyIndex, transformationIndex);
+	}
+
+	@Override
+	public String getMmtfVersion() {
+		return metaData.getMmtfVersion();
+	}
+
+	@Override
+	public String getMmtfProducer() {
+		return metaData.getMmtfProducer();
+	}
+
+	@Override
+	public int getNumEntities() {
+		return metaData.getNumEntities();
+	}
+
+	@Override
+	public String getEntityDescription(int entityInd) {
+		return metaData.getEntityDescription(entityInd);
+	}
+
+	@Override
+	public String getEntityType(int entityInd) {
+		return metaData.getEntityType(entityInd);
+	}
+
+	@Override
+	public int[] getEntityChainIndexList(int entityInd) {
+		return metaData.getEntityChainIndexList(entityInd);
+	}
+
+	@Override
+	public String getEntitySequence(int entityInd) {
+		return metaData.getEntitySequence(entityInd);
+	}
+
+	@Override
+	public String getStructureId() {
+		return metaData.getStructureId();
+	}
+
+	@Override
+	public int getNumModels() {
+		return metaData.getNumModels();
+	}
+
+	@Override
+	public int getNumChains() {
+		return metaData.getNumChains();
+	}
+
+	@Override
+	public float getRfree() {
+		return metaData.getRfree();
+	}
+
+	@Override
+	public float getRwork() {
+		return metaData.getRwork();
+	}
+
+	@Override
+	public float getResolution() {
+		return metaData.getResolution();
+	}
+
+	@Override
+	public String getTitle() {
+		return metaData.getTitle();
+	}
+
+	@Override
+	public String[] getExperimentalMethods() {
+		return metaData.getExperimentalMethods();
+	}
+
+	@Override
+	public String getDepositionDate() {
+		return metaData.getDepositionDate();
+	}
+
+	@Override
+	public String getReleaseDate() {
+		return metaData.getReleaseDate();
+	}
+
+	@Override
+	public double[][] getNcsOperatorList() {
+		return metaData.getNcsOperatorList();
+	}
+
+	private ByteBuffer allocateBytes(int numBytes) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(numBytes).order(ByteOrder.nativeOrder());
+		offHeapSize += numBytes;
+		return buffer;
+	}
+
+	private FloatBuffer allocate(float[] data) {
+		FloatBuffer buffer = allocateBytes(data.length * Float.BYTES).asFloatBuffer();
+		buffer.put(data).flip();
+		return buffer;
+	}
+
+	private IntBuffer allocate(int[] data) {
+		IntBuffer buffer = allocateBytes(data.length * Integer.BYTES).asIntBuffer();
+		buffer.put(data).flip();
+		return buffer;
+	}
+
+	private CharBuffer allocate(char[] data) {
+		CharBuffer buffer = allocateBytes(data.length * Character.BYTES).asCharBuffer();
+		buffer.put(data).flip();
+		return buffer;
+	}
+
+	private <T> T checkOpen(T buffer) {
+		// The column is null if read after it was dropped
+		if (buffer == null || closed) {
+			throw new IllegalStateException("The off-heap data of "+getStructureId()+" has been released.");
+		}
+		return buffer;
+	}
+
+	private FloatBuffer view(FloatBuffer buffer) {
+		return checkOpen(buffer).asReadOnlyBuffer();
+	}
+
+	private IntBuffer view(IntBuffer buffer) {
+		return checkOpen(buffer).asReadOnlyBuffer();
+	}
+
+	private CharBuffer view(CharBuffer buffer) {
+		return checkOpen(buffer).asReadOnlyBuffer();
+	}
+
+	private static float[] toArray(FloatBuffer buffer) {
+		float[] out = new float[buffer.limit()];
+		buffer.duplicate().get(out);
+		return out;
+	}
+
+	private static int[] toArray(IntBuffer buffer) {
+		int[] out = new int[buffer.limit()];
+		buffer.duplicate().get(out);
+		return out;
+	}
+
+	private static char[] toArray(CharBuffer buffer) {
+		char[] out = new char[buffer.limit()];
+		buffer.duplicate().get(out);
+		return out;
+	}
+
+	/**
+	 * An {@link InputStream} reading from a {@link ByteBuffer}, e.g. a memory-mapped file.
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
@@ -0,0 +1,568 @@
+package org.rcsb.mmtf.decoder;
+
+import java.io.Serializable;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+import org.rcsb.mmtf.codec.ArrayConverters;
+import org.rcsb.mmtf.codec.CharCodecs;
+import org.rcsb.mmtf.codec.FloatCodecs;
+import org.rcsb.mmtf.codec.IntCodecs;
+import org.rcsb.mmtf.codec.OptionParser;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+
+/**
+ * A {@link StructureDataInterface} keeping the coordinates, B-factors and occupancies
+ * as the fixed-point integers they are stored as in the file, rather than as floats.
+ * <p>
+ * Each of these columns is held as a short array if all of its values fit in 16 bits
+ * (e.g. the 0.1 &#197; coordinates of reduced files) and as an int array otherwise,
+ * so the data takes a half or a quarter of the memory of float arrays with no loss
+ * of precision with respect to the file. The values are converted to floats on access
+ * through the per-element accessors (e.g. {@link #getxCoord(int)}) or in bulk by the
+ * array getters of {@link StructureDataInterface}, which create a new array on every call.
+ */
+public class QuantizedStructureData implements StructureDataInterface, Serializable {
+
+	private static final long serialVersionUID = 2923553458620916497L;
+
+	/** The X coordinates */
+	private final QuantizedColumn cartnX;
+
+	/** The Y coordinates */
+	private final QuantizedColumn cartnY;
+
+	/** The Z coordinates */
+	private final QuantizedColumn cartnZ;
+
+	/** The B factors */
+	private final QuantizedColumn bFactor;
+
+	/** The occupancies */
+	private final QuantizedColumn occupancy;
+
+	/** The atom ids */
+	private final int[] atomId;
+
+	/** The alt ids */
+	private final char[] altId;
+
+	/** The ins codes */
+	private final char[] insertionCodeList;
+
+	/** The group numbers */
+	private final int[] groupNum;
+
+	/** The group type indices */
+	private final int[] groupList;
+
+	/** The sequence ids of the groups */
+	private final int[] seqResGroupList;
+
+	/** The secondary structure information */
+	private final int[] secStructInfo;
+
+	/** The bond indices for bonds between groups*/
+	private final int[] interGroupBondIndices;
+
+	/** The bond orders for bonds between groups*/
+	private final int[] interGroupBondOrders;
+
+	/** The data that is not stored in columns (groups, chains, header...) */
+	private final MetaDataCopy metaData;
+
+	private final int numBonds;
+
+	/**
+	 * Constructor decoding an {@link MmtfStructure} without converting the coordinates,
+	 * B-factors and occupancies to floats. The precision is the one of the file.
+	 * @param inputData the encoded data
+	 */
+	public QuantizedStructureData(MmtfStructure inputData) {
+		cartnX = QuantizedColumn.decode(inputData.getxCoordList());
+		cartnY = QuantizedColumn.decode(inputData.getyCoordList());
+		cartnZ = QuantizedColumn.decode(inputData.getzCoordList());
+		bFactor = QuantizedColumn.decode(inputData.getbFactorList());
+		occupancy = QuantizedColumn.decode(inputData.getOccupancyList());
+		atomId = IntCodecs.decodeArr(inputData.getAtomIdList());
+		altId = CharCodecs.decodeArr(inputData.getAltLocList());
+		insertionCodeList = CharCodecs.decodeArr(inputData.getInsCodeList());
+		groupNum = IntCodecs.decodeArr(inputData.getGroupIdList());
+		groupList = IntCodecs.decodeArr(inputData.getGroupTypeList());
+		seqResGroupList = IntCodecs.decodeArr(inputData.getSequenceIndexList());
+		secStructInfo = IntCodecs.decodeArr(inputData.getSecStructList());
+		interGroupBondIndices = IntCodecs.decodeArr(inputData.getBondAtomList());
+		interGroupBondOrders = IntCodecs.decodeArr(inputData.getBondOrderList());
+		metaData = new MetaDataCopy(inputData);
+		numBonds = metaData.getNumBonds(groupList, interGroupBondOrders);
+	}
+
+	/**
+	 * Constructor quantizing an existing {@link StructureDataInterface} to the precision of
+	 * a full MMTF file ({@link MmtfStructure#COORD_DIVIDER} and {@link MmtfStructure#OCCUPANCY_BFACTOR_DIVIDER}).
+	 * @param structureDataInterface the data to copy
+	 */
+	public QuantizedStructureData(StructureDataInterface structureDataInterface) {
+		this(structureDataInterface, MmtfStructure.COORD_DIVIDER, MmtfStructure.OCCUPANCY_BFACTOR_DIVIDER);
+	}
+
+	/**
+	 * Constructor quantizing an existing {@link StructureDataInterface} to the given precision.
+	 * @param structureDataInterface the data to copy
+	 * @param precision the precision for the storing of coordinate, B-factor and occupancy data
+	 */
+	public QuantizedStructureData(StructureDataInterface structureDataInterface, int precision) {
+		this(structureDataInterface, precision, precision);
+	}
+
+	/**
+	 * Constructor quantizing an existing {@link StructureDataInterface} to the given precisions.
+	 * @param structureDataInterface the data to copy
+	 * @param coordDivider the precision for the storing of coordinate data, e.g. 1000 for 0.001 &#197;
+	 * @param bfactorOccDivider the precision for the storing of B-factor and occupancy data
+	 */
+	public QuantizedStructureData(StructureDataInterface structureDataInterface, int coordDivider, int bfactorOccDivider) {
+		cartnX = QuantizedColumn.quantize(structureDataInterface.getxCoords(), coordDivider);
+		cartnY = QuantizedColumn.quantize(structureDataInterface.getyCoords(), coordDivider);
+		cartnZ = QuantizedColumn.quantize(structureDataInterface.getzCoords(), coordDivider);
+		bFactor = QuantizedColumn.quantize(structureDataInterface.getbFactors(), bfactorOccDivider);
+		occupancy = QuantizedColumn.quantize(structureDataInterface.getOccupancies(), bfactorOccDivider);
+		atomId = structureDataInterface.getAtomIds().clone();
+		altId = structureDataInterface.getAltLocIds().clone();
+		insertionCodeList = structureDataInterface.getInsCodes().clone();
+		groupNum = structureDataInterface.getGroupIds().clone();
+		groupList = structureDataInterface.getGroupTypeIndices().clone();
+		seqResGroupList = structureDataInterface.getGroupSequenceIndices().clone();
+		secStructInfo = structureDataInterface.getSecStructList().clone();
+		interGroupBondIndices = structureDataInterface.getInterGroupBondIndices().clone();
+		interGroupBondOrders = structureDataInterface.getInterGroupBondOrders().clone();
+		numBonds = structureDataInterface.getNumBonds();
+		metaData = new MetaDataCopy(structureDataInterface);
+	}
+
+	/**
+	 * Returns the X coordinate of an atom.
+	 * @param atomIndex the index of the atom in the structure
+	 * @return the X coordinate
+	 */
+	public float getxCoord(int atomIndex) {
+		return cartnX.get(atomIndex);
+	}
+
+	/**
+	 * Returns the Y coordinate of an atom.
+	 * @param atomIndex the index of the atom in the structure
+	 * @return the Y coordinate
+	 */
+	public float getyCoord(int atomIndex) {
+		return cartnY.get(atomIndex);
+	}
+
+	/**
+	 * Returns the Z coordinate of an atom.
+	 * @param atomIndex the index of the atom in the structure
+	 * @return the Z coordinate
+	 */
+	public float getzCoord(int atomIndex) {
+		return cartnZ.get(atomIndex);
+	}
+
+	/**
+	 * Returns the B-factor of an atom.
+	 * @param atomIndex the index of the atom in the structure
+	 * @return the B-factor
+	 */
+	public float getbFactor(int atomIndex) {
+		return bFactor.get(atomIndex);
+	}
+
+	/**
+	 * Returns the occupancy of an atom.
+	 * @param atomIndex the index of the atom in the structure
+	 * @return the occupancy
+	 */
+	public float getOccupancy(int atomIndex) {
+		return occupancy.get(atomIndex);
+	}
+
+	/**
+	 * Returns the divider the quantized coordinates are converted to floats with.
+	 * @return the coordinate divider, e.g. 1000 for 0.001 &#197; precision
+	 */
+	public int getCoordDivider() {
+		return cartnX.divider;
+	}
+
+	/**
+	 * Returns the divider the quantized B-factors are converted to floats with.
+	 * @return the B-factor divider, e.g. 100 for 0.01 precision
+	 */
+	public int getbFactorDivider() {
+		return bFactor.divider;
+	}
+
+	/**
+	 * Check whether the coordinates are held as 16 bit integers.
+	 * @return true if all three coordinate columns are short arrays
+	 */
+	public boolean hasShortCoordinates() {
+		return cartnX.shorts != null && cartnY.shorts != null && cartnZ.shorts != null;
+	}
+
+	/**
+	 * Get the number of bytes held by the quantized coordinate, B-factor and occupancy columns.
+	 * @return the size of these columns in bytes
+	 */
+	public long getQuantizedSize() {
+		return cartnX.getSize() + cartnY.getSize() + cartnZ.getSize() + bFactor.getSize() + occupancy.getSize();
+	}
+
+	@Override
+	public float[] getxCoords() {
+		return cartnX.toFloats();
+	}
+
+	@Override
+	public float[] getyCoords() {
+		return cartnY.toFloats();
+	}
+
+	@Override
+	public float[] getzCoords() {
+		return cartnZ.toFloats();
+	}
+
+	@Override
+	public float[] getbFactors() {
+		return bFactor.toFloats();
+	}
+
+	@Override
+	public float[] getOccupancies() {
+		return occupancy.toFloats();
+	}
+
+	@Override
+	public int[] getAtomIds() {
+		return atomId;
+	}
+
+	@Override
+	public char[] getAltLocIds() {
+		return altId;
+	}
+
+	@Override
+	public char[] getInsCodes() {
+		return insertionCodeList;
+	}
+
+	@Override
+	public int[] getGroupIds() {
+		return groupNum;
+	}
+
+	@Override
+	public int[] getGroupTypeIndices() {
+		return groupList;
+	}
+
+	@Override
+	public int[] getGroupSequenceIndices() {
+		return seqResGroupList;
+	}
+
+	@Override
+	public int[] getSecStructList() {
+		return secStructInfo;
+	}
+
+	@Override
+	public int[] getInterGroupBondIndices() {
+		return interGroupBondIndices;
+	}
+
+	@Override
+	public int[] getInterGroupBondOrders() {
+		return interGroupBondOrders;
+	}
+
+	@Override
+	public int getNumAtoms() {
+		return cartnX.length();
+	}
+
+	@Override
+	public int getNumGroups() {
+		return groupList.length;
+	}
+
+	@Override
+	public int getNumBonds() {
+		return numBonds;
+	}
+
+	@Override
+	public String getGroupName(int groupInd) {
+		return metaData.getGroupName(groupInd);
+	}
+
+	@Override
+	public int getNumAtomsInGroup(int groupInd) {
+		return metaData.getNumAtomsInGroup(groupInd);
+	}
+
+	@Override
+	public String[] getGroupAtomNames(int groupInd) {
+		return metaData.getGroupAtomNames(groupInd);
+	}
+
+	@Override
+	public String[] getGroupElementNames(int groupInd) {
+		return metaData.getGroupElementNames(groupInd);
+	}
+
+	@Override
+	public int[] getGroupBondOrders(int groupInd) {
+		return metaData.getGroupBondOrders(groupInd);
+	}
+
+	@Override
+	public int[] getGroupBondIndices(int groupInd) {
+		return metaData.getGroupBondIndices(groupInd);
+	}
+
+	@Override
+	public int[] getGroupAtomCharges(int groupInd) {
+		return metaData.getGroupAtomCharges(groupInd);
+	}
+
+	@Override
+	public char getGroupSingleLetterCode(int groupInd) {
+		return metaData.getGroupSingleLetterCode(groupInd);
+	}
+
+	@Override
+	public String getGroupChemCompType(int groupInd) {
+		return metaData.getGroupChemCompType(groupInd);
+	}
+
+	@Override
+	public String[] getChainIds() {
+		return metaData.getChainIds();
+	}
+
+	@Override
+	public String[] getChainNames() {
+		return metaData.getChainNames();
+	}
+
+	@Override
+	public int[] getChainsPerModel() {
+		return metaData.getChainsPerModel();
+	}
+
+	@Override
+	public int[] getGroupsPerChain() {
+		return metaData.getGroupsPerChain();
+	}
+
+	@Override
+	public String getSpaceGroup() {
+		return metaData.getSpaceGroup();
+	}
+
+	@Override
+	public float[] getUnitCell() {
+		return metaData.getUnitCell();
+	}
+
+	@Override
+	public int getNumBioassemblies() {
+		return metaData.getNumBioassemblies();
+	}
+
+	@Override
+	public int getNumTransInBioassembly(int bioassemblyIndex) {
+		return metaData.getNumTransInBioassembly(bioassemblyIndex);
+	}
+
+	@Override
+	public String getBioassemblyName(int bioassemblyIndex) {
+		return metaData.getBioassemblyName(bioassemblyIndex);
+	}
+
+	@Override
+	public int[] getChainIndexListForTransform(int bioassemblyIndex, int transformationIndex) {
+		return metaData.getChainIndexListForTransform(bioassemblyIndex, transformationIndex);
+	}
+
+	@Override
+	public double[] getMatrixForTransform(int bioassemblyIndex, int transformationIndex) {
+		return metaData.getMatrixForTransform(bioassemblyIndex, transformationIndex);
+	}
+
+	@Override
+	public String getMmtfVersion() {
+		return metaData.getMmtfVersion();
+	}
+
+	@Override
+	public String getMmtfProducer() {
+		return metaData.getMmtfProducer();
+	}
+
+	@Override
+	public int getNumEntities() {
+		return metaData.getNumEntities();
+	}
+
+	@Override
+	public String getEntityDescription(int entityInd) {
+		return metaData.getEntityDescription(entityInd);
+	}
+
+	@Override
+	public String getEntityType(int entityInd) {
+		return metaData.getEntityType(entityInd);
+	}
+
+	@Override
+	public int[] getEntityChainIndexList(int entityInd) {
+		return metaData.getEntityChainIndexList(entityInd);
+	}
+
+	@Override
+	public String getEntitySequence(int entityInd) {
+		return metaData.getEntitySequence(entityInd);
+	}
+
+	@Override
+	public String getStructureId() {
+		return metaData.getStructureId();
+	}
+
+	@Override
+	public int getNumModels() {
+		return metaData.getNumModels();
+	}
+
+	@Override
+	public int getNumChains() {
+		return metaData.getNumChains();
+	}
+
+	@Override
+	public float getRfree() {
+		return metaData.getRfree();
+	}
+
+	@Override
+	public float getRwork() {
+		return metaData.getRwork();
+	}
+
+	@Override
+	public float getResolution() {
+		return metaData.getResolution();
+	}
+
+	@Override
+	public String getTitle() {
+		return metaData.getTitle();
+	}
+
+	@Override
+	public String[] getExperimentalMethods() {
+		return metaData.getExperimentalMethods();
+	}
+
+	@Override
+	public String getDepositionDate() {
+		return metaData.getDepositionDate();
+	}
+
+	@Override
+	public String getReleaseDate() {
+		return metaData.getReleaseDate();
+	}
+
+	@Override
+	public double[][] getNcsOperatorList() {
+		return metaData.getNcsOperatorList();
+	}
+
+	/**
+	 * A column of fixed-point values, held as shorts when they all fit in 16 bits.
+	 */
+	private static final class QuantizedColumn implements Serializable {
+		private static final long serialVersionUID = -4000286734781426853L;
+
+		/** The values if they fit in 16 bits - otherwise null */
+		private final short[] shorts;
+
+		/** The values if they do not fit in 16 bits - otherwise null */
+		private final int[] ints;
+
+		/** The divider converting the values to floats */
+		private final int divider;
+
+		private QuantizedColumn(int[] values, int divider) {
+			this.divider = divider;
+			if (fitsInShort(values)) {
+				shorts = new short[values.length];
+				for (int i = 0; i < values.length; i++) {
+					shorts[i] = (short) values[i];
+				}
+				ints = null;
+			}
+			else {
+				shorts = null;
+				ints = values;
+			}
+		}
+
+		static QuantizedColumn decode(byte[] encoded) {
+			OptionParser optionParser = new OptionParser(encoded);
+			FloatCodecs codec = FloatCodecs.getCodec(optionParser.methodNumber);
+			return new QuantizedColumn(codec.decodeToInts(optionParser.data), optionParser.param);
+		}
+
+		static QuantizedColumn quantize(float[] values, int divider) {
+			return new QuantizedColumn(ArrayConverters.convertFloatsToInts(values, divider), divider);
+		}
+
+		private static boolean fitsInShort(int[] values) {
+			for (int value : values) {
+				if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		int length() {
+			return shorts != null ? shorts.length : ints.length;
+		}
+
+		float get(int index) {
+			// Same arithmetic as ArrayConverters.convertIntsToFloats
+			return (shorts != null ? shorts[index] : ints[index]) / (float) divider;
+		}
+
+		float[] toFloats() {
+			if (ints != null) {
+				return ArrayConverters.convertIntsToFloats(ints, divider);
+			}
+			float floatDivider = divider;
+			float[] out = new float[shorts.length];
+			for (int i = 0; i < shorts.length; i++) {
+				out[i] = shorts[i] / floatDivider;
+			}
+			return out;
+		}
+
+		long getSize() {
+			return shorts != null ? (long) shorts.length * Short.BYTES : (long) ints.length * Integer.BYTES;
+		}
+	}
+}
@@ -10,7 +10,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.zip.GZIPInputStream;
 
+import org.rcsb.mmtf.api.StructureDataInterface;
 import org.rcsb.mmtf.dataholders.MmtfStructure;
+import org.rcsb.mmtf.encoder.WriterUtils;
 import org.rcsb.mmtf.serialization.MessagePackSerialization;
 import org.rcsb.mmtf.utils.CodecUtils;
 
@@ -27,6 +29,86 @@ public class ReaderUtils {
 	 */
 	private static final int BYTE_BUFFER_CHUNK_SIZE = 4096;
 
+	/**
+	 * The cache of the data fetched from the MMTF servers - null if none.
+	 */
+	private static volatile UrlCache urlCache;
+
+	/**
+	 * The sources tried before the cache and the MMTF servers - null until the default is first used:
+	 * the {@link LocalMirror} set by the system properties.
+	 */
+	private static volatile EntryResolver[] entryResolvers;
+
+	/**
+	 * Set the sources of the data tried, in order, before the cache and the MMTF servers, e.g. a {@link LocalMirror}.
+	 * @param resolvers the sources - none to always use the cache and the MMTF servers
+	 */
+	public static void setEntryResolvers(EntryResolver... resolvers) {
+		entryResolvers = resolvers.clone();
+	}
+
+	/**
+	 * @return the sources of the data tried before the cache and the MMTF servers
+	 * @throws IOException if the mirror set by the system properties is not valid
+	 */
+	public static EntryResolver[] getEntryResolvers() throws IOException {
+		return resolveEntryResolvers().clone();
+	}
+
+	/**
+	 * The cache of the decoded structures - null if none.
+	 */
+	private static volatile StructureCache structureCache;
+
+	/**
+	 * Set the in-memory cache used for the structures decoded by {@link #getStructureFromUrl(String, boolean, boolean)}.
+	 * @param cache the cache, or null to always fetch and decode the structures
+	 */
+	public static void setStructureCache(StructureCache cache) {
+		structureCache = cache;
+	}
+
+	/**
+	 * @return the in-memory cache of the decoded structures, or null if none
+	 */
+	public static StructureCache getStructureCache() {
+		return structureCache;
+	}
+
+	/**
+	 * Get the sources set, or the default ones if none were set. The default is resolved on first
+	 * use rather than when the class is loaded, so that invalid system properties fail the reads.
+	 */
+	private static EntryResolver[] resolveEntryResolvers() throws IOException {
+		EntryResolver[] resolvers = entryResolvers;
+		if (resolvers == null) {
+			synchronized (ReaderUtils.class) {
+				resolvers = entryResolvers;
+				if (resolvers == null) {
+					LocalMirror mirror = LocalMirror.fromSystemProperties();
+					resolvers = mirror == null ? new EntryResolver[0] : new EntryResolver[] {mirror};
+					entryResolvers = resolvers;
+				}
+			}
+		}
+		return resolvers;
+	}
+
+	/**
+	 * Set the on-disk cache used for the data fetched from the MMTF servers.
+	 * @param cache the cache, or null to always fetch the data
+	 */
+	public static void setUrlCache(UrlCache cache) {
+		urlCache = cache;
+	}
+
+	/**
+	 * @return the on-disk cache used for the data fetched from the MMTF servers, or null if none
+	 */
+	public static UrlCache getUrlCache() {
+		return urlCache;
+	}
 	
 	/**
 	 * Returns a full (atom atom) MmmtfStructure given a PDB Id from the MMTF web server using HTTP.
@@ -53,16 +135,49 @@ public class ReaderUtils {
 	public static MmtfStructure getDataFromUrl(String pdbId, boolean https, boolean reduced)
 		throws IOException {
 		// Get these as an inputstream
-		byte[] bytes = getByteArrayFromUrl(pdbId, https, reduced);
+		byte[] bytes = getEntryData(pdbId, https, reduced);
 		// Now return the gzip deflated and deserialized byte array
 		MessagePackSerialization mmtfBeanSeDeMessagePackImpl
 			= new MessagePackSerialization();
 		return mmtfBeanSeDeMessagePackImpl.deserialize(new ByteArrayInputStream(
-			deflateGzip(bytes)));
+			isGzip(bytes) ? deflateGzip(bytes) : bytes));
 	}
 	
 
 
+	/**
+	 * Returns a full (all atom) decoded structure given a PDB Id, using HTTP.
+	 *
+	 * @param pdbId the pdb code for the desired structure.
+	 * @return the decoded structure
+	 * @throws IOException if the data cannot be read from the URL
+	 * @see #getStructureFromUrl(String, boolean, boolean)
+	 */
+	public static StructureDataInterface getStructureFromUrl(String pdbId) throws IOException {
+		return getStructureFromUrl(pdbId, false, false);
+	}
+
+	/**
+	 * Returns a decoded structure given a PDB Id, from the {@link StructureCache} if one is set,
+	 * otherwise fetched as by {@link #getDataFromUrl(String, boolean, boolean)} and decoded with the
+	 * {@link GenericDecoder}. The structures of the cache are shared and must not be modified.
+	 *
+	 * @param pdbId the pdb code for the desired structure.
+	 * @param https true to use https
+	 * @param reduced true for the reduced representation, false for the full one
+	 * @return the decoded structure
+	 * @throws IOException if the data cannot be read from the URL
+	 */
+	public static StructureDataInterface getStructureFromUrl(String pdbId, boolean https, boolean reduced)
+		throws IOException {
+		StructureCache cache = structureCache;
+		if (cache == null) {
+			return new GenericDecoder(getDataFromUrl(pdbId, https, reduced));
+		}
+		return cache.get(StructureCache.getKey(pdbId, reduced),
+			() -> new GenericDecoder(getDataFromUrl(pdbId, https, reduced)));
+	}
+
 	/**
 	 * Gets the GZIP compressed and messagepack serialized data from the MMTF servers
 	 *
@@ -79,6 +194,8 @@ public class ReaderUtils {
 	 * This methods support http and https protocols and two MMTF representations: full and reduced.
 	 * reduced: C-alpha atoms for polypeptides, P for polynucleotides, and all atom for all other groups (residues) at 0.1 A coordinate precision;
 	 * full: all atoms at 0.001 A coordinate precision
+	 * The sources set with {@link #setEntryResolvers(EntryResolver...)} are tried first,
+	 * then the data goes through the {@link UrlCache} if one is set.
 	 *
 	 * @param pdbId the PDB Id to retrieve
 	 * @return the byte array (GZIP compressed) of the data from the URL
@@ -86,6 +203,26 @@ public class ReaderUtils {
 	 */
 	public static byte[] getByteArrayFromUrl(String pdbId, boolean https, boolean reduced)
 		throws IOException {
+		byte[] bytes = getEntryData(pdbId, https, reduced);
+		// Uncompressed in a local mirror
+		return isGzip(bytes) ? bytes : WriterUtils.gzipCompress(bytes);
+	}
+
+	/**
+	 * Get the data of an entry from the first source having it, GZIP compressed or not.
+	 */
+	private static byte[] getEntryData(String pdbId, boolean https, boolean reduced)
+		throws IOException {
+		for (EntryResolver resolver : resolveEntryResolvers()) {
+			byte[] data = resolver.getData(pdbId, reduced);
+			if (data != null) {
+				return data;
+			}
+		}
+		UrlCache cache = urlCache;
+		if (cache != null) {
+			return cache.get(pdbId, https, reduced);
+		}
 		URL url = new URL(CodecUtils.getMmtfEntryUrl(pdbId, https, reduced));
 		try (InputStream inputStream = url.openStream();
 			ByteArrayOutputStream baos = new ByteArrayOutputStream();) {
@@ -100,13 +237,17 @@ public class ReaderUtils {
 	}
 
 	/**
-	 * Deflate a gzip byte array.
+	 * Deflate a gzip byte array. Blocked gzip data (see {@link BlockGzipReader})
+	 * is inflated with the blocks spread over the common fork-join pool.
 	 *
 	 * @param inputBytes a gzip compressed byte array
 	 * @return a deflated byte array
 	 * @throws IOException error in gzip input stream
 	 */
 	public static byte[] deflateGzip(byte[] inputBytes) throws IOException {
+		if (BlockGzipReader.isBlockGzip(inputBytes)) {
+			return new BlockGzipReader(inputBytes).inflate();
+		}
 		ByteArrayOutputStream byteArrayOutputStream
 			= new ByteArrayOutputStream();
 		try (GZIPInputStream gzipInputStream = new GZIPInputStream(
@@ -123,6 +264,16 @@ public class ReaderUtils {
 		}
 	}
 
+	/**
+	 * Check whether a byte array starts with the GZIP magic number.
+	 *
+	 * @param inputBytes the byte array
+	 * @return true if the data is GZIP compressed
+	 */
+	public static boolean isGzip(byte[] inputBytes) {
+		return inputBytes.length > 1 && (inputBytes[0] & 0xff) == 0x1f && (inputBytes[1] & 0xff) == 0x8b;
+	}
+
 	/**
 	 * Reads and deserializes an uncompressed MMTF file.
 	 *
@@ -0,0 +1,324 @@
+package org.rcsb.mmtf.decoder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+
+/**
+ * A cache in memory of decoded structures, bounded by their estimated size, used by
+ * {@link ReaderUtils#getStructureFromUrl(String, boolean, boolean)} once set with
+ * {@link ReaderUtils#setStructureCache(StructureCache)}.
+ * <p>
+ * The structures are weighted by the size of their arrays, estimated from their numbers of atoms
+ * and groups. The eviction is a segmented LRU: a structure enters a probationary segment, and moves
+ * to a protected segment (80% of the capacity) when it is used again. The least recently used
+ * structures of the probationary segment are evicted first, so that structures used once do not
+ * push out the popular ones. Concurrent loads of the same key are collapsed into a single load.
+ * <p>
+ * The structures are shared between the users of the cache and must not be modified.
+ */
+public class StructureCache {
+
+	/** The estimated size of the arrays of an atom: coordinates, B-factor, occupancy, id and alternate location */
+	static final int BYTES_PER_ATOM = 6 * 4 + 2;
+	/** The estimated size of the arrays of a group: id, type, sequence index, secondary structure and insertion code */
+	static final int BYTES_PER_GROUP = 4 * 4 + 2;
+	/** The estimated size of the rest of a structure: the header, the group types and the chains */
+	static final int BYTES_PER_STRUCTURE = 16384;
+	private static final double PROTECTED_FRACTION = 0.8;
+
+	/**
+	 * The loader of a structure missing from the cache.
+	 */
+	@FunctionalInterface
+	public interface Loader {
+		/**
+		 * @return the structure
+		 * @throws IOException an error loading the structure
+		 */
+		StructureDataInterface load() throws IOException;
+	}
+
+	private final long maxWeight;
+	private final long maxProtectedWeight;
+	/** The structures used once, least recently used first */
+	private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+	/** The structures used more than once, least recently used first */
+	private final LinkedHashMap<String, Entry> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<String, CompletableFuture<StructureDataInterface>> loading = new ConcurrentHashMap<>();
+	private long weight;
+	private long protectedWeight;
+	private long hitCount;
+	private long missCount;
+	private long loadCount;
+	private long evictionCount;
+
+	/**
+	 * @param maxWeight the largest estimated size of the structures kept, in bytes
+	 */
+	public StructureCache(long maxWeight) {
+		if (maxWeight < 0) {
+			throw new IllegalArgumentException("The maximum weight must not be negative: "+maxWeight);
+		}
+		this.maxWeight = maxWeight;
+		this.maxProtectedWeight = (long) (maxWeight * PROTECTED_FRACTION);
+	}
+
+	/**
+	 * Get the key of an entry of the MMTF servers.
+	 * @param pdbId the PDB id of the entry
+	 * @param reduced true for the reduced representation, false for the full one
+	 * @return the key
+	 */
+	public static String getKey(String pdbId, boolean reduced) {
+		return pdbId.toUpperCase(Locale.ROOT) + (reduced ? "/reduced" : "/full");
+	}
+
+	/**
+	 * Estimate the size in memory of the arrays of a structure.
+	 * @param structureDataInterface the structure
+	 * @return the estimated size in bytes
+	 */
+	public static long getWeight(StructureDataInterface structureDataInterface) {
+		return BYTES_PER_STRUCTURE + (long) BYTES_PER_ATOM * structureDataInterface.getNumAtoms()
+				+ (long) BYTES_PER_GROUP * structureDataInterface.getNumGroups();
+	}
+
+	/**
+	 * Get a structure, loading it if it is not in the cache. While a structure is loaded, the other
+	 * threads asking for it wait for the same load. A structure weighing more than the cache is
+	 * returned but not kept.
+	 * @param key the key of the structure, e.g. from {@link #getKey(String, boolean)}
+	 * @param loader the loader of the structure if missing
+	 * @return the structure
+	 * @throws IOException the error of the loader
+	 */
+	public StructureDataInterface get(String key, Loader loader) throws IOException {
+		StructureDataInterface structure = lookUp(key, true);
+		if (structure != null) {
+			return structure;
+		}
+		CompletableFuture<StructureDataInterface> future = new CompletableFuture<>();
+		CompletableFuture<StructureDataInterface> existing = loading.putIfAbsent(key, future);
+		if (existing != null) {
+			return join(existing);
+		}
+		try {
+			// Loaded by another thread since the look up
+			structure = lookUp(key, false);
+			if (structure == null) {
+				structure = loader.load();
+				synchronized (this) {
+					loadCount++;
+				}
+				put(key, structure);
+			}
+			future.complete(structure);
+			return structure;
+		}
+		catch (Throwable e) {
+			// Errors too, so that the threads waiting for the load do not wait forever
+			future.completeExceptionally(e);
+			throw e;
+		}
+		finally {
+			loading.remove(key, future);
+		}
+	}
+
+	/**
+	 * @param key the key of a structure
+	 * @return the structure, or null if it is not in the cache
+	 */
+	public StructureDataInterface getIfPresent(String key) {
+		return lookUp(key, true);
+	}
+
+	/**
+	 * Add a structure to the cache, replacing any structure with the same key.
+	 * @param key the key of the structure
+	 * @param structure the structure
+	 */
+	public synchronized void put(String key, StructureDataInterface structure) {
+		remove(key);
+		long structureWeight = getWeight(structure);
+		if (structureWeight > maxWeight) {
+			return;
+		}
+		probation.put(key, new Entry(structure, structureWeight));
+		weight += structureWeight;
+		evict();
+	}
+
+	/**
+	 * Remove a structure from the cache.
+	 * @param key the key of the structure
+	 */
+	public synchronized void invalidate(String key) {
+		remove(key);
+	}
+
+	/**
+	 * Remove all the structures from the cache.
+	 */
+	public synchronized void invalidateAll() {
+		probation.clear();
+		protectedSegment.clear();
+		weight = 0;
+		protectedWeight = 0;
+	}
+
+	/**
+	 * @return the number of structures in the cache
+	 */
+	public synchronized int size() {
+		return probation.size() + protectedSegment.size();
+	}
+
+	/**
+	 * @return the estimated size of the structures in the cache, in bytes
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * @return the number of structures found in the cache
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of structures not found in the cache, including those waiting for a load by another thread
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return the number of structures loaded
+	 */
+	public synchronized long getLoadCount() {
+		return loadCount;
+	}
+
+	/**
+	 * @return the number of structures evicted to keep the cache within its size
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "StructureCache[size="+size()+", weight="+weight+"/"+maxWeight+", hits="+hitCount
+				+", misses="+missCount+", loads="+loadCount+", evictions="+evictionCount+"]";
+	}
+
+	/**
+	 * Find a structure, moving it to the protected segment if it was in the probationary one.
+	 */
+	private synchronized StructureDataInterface lookUp(String key, boolean count) {
+		Entry entry = protectedSegment.get(key);
+		if (entry == null) {
+			entry = probation.remove(key);
+			if (entry != null) {
+				protectedSegment.put(key, entry);
+				protectedWeight += entry.weight;
+				// Move the least recently used protected structures back to probation
+				Iterator<Map.Entry<String, Entry>> iterator = protectedSegment.entrySet().iterator();
+				while (protectedWeight > maxProtectedWeight && protectedSegment.size() > 1) {
+					Map.Entry<String, Entry> demoted = iterator.next();
+					iterator.remove();
+					protectedWeight -= demoted.getValue().weight;
+					probation.put(demoted.getKey(), demoted.getValue());
+				}
+			}
+		}
+		if (count) {
+			if (entry != null) {
+				hitCount++;
+			}
+			else {
+				missCount++;
+			}
+		}
+		return entry == null ? null : entry.structure;
+	}
+
+	private void remove(String key) {
+		Entry entry = probation.remove(key);
+		if (entry == null) {
+			entry = protectedSegment.remove(key);
+			if (entry != null) {
+				protectedWeight -= entry.weight;
+			}
+		}
+		if (entry != null) {
+			weight -= entry.weight;
+		}
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<String, Entry>> iterator = probation.entrySet().iterator();
+		while (weight > maxWeight && iterator.hasNext()) {
+			weight -= iterator.next().getValue().weight;
+			iterator.remove();
+			evictionCount++;
+		}
+		iterator = protectedSegment.entrySet().iterator();
+		while (weight > maxWeight && iterator.hasNext()) {
+			long entryWeight = iterator.next().getValue().weight;
+			weight -= entryWeight;
+			protectedWeight -= entryWeight;
+			iterator.remove();
+			evictionCount++;
+		}
+	}
+
+	private static StructureDataInterface join(CompletableFuture<StructureDataInterface> future) throws IOException {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a structure");
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException("Failed to load a structure", cause);
+		}
+	}
+
+	/**
+	 * A structure in the cache, with its weight.
+	 */
+	private static final class Entry {
+
+		private final StructureDataInterface structure;
+		private final long weight;
+
+		Entry(StructureDataInterface structure, long weight) {
+			this.structure = structure;
+			this.weight = weight;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package org.rcsb.mmtf.decoder;
+
+/**
+ * The navigation shared by the cursors over a {@link org.rcsb.mmtf.api.StructureDataInterface}:
+ * a position within a range of indices of the structure, moved with {@link #next()}.
+ * <p>
+ * A cursor starts before the first element of its range, so it is used as
+ * <code>while (cursor.next()) { ... }</code>.
+ * The cursors are flyweights: the child cursors returned by e.g. {@link ChainCursor#groups()}
+ * are the same object on every call, repositioned on the children of the current element,
+ * so no object is created while going through a structure. The cursors are not thread safe.
+ */
+public abstract class StructureCursor {
+
+	/** The data of the structure */
+	final CursorData data;
+
+	/** The first index of the range */
+	private int start;
+
+	/** The index after the last index of the range */
+	private int end;
+
+	/** The current index */
+	int index;
+
+	StructureCursor(CursorData data, int end) {
+		this.data = data;
+		reset(0, end);
+	}
+
+	/**
+	 * Set the range of the cursor and move it before the first index.
+	 * @param start the first index of the range
+	 * @param end the index after the last index of the range
+	 */
+	final void reset(int start, int end) {
+		this.start = start;
+		this.end = end;
+		this.index = start - 1;
+	}
+
+	/**
+	 * Move to the next element.
+	 * @return false if there is no next element
+	 */
+	public boolean next() {
+		if (index + 1 >= end) {
+			index = end;
+			return false;
+		}
+		index++;
+		return true;
+	}
+
+	/**
+	 * Move to a given element.
+	 * @param structureIndex the index of the element in the structure
+	 * @throws IndexOutOfBoundsException if the element is not in the range of the cursor
+	 */
+	public void moveTo(int structureIndex) {
+		if (structureIndex < start || structureIndex >= end) {
+			throw new IndexOutOfBoundsException(structureIndex + " is not in the range " + start + " to " + end);
+		}
+		index = structureIndex;
+	}
+
+	/**
+	 * Move back before the first element.
+	 */
+	public void rewind() {
+		index = start - 1;
+	}
+
+	/**
+	 * Returns the index of the current element in the structure.
+	 * @return the index in the structure (not in the range of the cursor)
+	 */
+	public int index() {
+		return index;
+	}
+
+	/**
+	 * Returns the number of elements the cursor goes through.
+	 * @return the size of the range of the cursor
+	 */
+	public int size() {
+		return end - start;
+	}
+}
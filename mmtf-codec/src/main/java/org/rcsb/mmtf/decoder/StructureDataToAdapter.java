@@ -4,10 +4,13 @@ import org.rcsb.mmtf.api.StructureDataInterface;
 
 import java.io.Serializable;
 
+import org.rcsb.mmtf.api.BulkStructureAdapterInterface;
 import org.rcsb.mmtf.api.StructureAdapterInterface;
 
 /**
  * Pass data from a {@link StructureDataInterface} into a {@link StructureAdapterInterface}.
+ * If the adapter is a {@link BulkStructureAdapterInterface} the atoms of each group
+ * are passed in a single call.
  * @author Anthony Bradley
  *
  */
@@ -26,6 +29,20 @@ public class StructureDataToAdapter implements Serializable {
 	private int groupCounter;
 	private int atomInGroupCounter;
 	private int atomInStructureCounter;
+
+	// The columns of the data, only fetched once
+	private int[] groupTypeIndices;
+	private int[] groupIds;
+	private char[] insCodes;
+	private int[] groupSequenceIndices;
+	private int[] secStructList;
+	private int[] atomIds;
+	private char[] altLocIds;
+	private float[] xCoords;
+	private float[] yCoords;
+	private float[] zCoords;
+	private float[] occupancies;
+	private float[] bFactors;
 	
 
 	/**
@@ -43,6 +60,7 @@ public class StructureDataToAdapter implements Serializable {
 		// Set the api and the inflator
 		dataApi = inputApi;
 		structInflator = inputInflator;
+		fetchColumns();
 		// Do any required preparation
 		structInflator.initStructure(dataApi.getNumBonds(), dataApi.getNumAtoms(), dataApi.getNumGroups(), 
 				dataApi.getNumChains(), dataApi.getNumModels(), dataApi.getStructureId());
@@ -62,6 +80,25 @@ public class StructureDataToAdapter implements Serializable {
 		structInflator.finalizeStructure();
 	}
 
+	/**
+	 * Get the group and atom level columns once, as some implementations
+	 * of {@link StructureDataInterface} create a new array on each call.
+	 */
+	private void fetchColumns() {
+		groupTypeIndices = dataApi.getGroupTypeIndices();
+		groupIds = dataApi.getGroupIds();
+		insCodes = dataApi.getInsCodes();
+		groupSequenceIndices = dataApi.getGroupSequenceIndices();
+		secStructList = dataApi.getSecStructList();
+		atomIds = dataApi.getAtomIds();
+		altLocIds = dataApi.getAltLocIds();
+		xCoords = dataApi.getxCoords();
+		yCoords = dataApi.getyCoords();
+		zCoords = dataApi.getzCoords();
+		occupancies = dataApi.getOccupancies();
+		bFactors = dataApi.getbFactors();
+	}
+
 	/**
 	 * Add the main atomic information to the data model
 	 */
@@ -105,22 +142,33 @@ public class StructureDataToAdapter implements Serializable {
 	 */
 	private int addGroup(int currentGroupIndex) {
 		// Now get the group
-		int groupInd = dataApi.getGroupTypeIndices()[currentGroupIndex];
+		int groupInd = groupTypeIndices[currentGroupIndex];
 		// Get this info
 		int atomCount = dataApi.getNumAtomsInGroup(groupInd);
-		int currentGroupNumber = dataApi.getGroupIds()[currentGroupIndex];
-		char insertionCode = dataApi.getInsCodes()[currentGroupIndex];
+		int currentGroupNumber = groupIds[currentGroupIndex];
+		char insertionCode = insCodes[currentGroupIndex];
 		structInflator.setGroupInfo(dataApi.getGroupName(groupInd), currentGroupNumber, insertionCode,
 				dataApi.getGroupChemCompType(groupInd), atomCount, dataApi.getNumBonds(), dataApi.getGroupSingleLetterCode(groupInd),
-				dataApi.getGroupSequenceIndices()[currentGroupIndex], dataApi.getSecStructList()[currentGroupIndex]);
-		// A counter for the atom information
-		atomInGroupCounter = 0;
-		// Now read the next atoms
-		for (int i = 0; i < atomCount; i++) {
-			addAtomData(dataApi.getGroupAtomNames(groupInd), dataApi.getGroupElementNames(groupInd), dataApi.getGroupAtomCharges(groupInd), atomInStructureCounter);  
-			atomInStructureCounter++;
-			// Now increment the atom counter for this group
-			atomInGroupCounter++;
+				groupSequenceIndices[currentGroupIndex], secStructList[currentGroupIndex]);
+		String[] atomNames = dataApi.getGroupAtomNames(groupInd);
+		String[] elementNames = dataApi.getGroupElementNames(groupInd);
+		int[] atomCharges = dataApi.getGroupAtomCharges(groupInd);
+		if (structInflator instanceof BulkStructureAdapterInterface) {
+			// Pass the whole group at once
+			((BulkStructureAdapterInterface) structInflator).setAtoms(atomInStructureCounter, atomInStructureCounter + atomCount,
+					atomNames, elementNames, atomCharges, atomIds, altLocIds, xCoords, yCoords, zCoords, occupancies, bFactors);
+			atomInStructureCounter += atomCount;
+		}
+		else {
+			// A counter for the atom information
+			atomInGroupCounter = 0;
+			// Now read the next atoms
+			for (int i = 0; i < atomCount; i++) {
+				addAtomData(atomNames, elementNames, atomCharges, atomInStructureCounter);  
+				atomInStructureCounter++;
+				// Now increment the atom counter for this group
+				atomInGroupCounter++;
+			}
 		}
 		addGroupBonds(dataApi.getGroupBondIndices(groupInd), dataApi.getGroupBondOrders(groupInd));
 		return atomCount;
@@ -139,13 +187,13 @@ public class StructureDataToAdapter implements Serializable {
 		String atomName = atomNames[atomInGroupCounter];
 		String element = elementNames[atomInGroupCounter];
 		int charge = atomCharges[atomInGroupCounter];
-		char alternativeLocationId = dataApi.getAltLocIds()[currentAtomIndex];
-		int serialNumber = dataApi.getAtomIds()[currentAtomIndex];
-		float x = dataApi.getxCoords()[currentAtomIndex];
-		float z = dataApi.getzCoords()[currentAtomIndex];
-		float y = dataApi.getyCoords()[currentAtomIndex];
-		float occupancy = dataApi.getOccupancies()[currentAtomIndex];
-		float temperatureFactor = dataApi.getbFactors()[currentAtomIndex];
+		char alternativeLocationId = altLocIds[currentAtomIndex];
+		int serialNumber = atomIds[currentAtomIndex];
+		float x = xCoords[currentAtomIndex];
+		float z = zCoords[currentAtomIndex];
+		float y = yCoords[currentAtomIndex];
+		float occupancy = occupancies[currentAtomIndex];
+		float temperatureFactor = bFactors[currentAtomIndex];
 		structInflator.setAtomInfo(atomName, serialNumber, alternativeLocationId,
 				x, y, z, occupancy, temperatureFactor, element, charge);
 	}
@@ -0,0 +1,248 @@
+package org.rcsb.mmtf.decoder;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+
+/**
+ * A class of static functions giving streams over the atoms, groups and chains
+ * of a {@link StructureDataInterface}.
+ * <p>
+ * The streams are sized and split for parallel processing on chain boundaries where possible,
+ * and otherwise on group boundaries, so that the atoms of a group always end up in the same task.
+ * The streams of cursors pass one cursor per task, positioned on each element in turn: the cursor
+ * is only valid during the call for an element and must not be kept.
+ */
+public class StructureStreams {
+
+	/**
+	 * Get a stream of the indices of the atoms of a structure.
+	 * @param structureDataInterface the structure
+	 * @return the indices of the atoms, split on group boundaries
+	 */
+	public static IntStream atomIndices(StructureDataInterface structureDataInterface) {
+		return StreamSupport.intStream(atomSpliterator(new HierarchyIndex(structureDataInterface)), false);
+	}
+
+	/**
+	 * Get a stream of the indices of the groups of a structure.
+	 * @param structureDataInterface the structure
+	 * @return the indices of the groups, split on chain boundaries where possible
+	 */
+	public static IntStream groupIndices(StructureDataInterface structureDataInterface) {
+		return StreamSupport.intStream(groupSpliterator(new HierarchyIndex(structureDataInterface)), false);
+	}
+
+	/**
+	 * Get a stream of the indices of the chains of a structure.
+	 * @param structureDataInterface the structure
+	 * @return the indices of the chains, split on model boundaries where possible
+	 */
+	public static IntStream chainIndices(StructureDataInterface structureDataInterface) {
+		return StreamSupport.intStream(chainSpliterator(new HierarchyIndex(structureDataInterface)), false);
+	}
+
+	/**
+	 * Get a stream of cursors over the atoms of a structure.
+	 * @param structureDataInterface the structure
+	 * @return a stream of atom cursors, each positioned on one atom while it is processed
+	 */
+	public static Stream<AtomCursor> atoms(StructureDataInterface structureDataInterface) {
+		CursorData data = new CursorData(structureDataInterface);
+		return StreamSupport.stream(new CursorSpliterator<>(atomSpliterator(data.hierarchyIndex),
+				() -> new AtomCursor(data)), false);
+	}
+
+	/**
+	 * Get a stream of cursors over the groups of a structure.
+	 * @param structureDataInterface the structure
+	 * @return a stream of group cursors, each positioned on one group while it is processed
+	 */
+	public static Stream<GroupCursor> groups(StructureDataInterface structureDataInterface) {
+		CursorData data = new CursorData(structureDataInterface);
+		return StreamSupport.stream(new CursorSpliterator<>(groupSpliterator(data.hierarchyIndex),
+				() -> new GroupCursor(data)), false);
+	}
+
+	/**
+	 * Get a stream of cursors over the chains of a structure.
+	 * @param structureDataInterface the structure
+	 * @return a stream of chain cursors, each positioned on one chain while it is processed
+	 */
+	public static Stream<ChainCursor> chains(StructureDataInterface structureDataInterface) {
+		CursorData data = new CursorData(structureDataInterface);
+		return StreamSupport.stream(new CursorSpliterator<>(chainSpliterator(data.hierarchyIndex),
+				() -> new ChainCursor(data)), false);
+	}
+
+	private static Spliterator.OfInt atomSpliterator(HierarchyIndex hierarchyIndex) {
+		int[] atomOffsets = hierarchyIndex.getAtomOffsets();
+		// The first atoms of the chains, then the first atoms of the groups
+		int[] groupOffsets = hierarchyIndex.getGroupOffsets();
+		int[] chainStarts = new int[groupOffsets.length];
+		for (int i = 0; i < groupOffsets.length; i++) {
+			chainStarts[i] = atomOffsets[groupOffsets[i]];
+		}
+		return new BoundarySpliterator(0, atomOffsets[atomOffsets.length - 1], chainStarts, atomOffsets);
+	}
+
+	private static Spliterator.OfInt groupSpliterator(HierarchyIndex hierarchyIndex) {
+		int[] groupOffsets = hierarchyIndex.getGroupOffsets();
+		return new BoundarySpliterator(0, groupOffsets[groupOffsets.length - 1], groupOffsets, null);
+	}
+
+	private static Spliterator.OfInt chainSpliterator(HierarchyIndex hierarchyIndex) {
+		int[] chainOffsets = hierarchyIndex.getChainOffsets();
+		return new BoundarySpliterator(0, chainOffsets[chainOffsets.length - 1], chainOffsets, null);
+	}
+
+	/**
+	 * A spliterator over a range of indices, split on the boundary closest to the middle of the range.
+	 * Coarse boundaries (e.g. chains) are preferred to fine boundaries (e.g. groups).
+	 */
+	private static final class BoundarySpliterator implements Spliterator.OfInt {
+
+		private int index;
+		private final int end;
+		/** The preferred split points, sorted */
+		private final int[] coarse;
+		/** The other allowed split points, sorted - null if any index can be a split point */
+		private final int[] fine;
+
+		BoundarySpliterator(int start, int end, int[] coarse, int[] fine) {
+			this.index = start;
+			this.end = end;
+			this.coarse = coarse;
+			this.fine = fine;
+		}
+
+		@Override
+		public OfInt trySplit() {
+			int middle = (index + end) >>> 1;
+			int split = closestBoundary(coarse, middle);
+			if (split < 0) {
+				split = fine == null ? middle : closestBoundary(fine, middle);
+			}
+			if (split <= index || split >= end) {
+				return null;
+			}
+			BoundarySpliterator prefix = new BoundarySpliterator(index, split, coarse, fine);
+			index = split;
+			return prefix;
+		}
+
+		/**
+		 * Find the boundary within the range closest to the given index.
+		 * @return the boundary, or -1 if there is none strictly within the range
+		 */
+		private int closestBoundary(int[] boundaries, int target) {
+			int position = Arrays.binarySearch(boundaries, target);
+			if (position >= 0) {
+				return boundaries[position] > index && boundaries[position] < end ? boundaries[position] : -1;
+			}
+			int insertion = -position - 1;
+			int best = -1;
+			// The first boundary after the target and the last boundary before it
+			if (insertion < boundaries.length && boundaries[insertion] < end) {
+				best = boundaries[insertion];
+			}
+			if (insertion > 0 && boundaries[insertion - 1] > index
+					&& (best < 0 || target - boundaries[insertion - 1] <= best - target)) {
+				best = boundaries[insertion - 1];
+			}
+			return best;
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			if (index >= end) {
+				return false;
+			}
+			action.accept(index++);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			int last = end;
+			for (int i = index; i < last; i++) {
+				action.accept(i);
+			}
+			index = last;
+		}
+
+		@Override
+		public long estimateSize() {
+			return end - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL | DISTINCT;
+		}
+	}
+
+	/**
+	 * A spliterator passing a cursor positioned on each index of an index spliterator.
+	 * Each split has its own cursor.
+	 */
+	private static final class CursorSpliterator<T extends StructureCursor> implements Spliterator<T> {
+
+		private final Spliterator.OfInt indices;
+		private final Supplier<T> cursorSupplier;
+		private T cursor;
+
+		CursorSpliterator(Spliterator.OfInt indices, Supplier<T> cursorSupplier) {
+			this.indices = indices;
+			this.cursorSupplier = cursorSupplier;
+		}
+
+		private T getCursor() {
+			if (cursor == null) {
+				cursor = cursorSupplier.get();
+			}
+			return cursor;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			return indices.tryAdvance((int i) -> {
+				T current = getCursor();
+				current.moveTo(i);
+				action.accept(current);
+			});
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			T current = getCursor();
+			indices.forEachRemaining((int i) -> {
+				current.moveTo(i);
+				action.accept(current);
+			});
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			Spliterator.OfInt prefix = indices.trySplit();
+			return prefix == null ? null : new CursorSpliterator<>(prefix, cursorSupplier);
+		}
+
+		@Override
+		public long estimateSize() {
+			return indices.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return indices.characteristics() & ~DISTINCT;
+		}
+	}
+}
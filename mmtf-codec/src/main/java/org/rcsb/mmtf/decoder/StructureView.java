@@ -0,0 +1,850 @@
+package org.rcsb.mmtf.decoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+
+/**
+ * A {@link StructureDataInterface} over a subset of the atoms of another structure,
+ * e.g. its C-alpha/P trace, its backbone, its heavy atoms or some of its chains.
+ * <p>
+ * The view only holds the indices of the atoms, groups and chains it selects in the source
+ * structure, and the group types of the subsets of atoms kept. The coordinates and the other
+ * atom and group level columns are not copied: the per-element accessors
+ * (e.g. {@link #getxCoord(int)}) read the columns of the source, and the array getters of
+ * {@link StructureDataInterface} gather the selected values into a new array on every call.
+ * The source must not be modified while the views are in use.
+ * <p>
+ * The view is zero-copy over array-backed sources, such as {@link GenericDecoder} and
+ * {@link LazyDecoder}, whose array getters return the decoded columns. Over the compact
+ * sources ({@link OffHeapStructureData}, {@link QuantizedStructureData} and other views),
+ * whose array getters build a new array, the coordinates, B-factors and occupancies are read
+ * through their per-atom accessors, and the atom ids and alternate locations are fetched on
+ * each call of {@link #getAtomIds()} and {@link #getAltLocIds()}. Other sources have their
+ * float columns fetched once, when the view is created.
+ * <p>
+ * The atoms to keep are chosen per group type by an {@link AtomSelector}, for the groups of
+ * polymer and non-polymer chains separately. Groups and chains left without atoms are
+ * dropped, as well as models left without chains. The group bonds, inter-group bonds, entities
+ * and bioassemblies refer to the atoms and chains of the view.
+ */
+public class StructureView implements StructureDataInterface {
+
+	private static final String CALPHA_NAME = "CA";
+	private static final String CARBON_ELEMENT = "C";
+	private static final String PHOSPHATE_NAME = "P";
+	private static final String PHOSPHATE_ELEMENT = "P";
+
+	/** The names of the backbone atoms of amino acids and nucleotides */
+	private static final Set<String> BACKBONE_NAMES = new HashSet<>(Arrays.asList(
+			"N", "CA", "C", "O", "OXT", "P", "OP1", "OP2", "OP3", "O5'", "C5'", "C4'", "C3'", "O3'"));
+
+	/**
+	 * Chooses the atoms of a group type to keep in a {@link StructureView}.
+	 */
+	@FunctionalInterface
+	public interface AtomSelector {
+
+		/**
+		 * Select the atoms to keep in the groups of a given type.
+		 * This is called at most twice per group type: for the groups in polymer chains
+		 * and for the groups in other chains.
+		 * @param structure the source structure
+		 * @param groupType the index of the group type in the source structure
+		 * @param polymer true for the groups of polymer chains
+		 * @return the indices within the group of the atoms to keep, in increasing order.
+		 * Empty to drop the groups.
+		 */
+		int[] select(StructureDataInterface structure, int groupType, boolean polymer);
+	}
+
+	/** Selects all the atoms. */
+	public static final AtomSelector ALL_ATOMS = (structure, groupType, polymer) -> allAtoms(structure, groupType);
+
+	/**
+	 * Selects the C-alpha atoms of the polypeptide and the P atoms of the polynucleotide chains,
+	 * and the non-polymer groups other than water. The polymer groups without
+	 * such an atom (e.g. non-standard residues) are kept whole.
+	 */
+	public static final AtomSelector REDUCED = (structure, groupType, polymer) -> {
+		if (polymer) {
+			int centerAtom = indexOfCenterAtom(structure, groupType);
+			return centerAtom >= 0 ? new int[] {centerAtom} : allAtoms(structure, groupType);
+		}
+		return isWater(structure, groupType) ? new int[0] : allAtoms(structure, groupType);
+	};
+
+	/** Selects only the C-alpha atoms of the polypeptide and the P atoms of the polynucleotide chains. */
+	public static final AtomSelector TRACE = (structure, groupType, polymer) -> {
+		int centerAtom = polymer ? indexOfCenterAtom(structure, groupType) : -1;
+		return centerAtom >= 0 ? new int[] {centerAtom} : new int[0];
+	};
+
+	/**
+	 * Selects the backbone atoms of the polymer chains, i.e. N, CA, C, O (and OXT) for amino acids
+	 * and the phosphate and sugar atoms from P to O3' for nucleotides.
+	 */
+	public static final AtomSelector BACKBONE = (structure, groupType, polymer) -> {
+		if (!polymer) {
+			return new int[0];
+		}
+		String[] atomNames = structure.getGroupAtomNames(groupType);
+		return filterAtoms(atomNames.length, i -> BACKBONE_NAMES.contains(atomNames[i]));
+	};
+
+	/** Selects the atoms other than hydrogen and deuterium. */
+	public static final AtomSelector HEAVY_ATOMS = (structure, groupType, polymer) -> {
+		String[] elements = structure.getGroupElementNames(groupType);
+		return filterAtoms(elements.length, i -> !elements[i].equalsIgnoreCase("H") && !elements[i].equalsIgnoreCase("D"));
+	};
+
+	/**
+	 * A group type of the view: a subset of the atoms of a group type of the source.
+	 */
+	private static class GroupType {
+
+		private final int sourceType;
+		private final int[] atoms;
+		private final String[] atomNames;
+		private final String[] elementNames;
+		private final int[] atomCharges;
+		private final int[] bondIndices;
+		private final int[] bondOrders;
+
+		GroupType(StructureDataInterface structure, int sourceType, int[] atoms) {
+			this.sourceType = sourceType;
+			this.atoms = atoms;
+			String[] sourceNames = structure.getGroupAtomNames(sourceType);
+			String[] sourceElements = structure.getGroupElementNames(sourceType);
+			int[] sourceCharges = structure.getGroupAtomCharges(sourceType);
+			atomNames = new String[atoms.length];
+			elementNames = new String[atoms.length];
+			atomCharges = new int[atoms.length];
+			// The position of each atom of the source type in the subset - -1 if dropped
+			int[] atomMap = new int[sourceNames.length];
+			Arrays.fill(atomMap, -1);
+			for (int i = 0; i < atoms.length; i++) {
+				atomNames[i] = sourceNames[atoms[i]];
+				elementNames[i] = sourceElements[atoms[i]];
+				atomCharges[i] = sourceCharges[atoms[i]];
+				atomMap[atoms[i]] = i;
+			}
+			int[] sourceBondIndices = structure.getGroupBondIndices(sourceType);
+			int[] sourceBondOrders = structure.getGroupBondOrders(sourceType);
+			int numBonds = 0;
+			for (int i = 0; i < sourceBondOrders.length; i++) {
+				if (atomMap[sourceBondIndices[i * 2]] >= 0 && atomMap[sourceBondIndices[i * 2 + 1]] >= 0) {
+					numBonds++;
+				}
+			}
+			bondIndices = new int[numBonds * 2];
+			bondOrders = new int[numBonds];
+			for (int i = 0, bondIndex = 0; i < sourceBondOrders.length; i++) {
+				int atomOne = atomMap[sourceBondIndices[i * 2]];
+				int atomTwo = atomMap[sourceBondIndices[i * 2 + 1]];
+				if (atomOne >= 0 && atomTwo >= 0) {
+					bondIndices[bondIndex * 2] = atomOne;
+					bondIndices[bondIndex * 2 + 1] = atomTwo;
+					bondOrders[bondIndex++] = sourceBondOrders[i];
+				}
+			}
+		}
+	}
+
+	/** The structure viewed */
+	private final StructureDataInterface source;
+
+	/** The indices in the source of the atoms, groups and chains of the view */
+	private final int[] atomSelection;
+	private final int[] groupSelection;
+	private final int[] chainSelection;
+
+	/** The group types of the view */
+	private final List<GroupType> groupTypes = new ArrayList<>();
+	private final int[] groupTypeIndices;
+	private final int[] chainsPerModel;
+	private final int[] groupsPerChain;
+
+	/** The inter-group bonds between atoms of the view */
+	private final int[] interGroupBondIndices;
+	private final int[] interGroupBondOrders;
+
+	/** The entities with chains in the view, and their chains */
+	private final int[] entitySelection;
+	private final int[][] entityChainIndices;
+
+	/** For each bioassembly, the transforms with chains in the view, and their chains */
+	private final int[][] transformSelection;
+	private final int[][][] transformChainIndices;
+
+	private final int numBonds;
+
+	// The float columns of the source, by atom index in the source
+	private final FloatColumn xCoords;
+	private final FloatColumn yCoords;
+	private final FloatColumn zCoords;
+	private final FloatColumn bFactors;
+	private final FloatColumn occupancies;
+
+	/**
+	 * Create a view of the selected atoms of some chains of a structure.
+	 * @param source the structure to view
+	 * @param chainIndices the indices of the chains to view, in any order (they are sorted, and repeated
+	 * indices are ignored) - null for all the chains
+	 * @param selector the atoms to keep in each group type
+	 * @throws IllegalArgumentException if a chain index is out of range
+	 */
+	public StructureView(StructureDataInterface source, int[] chainIndices, AtomSelector selector) {
+		this.source = source;
+		HierarchyIndex hierarchyIndex = new HierarchyIndex(source);
+		int[] chainOffsets = hierarchyIndex.getChainOffsets();
+		int[] groupOffsets = hierarchyIndex.getGroupOffsets();
+		int[] atomOffsets = hierarchyIndex.getAtomOffsets();
+		int[] chainToModel = hierarchyIndex.getChainToModelIndices();
+		int[] sourceGroupTypes = source.getGroupTypeIndices();
+		if (chainIndices == null) {
+			chainIndices = new int[source.getNumChains()];
+			Arrays.setAll(chainIndices, i -> i);
+		}
+		else {
+			// The selections must be sorted for the bonds to be remapped by binary search
+			chainIndices = Arrays.stream(chainIndices).sorted().distinct().toArray();
+			if (chainIndices.length > 0 && (chainIndices[0] < 0 || chainIndices[chainIndices.length - 1] >= source.getNumChains())) {
+				throw new IllegalArgumentException("Chain index out of range: "+Arrays.toString(chainIndices));
+			}
+		}
+		boolean[] polymerChains = DecoderUtils.getPolymerChains(source);
+		// The group type of the view for each group type of the source, in polymer
+		// (odd indices) and other chains - -1 if not yet created, -2 for no atoms
+		int maxGroupType = Arrays.stream(sourceGroupTypes).max().orElse(-1);
+		int[] typeMap = new int[(maxGroupType + 1) * 2];
+		Arrays.fill(typeMap, -1);
+		int[] atomSel = new int[atomOffsets[atomOffsets.length - 1]];
+		int[] groupSel = new int[sourceGroupTypes.length];
+		int[] groupTypeSel = new int[sourceGroupTypes.length];
+		int[] chainSel = new int[chainIndices.length];
+		int[] groupsPerChainSel = new int[chainIndices.length];
+		int[] chainsPerModelSel = new int[chainOffsets.length - 1];
+		int numAtoms = 0;
+		int numGroups = 0;
+		int numChains = 0;
+		int numGroupBonds = 0;
+		for (int chainIndex : chainIndices) {
+			int numGroupsBefore = numGroups;
+			int polymerFlag = polymerChains[chainIndex] ? 1 : 0;
+			for (int groupIndex = groupOffsets[chainIndex]; groupIndex < groupOffsets[chainIndex + 1]; groupIndex++) {
+				int sourceType = sourceGroupTypes[groupIndex];
+				int typeKey = sourceType * 2 + polymerFlag;
+				if (typeMap[typeKey] == -1) {
+					int[] atoms = selector.select(source, sourceType, polymerFlag == 1);
+					if (atoms.length == 0) {
+						typeMap[typeKey] = -2;
+					}
+					else {
+						typeMap[typeKey] = groupTypes.size();
+						groupTypes.add(new GroupType(source, sourceType, atoms));
+					}
+				}
+				if (typeMap[typeKey] < 0) {
+					continue;
+				}
+				GroupType groupType = groupTypes.get(typeMap[typeKey]);
+				for (int atomInGroup : groupType.atoms) {
+					atomSel[numAtoms++] = atomOffsets[groupIndex] + atomInGroup;
+				}
+				numGroupBonds += groupType.bondOrders.length;
+				groupTypeSel[numGroups] = typeMap[typeKey];
+				groupSel[numGroups++] = groupIndex;
+			}
+			if (numGroups > numGroupsBefore) {
+				groupsPerChainSel[numChains] = numGroups - numGroupsBefore;
+				chainSel[numChains++] = chainIndex;
+				chainsPerModelSel[chainToModel[chainIndex]]++;
+			}
+		}
+		atomSelection = Arrays.copyOf(atomSel, numAtoms);
+		groupSelection = Arrays.copyOf(groupSel, numGroups);
+		groupTypeIndices = Arrays.copyOf(groupTypeSel, numGroups);
+		chainSelection = Arrays.copyOf(chainSel, numChains);
+		groupsPerChain = Arrays.copyOf(groupsPerChainSel, numChains);
+		chainsPerModel = Arrays.stream(chainsPerModelSel).filter(count -> count > 0).toArray();
+		// The inter-group bonds with both atoms in the view
+		int[] sourceBondIndices = source.getInterGroupBondIndices();
+		int[] sourceBondOrders = source.getInterGroupBondOrders();
+		int[] bondIndices = new int[sourceBondIndices.length];
+		int[] bondOrders = new int[sourceBondOrders.length];
+		int numInterGroupBonds = 0;
+		for (int i = 0; i < sourceBondOrders.length; i++) {
+			int atomOne = Arrays.binarySearch(atomSelection, sourceBondIndices[i * 2]);
+			int atomTwo = Arrays.binarySearch(atomSelection, sourceBondIndices[i * 2 + 1]);
+			if (atomOne >= 0 && atomTwo >= 0) {
+				bondIndices[numInterGroupBonds * 2] = atomOne;
+				bondIndices[numInterGroupBonds * 2 + 1] = atomTwo;
+				bondOrders[numInterGroupBonds++] = sourceBondOrders[i];
+			}
+		}
+		interGroupBondIndices = Arrays.copyOf(bondIndices, numInterGroupBonds * 2);
+		interGroupBondOrders = Arrays.copyOf(bondOrders, numInterGroupBonds);
+		numBonds = numGroupBonds + numInterGroupBonds;
+		// The entities and bioassemblies with chains in the view
+		List<Integer> entities = new ArrayList<>();
+		List<int[]> entityChains = new ArrayList<>();
+		for (int i = 0; i < source.getNumEntities(); i++) {
+			int[] chains = remapChains(source.getEntityChainIndexList(i));
+			if (chains.length > 0) {
+				entities.add(i);
+				entityChains.add(chains);
+			}
+		}
+		entitySelection = entities.stream().mapToInt(Integer::intValue).toArray();
+		entityChainIndices = entityChains.toArray(new int[0][]);
+		transformSelection = new int[source.getNumBioassemblies()][];
+		transformChainIndices = new int[source.getNumBioassemblies()][][];
+		for (int i = 0; i < source.getNumBioassemblies(); i++) {
+			List<Integer> transforms = new ArrayList<>();
+			List<int[]> transformChains = new ArrayList<>();
+			for (int j = 0; j < source.getNumTransInBioassembly(i); j++) {
+				int[] chains = remapChains(source.getChainIndexListForTransform(i, j));
+				if (chains.length > 0) {
+					transforms.add(j);
+					transformChains.add(chains);
+				}
+			}
+			transformSelection[i] = transforms.stream().mapToInt(Integer::intValue).toArray();
+			transformChainIndices[i] = transformChains.toArray(new int[0][]);
+		}
+		if (source instanceof OffHeapStructureData) {
+			OffHeapStructureData compact = (OffHeapStructureData) source;
+			xCoords = compact::getxCoord;
+			yCoords = compact::getyCoord;
+			zCoords = compact::getzCoord;
+			bFactors = compact::getbFactor;
+			occupancies = compact::getOccupancy;
+		}
+		else if (source instanceof QuantizedStructureData) {
+			QuantizedStructureData compact = (QuantizedStructureData) source;
+			xCoords = compact::getxCoord;
+			yCoords = compact::getyCoord;
+			zCoords = compact::getzCoord;
+			bFactors = compact::getbFactor;
+			occupancies = compact::getOccupancy;
+		}
+		else if (source instanceof StructureView) {
+			StructureView view = (StructureView) source;
+			xCoords = view::getxCoord;
+			yCoords = view::getyCoord;
+			zCoords = view::getzCoord;
+			bFactors = view::getbFactor;
+			occupancies = view::getOccupancy;
+		}
+		else {
+			xCoords = arrayColumn(source.getxCoords());
+			yCoords = arrayColumn(source.getyCoords());
+			zCoords = arrayColumn(source.getzCoords());
+			bFactors = arrayColumn(source.getbFactors());
+			occupancies = arrayColumn(source.getOccupancies());
+		}
+	}
+
+	/**
+	 * Create a view of the C-alpha atoms of the polypeptide and the P atoms of the polynucleotide chains
+	 * of a structure, with the non-polymer groups other than water, as in the reduced form
+	 * built by {@link org.rcsb.mmtf.encoder.ReducedEncoder}.
+	 * @param source the structure to view
+	 * @return the reduced view of the structure
+	 * @see #REDUCED
+	 */
+	public static StructureView reduced(StructureDataInterface source) {
+		return new StructureView(source, null, REDUCED);
+	}
+
+	/**
+	 * Create a view of only the C-alpha atoms of the polypeptide and the P atoms
+	 * of the polynucleotide chains of a structure.
+	 * @param source the structure to view
+	 * @return the trace of the structure
+	 * @see #TRACE
+	 */
+	public static StructureView trace(StructureDataInterface source) {
+		return new StructureView(source, null, TRACE);
+	}
+
+	/**
+	 * Create a view of the backbone atoms of the polymer chains of a structure.
+	 * @param source the structure to view
+	 * @return the backbone of the structure
+	 * @see #BACKBONE
+	 */
+	public static StructureView backbone(StructureDataInterface source) {
+		return new StructureView(source, null, BACKBONE);
+	}
+
+	/**
+	 * Create a view of the atoms of a structure other than hydrogen and deuterium.
+	 * @param source the structure to view
+	 * @return the heavy atoms of the structure
+	 * @see #HEAVY_ATOMS
+	 */
+	public static StructureView heavyAtoms(StructureDataInterface source) {
+		return new StructureView(source, null, HEAVY_ATOMS);
+	}
+
+	/**
+	 * Create a view of some chains of a structure, with all their atoms.
+	 * @param source the structure to view
+	 * @param chainIndices the indices of the chains to view, in any order
+	 * @return the view of the chains
+	 */
+	public static StructureView chains(StructureDataInterface source, int... chainIndices) {
+		return new StructureView(source, chainIndices, ALL_ATOMS);
+	}
+
+	/**
+	 * Returns the structure viewed.
+	 * @return the source structure
+	 */
+	public StructureDataInterface getSource() {
+		return source;
+	}
+
+	/**
+	 * Returns the indices in the source of the atoms of the view.
+	 * @return the indices of the atoms in the source, in increasing order
+	 */
+	public int[] getSourceAtomIndices() {
+		return atomSelection;
+	}
+
+	/**
+	 * Returns the indices in the source of the groups of the view.
+	 * @return the indices of the groups in the source, in increasing order
+	 */
+	public int[] getSourceGroupIndices() {
+		return groupSelection;
+	}
+
+	/**
+	 * Returns the indices in the source of the chains of the view.
+	 * @return the indices of the chains in the source, in increasing order
+	 */
+	public int[] getSourceChainIndices() {
+		return chainSelection;
+	}
+
+	/**
+	 * Returns the X coordinate of an atom.
+	 * @param atomIndex the index of the atom in the view
+	 * @return the X coordinate of the atom
+	 */
+	public float getxCoord(int atomIndex) {
+		return xCoords.get(atomSelection[atomIndex]);
+	}
+
+	/**
+	 * Returns the Y coordinate of an atom.
+	 * @param atomIndex the index of the atom in the view
+	 * @return the Y coordinate of the atom
+	 */
+	public float getyCoord(int atomIndex) {
+		return yCoords.get(atomSelection[atomIndex]);
+	}
+
+	/**
+	 * Returns the Z coordinate of an atom.
+	 * @param atomIndex the index of the atom in the view
+	 * @return the Z coordinate of the atom
+	 */
+	public float getzCoord(int atomIndex) {
+		return zCoords.get(atomSelection[atomIndex]);
+	}
+
+	/**
+	 * Returns the B-factor of an atom.
+	 * @param atomIndex the index of the atom in the view
+	 * @return the B-factor of the atom
+	 */
+	public float getbFactor(int atomIndex) {
+		return bFactors.get(atomSelection[atomIndex]);
+	}
+
+	/**
+	 * Returns the occupancy of an atom.
+	 * @param atomIndex the index of the atom in the view
+	 * @return the occupancy of the atom
+	 */
+	public float getOccupancy(int atomIndex) {
+		return occupancies.get(atomSelection[atomIndex]);
+	}
+
+	@Override
+	public float[] getxCoords() {
+		return gather(xCoords, atomSelection);
+	}
+
+	@Override
+	public float[] getyCoords() {
+		return gather(yCoords, atomSelection);
+	}
+
+	@Override
+	public float[] getzCoords() {
+		return gather(zCoords, atomSelection);
+	}
+
+	@Override
+	public float[] getbFactors() {
+		return gather(bFactors, atomSelection);
+	}
+
+	@Override
+	public float[] getOccupancies() {
+		return gather(occupancies, atomSelection);
+	}
+
+	@Override
+	public int[] getAtomIds() {
+		return gather(source.getAtomIds(), atomSelection);
+	}
+
+	@Override
+	public char[] getAltLocIds() {
+		char[] altLocIds = source.getAltLocIds();
+		char[] values = new char[atomSelection.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = altLocIds[atomSelection[i]];
+		}
+		return values;
+	}
+
+	@Override
+	public char[] getInsCodes() {
+		char[] insCodes = source.getInsCodes();
+		char[] values = new char[groupSelection.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = insCodes[groupSelection[i]];
+		}
+		return values;
+	}
+
+	@Override
+	public int[] getGroupIds() {
+		return gather(source.getGroupIds(), groupSelection);
+	}
+
+	@Override
+	public String getGroupName(int groupInd) {
+		return source.getGroupName(groupTypes.get(groupInd).sourceType);
+	}
+
+	@Override
+	public int getNumAtomsInGroup(int groupInd) {
+		return groupTypes.get(groupInd).atoms.length;
+	}
+
+	@Override
+	public String[] getGroupAtomNames(int groupInd) {
+		return groupTypes.get(groupInd).atomNames;
+	}
+
+	@Override
+	public String[] getGroupElementNames(int groupInd) {
+		return groupTypes.get(groupInd).elementNames;
+	}
+
+	@Override
+	public int[] getGroupBondOrders(int groupInd) {
+		return groupTypes.get(groupInd).bondOrders;
+	}
+
+	@Override
+	public int[] getGroupBondIndices(int groupInd) {
+		return groupTypes.get(groupInd).bondIndices;
+	}
+
+	@Override
+	public int[] getGroupAtomCharges(int groupInd) {
+		return groupTypes.get(groupInd).atomCharges;
+	}
+
+	@Override
+	public char getGroupSingleLetterCode(int groupInd) {
+		return source.getGroupSingleLetterCode(groupTypes.get(groupInd).sourceType);
+	}
+
+	@Override
+	public String getGroupChemCompType(int groupInd) {
+		return source.getGroupChemCompType(groupTypes.get(groupInd).sourceType);
+	}
+
+	@Override
+	public int[] getGroupTypeIndices() {
+		return groupTypeIndices;
+	}
+
+	@Override
+	public int[] getGroupSequenceIndices() {
+		return gather(source.getGroupSequenceIndices(), groupSelection);
+	}
+
+	@Override
+	public String[] getChainIds() {
+		String[] chainIds = source.getChainIds();
+		return Arrays.stream(chainSelection).mapToObj(i -> chainIds[i]).toArray(String[]::new);
+	}
+
+	@Override
+	public String[] getChainNames() {
+		String[] chainNames = source.getChainNames();
+		return Arrays.stream(chainSelection).mapToObj(i -> chainNames[i]).toArray(String[]::new);
+	}
+
+	@Override
+	public int[] getChainsPerModel() {
+		return chainsPerModel;
+	}
+
+	@Override
+	public int[] getGroupsPerChain() {
+		return groupsPerChain;
+	}
+
+	@Override
+	public String getSpaceGroup() {
+		return source.getSpaceGroup();
+	}
+
+	@Override
+	public float[] getUnitCell() {
+		return source.getUnitCell();
+	}
+
+	@Override
+	public int getNumBioassemblies() {
+		return transformSelection.length;
+	}
+
+	@Override
+	public int getNumTransInBioassembly(int bioassemblyIndex) {
+		return transformSelection[bioassemblyIndex].length;
+	}
+
+	@Override
+	public String getBioassemblyName(int bioassemblyIndex) {
+		return source.getBioassemblyName(bioassemblyIndex);
+	}
+
+	@Override
+	public int[] getChainIndexListForTransform(int bioassemblyIndex, int transformationIndex) {
+		return transformChainIndices[bioassemblyIndex][transformationIndex];
+	}
+
+	@Override
+	public double[] getMatrixForTransform(int bioassemblyIndex, int transformationIndex) {
+		return source.getMatrixForTransform(bioassemblyIndex, transformSelection[bioassemblyIndex][transformationIndex]);
+	}
+
+	@Override
+	public int[] getInterGroupBondIndices() {
+		return interGroupBondIndices;
+	}
+
+	@Override
+	public int[] getInterGroupBondOrders() {
+		return interGroupBondOrders;
+	}
+
+	@Override
+	public String getMmtfVersion() {
+		return source.getMmtfVersion();
+	}
+
+	@Override
+	public String getMmtfProducer() {
+		return source.getMmtfProducer();
+	}
+
+	@Override
+	public int getNumEntities() {
+		return entitySelection.length;
+	}
+
+	@Override
+	public String getEntityDescription(int entityInd) {
+		return source.getEntityDescription(entitySelection[entityInd]);
+	}
+
+	@Override
+	public String getEntityType(int entityInd) {
+		return source.getEntityType(entitySelection[entityInd]);
+	}
+
+	@Override
+	public int[] getEntityChainIndexList(int entityInd) {
+		return entityChainIndices[entityInd];
+	}
+
+	@Override
+	public String getEntitySequence(int entityInd) {
+		return source.getEntitySequence(entitySelection[entityInd]);
+	}
+
+	@Override
+	public String getStructureId() {
+		return source.getStructureId();
+	}
+
+	@Override
+	public int getNumModels() {
+		return chainsPerModel.length;
+	}
+
+	@Override
+	public int getNumBonds() {
+		return numBonds;
+	}
+
+	@Override
+	public int getNumChains() {
+		return chainSelection.length;
+	}
+
+	@Override
+	public int getNumGroups() {
+		return groupSelection.length;
+	}
+
+	@Override
+	public int getNumAtoms() {
+		return atomSelection.length;
+	}
+
+	@Override
+	public float getRfree() {
+		return source.getRfree();
+	}
+
+	@Override
+	public float getRwork() {
+		return source.getRwork();
+	}
+
+	@Override
+	public float getResolution() {
+		return source.getResolution();
+	}
+
+	@Override
+	public String getTitle() {
+		return source.getTitle();
+	}
+
+	@Override
+	public String[] getExperimentalMethods() {
+		return source.getExperimentalMethods();
+	}
+
+	@Override
+	public String getDepositionDate() {
+		return source.getDepositionDate();
+	}
+
+	@Override
+	public String getReleaseDate() {
+		return source.getReleaseDate();
+	}
+
+	@Override
+	public int[] getSecStructList() {
+		return gather(source.getSecStructList(), groupSelection);
+	}
+
+	@Override
+	public double[][] getNcsOperatorList() {
+		return source.getNcsOperatorList();
+	}
+
+	/**
+	 * Map chain indices of the source to the chains of the view, dropping the chains not in the view.
+	 * @param chainIndices the indices of chains in the source
+	 * @return the indices of the chains in the view
+	 */
+	private int[] remapChains(int[] chainIndices) {
+		return Arrays.stream(chainIndices).map(chainIndex -> Arrays.binarySearch(chainSelection, chainIndex))
+				.filter(chainIndex -> chainIndex >= 0).toArray();
+	}
+
+	/**
+	 * Find the C-alpha atom, or else the P atom, of a group type.
+	 * @param structure the input structure
+	 * @param groupType the index of the group type
+	 * @return the index of the atom within the group - -1 if there is none
+	 */
+	private static int indexOfCenterAtom(StructureDataInterface structure, int groupType) {
+		String[] atomNames = structure.getGroupAtomNames(groupType);
+		String[] elements = structure.getGroupElementNames(groupType);
+		for (int i = 0; i < atomNames.length; i++) {
+			if (atomNames[i].equals(CALPHA_NAME) && elements[i].equals(CARBON_ELEMENT)) {
+				return i;
+			}
+		}
+		for (int i = 0; i < atomNames.length; i++) {
+			if (atomNames[i].equals(PHOSPHATE_NAME) && elements[i].equals(PHOSPHATE_ELEMENT)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Check if a group type is water. A few structures (e.g. 1ZY8) contain waters
+	 * in non-polymer entities, so the group name is checked rather than the entity type.
+	 * @param structure the input structure
+	 * @param groupType the index of the group type
+	 * @return true for water
+	 */
+	public static boolean isWater(StructureDataInterface structure, int groupType) {
+		String groupName = structure.getGroupName(groupType);
+		return groupName.equals("HOH") || groupName.equals("DOD");
+	}
+
+	private static int[] allAtoms(StructureDataInterface structure, int groupType) {
+		return filterAtoms(structure.getNumAtomsInGroup(groupType), i -> true);
+	}
+
+	private static int[] filterAtoms(int numAtoms, IntPredicate keep) {
+		return IntStream.range(0, numAtoms).filter(keep).toArray();
+	}
+
+	private static FloatColumn arrayColumn(float[] values) {
+		return atomIndex -> values[atomIndex];
+	}
+
+	private static float[] gather(FloatColumn column, int[] selection) {
+		float[] values = new float[selection.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = column.get(selection[i]);
+		}
+		return values;
+	}
+
+	private static int[] gather(int[] column, int[] selection) {
+		int[] values = new int[selection.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = column[selection[i]];
+		}
+		return values;
+	}
+
+	/**
+	 * A float column of the source structure, read one atom at a time.
+	 */
+	private interface FloatColumn {
+		float get(int atomIndex);
+	}
+}
@@ -0,0 +1,363 @@
+package org.rcsb.mmtf.decoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.rcsb.mmtf.utils.CodecUtils;
+
+/**
+ * An on-disk cache of the data fetched from the MMTF servers, used by {@link ReaderUtils} once set
+ * with {@link ReaderUtils#setUrlCache(UrlCache)}.
+ * <p>
+ * The data of an entry is kept in a file named after the PDB id and the representation (full or reduced).
+ * An entry younger than the time to live is read from the disk. An older entry is revalidated with a
+ * conditional GET (If-None-Match and If-Modified-Since), so that it is only downloaded again if it
+ * changed on the server, and it is still used if the server cannot be reached or fails with a server
+ * error (5xx). When the cache grows larger than its maximum size, the least recently used entries are deleted.
+ * <p>
+ * The files are written to a temporary file then moved in place, so that other threads and processes
+ * never read a partly written entry. The entries are locked while they are read, downloaded or
+ * deleted, so that a single download is made at a time for each entry and an entry used again
+ * is not deleted by a concurrent eviction.
+ */
+public class UrlCache {
+
+	private static final String DATA_SUFFIX = ".mmtf.gz";
+	private static final String META_SUFFIX = ".meta";
+	private static final String FETCHED = "fetched";
+	private static final String ETAG = "etag";
+	private static final String LAST_MODIFIED = "lastModified";
+	private static final Pattern KEY_PATTERN = Pattern.compile("[A-Za-z0-9_.-]+");
+	private static final int BYTE_BUFFER_CHUNK_SIZE = 4096;
+
+	private final Path directory;
+	private final long maxBytes;
+	private final long timeToLive;
+	/** The size of the entries, least recently used first */
+	private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+	/** The locks of the entries in use, removed by the last thread using them */
+	private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+	private long totalBytes;
+
+	/**
+	 * Open a cache, keeping the entries already in the directory.
+	 * @param directory the directory of the cache - created if it does not exist
+	 * @param maxBytes the largest size of the data kept, in bytes
+	 * @param timeToLive the time in milliseconds during which an entry is used without checking the server
+	 * @throws IOException an error creating or listing the directory
+	 */
+	public UrlCache(Path directory, long maxBytes, long timeToLive) throws IOException {
+		if (maxBytes < 0 || timeToLive < 0) {
+			throw new IllegalArgumentException("The size and the time to live must not be negative");
+		}
+		this.directory = Files.createDirectories(directory);
+		this.maxBytes = maxBytes;
+		this.timeToLive = timeToLive;
+		List<Path> files;
+		try (Stream<Path> paths = Files.list(directory)) {
+			files = paths.filter(path -> path.getFileName().toString().endsWith(DATA_SUFFIX)).collect(Collectors.toList());
+		}
+		// The files are touched when used, so their times give the order of use
+		List<Object[]> found = new ArrayList<>();
+		for (Path file : files) {
+			try {
+				found.add(new Object[] {file, Files.getLastModifiedTime(file), Files.size(file)});
+			}
+			catch (NoSuchFileException e) {
+				// Evicted by another process
+			}
+		}
+		found.sort((a, b) -> ((FileTime) a[1]).compareTo((FileTime) b[1]));
+		synchronized (entries) {
+			for (Object[] file : found) {
+				String name = ((Path) file[0]).getFileName().toString();
+				entries.put(name.substring(0, name.length() - DATA_SUFFIX.length()), (Long) file[2]);
+				totalBytes += (Long) file[2];
+			}
+		}
+		evict(null);
+	}
+
+	/**
+	 * Get the GZIP compressed data of a PDB entry from the MMTF servers, through the cache.
+	 * @param pdbId the PDB id of the entry
+	 * @param https true to use https
+	 * @param reduced true for the reduced representation, false for the full one
+	 * @return the data
+	 * @throws IOException an error fetching the data, with no copy in the cache
+	 */
+	public byte[] get(String pdbId, boolean https, boolean reduced) throws IOException {
+		return get(pdbId.toUpperCase(Locale.ROOT) + (reduced ? ".reduced" : ".full"),
+				new URL(CodecUtils.getMmtfEntryUrl(pdbId, https, reduced)));
+	}
+
+	/**
+	 * Get the data at a URL, through the cache.
+	 * @param key the key of the data in the cache, made of letters, digits, '_', '-' and '.'
+	 * @param url the URL of the data
+	 * @return the data
+	 * @throws IOException an error fetching the data, with no copy in the cache
+	 */
+	public byte[] get(String key, URL url) throws IOException {
+		if (!KEY_PATTERN.matcher(key).matches()) {
+			throw new IllegalArgumentException("Invalid cache key: "+key);
+		}
+		byte[] data;
+		ReentrantLock lock = lock(key);
+		try {
+			data = fetch(key, url);
+		}
+		finally {
+			unlock(key, lock);
+		}
+		// Not under the lock of the entry, as the eviction takes the locks of the entries it deletes
+		evict(key);
+		return data;
+	}
+
+	/**
+	 * Get the data at a URL, from the disk if it is fresh, holding the lock of the entry.
+	 */
+	private byte[] fetch(String key, URL url) throws IOException {
+		Path dataFile = directory.resolve(key + DATA_SUFFIX);
+		Path metaFile = directory.resolve(key + META_SUFFIX);
+		Properties meta = readMeta(metaFile);
+		byte[] cached = meta == null ? null : readData(key, dataFile);
+		if (cached != null && System.currentTimeMillis() - Long.parseLong(meta.getProperty(FETCHED, "0")) < timeToLive) {
+			return cached;
+		}
+		URLConnection connection;
+		int responseCode;
+		try {
+			connection = url.openConnection();
+			if (cached != null && connection instanceof HttpURLConnection) {
+				if (meta.getProperty(ETAG) != null) {
+					connection.setRequestProperty("If-None-Match", meta.getProperty(ETAG));
+				}
+				if (meta.getProperty(LAST_MODIFIED) != null) {
+					connection.setRequestProperty("If-Modified-Since", meta.getProperty(LAST_MODIFIED));
+				}
+			}
+			responseCode = connection instanceof HttpURLConnection
+					? ((HttpURLConnection) connection).getResponseCode() : HttpURLConnection.HTTP_OK;
+		}
+		catch (IOException e) {
+			// Use the stale copy when the server cannot be reached
+			if (cached != null) {
+				return cached;
+			}
+			throw e;
+		}
+		if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+			meta.setProperty(FETCHED, Long.toString(System.currentTimeMillis()));
+			writeMeta(metaFile, meta);
+			return cached;
+		}
+		if (responseCode >= HttpURLConnection.HTTP_INTERNAL_ERROR && cached != null) {
+			// Use the stale copy when the server fails
+			return cached;
+		}
+		if (responseCode != HttpURLConnection.HTTP_OK) {
+			throw new IOException("Server returned HTTP response code "+responseCode+" for URL: "+url);
+		}
+		byte[] data;
+		try (InputStream inputStream = connection.getInputStream()) {
+			data = readAll(inputStream);
+		}
+		Properties newMeta = new Properties();
+		newMeta.setProperty(FETCHED, Long.toString(System.currentTimeMillis()));
+		if (connection.getHeaderField("ETag") != null) {
+			newMeta.setProperty(ETAG, connection.getHeaderField("ETag"));
+		}
+		if (connection.getHeaderField("Last-Modified") != null) {
+			newMeta.setProperty(LAST_MODIFIED, connection.getHeaderField("Last-Modified"));
+		}
+		writeAtomically(dataFile, data);
+		writeMeta(metaFile, newMeta);
+		synchronized (entries) {
+			Long previous = entries.put(key, (long) data.length);
+			totalBytes += data.length - (previous == null ? 0 : previous);
+		}
+		return data;
+	}
+
+	/**
+	 * @return the total size of the data in the cache, in bytes
+	 */
+	public long getSize() {
+		synchronized (entries) {
+			return totalBytes;
+		}
+	}
+
+	/**
+	 * @return the number of entries in the cache
+	 */
+	public int getNumEntries() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @param key the key of some data
+	 * @return true if the data is in the cache, fresh or not
+	 */
+	public boolean contains(String key) {
+		synchronized (entries) {
+			return entries.containsKey(key);
+		}
+	}
+
+	/**
+	 * Read the data of an entry, and mark it as used.
+	 * @return the data, or null if it is not in the cache
+	 */
+	private byte[] readData(String key, Path dataFile) throws IOException {
+		try {
+			byte[] data = Files.readAllBytes(dataFile);
+			Files.setLastModifiedTime(dataFile, FileTime.fromMillis(System.currentTimeMillis()));
+			synchronized (entries) {
+				Long previous = entries.put(key, (long) data.length);
+				totalBytes += data.length - (previous == null ? 0 : previous);
+			}
+			return data;
+		}
+		catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Delete the least recently used entries while the cache is too large.
+	 * Must not be called holding the lock of an entry.
+	 * @param keep the key of an entry never deleted - null if none
+	 */
+	private void evict(String keep) {
+		Map<String, Long> evicted = new LinkedHashMap<>();
+		synchronized (entries) {
+			Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+			while (totalBytes > maxBytes && iterator.hasNext()) {
+				Map.Entry<String, Long> entry = iterator.next();
+				if (!entry.getKey().equals(keep)) {
+					totalBytes -= entry.getValue();
+					evicted.put(entry.getKey(), entry.getValue());
+					iterator.remove();
+				}
+			}
+		}
+		for (Map.Entry<String, Long> entry : evicted.entrySet()) {
+			String key = entry.getKey();
+			ReentrantLock lock = lock(key);
+			try {
+				synchronized (entries) {
+					if (entries.containsKey(key)) {
+						// Used again since it was evicted: its files and size are current
+						continue;
+					}
+				}
+				Files.deleteIfExists(directory.resolve(key + DATA_SUFFIX));
+				Files.deleteIfExists(directory.resolve(key + META_SUFFIX));
+			}
+			catch (IOException e) {
+				// In use on a file system not allowing it: counted again, for a later eviction
+				synchronized (entries) {
+					if (entries.putIfAbsent(key, entry.getValue()) == null) {
+						totalBytes += entry.getValue();
+					}
+				}
+			}
+			finally {
+				unlock(key, lock);
+			}
+		}
+	}
+
+	/**
+	 * Lock an entry, waiting for the other threads using it.
+	 */
+	private ReentrantLock lock(String key) {
+		while (true) {
+			ReentrantLock lock = locks.computeIfAbsent(key, k -> new ReentrantLock());
+			lock.lock();
+			if (locks.get(key) == lock) {
+				return lock;
+			}
+			// Removed by the thread that held it: take the new one
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Unlock an entry, removing its lock so that the locks of the entries not in use are not kept.
+	 */
+	private void unlock(String key, ReentrantLock lock) {
+		locks.remove(key, lock);
+		lock.unlock();
+	}
+
+	private static Properties readMeta(Path metaFile) throws IOException {
+		Properties meta = new Properties();
+		try (InputStream inputStream = Files.newInputStream(metaFile)) {
+			meta.load(inputStream);
+			return meta;
+		}
+		catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	private void writeMeta(Path metaFile, Properties meta) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		meta.store(bos, null);
+		writeAtomically(metaFile, bos.toByteArray());
+	}
+
+	/**
+	 * Write a file through a temporary file moved in place.
+	 */
+	private void writeAtomically(Path file, byte[] data) throws IOException {
+		Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		try {
+			try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+				outputStream.write(data);
+			}
+			Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	private static byte[] readAll(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		byte[] byteChunk = new byte[BYTE_BUFFER_CHUNK_SIZE];
+		int n;
+		while ((n = inputStream.read(byteChunk)) > 0) {
+			baos.write(byteChunk, 0, n);
+		}
+		return baos.toByteArray();
+	}
+}
@@ -2,9 +2,13 @@ package org.rcsb.mmtf.encoder;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.rcsb.mmtf.api.BulkStructureAdapterInterface;
+import org.rcsb.mmtf.api.ConcurrentStructureAdapterInterface;
 import org.rcsb.mmtf.api.StructureDataInterface;
 import org.rcsb.mmtf.api.StructureAdapterInterface;
 import org.rcsb.mmtf.dataholders.BioAssemblyData;
@@ -17,12 +21,18 @@ import org.rcsb.mmtf.utils.CodecUtils;
 /**
  * A class to move data from the {@link StructureAdapterInterface}
  * to the {@link StructureDataInterface}.
+ * The data can also be passed from several threads, through the
+ * {@link ConcurrentStructureAdapterInterface}.
  * @author Anthony Bradley
  *
  */
-public class AdapterToStructureData implements StructureDataInterface, StructureAdapterInterface, Serializable {
+public class AdapterToStructureData implements StructureDataInterface, BulkStructureAdapterInterface,
+		ConcurrentStructureAdapterInterface, Serializable {
 	private static final long serialVersionUID = 4984676010601174880L;
 
+	/** The initial number of groups of a structure with unknown totals */
+	private static final int INITIAL_CAPACITY = 64;
+
 	/** The X coordinates */
 	private float[] cartnX;
 
@@ -141,14 +151,19 @@ public class AdapterToStructureData implements StructureDataInterface, Structure
 	private Group pdbGroup;
 	/** The total number of bonds in the structure */
 	private int totalNumBonds;
-	/** The list of groups */
-	private List<Group> pdbGroupList;
+	/** True if the storage grows as data is added, the totals being unknown */
+	private boolean growable;
+	/** The groups of the structure, in order */
+	private Group[] pdbGroups;
 	/** The NCS operation matrix list */
 	private double[][] ncsOperMatrixList;
 	
 	/** Temporary list of entities */
 	private transient List<Entity> entities;
 
+	/** Temporary map from the groups to their index in the group map */
+	private transient Map<Group, Integer> groupIndexMap;
+
 
 	@Override
 	public float[] getxCoords() {
@@ -410,10 +425,26 @@ public class AdapterToStructureData implements StructureDataInterface, Structure
 	}
 
 
+	/**
+	 * Used before any additions when the totals of the structure are not known up front,
+	 * e.g. by parsers of text formats reading the structure in a single pass.
+	 * The atom, group, chain and model level storage then grows as the data is added through
+	 * the {@link StructureAdapterInterface}, and is trimmed to size in {@link #finalizeStructure()}.
+	 * The number of bonds is counted from the group and inter-group bonds added.
+	 * The storage cannot grow from several threads, so this is not available through
+	 * the {@link ConcurrentStructureAdapterInterface}.
+	 * @param structureId an identifier for the structure (e.g. PDB id).
+	 */
+	public void initStructure(String structureId) {
+		initStructure(0, INITIAL_CAPACITY * 8, INITIAL_CAPACITY, 1, 1, structureId);
+		growable = true;
+	}
+
 	@Override
 	public void initStructure(int totalNumBonds, int totalNumAtoms, int totalNumGroups, 
 			int totalNumChains, int totalNumModels, String structureId) {
 		this.totalNumBonds = totalNumBonds;
+		growable = false;
 		// Initialize the bond level info
 		interGroupBondIndices = new ArrayList<>();
 		interGroupBondOrders = new ArrayList<>();
@@ -431,7 +462,11 @@ public class AdapterToStructureData implements StructureDataInterface, Structure
 		seqResGroupList = new int[totalNumGroups];
 		secStructInfo = new int[totalNumGroups];
 		// List for storing the group level information
-		pdbGroupList = new ArrayList<>();
+		pdbGroups = new Group[totalNumGroups];
+		groupList = new int[totalNumGroups];
+		Arrays.fill(groupList, -1);
+		groupMap = new ArrayList<>();
+		groupIndexMap = new HashMap<>();
 		// Initialize the chain level data 	 	
 		chainList = new String[totalNumChains];
 		publicChainIds = new String[totalNumChains];
@@ -449,32 +484,70 @@ public class AdapterToStructureData implements StructureDataInterface, Structure
 
 	@Override
 	public void finalizeStructure() {
+		if (growable) {
+			trimToSize();
+		}
 		// Convert the entities array to a list
 		entityList = entities.toArray(new Entity[0]);
 		// clear temporary data structure to avoid "memory leak"
 		entities.clear();
 
-		// Cleanup the group list
-		groupMap = new ArrayList<>(new HashSet<>(pdbGroupList));
-		groupList = new int[pdbGroupList.size()];
-		for(int i=0; i<pdbGroupList.size(); i++){		
-			// Find the index of this groups information.
-			groupList[i] = groupMap.indexOf(pdbGroupList.get(i));
-		}	
+		// Find the index of the information of the groups not interned yet
+		for (int i = 0; i < pdbGroups.length; i++) {
+			if (groupList[i] < 0) {
+				internGroup(i);
+			}
+		}
+		groupIndexMap.clear();
+	}
+
+	/**
+	 * Find the index of the information of a complete group in the group map,
+	 * adding it if it is new, and keep a single instance of equal groups.
+	 * @param groupIndex the index of the group in the structure
+	 */
+	private void internGroup(int groupIndex) {
+		Group group = pdbGroups[groupIndex];
+		Integer groupType = groupIndexMap.get(group);
+		if (groupType == null) {
+			groupType = groupMap.size();
+			groupMap.add(group);
+			groupIndexMap.put(group, groupType);
+		}
+		else {
+			pdbGroups[groupIndex] = groupMap.get(groupType);
+		}
+		groupList[groupIndex] = groupType;
 	}
 
 	@Override
 	public void setModelInfo(int modelId, int chainCount) {
+		if (growable && modelIndex == chainsPerModel.length) {
+			chainsPerModel = Arrays.copyOf(chainsPerModel, modelIndex * 2);
+		}
 		chainsPerModel[modelIndex] = chainCount;
 		modelIndex++;
 	}
 
+	@Override
+	public void setModelInfo(int modelIndex, int firstChainIndex, int chainCount) {
+		chainsPerModel[modelIndex] = chainCount;
+	}
+
 	@Override
 	public void setChainInfo(String chainId, String chainName, int groupCount) {
+		if (growable && chainIndex == chainList.length) {
+			growChains(chainIndex * 2);
+		}
+		setChainInfo(chainIndex, modelIndex - 1, chainId, chainName, groupCount);
+		chainIndex++;
+	}
+
+	@Override
+	public void setChainInfo(int chainIndex, int modelIndex, String chainId, String chainName, int groupCount) {
 		chainList[chainIndex] = chainId;
 		publicChainIds[chainIndex] = chainName;
 		groupsPerChain[chainIndex] = groupCount;
-		chainIndex++;
 	}
 
 	@Override
@@ -491,30 +564,58 @@ public class AdapterToStructureData implements StructureDataInterface, Structure
 	@Override
 	public void setGroupInfo(String groupName, int groupNumber, char insertionCode, String polymerType, 
 			int atomCount, int bondCount, char singleAtomCode, int sequenceIndex, int secStructType) {
-		// Make a new PDBGroup to store the repeated information
-		pdbGroup = new Group();
-		pdbGroupList.add(pdbGroup);
-		pdbGroup.setFormalChargeList(new int[atomCount]);
-		pdbGroup.setAtomNameList(new String[atomCount]);
-		pdbGroup.setBondAtomList(new int[bondCount*2]);
-		pdbGroup.setBondOrderList(new int[bondCount]);
-		pdbGroup.setChemCompType(polymerType);
-		pdbGroup.setElementList(new String[atomCount]);
-		pdbGroup.setGroupName(groupName);
-		pdbGroup.setSingleLetterCode(singleAtomCode);
+		// The previous group is complete
+		if (groupIndex > 0) {
+			internGroup(groupIndex - 1);
+		}
+		if (growable && groupIndex == pdbGroups.length) {
+			growGroups(groupIndex * 2);
+		}
+		pdbGroup = setGroupData(groupIndex, groupName, groupNumber, insertionCode, polymerType, atomCount, bondCount,
+				singleAtomCode, sequenceIndex, secStructType);
 		groupAtomIndex=0;
 		groupBondIndex=0;
+		groupIndex++;
+	}
+
+	@Override
+	public void setGroupInfo(int groupIndex, int chainIndex, String groupName, int groupNumber, char insertionCode,
+			String polymerType, int atomCount, int bondCount, char singleAtomCode, int sequenceIndex, int secStructType) {
+		setGroupData(groupIndex, groupName, groupNumber, insertionCode, polymerType, atomCount, bondCount,
+				singleAtomCode, sequenceIndex, secStructType);
+	}
+
+	/**
+	 * Store the data of a group.
+	 * @return the new group holding the repeated information
+	 */
+	private Group setGroupData(int groupIndex, String groupName, int groupNumber, char insertionCode, String polymerType, 
+			int atomCount, int bondCount, char singleAtomCode, int sequenceIndex, int secStructType) {
+		// Make a new PDBGroup to store the repeated information
+		Group group = new Group();
+		pdbGroups[groupIndex] = group;
+		group.setFormalChargeList(new int[atomCount]);
+		group.setAtomNameList(new String[atomCount]);
+		group.setBondAtomList(new int[bondCount*2]);
+		group.setBondOrderList(new int[bondCount]);
+		group.setChemCompType(polymerType);
+		group.setElementList(new String[atomCount]);
+		group.setGroupName(groupName);
+		group.setSingleLetterCode(singleAtomCode);
 		// Store the group level data
 		insertionCodeList[groupIndex] = insertionCode;
 		groupNum[groupIndex] = groupNumber;
 		seqResGroupList[groupIndex] = sequenceIndex;
 		secStructInfo[groupIndex] = secStructType;
-		groupIndex++;
+		return group;
 	}
 
 	@Override
 	public void setAtomInfo(String atomName, int serialNumber, char alternativeLocationId, float x, float y, float z,
 			float occupancy, float temperatureFactor, String element, int charge) {
+		if (growable && atomIndex == cartnX.length) {
+			growAtoms(atomIndex * 2);
+		}
 		// Set the group level data
 		pdbGroup.getFormalChargeList()[groupAtomIndex] = charge;
 		pdbGroup.getAtomNameList()[groupAtomIndex] = atomName;
@@ -532,6 +633,50 @@ public class AdapterToStructureData implements StructureDataInterface, Structure
 		atomIndex++;
 	}
 
+	@Override
+	public void setAtomInfo(int atomIndex, int groupIndex, int atomInGroupIndex, String atomName, int serialNumber,
+			char alternativeLocationId, float x, float y, float z, float occupancy, float temperatureFactor,
+			String element, int charge) {
+		Group group = pdbGroups[groupIndex];
+		// Set the group level data
+		group.getFormalChargeList()[atomInGroupIndex] = charge;
+		group.getAtomNameList()[atomInGroupIndex] = atomName;
+		group.getElementList()[atomInGroupIndex] = element;
+		// Set the atom level data
+		cartnX[atomIndex] = x;
+		cartnY[atomIndex] = y;
+		cartnZ[atomIndex] = z;
+		this.occupancy[atomIndex] = occupancy;
+		bFactor[atomIndex] = temperatureFactor;
+		atomId[atomIndex] = serialNumber;
+		altId[atomIndex] = alternativeLocationId;
+	}
+
+	@Override
+	public void setAtoms(int from, int to, String[] atomNames, String[] elements, int[] charges,
+			int[] serialNumbers, char[] alternativeLocationIds, float[] x, float[] y, float[] z,
+			float[] occupancies, float[] temperatureFactors) {
+		int count = to - from;
+		if (growable && atomIndex + count > cartnX.length) {
+			growAtoms(Math.max(atomIndex + count, atomIndex * 2));
+		}
+		// Set the group level data
+		System.arraycopy(charges, 0, pdbGroup.getFormalChargeList(), groupAtomIndex, count);
+		System.arraycopy(atomNames, 0, pdbGroup.getAtomNameList(), groupAtomIndex, count);
+		System.arraycopy(elements, 0, pdbGroup.getElementList(), groupAtomIndex, count);
+		// Set the atom level data
+		System.arraycopy(x, from, cartnX, atomIndex, count);
+		System.arraycopy(y, from, cartnY, atomIndex, count);
+		System.arraycopy(z, from, cartnZ, atomIndex, count);
+		System.arraycopy(occupancies, from, this.occupancy, atomIndex, count);
+		System.arraycopy(temperatureFactors, from, bFactor, atomIndex, count);
+		System.arraycopy(serialNumbers, from, atomId, atomIndex, count);
+		System.arraycopy(alternativeLocationIds, from, altId, atomIndex, count);
+		// Increment both counters
+		groupAtomIndex += count;
+		atomIndex += count;
+	}
+
 	@Override
 	public void setBioAssemblyTrans(int bioAssemblyIndex, int[] chainIndices, double[] transform, String name) {
 		BioAssemblyData bioAssemblyData;
@@ -565,6 +710,16 @@ public class AdapterToStructureData implements StructureDataInterface, Structure
 		groupBondIndex++;
 	}
 
+	@Override
+	public void setGroupBond(int groupIndex, int bondInGroupIndex, int firstAtomIndex, int secondAtomIndex, int bondOrder) {
+		Group group = pdbGroups[groupIndex];
+		// Set the bond indices
+		group.getBondAtomList()[bondInGroupIndex*2] = firstAtomIndex;
+		group.getBondAtomList()[bondInGroupIndex*2+1] = secondAtomIndex;
+		// Set the bond order
+		group.getBondOrderList()[bondInGroupIndex] = bondOrder;
+	}
+
 	@Override
 	public void setInterGroupBond(int firstAtomIndex, int secondAtomIndex, int bondOrder) {
 		// Set the bond indices
@@ -592,6 +747,63 @@ public class AdapterToStructureData implements StructureDataInterface, Structure
 		this.mmtfProducer = mmtfProducer;
 	}
 
+	/**
+	 * Grow the atom level storage.
+	 * @param capacity the new number of atoms
+	 */
+	private void growAtoms(int capacity) {
+		cartnX = Arrays.copyOf(cartnX, capacity);
+		cartnY = Arrays.copyOf(cartnY, capacity);
+		cartnZ = Arrays.copyOf(cartnZ, capacity);
+		occupancy = Arrays.copyOf(occupancy, capacity);
+		bFactor = Arrays.copyOf(bFactor, capacity);
+		atomId = Arrays.copyOf(atomId, capacity);
+		altId = Arrays.copyOf(altId, capacity);
+	}
+
+	/**
+	 * Grow the group level storage.
+	 * @param capacity the new number of groups
+	 */
+	private void growGroups(int capacity) {
+		int oldCapacity = pdbGroups.length;
+		groupNum = Arrays.copyOf(groupNum, capacity);
+		insertionCodeList = Arrays.copyOf(insertionCodeList, capacity);
+		seqResGroupList = Arrays.copyOf(seqResGroupList, capacity);
+		secStructInfo = Arrays.copyOf(secStructInfo, capacity);
+		pdbGroups = Arrays.copyOf(pdbGroups, capacity);
+		groupList = Arrays.copyOf(groupList, capacity);
+		if (capacity > oldCapacity) {
+			Arrays.fill(groupList, oldCapacity, capacity, -1);
+		}
+	}
+
+	/**
+	 * Grow the chain level storage.
+	 * @param capacity the new number of chains
+	 */
+	private void growChains(int capacity) {
+		chainList = Arrays.copyOf(chainList, capacity);
+		publicChainIds = Arrays.copyOf(publicChainIds, capacity);
+		groupsPerChain = Arrays.copyOf(groupsPerChain, capacity);
+	}
+
+	/**
+	 * Trim the storage to the data added and count the bonds.
+	 */
+	private void trimToSize() {
+		growAtoms(atomIndex);
+		growGroups(groupIndex);
+		growChains(chainIndex);
+		chainsPerModel = Arrays.copyOf(chainsPerModel, modelIndex);
+		numModels = modelIndex;
+		totalNumBonds = interGroupBondOrders.size();
+		for (Group group : pdbGroups) {
+			totalNumBonds += group.getBondOrderList().length;
+		}
+		growable = false;
+	}
+
 	private Group getGroup(int groupInd) {
 		return groupMap.get(groupInd);
 	}
@@ -0,0 +1,127 @@
+package org.rcsb.mmtf.encoder;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+import org.rcsb.mmtf.decoder.ArchiveReader;
+import org.rcsb.mmtf.serialization.MessagePackSerialization;
+
+/**
+ * Writes many structures to a single archive file, read with the {@link ArchiveReader}.
+ * <p>
+ * The archive starts with the {@link #MAGIC} bytes, followed by the MessagePack data of each
+ * structure (GZIP compressed or not) in the order they are added. The index comes last:
+ * for each structure, sorted by id, the length of the UTF-8 id (a short), the id, the offset
+ * of the data (a long) and its length (an int). The archive ends with the offset of the index
+ * (a long), the number of structures (an int) and the {@link #MAGIC} bytes again.
+ * All the numbers are big-endian. The archive is only valid once the writer is closed.
+ */
+public class ArchiveWriter implements Closeable {
+
+	/** The bytes starting and ending an archive */
+	public static final byte[] MAGIC = "MMTFARC1".getBytes(StandardCharsets.US_ASCII);
+	/** The length of the end of the archive: the offset of the index, the number of structures and the magic bytes */
+	public static final int TRAILER_LENGTH = 8 + 4 + 8;
+
+	private final DataOutputStream outputStream;
+	private final boolean compress;
+	private final Map<String, long[]> index = new TreeMap<>();
+	private long position;
+
+	/**
+	 * Create an archive, replacing any existing file.
+	 * @param path the path of the archive
+	 * @param compress true to GZIP compress the structures added as {@link MmtfStructure} or {@link StructureDataInterface}
+	 * @throws IOException an error creating the file
+	 */
+	public ArchiveWriter(Path path, boolean compress) throws IOException {
+		this.compress = compress;
+		outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 65536));
+		outputStream.write(MAGIC);
+		position = MAGIC.length;
+	}
+
+	/**
+	 * Encode a structure and add it to the archive, with its structure id.
+	 * @param structureDataInterface the structure
+	 * @throws IOException an error writing the data
+	 * @throws IllegalArgumentException if a structure with the same id is in the archive
+	 */
+	public void add(StructureDataInterface structureDataInterface) throws IOException {
+		add(structureDataInterface.getStructureId(), new GenericEncoder(structureDataInterface).getMmtfEncodedStructure());
+	}
+
+	/**
+	 * Serialize a structure and add it to the archive.
+	 * @param structureId the id of the structure in the archive
+	 * @param mmtfStructure the structure
+	 * @throws IOException an error writing the data
+	 * @throws IllegalArgumentException if a structure with the same id is in the archive
+	 */
+	public void add(String structureId, MmtfStructure mmtfStructure) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		new MessagePackSerialization().serialize(mmtfStructure, bos);
+		byte[] data = bos.toByteArray();
+		add(structureId, compress ? WriterUtils.gzipCompress(data) : data);
+	}
+
+	/**
+	 * Add the data of a structure to the archive as it is, e.g. the bytes of an MMTF file.
+	 * @param structureId the id of the structure in the archive
+	 * @param data the MessagePack data of the structure, GZIP compressed or not
+	 * @throws IOException an error writing the data
+	 * @throws IllegalArgumentException if a structure with the same id is in the archive
+	 */
+	public void add(String structureId, byte[] data) throws IOException {
+		if (structureId.getBytes(StandardCharsets.UTF_8).length > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Structure id too long: "+structureId);
+		}
+		if (index.containsKey(structureId)) {
+			throw new IllegalArgumentException("Structure "+structureId+" is already in the archive");
+		}
+		index.put(structureId, new long[] {position, data.length});
+		outputStream.write(data);
+		position += data.length;
+	}
+
+	/**
+	 * @return the number of structures in the archive
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Write the index and close the archive.
+	 * @throws IOException an error writing the index
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			for (Entry<String, long[]> entry : index.entrySet()) {
+				byte[] structureId = entry.getKey().getBytes(StandardCharsets.UTF_8);
+				outputStream.writeShort(structureId.length);
+				outputStream.write(structureId);
+				outputStream.writeLong(entry.getValue()[0]);
+				outputStream.writeInt((int) entry.getValue()[1]);
+			}
+			outputStream.writeLong(position);
+			outputStream.writeInt(index.size());
+			outputStream.write(MAGIC);
+		}
+		finally {
+			outputStream.close();
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package org.rcsb.mmtf.encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessageUnpacker;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+import org.rcsb.mmtf.decoder.BlockGzipReader;
+import org.rcsb.mmtf.serialization.MessagePackSerialization;
+
+/**
+ * Writes data as a blocked gzip (BGZF style) container.
+ * <p>
+ * The output is a series of independently compressed gzip members, each carrying
+ * the BGZF "BC" extra subfield with the size of the block. Standard gzip tools read the
+ * container as a single stream, whereas the {@link BlockGzipReader} can inflate the blocks
+ * concurrently or inflate only the blocks covering a given range.
+ * <p>
+ * The container is terminated by an empty block. When writing an {@link MmtfStructure}
+ * this last block also carries an "MI" extra subfield holding the offset and length
+ * of every top level MessagePack entry (e.g. xCoordList), so that a single column can
+ * be read without inflating the whole file.
+ */
+public class BlockGzipWriter {
+
+	/** The maximum number of uncompressed bytes stored in a block (as used by BGZF). */
+	public static final int DEFAULT_BLOCK_SIZE = 0xff00;
+	/** The maximum total size of a block, including header and footer. */
+	public static final int MAX_BLOCK_SIZE = 0x10000;
+
+	/** The first identifier of the BGZF block size subfield. */
+	static final byte BLOCK_SUBFIELD_ONE = 'B';
+	/** The second identifier of the BGZF block size subfield. */
+	static final byte BLOCK_SUBFIELD_TWO = 'C';
+	/** The first identifier of the column index subfield. */
+	static final byte INDEX_SUBFIELD_ONE = 'M';
+	/** The second identifier of the column index subfield. */
+	static final byte INDEX_SUBFIELD_TWO = 'I';
+	/** The length of the gzip header of a block without an index. */
+	static final int BLOCK_HEADER_LENGTH = 18;
+	/** The length of the gzip footer (CRC32 and ISIZE). */
+	static final int BLOCK_FOOTER_LENGTH = 8;
+
+	/**
+	 * Serialize an {@link MmtfStructure} and write it as a blocked gzip container,
+	 * including an index of the top level MessagePack entries.
+	 * @param mmtfStructure the structure to serialize
+	 * @return the compressed byte array
+	 * @throws IOException an error serializing the data
+	 */
+	public static byte[] compress(MmtfStructure mmtfStructure) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		new MessagePackSerialization().serialize(mmtfStructure, bos);
+		byte[] data = bos.toByteArray();
+		return compress(data, DEFAULT_BLOCK_SIZE, getColumnIndex(data));
+	}
+
+	/**
+	 * Write a byte array as a blocked gzip container, without a column index.
+	 * @param data the uncompressed data
+	 * @return the compressed byte array
+	 */
+	public static byte[] compress(byte[] data) {
+		return compress(data, DEFAULT_BLOCK_SIZE, null);
+	}
+
+	/**
+	 * Write a byte array as a blocked gzip container.
+	 * @param data the uncompressed data
+	 * @param blockSize the number of uncompressed bytes per block (at most {@link #DEFAULT_BLOCK_SIZE})
+	 * @param columnIndex a map of name to uncompressed offset and length (may be null)
+	 * @return the compressed byte array
+	 */
+	public static byte[] compress(byte[] data, int blockSize, Map<String, int[]> columnIndex) {
+		if (blockSize <= 0 || blockSize > DEFAULT_BLOCK_SIZE) {
+			throw new IllegalArgumentException("Block size must be between 1 and "+DEFAULT_BLOCK_SIZE+": "+blockSize);
+		}
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length / 4 + 64);
+		byte[] buffer = new byte[MAX_BLOCK_SIZE];
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			for (int offset = 0; offset < data.length; offset += blockSize) {
+				int length = Math.min(blockSize, data.length - offset);
+				int compressedLength = deflate(deflater, data, offset, length, buffer);
+				if (compressedLength < 0) {
+					// Incompressible data - store it instead
+					Deflater storer = new Deflater(Deflater.NO_COMPRESSION, true);
+					try {
+						compressedLength = deflate(storer, data, offset, length, buffer);
+					}
+					finally {
+						storer.end();
+					}
+				}
+				writeBlock(outputStream, data, offset, length, buffer, compressedLength, null);
+			}
+			// The terminating empty block - optionally holding the index
+			int compressedLength = deflate(deflater, data, 0, 0, buffer);
+			writeBlock(outputStream, data, 0, 0, buffer, compressedLength, encodeIndex(columnIndex));
+		}
+		finally {
+			deflater.end();
+		}
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * Find the offset and length of the value of each entry in a top level MessagePack map.
+	 * @param data the MessagePack serialized data
+	 * @return a map of key to an array of offset and length
+	 * @throws IOException an error reading the MessagePack data
+	 */
+	public static Map<String, int[]> getColumnIndex(byte[] data) throws IOException {
+		Map<String, int[]> index = new LinkedHashMap<>();
+		try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(data)) {
+			int numEntries = unpacker.unpackMapHeader();
+			for (int i = 0; i < numEntries; i++) {
+				String key = unpacker.unpackString();
+				int start = (int) unpacker.getTotalReadBytes();
+				unpacker.skipValue();
+				index.put(key, new int[] {start, (int) unpacker.getTotalReadBytes() - start});
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Deflate a range of an array into the buffer.
+	 * @return the number of compressed bytes or -1 if they do not fit in a block
+	 */
+	private static int deflate(Deflater deflater, byte[] data, int offset, int length, byte[] buffer) {
+		deflater.reset();
+		deflater.setInput(data, offset, length);
+		deflater.finish();
+		int maxLength = MAX_BLOCK_SIZE - BLOCK_HEADER_LENGTH - BLOCK_FOOTER_LENGTH;
+		int compressedLength = deflater.deflate(buffer, 0, maxLength);
+		if (!deflater.finished()) {
+			return -1;
+		}
+		return compressedLength;
+	}
+
+	/**
+	 * Write a single gzip member with the BGZF extra subfield.
+	 */
+	private static void writeBlock(ByteArrayOutputStream outputStream, byte[] data, int offset, int length,
+			byte[] compressed, int compressedLength, byte[] index) {
+		int extraLength = 6 + (index == null ? 0 : 4 + index.length);
+		int totalLength = 12 + extraLength + compressedLength + BLOCK_FOOTER_LENGTH;
+		if (totalLength > MAX_BLOCK_SIZE) {
+			throw new IllegalArgumentException("Column index too large to be stored: "+index.length+" bytes");
+		}
+		ByteBuffer header = ByteBuffer.allocate(12 + extraLength).order(ByteOrder.LITTLE_ENDIAN);
+		// Magic, deflate, FEXTRA, no mtime, no extra flags, unknown OS
+		header.put((byte) 31).put((byte) 139).put((byte) 8).put((byte) 4);
+		header.putInt(0).put((byte) 0).put((byte) 0xff);
+		header.putShort((short) extraLength);
+		header.put(BLOCK_SUBFIELD_ONE).put(BLOCK_SUBFIELD_TWO).putShort((short) 2);
+		header.putShort((short) (totalLength - 1));
+		if (index != null) {
+			header.put(INDEX_SUBFIELD_ONE).put(INDEX_SUBFIELD_TWO).putShort((short) index.length);
+			header.put(index);
+		}
+		outputStream.write(header.array(), 0, header.capacity());
+		outputStream.write(compressed, 0, compressedLength);
+		CRC32 crc = new CRC32();
+		crc.update(data, offset, length);
+		ByteBuffer footer = ByteBuffer.allocate(BLOCK_FOOTER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		footer.putInt((int) crc.getValue()).putInt(length);
+		outputStream.write(footer.array(), 0, BLOCK_FOOTER_LENGTH);
+	}
+
+	/**
+	 * Encode the column index as a count followed by (name, offset, length) entries.
+	 * @param columnIndex the index to encode (may be null)
+	 * @return the encoded index or null if there is none
+	 */
+	private static byte[] encodeIndex(Map<String, int[]> columnIndex) {
+		if (columnIndex == null) {
+			return null;
+		}
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ByteBuffer intBuffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+		bos.write(intBuffer.putInt(0, columnIndex.size()).array(), 0, 4);
+		for (Entry<String, int[]> entry : columnIndex.entrySet()) {
+			byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+			bos.write(name.length);
+			bos.write(name, 0, name.length);
+			bos.write(intBuffer.putInt(0, entry.getValue()[0]).array(), 0, 4);
+			bos.write(intBuffer.putInt(0, entry.getValue()[1]).array(), 0, 4);
+		}
+		return bos.toByteArray();
+	}
+}
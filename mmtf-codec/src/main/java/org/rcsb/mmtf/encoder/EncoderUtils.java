@@ -4,6 +4,8 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import org.rcsb.mmtf.api.StructureDataInterface;
 import org.rcsb.mmtf.codec.CharCodecs;
@@ -28,6 +30,10 @@ public class EncoderUtils {
 
 	/** The Null parameter for encoding (i.e. when no params are set). */
 	public static final int NULL_PARAM = 0;
+
+	/** The largest power of ten tried as a divider of floats. */
+	private static final long MAX_POWER_OF_TEN_DIVIDER = 10000000;
+
 	/**
 	 * Regenerate a group map from the {@link StructureDataInterface}.
 	 * @param structureDataInterface the input interface
@@ -127,6 +133,61 @@ public class EncoderUtils {
 		return "NULL";
 	}
 	
+	/**
+	 * Get the largest absolute error of storing floats as integers with a divider,
+	 * as done by the {@link FloatCodecs}.
+	 * @param values the floats to store
+	 * @param divider the divider of the stored integers
+	 * @return the largest absolute difference between a value and the value read back
+	 */
+	public static float getMaxError(float[] values, int divider) {
+		float maxError = 0.0f;
+		for (float value : values) {
+			maxError = Math.max(maxError, Math.abs(value - Math.round(value * divider) / (float) divider));
+		}
+		return maxError;
+	}
+
+	/**
+	 * Find the coarsest divider storing floats as integers with an error no larger than a bound.
+	 * The candidates are the powers of ten, the usual dividers of MMTF files, and the smallest divider
+	 * bounding the rounding error in theory (the ceiling of 0.5 / maxError). They are tried in
+	 * ascending order, so that a power of ten is only chosen over the theoretical divider if it is
+	 * smaller and meets the bound. The dividers for which the integers or their differences could
+	 * overflow are skipped.
+	 * @param maxError the largest absolute error allowed
+	 * @param columns the floats to store
+	 * @return the smallest divider with an error no larger than the bound for all the columns
+	 * @throws IllegalArgumentException if no divider gives such an error
+	 */
+	public static int getCoarsestDivider(float maxError, float[]... columns) {
+		float maxValue = 0.0f;
+		for (float[] column : columns) {
+			for (float value : column) {
+				maxValue = Math.max(maxValue, Math.abs(value));
+			}
+		}
+		SortedSet<Long> dividers = new TreeSet<>();
+		for (long divider = 1; divider <= MAX_POWER_OF_TEN_DIVIDER; divider *= 10) {
+			dividers.add(divider);
+		}
+		dividers.add((long) Math.ceil(0.5 / maxError));
+		for (long divider : dividers) {
+			// The integers and their differences must fit in 32 bits
+			if (divider > Integer.MAX_VALUE || 2.0 * maxValue * divider >= Integer.MAX_VALUE) {
+				break;
+			}
+			boolean withinBound = true;
+			for (float[] column : columns) {
+				withinBound &= getMaxError(column, (int) divider) <= maxError;
+			}
+			if (withinBound) {
+				return (int) divider;
+			}
+		}
+		throw new IllegalArgumentException("No divider gives a maximum error of "+maxError);
+	}
+
 	/**
 	 * Method to prepend a byte array with a byte.
 	 * @param inputCodec the codec to be used
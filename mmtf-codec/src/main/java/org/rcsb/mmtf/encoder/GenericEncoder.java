@@ -1,6 +1,11 @@
 package org.rcsb.mmtf.encoder;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.rcsb.mmtf.api.StructureDataInterface;
 import org.rcsb.mmtf.codec.CharCodecs;
@@ -11,6 +16,11 @@ import org.rcsb.mmtf.dataholders.MmtfStructure;
 
 /**
  * An encoder for encoding with the generic strategy.
+ * <p>
+ * The coordinates, B-factors and occupancies are stored as integers, with a divider
+ * (the precision) for each of them. The dividers can be chosen as the coarsest keeping
+ * the errors under some bounds with {@link #withMaxError(StructureDataInterface, float, float, float)}.
+ * The largest errors of the encoded data are reported by the encoder.
  * @author Anthony Bradley
  *
  */
@@ -18,7 +28,14 @@ public class GenericEncoder implements EncoderInterface, Serializable {
 	private static final long serialVersionUID = 4128892132322015448L;
 	private MmtfStructure mmtfBean;
 	private int coordDivider = MmtfStructure.COORD_DIVIDER;
-	private int bfactorOccDivider = MmtfStructure.OCCUPANCY_BFACTOR_DIVIDER;
+	private int bFactorDivider = MmtfStructure.OCCUPANCY_BFACTOR_DIVIDER;
+	private int occupancyDivider = MmtfStructure.OCCUPANCY_BFACTOR_DIVIDER;
+	// The largest errors of the encoded columns
+	private float xCoordError;
+	private float yCoordError;
+	private float zCoordError;
+	private float bFactorError;
+	private float occupancyError;
 
 	
 	/**
@@ -26,7 +43,7 @@ public class GenericEncoder implements EncoderInterface, Serializable {
 	 * @param structureDataInterface the interface of data to be encoded.
 	 */
 	public GenericEncoder(StructureDataInterface structureDataInterface) {
-		encode(structureDataInterface);
+		encode(structureDataInterface, null);
 	}
 	
 	/**
@@ -35,43 +52,142 @@ public class GenericEncoder implements EncoderInterface, Serializable {
 	 * @param precision the precision for the storing of coordinate, B-factor and occupancy data
 	 */
 	public GenericEncoder(StructureDataInterface structureDataInterface, int precision) {
-		coordDivider = precision;
-		bfactorOccDivider = precision;
-		encode(structureDataInterface);
+		this(structureDataInterface, precision, precision, precision);
 	}
 
-	private void encode(StructureDataInterface structureDataInterface) {
+	/**
+	 * The constructor for the encoder, with a precision for each column.
+	 * @param structureDataInterface the interface of data to be encoded
+	 * @param coordDivider the precision for the storing of coordinate data
+	 * @param bFactorDivider the precision for the storing of B-factor data
+	 * @param occupancyDivider the precision for the storing of occupancy data
+	 */
+	public GenericEncoder(StructureDataInterface structureDataInterface, int coordDivider, int bFactorDivider,
+			int occupancyDivider) {
+		this(structureDataInterface, coordDivider, bFactorDivider, occupancyDivider, null);
+	}
+
+	/**
+	 * The constructor for an encoder encoding the columns concurrently.
+	 * The result is the same as when encoding them one after the other.
+	 * The data is read from the threads of the executor, so the input must support
+	 * concurrent reads (as the decoders and a finalized {@link AdapterToStructureData} do).
+	 * @param structureDataInterface the interface of data to be encoded
+	 * @param executor the executor encoding the columns
+	 */
+	public GenericEncoder(StructureDataInterface structureDataInterface, Executor executor) {
+		encode(structureDataInterface, executor);
+	}
+
+	/**
+	 * The constructor for an encoder encoding the columns concurrently.
+	 * @param structureDataInterface the interface of data to be encoded
+	 * @param precision the precision for the storing of coordinate, B-factor and occupancy data
+	 * @param executor the executor encoding the columns
+	 * @see #GenericEncoder(StructureDataInterface, Executor)
+	 */
+	public GenericEncoder(StructureDataInterface structureDataInterface, int precision, Executor executor) {
+		this(structureDataInterface, precision, precision, precision, executor);
+	}
+
+	/**
+	 * The constructor for an encoder encoding the columns concurrently, with a precision for each column.
+	 * @param structureDataInterface the interface of data to be encoded
+	 * @param coordDivider the precision for the storing of coordinate data
+	 * @param bFactorDivider the precision for the storing of B-factor data
+	 * @param occupancyDivider the precision for the storing of occupancy data
+	 * @param executor the executor encoding the columns - null to encode them on the calling thread
+	 * @see #GenericEncoder(StructureDataInterface, Executor)
+	 */
+	public GenericEncoder(StructureDataInterface structureDataInterface, int coordDivider, int bFactorDivider,
+			int occupancyDivider, Executor executor) {
+		this.coordDivider = coordDivider;
+		this.bFactorDivider = bFactorDivider;
+		this.occupancyDivider = occupancyDivider;
+		encode(structureDataInterface, executor);
+	}
+
+	/**
+	 * Encode the data with the coarsest precision of each column keeping its largest error
+	 * no larger than a bound.
+	 * @param structureDataInterface the interface of data to be encoded
+	 * @param maxCoordError the largest absolute error allowed on the coordinates
+	 * @param maxBFactorError the largest absolute error allowed on the B-factors
+	 * @param maxOccupancyError the largest absolute error allowed on the occupancies
+	 * @return the encoder, with the precisions chosen and the errors achieved
+	 * @throws IllegalArgumentException if no precision keeps the error of a column under its bound
+	 * @see EncoderUtils#getCoarsestDivider(float, float[]...)
+	 */
+	public static GenericEncoder withMaxError(StructureDataInterface structureDataInterface, float maxCoordError,
+			float maxBFactorError, float maxOccupancyError) {
+		int coordDivider = EncoderUtils.getCoarsestDivider(maxCoordError, structureDataInterface.getxCoords(),
+				structureDataInterface.getyCoords(), structureDataInterface.getzCoords());
+		int bFactorDivider = EncoderUtils.getCoarsestDivider(maxBFactorError, structureDataInterface.getbFactors());
+		int occupancyDivider = EncoderUtils.getCoarsestDivider(maxOccupancyError, structureDataInterface.getOccupancies());
+		return new GenericEncoder(structureDataInterface, coordDivider, bFactorDivider, occupancyDivider);
+	}
+
+	private void encode(StructureDataInterface structureDataInterface, Executor executor) {
 		mmtfBean = new MmtfStructure();
-		// Delta split three and two
-		mmtfBean.setxCoordList(EncoderUtils.encodeByteArr(FloatCodecs.INT_DELTA_RECURSIVE,structureDataInterface.getxCoords(),coordDivider));
-		mmtfBean.setyCoordList(EncoderUtils.encodeByteArr(FloatCodecs.INT_DELTA_RECURSIVE,structureDataInterface.getyCoords(),coordDivider));
-		mmtfBean.setzCoordList(EncoderUtils.encodeByteArr(FloatCodecs.INT_DELTA_RECURSIVE,structureDataInterface.getzCoords(),coordDivider));
-		mmtfBean.setbFactorList(EncoderUtils.encodeByteArr(FloatCodecs.INT_DELTA_RECURSIVE,structureDataInterface.getbFactors(),bfactorOccDivider));
-		// Run length encode the occupancy array
-		mmtfBean.setOccupancyList(EncoderUtils.encodeByteArr(FloatCodecs.INT_RUNLENGTH,structureDataInterface.getOccupancies(),bfactorOccDivider));
-		// Run length and delta
-		mmtfBean.setAtomIdList(EncoderUtils.encodeByteArr(IntCodecs.RUN_LENGTH_DELTA,structureDataInterface.getAtomIds(),EncoderUtils.NULL_PARAM));
-		// Run length encoded
-		mmtfBean.setAltLocList(EncoderUtils.encodeByteArr(CharCodecs.RUN_LENGTH,structureDataInterface.getAltLocIds(),EncoderUtils.NULL_PARAM));
-		mmtfBean.setInsCodeList(EncoderUtils.encodeByteArr(CharCodecs.RUN_LENGTH,structureDataInterface.getInsCodes(),EncoderUtils.NULL_PARAM));
-		// Set the groupNumber
-		mmtfBean.setGroupIdList(EncoderUtils.encodeByteArr(IntCodecs.RUN_LENGTH_DELTA,structureDataInterface.getGroupIds(),EncoderUtils.NULL_PARAM));
-		mmtfBean.setSequenceIndexList(EncoderUtils.encodeByteArr(IntCodecs.RUN_LENGTH_DELTA,structureDataInterface.getGroupSequenceIndices(),EncoderUtils.NULL_PARAM));
-		// Set the indices for the groups mapping to the sequence
-		// Set the internal and public facing chain ids
-		mmtfBean.setChainNameList(EncoderUtils.encodeByteArr(StringCodecs.ENCOODE_CHAINS,structureDataInterface.getChainNames(),MmtfStructure.CHAIN_LENGTH));
-		mmtfBean.setChainIdList(EncoderUtils.encodeByteArr(StringCodecs.ENCOODE_CHAINS,structureDataInterface.getChainIds(),MmtfStructure.CHAIN_LENGTH));
-		// Four bytes
-		mmtfBean.setBondAtomList(EncoderUtils.encodeByteArr(IntCodecs.CONVERT_4_BYTE,structureDataInterface.getInterGroupBondIndices(),EncoderUtils.NULL_PARAM));
-		// Set the group types
-		mmtfBean.setGroupTypeList(EncoderUtils.encodeByteArr(IntCodecs.CONVERT_4_BYTE,structureDataInterface.getGroupTypeIndices(),EncoderUtils.NULL_PARAM));
-		// Single bytes
-		mmtfBean.setSecStructList(EncoderUtils.encodeByteArr(IntCodecs.CONVERT_BYTE,structureDataInterface.getSecStructList(),EncoderUtils.NULL_PARAM));
-		mmtfBean.setBondOrderList(EncoderUtils.encodeByteArr(IntCodecs.CONVERT_BYTE,structureDataInterface.getInterGroupBondOrders(),EncoderUtils.NULL_PARAM));
-
-		// Slightly unusual thing
-		// Set the group map (all the unique groups in the structure).
-		mmtfBean.setGroupList(EncoderUtils.generateGroupList(structureDataInterface));
+		// Each column is encoded and set independently of the others
+		List<Runnable> columns = Arrays.asList(
+				// Delta split three and two
+				() -> {
+					float[] xCoords = structureDataInterface.getxCoords();
+					mmtfBean.setxCoordList(EncoderUtils.encodeByteArr(FloatCodecs.INT_DELTA_RECURSIVE,xCoords,coordDivider));
+					xCoordError = EncoderUtils.getMaxError(xCoords, coordDivider);
+				},
+				() -> {
+					float[] yCoords = structureDataInterface.getyCoords();
+					mmtfBean.setyCoordList(EncoderUtils.encodeByteArr(FloatCodecs.INT_DELTA_RECURSIVE,yCoords,coordDivider));
+					yCoordError = EncoderUtils.getMaxError(yCoords, coordDivider);
+				},
+				() -> {
+					float[] zCoords = structureDataInterface.getzCoords();
+					mmtfBean.setzCoordList(EncoderUtils.encodeByteArr(FloatCodecs.INT_DELTA_RECURSIVE,zCoords,coordDivider));
+					zCoordError = EncoderUtils.getMaxError(zCoords, coordDivider);
+				},
+				() -> {
+					float[] bFactors = structureDataInterface.getbFactors();
+					mmtfBean.setbFactorList(EncoderUtils.encodeByteArr(FloatCodecs.INT_DELTA_RECURSIVE,bFactors,bFactorDivider));
+					bFactorError = EncoderUtils.getMaxError(bFactors, bFactorDivider);
+				},
+				// Run length encode the occupancy array
+				() -> {
+					float[] occupancies = structureDataInterface.getOccupancies();
+					mmtfBean.setOccupancyList(EncoderUtils.encodeByteArr(FloatCodecs.INT_RUNLENGTH,occupancies,occupancyDivider));
+					occupancyError = EncoderUtils.getMaxError(occupancies, occupancyDivider);
+				},
+				// Run length and delta
+				() -> mmtfBean.setAtomIdList(EncoderUtils.encodeByteArr(IntCodecs.RUN_LENGTH_DELTA,structureDataInterface.getAtomIds(),EncoderUtils.NULL_PARAM)),
+				// Run length encoded
+				() -> mmtfBean.setAltLocList(EncoderUtils.encodeByteArr(CharCodecs.RUN_LENGTH,structureDataInterface.getAltLocIds(),EncoderUtils.NULL_PARAM)),
+				() -> mmtfBean.setInsCodeList(EncoderUtils.encodeByteArr(CharCodecs.RUN_LENGTH,structureDataInterface.getInsCodes(),EncoderUtils.NULL_PARAM)),
+				// Set the groupNumber
+				() -> mmtfBean.setGroupIdList(EncoderUtils.encodeByteArr(IntCodecs.RUN_LENGTH_DELTA,structureDataInterface.getGroupIds(),EncoderUtils.NULL_PARAM)),
+				() -> mmtfBean.setSequenceIndexList(EncoderUtils.encodeByteArr(IntCodecs.RUN_LENGTH_DELTA,structureDataInterface.getGroupSequenceIndices(),EncoderUtils.NULL_PARAM)),
+				// Set the indices for the groups mapping to the sequence
+				// Set the internal and public facing chain ids
+				() -> mmtfBean.setChainNameList(EncoderUtils.encodeByteArr(StringCodecs.ENCOODE_CHAINS,structureDataInterface.getChainNames(),MmtfStructure.CHAIN_LENGTH)),
+				() -> mmtfBean.setChainIdList(EncoderUtils.encodeByteArr(StringCodecs.ENCOODE_CHAINS,structureDataInterface.getChainIds(),MmtfStructure.CHAIN_LENGTH)),
+				// Four bytes
+				() -> mmtfBean.setBondAtomList(EncoderUtils.encodeByteArr(IntCodecs.CONVERT_4_BYTE,structureDataInterface.getInterGroupBondIndices(),EncoderUtils.NULL_PARAM)),
+				// Set the group types
+				() -> mmtfBean.setGroupTypeList(EncoderUtils.encodeByteArr(IntCodecs.CONVERT_4_BYTE,structureDataInterface.getGroupTypeIndices(),EncoderUtils.NULL_PARAM)),
+				// Single bytes
+				() -> mmtfBean.setSecStructList(EncoderUtils.encodeByteArr(IntCodecs.CONVERT_BYTE,structureDataInterface.getSecStructList(),EncoderUtils.NULL_PARAM)),
+				() -> mmtfBean.setBondOrderList(EncoderUtils.encodeByteArr(IntCodecs.CONVERT_BYTE,structureDataInterface.getInterGroupBondOrders(),EncoderUtils.NULL_PARAM)),
+				// Slightly unusual thing
+				// Set the group map (all the unique groups in the structure).
+				() -> mmtfBean.setGroupList(EncoderUtils.generateGroupList(structureDataInterface)));
+		if (executor == null) {
+			columns.forEach(Runnable::run);
+		}
+		else {
+			join(CompletableFuture.allOf(columns.stream()
+					.map(column -> CompletableFuture.runAsync(column, executor))
+					.toArray(CompletableFuture[]::new)));
+		}
 		// Set the bioassembly and entity information
 		mmtfBean.setBioAssemblyList(EncoderUtils.generateBioassemblies(structureDataInterface));
 		mmtfBean.setEntityList(EncoderUtils.generateEntityList(structureDataInterface));
@@ -107,6 +223,64 @@ public class GenericEncoder implements EncoderInterface, Serializable {
 		return mmtfBean;
 	}
 
+	/**
+	 * @return the precision (divider) of the coordinates
+	 */
+	public int getCoordDivider() {
+		return coordDivider;
+	}
+
+	/**
+	 * @return the precision (divider) of the B-factors
+	 */
+	public int getbFactorDivider() {
+		return bFactorDivider;
+	}
+
+	/**
+	 * @return the precision (divider) of the occupancies
+	 */
+	public int getOccupancyDivider() {
+		return occupancyDivider;
+	}
+
+	/**
+	 * @return the largest absolute error of the encoded coordinates
+	 */
+	public float getMaxCoordError() {
+		return Math.max(xCoordError, Math.max(yCoordError, zCoordError));
+	}
+
+	/**
+	 * @return the largest absolute error of the encoded B-factors
+	 */
+	public float getMaxbFactorError() {
+		return bFactorError;
+	}
+
+	/**
+	 * @return the largest absolute error of the encoded occupancies
+	 */
+	public float getMaxOccupancyError() {
+		return occupancyError;
+	}
+
+	/**
+	 * Wait for a future, rethrowing the cause of a failure.
+	 * @param future the future to wait for
+	 */
+	private static void join(CompletableFuture<?> future) {
+		try {
+			future.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
 
 
 }
@@ -1,22 +1,25 @@
 package org.rcsb.mmtf.encoder;
 
 import java.io.Serializable;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
+
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 import org.rcsb.mmtf.api.StructureDataInterface;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
 import org.rcsb.mmtf.decoder.DecoderUtils;
+import org.rcsb.mmtf.decoder.HierarchyIndex;
+import org.rcsb.mmtf.decoder.StructureView;
 import org.rcsb.mmtf.encoder.AdapterToStructureData;
-import org.rcsb.mmtf.encoder.EncoderUtils;
 
 /**
  * Converts a full (all-atom) MMTF structure data representation to a reduced version.
  * The reduced version contains only the C-alpha atoms of polypeptide and the
  * P atom of polynucleotide chains. Alternative locations of the C-alpha and P atoms
  * are excluded, as well as any water molecules.
+ * Other reductions (e.g. the backbone or the heavy atoms) are described by a {@link ReductionProfile}.
  * 
  * @author Anthony Bradley
  * @author Peter Rose
@@ -25,94 +28,155 @@ import org.rcsb.mmtf.encoder.EncoderUtils;
 public class ReducedEncoder  implements Serializable {
 	private static final long serialVersionUID = -528732924956087110L;
 	
-	private static final String CALPHA_NAME = "CA";
-	private static final String CARBON_ELEMENT = "C";
-	private static final String PHOSPHATE_NAME = "P";
-	private static final String PHOSPHATE_ELEMENT = "P";
-
 	/**
 	 * Gets the reduced form of the input {@link StructureDataInterface}.
 	 * @param full the input {@link StructureDataInterface} 
 	 * @return the reduced form of the {@link StructureDataInterface} as another {@link StructureDataInterface}
+	 * @see ReductionProfile#reduced()
 	 */
 	public static StructureDataInterface getReduced(StructureDataInterface full) {
-		// maps atom indices in full structure to reduced structure
-        Map<Integer, Integer> atomMap = new HashMap<>();
-			
-		// get indices to C-alpha and P atoms for polypeptides and polynucleotides, respectively
-		Integer[] centerAtomIndices = getCenterAtomGroupIndices(full);
-		
+		return getReduced(full, ReductionProfile.reduced());
+	}
+
+	/**
+	 * Gets the reduced form of the input {@link StructureDataInterface} and encodes it
+	 * with the precision of the profile.
+	 * @param full the input {@link StructureDataInterface}
+	 * @param profile the parts of the structure to keep
+	 * @return the encoded reduced form of the structure
+	 */
+	public static MmtfStructure getReducedEncoded(StructureDataInterface full, ReductionProfile profile) {
+		return new GenericEncoder(getReduced(full, profile), profile.getPrecision()).getMmtfEncodedStructure();
+	}
+
+	/**
+	 * Gets the form of the input {@link StructureDataInterface} reduced as described by a profile.
+	 * The atoms to keep are found once per group type, so the structure is
+	 * traversed group by group to count the data and only once atom by atom to copy it
+	 * (or twice when only the first alternate locations are kept).
+	 * @param full the input {@link StructureDataInterface}
+	 * @param profile the parts of the structure to keep
+	 * @return the reduced form of the {@link StructureDataInterface} as another {@link StructureDataInterface}
+	 */
+	public static StructureDataInterface getReduced(StructureDataInterface full, ReductionProfile profile) {
+		GroupSelections groupSelections = new GroupSelections(full, profile);
+		int[] groupTypeIndices = full.getGroupTypeIndices();
+		int[] groupsPerChain = full.getGroupsPerChain();
+		boolean[] polymerChains = DecoderUtils.getPolymerChains(full);
+		boolean[] pocketGroups = profile.getPocketDistance() > 0.0f
+				? getPocketGroups(full, polymerChains, profile.getPocketDistance()) : null;
+		char[] altLocIds = full.getAltLocIds();
+
+		// Maps atom indices in the full structure to the reduced structure - -1 if the atom is not kept
+		int[] atomMap = new int[full.getNumAtoms()];
+		Arrays.fill(atomMap, -1);
+
+		// Find the atoms to keep in each group and count the data of the reduced structure
+		GroupSelection[] selections = new GroupSelection[groupTypeIndices.length];
+		int numAtoms = 0;
+		int numGroups = 0;
+		int numBonds = 0;
+		for (int chainIndex = 0, groupIndex = 0, atomCount = 0; chainIndex < groupsPerChain.length; chainIndex++) {
+			for (int k = 0; k < groupsPerChain[chainIndex]; k++, groupIndex++) {
+				int groupType = groupTypeIndices[groupIndex];
+				GroupSelection selection = groupSelections.get(groupType, polymerChains[chainIndex]);
+				if (pocketGroups != null && !pocketGroups[groupIndex]) {
+					selection = GroupSelection.NONE;
+				}
+				else if (profile.isFirstAltLocOnly()) {
+					selection = groupSelections.getFirstAltLoc(selection, groupType, altLocIds, atomCount);
+				}
+				selections[groupIndex] = selection;
+				if (selection.numAtoms > 0) {
+					numGroups++;
+					numBonds += selection.bondOrders.length;
+					BitSet keepMask = selection.keepMask;
+					for (int l = keepMask.nextSetBit(0); l >= 0; l = keepMask.nextSetBit(l + 1)) {
+						atomMap[atomCount + l] = numAtoms++;
+					}
+				}
+				atomCount += full.getNumAtomsInGroup(groupType);
+			}
+		}
+		int[] interGroupBondIndices = full.getInterGroupBondIndices();
+		for (int i = 0; i < interGroupBondIndices.length; i += 2) {
+			if (atomMap[interGroupBondIndices[i]] >= 0 && atomMap[interGroupBondIndices[i+1]] >= 0) {
+				numBonds++;
+			}
+		}
+
 		// Set header and metadata
 		AdapterToStructureData reduced = new AdapterToStructureData();
 		
 		reduced.setMmtfProducer(full.getMmtfProducer());
-		SummaryData dataSummary = getDataSummaryData(full, centerAtomIndices);
-		reduced.initStructure(dataSummary.numBonds, dataSummary.numAtoms, dataSummary.numGroups, 
-				dataSummary.numChains, full.getNumModels(), full.getStructureId());
+		reduced.initStructure(numBonds, numAtoms, numGroups, groupsPerChain.length, full.getNumModels(), full.getStructureId());
 		
 		DecoderUtils.addXtalographicInfo(full, reduced);
 		DecoderUtils.addHeaderInfo(full, reduced);
 		DecoderUtils.generateBioAssembly(full, reduced);		
 		DecoderUtils.addEntityInfo(full, reduced);
 
+		// The columns of the full structure, only fetched once
+		int[] groupIds = full.getGroupIds();
+		char[] insCodes = full.getInsCodes();
+		int[] sequenceIndices = full.getGroupSequenceIndices();
+		int[] secStructs = full.getSecStructList();
+		String[] chainIds = full.getChainIds();
+		String[] chainNames = full.getChainNames();
+		int[] atomIds = full.getAtomIds();
+		float[] xCoords = full.getxCoords();
+		float[] yCoords = full.getyCoords();
+		float[] zCoords = full.getzCoords();
+		float[] occupancies = full.getOccupancies();
+		float[] bFactors = full.getbFactors();
+
 		// traverse data structure and copy data to reduced representation.
 		// Note, atomCount, groupCount, and chainCount keep track of the total number of atoms, groups, and chains.
 		// They are required to index the data structure.
-		
-		for (int i = 0, atomCount = 0, groupCount = 0, chainCount = 0, reducedAtomCount = -1; i<full.getNumModels(); i++) {
+		for (int i = 0, atomCount = 0, groupCount = 0, chainCount = 0; i<full.getNumModels(); i++) {
 			int numChains = full.getChainsPerModel()[i];
 			reduced.setModelInfo(i, numChains);
 			
 			for (int j = 0; j < numChains; j++, chainCount++){
-				String chainType = EncoderUtils.getTypeFromChainId(full, chainCount);
 				int reducedGroupsPerChain = 0;
 
-				for (int k = 0; k < full.getGroupsPerChain()[chainCount]; k++, groupCount++) {
-					int groupType = full.getGroupTypeIndices()[groupCount];
-					
-					Set<Integer> atomIndicesToAdd = getIndicesToAdd(full, groupType, chainType, centerAtomIndices);
-					int bondsToAdd = getNumIntraGroupBonds(atomIndicesToAdd, full, groupType, centerAtomIndices);
-					
-					if (atomIndicesToAdd.size() > 0) {
-						
-						// Set Group information
-						reduced.setGroupInfo(full.getGroupName(groupType), full.getGroupIds()[groupCount], 
-								full.getInsCodes()[groupCount], full.getGroupChemCompType(groupType), atomIndicesToAdd.size(),
-								bondsToAdd, full.getGroupSingleLetterCode(groupType), full.getGroupSequenceIndices()[groupCount], 
-								full.getSecStructList()[groupCount]);
-						
-						reducedGroupsPerChain ++;
+				for (int k = 0; k < groupsPerChain[chainCount]; k++, groupCount++) {
+					int groupType = groupTypeIndices[groupCount];
+					int numAtomsInGroup = full.getNumAtomsInGroup(groupType);
+					GroupSelection selection = selections[groupCount];
+					if (selection.numAtoms == 0) {
+						atomCount += numAtomsInGroup;
+						continue;
 					}
 					
-					for (int l = 0; l < full.getNumAtomsInGroup(groupType); l++, atomCount++) {
-						if (atomIndicesToAdd.contains(l)) {
-							// this atom counter keeps track of the atoms in the reduced structure
-							reducedAtomCount++; 
-							// this map keeps track of which atoms need to be kept for reduced version
-							atomMap.put(atomCount,  reducedAtomCount); 
-			
-							// Set Atom information
-							reduced.setAtomInfo(full.getGroupAtomNames(groupType)[l], full.getAtomIds()[atomCount], full.getAltLocIds()[atomCount], 
-									full.getxCoords()[atomCount], full.getyCoords()[atomCount], full.getzCoords()[atomCount], 
-									full.getOccupancies()[atomCount], full.getbFactors()[atomCount], full.getGroupElementNames(groupType)[l], full.getGroupAtomCharges(groupType)[l]);
-							}
+					// Set Group information
+					reduced.setGroupInfo(full.getGroupName(groupType), groupIds[groupCount], 
+							insCodes[groupCount], full.getGroupChemCompType(groupType), selection.numAtoms,
+							selection.bondOrders.length, full.getGroupSingleLetterCode(groupType), sequenceIndices[groupCount], 
+							secStructs[groupCount]);
+					reducedGroupsPerChain++;
+
+					String[] atomNames = full.getGroupAtomNames(groupType);
+					String[] elements = full.getGroupElementNames(groupType);
+					int[] charges = full.getGroupAtomCharges(groupType);
+					BitSet keepMask = selection.keepMask;
+					for (int l = keepMask.nextSetBit(0); l >= 0; l = keepMask.nextSetBit(l + 1)) {
+						int atomIndex = atomCount + l;
+						// Set Atom information
+						reduced.setAtomInfo(atomNames[l], atomIds[atomIndex], altLocIds[atomIndex], 
+								xCoords[atomIndex], yCoords[atomIndex], zCoords[atomIndex], 
+								occupancies[atomIndex], bFactors[atomIndex], elements[l], charges[l]);
 					}
+					atomCount += numAtomsInGroup;
 
-					if (bondsToAdd > 0){
-						
-						// Set bond information
-						for(int l=0; l<full.getGroupBondOrders(groupType).length; l++){
-							int index1 = full.getGroupBondIndices(groupType)[l*2];
-							int index2 = full.getGroupBondIndices(groupType)[l*2+1];
-							int bondOrder = full.getGroupBondOrders(groupType)[l];
-							reduced.setGroupBond(index1, index2, bondOrder);
-						}
+					// Set bond information
+					for (int l = 0; l < selection.bondOrders.length; l++) {
+						reduced.setGroupBond(selection.bondIndices[l*2], selection.bondIndices[l*2+1], selection.bondOrders[l]);
 					}
-				};
-				
+				}
+
 				// Set chain information
-				reduced.setChainInfo(full.getChainIds()[chainCount],
-						full.getChainNames()[chainCount], reducedGroupsPerChain );
+				reduced.setChainInfo(chainIds[chainCount], chainNames[chainCount], reducedGroupsPerChain);
 			}
 		}
 		
@@ -128,190 +192,206 @@ public class ReducedEncoder  implements Serializable {
 	 * Adds bonds between groups to the reduced data structure.
 	 * @param full full representation of structure
 	 * @param reduced reduced representation of structure
-	 * @param atomMap maps original atom indices to atom indices in the reduced structures
+	 * @param atomMap maps original atom indices to atom indices in the reduced structures, -1 for the atoms not kept
 	 */
-	private static void addInterGroupBonds(StructureDataInterface full, AdapterToStructureData reduced, Map<Integer, Integer> atomMap) {
-
-		for (int i = 0; i < full.getInterGroupBondOrders().length; i++) {
-			int bondIndOne = full.getInterGroupBondIndices()[i*2];
-			int bondIndTwo = full.getInterGroupBondIndices()[i*2+1];
-			int bondOrder = full.getInterGroupBondOrders()[i];
-			
+	private static void addInterGroupBonds(StructureDataInterface full, AdapterToStructureData reduced, int[] atomMap) {
+		int[] bondIndices = full.getInterGroupBondIndices();
+		int[] bondOrders = full.getInterGroupBondOrders();
+		for (int i = 0; i < bondOrders.length; i++) {
 			// some atoms may not exist in the reduced structure. 
 			// check the atom map to see if both atoms of a bond still exist.
-			Integer indexOne = atomMap.get(bondIndOne);
-			
-			if (indexOne != null) {
-				Integer indexTwo = atomMap.get(bondIndTwo);
-				if (indexTwo != null) {
-					reduced.setInterGroupBond(indexOne, indexTwo, bondOrder);
-				}
+			int indexOne = atomMap[bondIndices[i*2]];
+			int indexTwo = atomMap[bondIndices[i*2+1]];
+			if (indexOne >= 0 && indexTwo >= 0) {
+				reduced.setInterGroupBond(indexOne, indexTwo, bondOrders[i]);
 			}
 		}
 	}
 
 	/**
-	 * Gets the number of intramolecular bonds for a specified group type.
-	 * @param indicesToAdd the indices of the atoms to add
-	 * @param structureDataInterface the {@link StructureDataInterface} of the total structure
-	 * @param groupType the index of the groupType
-	 * @return the integer number of bonds to add
+	 * Finds the groups of the pocket of the ligands: the ligands (the non-polymer groups other than water)
+	 * and the polymer groups with an atom within a distance of a ligand atom of the same model.
+	 * The ligand atoms are put in a grid of cells of the size of the distance,
+	 * so that each polymer atom is only compared to the ligand atoms of the neighbouring cells.
+	 * @param structure the input {@link StructureDataInterface}
+	 * @param polymerChains for each chain, true if its entity is a polymer
+	 * @param distance the largest distance to a ligand atom
+	 * @return for each group, true if it is in the pocket
 	 */
-	private static int getNumIntraGroupBonds(Set<Integer> indicesToAdd, StructureDataInterface structureDataInterface, int groupType, Integer[] centerAtomIndices) {		
-	
-		if (indicesToAdd.size() == 1 && centerAtomIndices[groupType] != null) {
-			// in case there is only 1 atom (c-Alpha or P) and it's in a polymer, there cannot be any bonds
-			return 0;
-		} else if (indicesToAdd.size() == 0) {
-			return 0;
-		} else {
-			return structureDataInterface.getGroupBondOrders(groupType).length;
+	private static boolean[] getPocketGroups(StructureDataInterface structure, boolean[] polymerChains, float distance) {
+		HierarchyIndex hierarchyIndex = new HierarchyIndex(structure);
+		int[] groupTypeIndices = structure.getGroupTypeIndices();
+		int[] groupToChain = hierarchyIndex.getGroupToChainIndices();
+		int[] atomOffsets = hierarchyIndex.getAtomOffsets();
+		float[] x = structure.getxCoords();
+		float[] y = structure.getyCoords();
+		float[] z = structure.getzCoords();
+		boolean[] pocketGroups = new boolean[groupTypeIndices.length];
+		// The ligand atoms in each cell
+		Map<Long, int[]> cells = new HashMap<>();
+		for (int groupIndex = 0; groupIndex < groupTypeIndices.length; groupIndex++) {
+			if (polymerChains[groupToChain[groupIndex]] || StructureView.isWater(structure, groupTypeIndices[groupIndex])) {
+				continue;
+			}
+			pocketGroups[groupIndex] = true;
+			for (int atomIndex = atomOffsets[groupIndex]; atomIndex < atomOffsets[groupIndex + 1]; atomIndex++) {
+				long key = getCell(hierarchyIndex.getModelForAtom(atomIndex), (int) Math.floor(x[atomIndex] / distance),
+						(int) Math.floor(y[atomIndex] / distance), (int) Math.floor(z[atomIndex] / distance));
+				int[] cell = cells.get(key);
+				cell = cell == null ? new int[] {atomIndex} : appendAtom(cell, atomIndex);
+				cells.put(key, cell);
+			}
 		}
-	}
-
-	/**
-	 * Gets the number of chains, groups, atoms, and bonds in the reduced structure
-	 * @param structureDataInterface the input {@link StructureDataInterface}
-	 * @return the {@link SummaryData} object describing the data
-	 */
-	private static SummaryData getDataSummaryData(StructureDataInterface structureDataInterface, Integer[] centerAtomIndices) {
-		SummaryData summaryData = new SummaryData();
-		summaryData.numChains = 0;
-		summaryData.numGroups = 0;
-		summaryData.numAtoms = 0;
-		summaryData.numBonds = 0;
-	
-		for (int i = 0, groupCount = 0, chainCount = 0; i<structureDataInterface.getNumModels(); i++){
-			int numChains = structureDataInterface.getChainsPerModel()[i];
-			
-			for (int j = 0; j < numChains; j++, chainCount++){
-				summaryData.numChains++;
-				String chainType = EncoderUtils.getTypeFromChainId(structureDataInterface, chainCount);
-				
-				for (int k = 0; k < structureDataInterface.getGroupsPerChain()[chainCount]; k++, groupCount++){
-					int groupType = structureDataInterface.getGroupTypeIndices()[groupCount];
-					Set<Integer> indicesToAdd = getIndicesToAdd(structureDataInterface, groupType, chainType, centerAtomIndices);
-	
-					if (indicesToAdd.size() > 0) {
-						summaryData.numGroups++;
-					}
-					
-					for (int l = 0; l < structureDataInterface.getNumAtomsInGroup(groupType); l++){
-						if (indicesToAdd.contains(l)) {
-							summaryData.numAtoms++;
+		float squaredDistance = distance * distance;
+		for (int groupIndex = 0; groupIndex < groupTypeIndices.length; groupIndex++) {
+			if (!polymerChains[groupToChain[groupIndex]]) {
+				continue;
+			}
+			for (int atomIndex = atomOffsets[groupIndex]; atomIndex < atomOffsets[groupIndex + 1] && !pocketGroups[groupIndex]; atomIndex++) {
+				int modelIndex = hierarchyIndex.getModelForAtom(atomIndex);
+				int cellX = (int) Math.floor(x[atomIndex] / distance);
+				int cellY = (int) Math.floor(y[atomIndex] / distance);
+				int cellZ = (int) Math.floor(z[atomIndex] / distance);
+				for (int i = -1; i <= 1 && !pocketGroups[groupIndex]; i++) {
+					for (int j = -1; j <= 1 && !pocketGroups[groupIndex]; j++) {
+						for (int k = -1; k <= 1 && !pocketGroups[groupIndex]; k++) {
+							int[] cell = cells.get(getCell(modelIndex, cellX + i, cellY + j, cellZ + k));
+							if (cell == null) {
+								continue;
+							}
+							for (int ligandAtom : cell) {
+								float dx = x[atomIndex] - x[ligandAtom];
+								float dy = y[atomIndex] - y[ligandAtom];
+								float dz = z[atomIndex] - z[ligandAtom];
+								if (dx * dx + dy * dy + dz * dz <= squaredDistance) {
+									pocketGroups[groupIndex] = true;
+									break;
+								}
+							}
 						}
 					}
-
-					summaryData.numBonds+=getNumIntraGroupBonds(indicesToAdd, structureDataInterface, groupType, centerAtomIndices);
 				}
 			}
 		}
-		return summaryData;
+		return pocketGroups;
+	}
+
+	private static long getCell(int modelIndex, int cellX, int cellY, int cellZ) {
+		return ((long) modelIndex << 48) ^ ((long) (cellX & 0xFFFF) << 32) ^ ((long) (cellY & 0xFFFF) << 16) ^ (cellZ & 0xFFFF);
+	}
+
+	private static int[] appendAtom(int[] cell, int atomIndex) {
+		int[] newCell = Arrays.copyOf(cell, cell.length + 1);
+		newCell[cell.length] = atomIndex;
+		return newCell;
 	}
 
 	/**
-	 * Gets the indices of atoms to include in the reduced MMTF representation. 
-	 * This is C-alpha, phosphate (DNA/RNA) and all non-polymer atoms, except water.
-	 * @param structure the input {@link StructureDataInterface}
-	 * @param groupIndex the index of this group in the groupList
-	 * @param chainType the type of the chain (polymer, non-polymer, water).
-	 * @return the list of indices (within the group) of atoms to consider
+	 * The atoms kept in a group, and the bonds between them.
 	 */
-	private static Set<Integer> getIndicesToAdd(StructureDataInterface structure, int groupIndex,
-			String chainType, Integer[] centerAtomIndices) {
+	private static class GroupSelection {
 
-		Set<Integer> atomIndices = Collections.emptySet();
+		/** No atoms kept */
+		static final GroupSelection NONE = new GroupSelection(null, 0, new BitSet());
 
-		Integer atomIndex = centerAtomIndices[groupIndex];
+		final BitSet keepMask;
+		final int numAtoms;
+		final int[] bondIndices;
+		final int[] bondOrders;
 
-		// Get chain type
-		if (chainType.equals("polymer")) {
-			if (atomIndex != null){
-				// in this case, the atom index points to either the
-				// C-alpha or P atom in an amino acid or nucleotide
-				atomIndices = Collections.singleton(atomIndex);
-			} else {
-				// for all other non-standard residues, include all atoms
-				atomIndices = new HashSet<>(structure.getNumAtomsInGroup(groupIndex));
-				for(int i = 0; i < structure.getNumAtomsInGroup(groupIndex); i++) {
-					atomIndices.add(i);
+		GroupSelection(StructureDataInterface structure, int groupType, BitSet keepMask) {
+			this.keepMask = keepMask;
+			numAtoms = keepMask.cardinality();
+			if (numAtoms == 0) {
+				bondIndices = new int[0];
+				bondOrders = new int[0];
+				return;
+			}
+			// The index of each atom kept in the reduced group
+			int[] atomMap = new int[keepMask.length()];
+			for (int l = keepMask.nextSetBit(0), index = 0; l >= 0; l = keepMask.nextSetBit(l + 1)) {
+				atomMap[l] = index++;
+			}
+			int[] groupBondIndices = structure.getGroupBondIndices(groupType);
+			int[] groupBondOrders = structure.getGroupBondOrders(groupType);
+			int numBonds = 0;
+			for (int l = 0; l < groupBondOrders.length; l++) {
+				if (keepMask.get(groupBondIndices[l*2]) && keepMask.get(groupBondIndices[l*2+1])) {
+					numBonds++;
 				}
 			}
-			
-		} else if (! (structure.getGroupName(groupIndex).equals("HOH")
-				|| structure.getGroupName(groupIndex).equals("DOD"))) {
-			// Keep all non-polymer atoms, except for water.
-			// Water should be of type "water", however, a few structures (1ZY8, 2G10, 2Q44, 2Q40)
-			// contain waters as non-polymers. These structures have in common that water has
-			// alternative locations. Therefore, we check for "HOH" instead of polymer type water here
-			atomIndices = new HashSet<>(structure.getNumAtomsInGroup(groupIndex));
-			for (int i = 0; i < structure.getNumAtomsInGroup(groupIndex); i++){
-				atomIndices.add(i);
+			bondIndices = new int[numBonds*2];
+			bondOrders = new int[numBonds];
+			for (int l = 0, bondIndex = 0; l < groupBondOrders.length; l++) {
+				if (keepMask.get(groupBondIndices[l*2]) && keepMask.get(groupBondIndices[l*2+1])) {
+					bondIndices[bondIndex*2] = atomMap[groupBondIndices[l*2]];
+					bondIndices[bondIndex*2+1] = atomMap[groupBondIndices[l*2+1]];
+					bondOrders[bondIndex++] = groupBondOrders[l];
+				}
 			}
 		}
-
-		return atomIndices;
 	}
 
 	/**
-	 * Returns an index to the position to the C-alpha atom in a group with the specified group index.
-	 * @param structureDataInterface
-	 * @param groupIndex index of group
-	 * @return index of C-alpha atom if present, otherwise null
+	 * The atoms to keep in the groups of each group type, for groups in polymer and in other chains.
+	 * The selections are computed on first use and cached by group type index.
 	 */
-    private static Integer indexOfcAlpha(StructureDataInterface structureDataInterface, int groupIndex) {
-    	for(int i = 0; i<structureDataInterface.getNumAtomsInGroup(groupIndex); i++){
-			String atomName = structureDataInterface.getGroupAtomNames(groupIndex)[i];
-			String elementName = structureDataInterface.getGroupElementNames(groupIndex)[i];
-			
-			if (atomName.equals(CALPHA_NAME) && elementName.equals(CARBON_ELEMENT)) {
-				return i;
-			}
-    	}
-    	return null;
-    	
-    }
-    
-    /**
-     * Returns and index to the position of the P atom in a nucleotide group with the specified group index.
-     * @param structureDataInterface
-     * @param groupIndex index of group
-     * @return index of P atom if present, otherwise null
-     */
-    private static Integer indexOfpAtom(StructureDataInterface structureDataInterface, int groupIndex) {
-    	for(int i=0; i<structureDataInterface.getNumAtomsInGroup(groupIndex); i++){
-			String atomName = structureDataInterface.getGroupAtomNames(groupIndex)[i];
-			String elementName = structureDataInterface.getGroupElementNames(groupIndex)[i];
-			
-			if (atomName.equals(PHOSPHATE_NAME) && elementName.equals(PHOSPHATE_ELEMENT)) {
-				return i;
-			}
-    	}
-    	return null;
-    }
+	private static class GroupSelections {
+
+		private final StructureDataInterface structure;
+		private final ReductionProfile profile;
+		private final GroupSelection[] polymerSelections;
+		private final GroupSelection[] otherSelections;
+
+		GroupSelections(StructureDataInterface structure, ReductionProfile profile) {
+			this.structure = structure;
+			this.profile = profile;
+			int maxIndex = Arrays.stream(structure.getGroupTypeIndices()).max().orElse(-1);
+			polymerSelections = new GroupSelection[maxIndex + 1];
+			otherSelections = new GroupSelection[maxIndex + 1];
+		}
 
-    /**
-     * Returns an array of indices to either the c-alpha or phosphate atom position in a group. 
-     * Returns a null index if the group doesn't contain a c-alpha or phosphate atom.
-     * @param structure
-     */
-    private static Integer[] getCenterAtomGroupIndices(StructureDataInterface structure) {
-    	int maxIndex = 0;
+		GroupSelection get(int groupType, boolean polymer) {
+			GroupSelection[] selections = polymer ? polymerSelections : otherSelections;
+			if (selections[groupType] == null) {
+				BitSet keepMask = new BitSet(structure.getNumAtomsInGroup(groupType));
+				for (int atomIndex : profile.getAtomSelector().select(structure, groupType, polymer)) {
+					keepMask.set(atomIndex);
+				}
+				selections[groupType] = new GroupSelection(structure, groupType, keepMask);
+			}
+			return selections[groupType];
+		}
 
-    	for (int i = 0; i < structure.getGroupTypeIndices().length; i++) {
-    		maxIndex = Math.max(maxIndex,  structure.getGroupTypeIndices()[i]);
-    	}
-    	Integer[] centerAtomIndex = new Integer[maxIndex+1];
-    	
-    	for (int i = 0; i < maxIndex+1; i++) {
-    		Integer index = indexOfcAlpha(structure, i);
-    		if (index == null) {
-    			index = indexOfpAtom(structure, i);
-    		} 
-    		// index will be null if it's neither a c-alpha or P atom
-    		centerAtomIndex[i] = index;
-    	}
-    	return centerAtomIndex;
-    }
+		/**
+		 * Drop the atoms of the alternate locations other than the first one from the selection of a group.
+		 * @param selection the selection for the type of the group
+		 * @param groupType the type of the group
+		 * @param altLocIds the alternate location ids of the structure
+		 * @param firstAtom the index of the first atom of the group in the structure
+		 * @return the selection of the group - the type selection if the group has no other alternate location
+		 */
+		GroupSelection getFirstAltLoc(GroupSelection selection, int groupType, char[] altLocIds, int firstAtom) {
+			BitSet keepMask = selection.keepMask;
+			BitSet filtered = null;
+			char firstAltLoc = '\0';
+			for (int l = keepMask.nextSetBit(0); l >= 0; l = keepMask.nextSetBit(l + 1)) {
+				char altLoc = altLocIds[firstAtom + l];
+				if (altLoc == '\0') {
+					continue;
+				}
+				if (firstAltLoc == '\0') {
+					firstAltLoc = altLoc;
+				}
+				else if (altLoc != firstAltLoc) {
+					if (filtered == null) {
+						filtered = (BitSet) keepMask.clone();
+					}
+					filtered.clear(l);
+				}
+			}
+			return filtered == null ? selection : new GroupSelection(structure, groupType, filtered);
+		}
+	}
 
 }
@@ -0,0 +1,153 @@
+package org.rcsb.mmtf.encoder;
+
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+import org.rcsb.mmtf.decoder.StructureView;
+import org.rcsb.mmtf.decoder.StructureView.AtomSelector;
+
+/**
+ * The parts of a structure kept by the {@link ReducedEncoder}, and the precision they are encoded with.
+ * <p>
+ * The atoms kept are chosen per group type by an {@link AtomSelector}. The atoms of
+ * the alternate locations other than the first one of each group can be dropped, and the
+ * structure can be cut down to the pocket of its ligands: the ligands, and the polymer groups
+ * with an atom close to a ligand atom of the same model. Groups and chains left without atoms
+ * are dropped. The setters return the profile, so that they can be chained.
+ */
+public class ReductionProfile {
+
+	/** The precision of the reduced representation: 0.1 &#197; for the coordinates */
+	public static final int REDUCED_PRECISION = 10;
+
+	private AtomSelector atomSelector = StructureView.ALL_ATOMS;
+	private boolean firstAltLocOnly;
+	private float pocketDistance;
+	private int precision = MmtfStructure.COORD_DIVIDER;
+
+	/**
+	 * The reduced representation: the C-alpha atoms of the polypeptide and the P atoms of the
+	 * polynucleotide chains and the non-polymer groups other than water, at a precision of 0.1.
+	 * @return a new profile
+	 */
+	public static ReductionProfile reduced() {
+		return new ReductionProfile().setAtomSelector(StructureView.REDUCED).setPrecision(REDUCED_PRECISION);
+	}
+
+	/**
+	 * Only the C-alpha atoms of the polypeptide and the P atoms of the polynucleotide chains,
+	 * at a precision of 0.1.
+	 * @return a new profile
+	 */
+	public static ReductionProfile trace() {
+		return new ReductionProfile().setAtomSelector(StructureView.TRACE).setPrecision(REDUCED_PRECISION);
+	}
+
+	/**
+	 * The backbone atoms of the polymer chains, as selected by {@link StructureView#BACKBONE}.
+	 * @return a new profile
+	 */
+	public static ReductionProfile backbone() {
+		return new ReductionProfile().setAtomSelector(StructureView.BACKBONE);
+	}
+
+	/**
+	 * The atoms other than hydrogen and deuterium.
+	 * @return a new profile
+	 */
+	public static ReductionProfile heavyAtoms() {
+		return new ReductionProfile().setAtomSelector(StructureView.HEAVY_ATOMS);
+	}
+
+	/**
+	 * All the atoms except those of water molecules outside of polymer chains.
+	 * @return a new profile
+	 */
+	public static ReductionProfile noWaters() {
+		return new ReductionProfile().setAtomSelector((structure, groupType, polymer) ->
+				!polymer && StructureView.isWater(structure, groupType) ? new int[0]
+						: StructureView.ALL_ATOMS.select(structure, groupType, polymer));
+	}
+
+	/**
+	 * All the atoms, with only the first alternate location of each group.
+	 * @return a new profile
+	 */
+	public static ReductionProfile noAltLocs() {
+		return new ReductionProfile().setFirstAltLocOnly(true);
+	}
+
+	/**
+	 * The ligands and the polymer groups within a distance of them.
+	 * @param distance the largest distance in &#197; between an atom of a polymer group kept and a ligand atom
+	 * @return a new profile
+	 */
+	public static ReductionProfile ligandPocket(float distance) {
+		return new ReductionProfile().setPocketDistance(distance);
+	}
+
+	/**
+	 * @return the selector of the atoms to keep in each group type
+	 */
+	public AtomSelector getAtomSelector() {
+		return atomSelector;
+	}
+
+	/**
+	 * @param atomSelector the selector of the atoms to keep in each group type
+	 * @return the profile
+	 */
+	public ReductionProfile setAtomSelector(AtomSelector atomSelector) {
+		this.atomSelector = atomSelector;
+		return this;
+	}
+
+	/**
+	 * @return true if only the first alternate location of each group is kept
+	 */
+	public boolean isFirstAltLocOnly() {
+		return firstAltLocOnly;
+	}
+
+	/**
+	 * @param firstAltLocOnly true to keep only the first alternate location of each group
+	 * @return the profile
+	 */
+	public ReductionProfile setFirstAltLocOnly(boolean firstAltLocOnly) {
+		this.firstAltLocOnly = firstAltLocOnly;
+		return this;
+	}
+
+	/**
+	 * @return the distance in &#197; to the ligands of the polymer groups kept - 0 to keep all the groups
+	 */
+	public float getPocketDistance() {
+		return pocketDistance;
+	}
+
+	/**
+	 * Keep only the ligands (the non-polymer groups other than water) and the polymer groups
+	 * with an atom within a distance of a ligand atom.
+	 * @param pocketDistance the distance in &#197; - 0 to keep all the groups
+	 * @return the profile
+	 */
+	public ReductionProfile setPocketDistance(float pocketDistance) {
+		this.pocketDistance = pocketDistance;
+		return this;
+	}
+
+	/**
+	 * @return the precision (divider) of the coordinates, B-factors and occupancies when encoded
+	 */
+	public int getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * @param precision the precision (divider) of the coordinates, B-factors and occupancies when encoded,
+	 * as passed to {@link GenericEncoder#GenericEncoder(org.rcsb.mmtf.api.StructureDataInterface, int)}
+	 * @return the profile
+	 */
+	public ReductionProfile setPrecision(int precision) {
+		this.precision = precision;
+		return this;
+	}
+}
@@ -3,6 +3,7 @@ package org.rcsb.mmtf.codec;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
@@ -89,6 +90,42 @@ public class TestCodecs {
 		assertArrayEquals(expected, FloatCodecs.INT_DELTA_RECURSIVE.decode(FloatCodecs.INT_DELTA_RECURSIVE.encode(inputData, 10),10),0.0f);
 	}
 	
+	/**
+	 * Test that decoding the first values of an array gives the start of the whole array.
+	 */
+	@Test
+	public void testPrefixDecoding() {
+		float[] floats = {1.0f, 2.0f, 100.0f, 100.0f, -100.0f, 0.5f, 0.5f, 0.5f};
+		int[] ints = {1, 2, 3, 4, 10, 10, 12, -5};
+		char[] chars = {'A', 'A', '\0', 'B', 'B', 'B'};
+		for (FloatCodecs codec : FloatCodecs.values()) {
+			byte[] encoded = withHeader(codec.getCodecId(), floats.length, 1000, codec.encode(floats, 1000));
+			int[] decoded = FloatCodecs.decodeArrToInts(encoded);
+			for (int length = 0; length <= floats.length + 1; length++) {
+				assertArrayEquals(Arrays.copyOf(decoded, Math.min(length, floats.length)), FloatCodecs.decodeArrToInts(encoded, length));
+			}
+		}
+		for (IntCodecs codec : IntCodecs.values()) {
+			byte[] encoded = withHeader(codec.getCodecId(), ints.length, EncoderUtils.NULL_PARAM, codec.encode(ints, EncoderUtils.NULL_PARAM));
+			for (int length = 0; length <= ints.length + 1; length++) {
+				assertArrayEquals(Arrays.copyOf(ints, Math.min(length, ints.length)), IntCodecs.decodeArr(encoded, length));
+			}
+		}
+		for (CharCodecs codec : CharCodecs.values()) {
+			byte[] encoded = withHeader(codec.getCodecId(), chars.length, EncoderUtils.NULL_PARAM, codec.encode(chars, EncoderUtils.NULL_PARAM));
+			for (int length = 0; length <= chars.length + 1; length++) {
+				assertArrayEquals(Arrays.copyOf(chars, Math.min(length, chars.length)), CharCodecs.decodeArr(encoded, length));
+			}
+		}
+	}
+
+	private static byte[] withHeader(int codecId, int length, int param, byte[] encoded) {
+		byte[] header = new OptionParser(codecId, length, param).getHeader();
+		byte[] out = Arrays.copyOf(header, header.length + encoded.length);
+		System.arraycopy(encoded, 0, out, header.length, encoded.length);
+		return out;
+	}
+
 	/**
 	 * Get the character array data to test all the methods with.
 	 * @return a list of character arrays to be used as test data.
@@ -0,0 +1,140 @@
+package org.rcsb.mmtf.decoder;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A minimal HTTP server on the loopback interface, standing in for the MMTF servers in tests.
+ * Each connection is served on its own thread and carries a single request.
+ */
+public class LocalHttpServer implements Closeable {
+
+	/**
+	 * The handler of the requests.
+	 */
+	@FunctionalInterface
+	public interface Handler {
+		/**
+		 * @param path the path of the request
+		 * @param headers the headers of the request, with lower case names
+		 * @return the response
+		 * @throws Exception an error handling the request
+		 */
+		Response handle(String path, Map<String, String> headers) throws Exception;
+	}
+
+	/**
+	 * The response to a request.
+	 */
+	public static class Response {
+
+		private final int status;
+		private final byte[] body;
+		private final Map<String, String> headers = new LinkedHashMap<>();
+
+		/**
+		 * @param status the status code
+		 * @param body the body - empty if null
+		 */
+		public Response(int status, byte[] body) {
+			this.status = status;
+			this.body = body == null ? new byte[0] : body;
+		}
+
+		/**
+		 * @param name the name of a header
+		 * @param value its value
+		 * @return the response
+		 */
+		public Response withHeader(String name, String value) {
+			headers.put(name, value);
+			return this;
+		}
+	}
+
+	private final ServerSocket serverSocket;
+
+	/**
+	 * Start a server on a free port.
+	 * @param handler the handler of the requests
+	 * @throws IOException an error opening the server socket
+	 */
+	public LocalHttpServer(Handler handler) throws IOException {
+		serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread acceptor = new Thread(() -> {
+			while (!serverSocket.isClosed()) {
+				try {
+					Socket socket = serverSocket.accept();
+					Thread thread = new Thread(() -> serve(socket, handler));
+					thread.setDaemon(true);
+					thread.start();
+				}
+				catch (IOException e) {
+					// Closed
+				}
+			}
+		});
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * @param path a path on the server, e.g. "/full/4CUP"
+	 * @return the URL of the path
+	 * @throws MalformedURLException if the path is not valid
+	 */
+	public URL getUrl(String path) throws MalformedURLException {
+		return new URL("http://127.0.0.1:" + serverSocket.getLocalPort() + path);
+	}
+
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+	}
+
+	private static void serve(Socket socket, Handler handler) {
+		try (Socket s = socket) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.ISO_8859_1));
+			String path = reader.readLine().split(" ")[1];
+			Map<String, String> headers = new HashMap<>();
+			String line;
+			while ((line = reader.readLine()) != null && !line.isEmpty()) {
+				int colon = line.indexOf(':');
+				headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+			}
+			Response response;
+			try {
+				response = handler.handle(path, headers);
+			}
+			catch (Exception e) {
+				response = new Response(500, null);
+			}
+			StringBuilder head = new StringBuilder("HTTP/1.1 ").append(response.status).append(" Status\r\n");
+			for (Entry<String, String> header : response.headers.entrySet()) {
+				head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+			}
+			head.append("Content-Length: ").append(response.body.length).append("\r\nConnection: close\r\n\r\n");
+			OutputStream outputStream = s.getOutputStream();
+			outputStream.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+			outputStream.write(response.body);
+			outputStream.flush();
+		}
+		catch (IOException e) {
+			// The client went away
+		}
+	}
+}
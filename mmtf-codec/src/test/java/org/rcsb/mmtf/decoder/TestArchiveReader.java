@@ -0,0 +1,116 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rcsb.mmtf.codec.Utils;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+import org.rcsb.mmtf.encoder.ArchiveWriter;
+import org.rcsb.mmtf.encoder.WriterUtils;
+
+/**
+ * Test the archives written by the {@link ArchiveWriter} and read by the {@link ArchiveReader}.
+ */
+public class TestArchiveReader {
+
+	/**
+	 * A temporary folder for the archives.
+	 */
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	private static final String[] STRUCTURE_IDS = {"4CUP", "1O2F", "173D", "5MNX", "1AA6"};
+
+	/**
+	 * Test writing and reading back structures, compressed and not.
+	 * @throws IOException an error reading or writing the data
+	 */
+	@Test
+	public void testRoundTrip() throws IOException {
+		Path path = testFolder.newFile("archive.mmtfa").toPath();
+		try (ArchiveWriter writer = new ArchiveWriter(path, true)) {
+			for (int i = 0; i < STRUCTURE_IDS.length; i++) {
+				Path file = Utils.getResource("/mmtf/" + STRUCTURE_IDS[i] + ".mmtf");
+				if (i % 2 == 0) {
+					writer.add(STRUCTURE_IDS[i], ReaderUtils.getDataFromFile(file));
+				}
+				else {
+					writer.add(STRUCTURE_IDS[i], Files.readAllBytes(file));
+				}
+			}
+			writer.add(new GenericDecoder(ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/1IGT.mmtf"))));
+			try {
+				writer.add("4CUP", new byte[1]);
+				fail("A structure id can only be added once");
+			}
+			catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+		try (ArchiveReader reader = new ArchiveReader(path)) {
+			assertEquals(6, reader.size());
+			assertEquals(Arrays.asList("173D", "1AA6", "1IGT", "1O2F", "4CUP", "5MNX"), reader.getStructureIds());
+			// The raw data is returned as added
+			ByteBuffer buffer = reader.getBuffer("1O2F");
+			byte[] data = new byte[buffer.remaining()];
+			buffer.get(data);
+			assertArrayEquals(Files.readAllBytes(Utils.getResource("/mmtf/1O2F.mmtf")), data);
+			for (String structureId : STRUCTURE_IDS) {
+				MmtfStructure expected = ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/" + structureId + ".mmtf"));
+				MmtfStructure actual = reader.getData(structureId);
+				assertEquals(expected.getStructureId(), actual.getStructureId());
+				assertEquals(expected.getNumAtoms(), actual.getNumAtoms());
+				assertArrayEquals(expected.getxCoordList(), actual.getxCoordList());
+			}
+			assertEquals(new GenericDecoder(reader.getData("1IGT")).getNumAtoms(),
+					new GenericDecoder(ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/1IGT.mmtf"))).getNumAtoms());
+			assertTrue(reader.contains("5MNX"));
+			assertFalse(reader.contains("XXXX"));
+			assertNull(reader.getBuffer("XXXX"));
+			assertNull(reader.getData("XXXX"));
+			// Iterating gives the order of the data in the file
+			List<String> structureIds = new ArrayList<>();
+			for (String structureId : reader) {
+				structureIds.add(structureId);
+			}
+			assertEquals(Arrays.asList("4CUP", "1O2F", "173D", "5MNX", "1AA6", "1IGT"), structureIds);
+		}
+	}
+
+	/**
+	 * Test that files other than closed archives are rejected.
+	 * @throws IOException an error writing the files
+	 */
+	@Test
+	public void testInvalidArchive() throws IOException {
+		Path path = testFolder.newFile("notAnArchive").toPath();
+		Files.write(path, WriterUtils.gzipCompress(Files.readAllBytes(Utils.getResource("/mmtf/4CUP.mmtf"))));
+		try (ArchiveReader reader = new ArchiveReader(path)) {
+			fail("Not an archive");
+		}
+		catch (IOException e) {
+			// Expected
+		}
+		Path empty = testFolder.newFile("empty.mmtfa").toPath();
+		new ArchiveWriter(empty, false).close();
+		try (ArchiveReader reader = new ArchiveReader(empty)) {
+			assertEquals(0, reader.size());
+			assertFalse(reader.iterator().hasNext());
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rcsb.mmtf.codec.Utils;
+import org.rcsb.mmtf.encoder.WriterUtils;
+
+/**
+ * Test the {@link BatchLoader}.
+ */
+public class TestBatchLoader {
+
+	/**
+	 * A temporary folder for the files to load.
+	 */
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	/**
+	 * Test loading plain and compressed files, with a file that cannot be parsed.
+	 * @throws IOException an error writing the files
+	 */
+	@Test
+	public void testLoad() throws IOException {
+		Path directory = writeFiles();
+		List<Path> paths = BatchLoader.listFiles(directory);
+		assertEquals(21, paths.size());
+		// Small queues and single threads, to check that slow consumers hold back the loading
+		AtomicInteger numDecoded = new AtomicInteger();
+		BatchLoader loader = new BatchLoader().setReadThreads(1).setInflateThreads(1)
+				.setParseThreads(1).setDecodeThreads(1).setQueueCapacity(1)
+				.setDecoder(mmtfStructure -> {
+					numDecoded.incrementAndGet();
+					return new GenericDecoder(mmtfStructure);
+				});
+		Map<Path, BatchLoader.Result> results = new HashMap<>();
+		loader.load(paths, result -> {
+			if (results.isEmpty()) {
+				sleep(200);
+				// The structure consumed, the one in the output queue and the one waiting to be put in it
+				assertTrue(numDecoded.get() <= 3);
+			}
+			results.put(result.getPath(), result);
+		});
+		assertEquals(21, results.size());
+		assertEquals(20, numDecoded.get());
+		int expectedAtoms = new GenericDecoder(ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf"))).getNumAtoms();
+		for (Path path : paths) {
+			BatchLoader.Result result = results.get(path);
+			if (path.getFileName().toString().startsWith("BAD")) {
+				assertNull(result.getStructure());
+				assertNotNull(result.getException());
+			}
+			else {
+				assertNull(result.getException());
+				assertEquals(expectedAtoms, result.getStructure().getNumAtoms());
+			}
+		}
+	}
+
+	/**
+	 * Test iterating over the results and closing them early.
+	 * @throws IOException an error writing the files
+	 */
+	@Test
+	public void testIterator() throws IOException {
+		List<Path> paths = BatchLoader.listFiles(writeFiles());
+		List<String> structureIds = new ArrayList<>();
+		try (BatchLoader.Results results = new BatchLoader().setDecoder(LazyDecoder::new).load(paths)) {
+			while (results.hasNext()) {
+				BatchLoader.Result result = results.next();
+				if (result.getStructure() != null) {
+					structureIds.add(result.getStructure().getStructureId());
+				}
+			}
+		}
+		assertEquals(20, structureIds.size());
+		BatchLoader.Results results = new BatchLoader().load(paths);
+		assertNotNull(results.next());
+		results.close();
+		assertFalse(results.hasNext());
+	}
+
+	/**
+	 * Test that the loading threads stop with no files, and once the results run out.
+	 * @throws IOException an error writing the files
+	 */
+	@Test
+	public void testThreadsStop() throws IOException {
+		BatchLoader.Results empty = new BatchLoader().load(new ArrayList<>());
+		assertFalse(empty.hasNext());
+		assertEquals(0, countLoaderThreads());
+		List<Path> paths = BatchLoader.listFiles(writeFiles());
+		BatchLoader.Results results = new BatchLoader().setDecoder(LazyDecoder::new).load(paths);
+		while (results.hasNext()) {
+			results.next();
+		}
+		assertEquals(0, countLoaderThreads());
+	}
+
+	/**
+	 * Wait a few seconds at most for the loading threads to stop.
+	 * @return the number of loading threads still alive
+	 */
+	private static int countLoaderThreads() {
+		long count = 0;
+		for (int i = 0; i < 50; i++) {
+			count = Thread.getAllStackTraces().keySet().stream()
+					.filter(thread -> thread.getName().startsWith("mmtf-batch-loader-") && thread.isAlive()).count();
+			if (count == 0) {
+				break;
+			}
+			sleep(100);
+		}
+		return (int) count;
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private Path writeFiles() throws IOException {
+		Path directory = testFolder.newFolder().toPath();
+		byte[] data = Files.readAllBytes(Utils.getResource("/mmtf/4CUP.mmtf"));
+		byte[] compressed = WriterUtils.gzipCompress(data);
+		for (int i = 0; i < 10; i++) {
+			Files.write(directory.resolve("A" + i + ".mmtf"), data);
+			Path subDirectory = Files.createDirectories(directory.resolve("sub"));
+			Files.write(subDirectory.resolve("B" + i + ".mmtf.gz"), compressed);
+		}
+		Files.write(directory.resolve("BAD.mmtf"), new byte[] {1, 2, 3});
+		Files.write(directory.resolve("notes.txt"), new byte[] {1, 2, 3});
+		return directory;
+	}
+}
@@ -0,0 +1,76 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+import org.rcsb.mmtf.codec.FloatCodecs;
+import org.rcsb.mmtf.codec.Utils;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+import org.rcsb.mmtf.encoder.BlockGzipWriter;
+import org.rcsb.mmtf.encoder.WriterUtils;
+
+/**
+ * Test the blocked gzip container written by {@link BlockGzipWriter}.
+ */
+public class TestBlockGzipReader {
+
+	/**
+	 * Test that a container with many blocks can be read by a standard gzip stream
+	 * and inflated in parallel.
+	 * @throws IOException an error reading the data
+	 */
+	@Test
+	public void testRoundTrip() throws IOException {
+		byte[] data = Files.readAllBytes(Utils.getResource("/mmtf/4CUP.mmtf"));
+		byte[] compressed = BlockGzipWriter.compress(data, 1024, null);
+		assertTrue(BlockGzipReader.isBlockGzip(compressed));
+		assertFalse(BlockGzipReader.isBlockGzip(WriterUtils.gzipCompress(data)));
+		// Standard gzip readers see a single stream
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			byte[] buffer = new byte[4096];
+			int n;
+			while ((n = gzipInputStream.read(buffer)) > 0) {
+				bos.write(buffer, 0, n);
+			}
+		}
+		assertArrayEquals(data, bos.toByteArray());
+		BlockGzipReader reader = new BlockGzipReader(compressed);
+		assertEquals((data.length + 1023) / 1024 + 1, reader.getNumBlocks());
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			assertArrayEquals(data, reader.inflate(pool));
+		}
+		finally {
+			pool.shutdown();
+		}
+		assertArrayEquals(data, ReaderUtils.deflateGzip(compressed));
+		assertArrayEquals(Arrays.copyOfRange(data, 1000, 3100), reader.read(1000, 2100));
+	}
+
+	/**
+	 * Test that a single column can be read through the index.
+	 * @throws IOException an error reading the data
+	 */
+	@Test
+	public void testReadColumn() throws IOException {
+		MmtfStructure mmtfStructure = ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf"));
+		BlockGzipReader reader = new BlockGzipReader(BlockGzipWriter.compress(mmtfStructure));
+		assertTrue(reader.getColumnNames().contains("xCoordList"));
+		assertArrayEquals(new GenericDecoder(mmtfStructure).getxCoords(),
+				FloatCodecs.decodeArr(reader.readBinaryColumn("xCoordList")), 0.0f);
+		MmtfStructure readBack = ReaderUtils.getDataFromInputStream(new ByteArrayInputStream(reader.inflate()));
+		assertEquals(mmtfStructure.getNumAtoms(), readBack.getNumAtoms());
+	}
+}
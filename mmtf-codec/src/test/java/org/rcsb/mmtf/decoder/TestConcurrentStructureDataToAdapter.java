@@ -0,0 +1,58 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.rcsb.mmtf.codec.Utils;
+import org.rcsb.mmtf.encoder.AdapterToStructureData;
+
+/**
+ * Test that the {@link ConcurrentStructureDataToAdapter} works.
+ */
+public class TestConcurrentStructureDataToAdapter {
+
+	/**
+	 * Check that the data passed in parallel is the same as the input,
+	 * for a structure with many chains and for a multi-model structure.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testSameAsInput() throws IOException {
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			for (String pdbId : new String[] {"4CUP", "1O2F"}) {
+				GenericDecoder genericDecoder = new GenericDecoder(ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/" + pdbId + ".mmtf")));
+				AdapterToStructureData adapterToStructureData = new AdapterToStructureData();
+				new ConcurrentStructureDataToAdapter(genericDecoder, adapterToStructureData, executorService);
+				assertEquals(genericDecoder.getNumAtoms(), adapterToStructureData.getNumAtoms());
+				assertEquals(genericDecoder.getNumBonds(), adapterToStructureData.getNumBonds());
+				assertArrayEquals(genericDecoder.getChainsPerModel(), adapterToStructureData.getChainsPerModel());
+				assertArrayEquals(genericDecoder.getGroupsPerChain(), adapterToStructureData.getGroupsPerChain());
+				assertArrayEquals(genericDecoder.getChainIds(), adapterToStructureData.getChainIds());
+				assertArrayEquals(genericDecoder.getChainNames(), adapterToStructureData.getChainNames());
+				assertArrayEquals(genericDecoder.getGroupIds(), adapterToStructureData.getGroupIds());
+				assertArrayEquals(genericDecoder.getSecStructList(), adapterToStructureData.getSecStructList());
+				assertArrayEquals(genericDecoder.getxCoords(), adapterToStructureData.getxCoords(), 0.0f);
+				assertArrayEquals(genericDecoder.getOccupancies(), adapterToStructureData.getOccupancies(), 0.0f);
+				assertArrayEquals(genericDecoder.getAtomIds(), adapterToStructureData.getAtomIds());
+				assertArrayEquals(genericDecoder.getInterGroupBondIndices(), adapterToStructureData.getInterGroupBondIndices());
+				for (int i = 0; i < genericDecoder.getNumGroups(); i++) {
+					int groupType = genericDecoder.getGroupTypeIndices()[i];
+					int otherGroupType = adapterToStructureData.getGroupTypeIndices()[i];
+					assertEquals(genericDecoder.getGroupName(groupType), adapterToStructureData.getGroupName(otherGroupType));
+					assertArrayEquals(genericDecoder.getGroupAtomNames(groupType), adapterToStructureData.getGroupAtomNames(otherGroupType));
+					assertArrayEquals(genericDecoder.getGroupBondIndices(groupType), adapterToStructureData.getGroupBondIndices(otherGroupType));
+					assertArrayEquals(genericDecoder.getGroupBondOrders(groupType), adapterToStructureData.getGroupBondOrders(otherGroupType));
+				}
+			}
+		}
+		finally {
+			executorService.shutdown();
+		}
+	}
+}
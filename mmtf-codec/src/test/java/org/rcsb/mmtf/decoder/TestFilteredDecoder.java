@@ -0,0 +1,109 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.rcsb.mmtf.api.StructureDataInterface;
+import org.rcsb.mmtf.codec.Utils;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+import org.rcsb.mmtf.encoder.GenericEncoder;
+
+/**
+ * Test that the {@link FilteredDecoder} works.
+ */
+public class TestFilteredDecoder {
+
+	/**
+	 * Check that the default options keep everything.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testKeepAll() throws IOException {
+		MmtfStructure mmtfBean = ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf"));
+		GenericDecoder genericDecoder = new GenericDecoder(mmtfBean);
+		StructureDataInterface filtered = FilteredDecoder.decode(mmtfBean, new DecoderOptions());
+		assertEquals(genericDecoder.getNumAtoms(), filtered.getNumAtoms());
+		assertEquals(genericDecoder.getNumBonds(), filtered.getNumBonds());
+		assertArrayEquals(genericDecoder.getxCoords(), filtered.getxCoords(), 0.0f);
+		assertArrayEquals(genericDecoder.getbFactors(), filtered.getbFactors(), 0.0f);
+		assertArrayEquals(genericDecoder.getOccupancies(), filtered.getOccupancies(), 0.0f);
+		assertArrayEquals(genericDecoder.getAtomIds(), filtered.getAtomIds());
+		assertArrayEquals(genericDecoder.getGroupsPerChain(), filtered.getGroupsPerChain());
+		assertArrayEquals(genericDecoder.getInterGroupBondIndices(), filtered.getInterGroupBondIndices());
+		assertEquals(genericDecoder.getNumEntities(), filtered.getNumEntities());
+		// The result can be encoded again
+		Utils.compare(filtered);
+	}
+
+	/**
+	 * Check the filters on chains and atoms.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testFilters() throws IOException {
+		MmtfStructure mmtfBean = ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf"));
+		GenericDecoder genericDecoder = new GenericDecoder(mmtfBean);
+		StructureDataInterface filtered = FilteredDecoder.decode(mmtfBean, new DecoderOptions()
+				.setModelIndex(0).setPolymerChainsOnly(true).setExcludeHydrogens(true).setFirstAltLocOnly(true));
+		assertTrue(filtered.getNumChains() < genericDecoder.getNumChains());
+		assertEquals(1, filtered.getNumModels());
+		for (int i = 0; i < filtered.getNumEntities(); i++) {
+			assertEquals("polymer", filtered.getEntityType(i));
+		}
+		// No hydrogens and a single alternate location per group
+		int atomIndex = 0;
+		for (int groupIndex = 0; groupIndex < filtered.getNumGroups(); groupIndex++) {
+			int groupType = filtered.getGroupTypeIndices()[groupIndex];
+			char altLoc = '\0';
+			for (int i = 0; i < filtered.getNumAtomsInGroup(groupType); i++, atomIndex++) {
+				assertNotEquals("H", filtered.getGroupElementNames(groupType)[i]);
+				char atomAltLoc = filtered.getAltLocIds()[atomIndex];
+				if (atomAltLoc != '\0') {
+					if (altLoc == '\0') {
+						altLoc = atomAltLoc;
+					}
+					assertEquals(altLoc, atomAltLoc);
+				}
+			}
+		}
+		assertEquals(filtered.getNumAtoms(), atomIndex);
+		// The bonds only refer to the atoms kept
+		for (int bondAtom : filtered.getInterGroupBondIndices()) {
+			assertTrue(bondAtom < filtered.getNumAtoms());
+		}
+		StructureDataInterface roundTrip = new GenericDecoder(new GenericEncoder(filtered).getMmtfEncodedStructure());
+		assertEquals(filtered.getNumBonds(), roundTrip.getNumBonds());
+	}
+
+	/**
+	 * Check that a single model of an NMR ensemble can be kept.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testModel() throws IOException {
+		MmtfStructure mmtfBean = ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/1O2F.mmtf"));
+		GenericDecoder genericDecoder = new GenericDecoder(mmtfBean);
+		assertTrue(genericDecoder.getNumModels() > 1);
+		StructureDataInterface filtered = FilteredDecoder.decode(mmtfBean, new DecoderOptions().setModelIndex(1));
+		HierarchyIndex hierarchyIndex = new HierarchyIndex(genericDecoder);
+		int firstAtom = hierarchyIndex.getFirstAtomInModel(1);
+		assertEquals(1, filtered.getNumModels());
+		assertEquals(hierarchyIndex.getFirstAtomInModel(2) - firstAtom, filtered.getNumAtoms());
+		assertEquals(genericDecoder.getyCoords()[firstAtom], filtered.getyCoords()[0], 0.0f);
+		assertEquals(genericDecoder.getChainsPerModel()[1], filtered.getNumChains());
+		// The first model: the columns are decoded up to its last atom only
+		filtered = FilteredDecoder.decode(mmtfBean, new DecoderOptions().setModelIndex(0));
+		int numAtoms = hierarchyIndex.getFirstAtomInModel(1);
+		assertEquals(numAtoms, filtered.getNumAtoms());
+		assertArrayEquals(Arrays.copyOf(genericDecoder.getxCoords(), numAtoms), filtered.getxCoords(), 0.0f);
+		assertArrayEquals(Arrays.copyOf(genericDecoder.getOccupancies(), numAtoms), filtered.getOccupancies(), 0.0f);
+		assertArrayEquals(Arrays.copyOf(genericDecoder.getAtomIds(), numAtoms), filtered.getAtomIds());
+		assertArrayEquals(Arrays.copyOf(genericDecoder.getAltLocIds(), numAtoms), filtered.getAltLocIds());
+	}
+}
@@ -1,5 +1,6 @@
 package org.rcsb.mmtf.decoder;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import java.beans.IntrospectionException;
@@ -8,6 +9,7 @@ import java.beans.PropertyDescriptor;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.text.ParseException;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Test;
 import org.rcsb.mmtf.codec.Utils;
@@ -50,6 +52,18 @@ public class TestGenericDecoder {
 		}
 	}
 
+	/**
+	 * Check that decoding the columns in parallel gives the same data as decoding sequentially.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testParallelDecode() throws IOException {
+		MmtfStructure mmtfBean = ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf"));
+		GenericDecoder parallelDecoder = new GenericDecoder(mmtfBean, ForkJoinPool.commonPool(), 0);
+		Utils.compareStructDataInfs(new GenericDecoder(mmtfBean), parallelDecoder);
+		assertEquals(new GenericDecoder(mmtfBean).getNumBonds(), parallelDecoder.getNumBonds());
+	}
+
 	/**
 	 * Test that we can pass data into the inflator.
 	 */
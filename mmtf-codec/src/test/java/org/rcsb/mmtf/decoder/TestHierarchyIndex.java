@@ -0,0 +1,53 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.rcsb.mmtf.api.StructureDataInterface;
+import org.rcsb.mmtf.codec.Utils;
+
+/**
+ * Test that the {@link HierarchyIndex} works.
+ */
+public class TestHierarchyIndex {
+
+	/**
+	 * Check the index against a walk through the counts of the structure.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testAgainstCounts() throws IOException {
+		StructureDataInterface structure = new GenericDecoder(ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf")));
+		HierarchyIndex index = new HierarchyIndex(structure);
+		assertEquals(structure.getNumModels() + 1, index.getChainOffsets().length);
+		assertEquals(structure.getNumChains(), index.getChainOffsets()[structure.getNumModels()]);
+		assertEquals(structure.getNumGroups(), index.getGroupOffsets()[structure.getNumChains()]);
+		assertEquals(structure.getNumAtoms(), index.getAtomOffsets()[structure.getNumGroups()]);
+		int chainIndex = 0;
+		int groupIndex = 0;
+		int atomIndex = 0;
+		for (int modelIndex = 0; modelIndex < structure.getNumModels(); modelIndex++) {
+			assertEquals(chainIndex, index.getChainOffsets()[modelIndex]);
+			assertEquals(atomIndex, index.getFirstAtomInModel(modelIndex));
+			for (int i = 0; i < structure.getChainsPerModel()[modelIndex]; i++, chainIndex++) {
+				assertEquals(modelIndex, index.getChainToModelIndices()[chainIndex]);
+				assertEquals(groupIndex, index.getGroupOffsets()[chainIndex]);
+				int firstAtomInChain = atomIndex;
+				assertEquals(firstAtomInChain, index.getFirstAtomInChain(chainIndex));
+				for (int j = 0; j < structure.getGroupsPerChain()[chainIndex]; j++, groupIndex++) {
+					assertEquals(chainIndex, index.getGroupToChainIndices()[groupIndex]);
+					assertEquals(atomIndex, index.getAtomOffsets()[groupIndex]);
+					int numAtoms = structure.getNumAtomsInGroup(structure.getGroupTypeIndices()[groupIndex]);
+					for (int k = 0; k < numAtoms; k++, atomIndex++) {
+						assertEquals(groupIndex, index.getAtomToGroupIndices()[atomIndex]);
+						assertEquals(chainIndex, index.getChainForAtom(atomIndex));
+						assertEquals(modelIndex, index.getModelForAtom(atomIndex));
+					}
+				}
+				assertEquals(atomIndex - firstAtomInChain, index.getNumAtomsInChain(chainIndex));
+			}
+		}
+	}
+}
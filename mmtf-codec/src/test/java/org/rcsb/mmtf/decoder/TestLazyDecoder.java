@@ -0,0 +1,66 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.rcsb.mmtf.codec.Utils;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+
+/**
+ * Test that the {@link LazyDecoder} works.
+ */
+public class TestLazyDecoder {
+
+	/**
+	 * Check that the lazy decoder gives the same data as the {@link GenericDecoder}.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testSameAsGeneric() throws IOException {
+		MmtfStructure mmtfBean = ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf"));
+		LazyDecoder lazyDecoder = new LazyDecoder(mmtfBean);
+		GenericDecoder genericDecoder = new GenericDecoder(mmtfBean);
+		assertEquals(genericDecoder.getNumAtoms(), lazyDecoder.getNumAtoms());
+		assertFalse(lazyDecoder.isDecoded("xCoordList"));
+		Utils.compareStructDataInfs(genericDecoder, lazyDecoder);
+		assertTrue(lazyDecoder.isDecoded("xCoordList"));
+		assertEquals(genericDecoder.getNumBonds(), lazyDecoder.getNumBonds());
+	}
+
+	/**
+	 * Check that only the accessed columns are decoded, once, when accessed from several threads.
+	 * @throws Exception an error reading in data or in a thread
+	 */
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		MmtfStructure mmtfBean = ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf"));
+		LazyDecoder lazyDecoder = new LazyDecoder(mmtfBean);
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<float[]>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executorService.submit((Callable<float[]>) lazyDecoder::getxCoords));
+			}
+			float[] first = futures.get(0).get();
+			for (Future<float[]> future : futures) {
+				assertSame(first, future.get());
+			}
+		}
+		finally {
+			executorService.shutdown();
+		}
+		assertFalse(lazyDecoder.isDecoded("bFactorList"));
+		assertFalse(lazyDecoder.isDecoded("bondAtomList"));
+	}
+}
@@ -0,0 +1,124 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rcsb.mmtf.codec.Utils;
+import org.rcsb.mmtf.encoder.WriterUtils;
+
+/**
+ * Test the {@link LocalMirror} and its use by {@link ReaderUtils}.
+ */
+public class TestLocalMirror {
+
+	/**
+	 * A temporary folder for the mirrors.
+	 */
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	/**
+	 * Test finding the files of flat and hashed mirrors.
+	 * @throws IOException an error writing or reading the files
+	 */
+	@Test
+	public void testLayouts() throws IOException {
+		byte[] data = Files.readAllBytes(Utils.getResource("/mmtf/4CUP.mmtf"));
+		Path flat = testFolder.newFolder("flat").toPath();
+		Files.write(flat.resolve("4CUP.mmtf.gz"), WriterUtils.gzipCompress(data));
+		Files.write(flat.resolve("1o2f.mmtf"), data);
+		LocalMirror flatMirror = new LocalMirror(flat, LocalMirror.Layout.FLAT);
+		assertEquals(flat.resolve("4CUP.mmtf.gz"), flatMirror.getPath("4cup", false));
+		assertEquals(flat.resolve("1o2f.mmtf"), flatMirror.getPath("1O2F", false));
+		assertNull(flatMirror.getPath("1AA6", false));
+		assertNull(flatMirror.getPath("4CUP", true));
+		assertArrayEquals(data, flatMirror.getData("1O2F", false));
+		assertNull(flatMirror.getData("1AA6", false));
+
+		Path full = testFolder.newFolder("full").toPath();
+		Path reduced = testFolder.newFolder("reduced").toPath();
+		Files.createDirectories(full.resolve("cu"));
+		Files.write(full.resolve("cu").resolve("4cup.mmtf"), data);
+		Files.createDirectories(reduced.resolve("cu"));
+		Files.write(reduced.resolve("cu").resolve("4CUP.mmtf.gz"), WriterUtils.gzipCompress(data));
+		LocalMirror hashedMirror = new LocalMirror(full, reduced, LocalMirror.Layout.HASHED);
+		assertEquals(full.resolve("cu").resolve("4cup.mmtf"), hashedMirror.getPath("4CUP", false));
+		assertEquals(reduced.resolve("cu").resolve("4CUP.mmtf.gz"), hashedMirror.getPath("4CUP", true));
+		assertNull(hashedMirror.getPath("1O2F", false));
+	}
+
+	/**
+	 * Test that {@link ReaderUtils} reads from a mirror, compressed or not, before the servers.
+	 * @throws IOException an error writing or reading the files
+	 */
+	@Test
+	public void testReaderUtils() throws IOException {
+		byte[] data = Files.readAllBytes(Utils.getResource("/mmtf/4CUP.mmtf"));
+		Path full = testFolder.newFolder("full").toPath();
+		Files.write(full.resolve("4CUP.mmtf"), data);
+		Files.write(full.resolve("1O2F.mmtf.gz"), WriterUtils.gzipCompress(Files.readAllBytes(Utils.getResource("/mmtf/1O2F.mmtf"))));
+		EntryResolver[] previous = ReaderUtils.getEntryResolvers();
+		try {
+			ReaderUtils.setEntryResolvers(new LocalMirror(full, LocalMirror.Layout.FLAT));
+			assertEquals(1107, new GenericDecoder(ReaderUtils.getDataFromUrl("4CUP")).getNumAtoms());
+			assertEquals("1O2F", ReaderUtils.getDataFromUrl("1O2F").getStructureId());
+			byte[] bytes = ReaderUtils.getByteArrayFromUrl("4CUP");
+			assertTrue(ReaderUtils.isGzip(bytes));
+			assertArrayEquals(data, ReaderUtils.deflateGzip(bytes));
+		}
+		finally {
+			ReaderUtils.setEntryResolvers(previous);
+		}
+	}
+
+	/**
+	 * Test that the ids cannot reach files outside of the mirror.
+	 * @throws IOException an error writing the files
+	 */
+	@Test
+	public void testInvalidIds() throws IOException {
+		Path root = testFolder.newFolder("root").toPath();
+		Path full = Files.createDirectory(root.resolve("full"));
+		Files.write(root.resolve("SECRET.mmtf"), new byte[] {1});
+		LocalMirror mirror = new LocalMirror(full, LocalMirror.Layout.FLAT);
+		for (String pdbId : new String[] {"../SECRET", "..", "4CUP/../../SECRET", ""}) {
+			try {
+				mirror.getData(pdbId, false);
+				fail("Invalid PDB id: " + pdbId);
+			}
+			catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	/**
+	 * Test that an invalid layout set by the system properties fails the reads.
+	 */
+	@Test
+	public void testInvalidLayoutProperty() {
+		System.setProperty(LocalMirror.FULL_PROPERTY, testFolder.getRoot().toString());
+		System.setProperty(LocalMirror.LAYOUT_PROPERTY, "nested");
+		try {
+			LocalMirror.fromSystemProperties();
+			fail("The layout is not valid");
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage().contains("nested"));
+		}
+		finally {
+			System.clearProperty(LocalMirror.FULL_PROPERTY);
+			System.clearProperty(LocalMirror.LAYOUT_PROPERTY);
+		}
+	}
+}
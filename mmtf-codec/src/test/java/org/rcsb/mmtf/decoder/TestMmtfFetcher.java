@@ -0,0 +1,152 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rcsb.mmtf.codec.Utils;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+import org.rcsb.mmtf.encoder.WriterUtils;
+
+/**
+ * Test the {@link MmtfFetcher} against a local HTTP server.
+ */
+public class TestMmtfFetcher {
+
+	private LocalHttpServer server;
+	private final AtomicInteger numRequests = new AtomicInteger();
+	private final AtomicInteger numFlakyRequests = new AtomicInteger();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	/**
+	 * Start a server giving the test structures under /full/, GZIP compressed or not,
+	 * with a "FLAKY" structure failing twice before it is given.
+	 * @throws IOException an error starting the server
+	 */
+	@Before
+	public void startServer() throws IOException {
+		server = new LocalHttpServer((path, headers) -> {
+			numRequests.incrementAndGet();
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(20);
+				String pdbId = path.substring(path.lastIndexOf('/') + 1);
+				if (pdbId.equals("FLAKY")) {
+					if (numFlakyRequests.incrementAndGet() <= 2) {
+						return new LocalHttpServer.Response(503, "Busy".getBytes());
+					}
+					pdbId = "4CUP";
+				}
+				if (!pdbId.matches("[0-9A-Z]{4}")) {
+					return new LocalHttpServer.Response(404, "Not found".getBytes());
+				}
+				byte[] data = Files.readAllBytes(Utils.getResource("/mmtf/" + pdbId + ".mmtf"));
+				return new LocalHttpServer.Response(200, pdbId.startsWith("1") ? data : WriterUtils.gzipCompress(data));
+			}
+			finally {
+				inFlight.decrementAndGet();
+			}
+		});
+	}
+
+	/**
+	 * Stop the server.
+	 * @throws IOException an error closing the server socket
+	 */
+	@After
+	public void stopServer() throws IOException {
+		server.close();
+	}
+
+	/**
+	 * Test fetching many structures with a bounded number of requests in flight.
+	 * @throws Exception an error fetching the data
+	 */
+	@Test
+	public void testFetchAll() throws Exception {
+		List<String> pdbIds = Arrays.asList("4CUP", "1O2F", "173D", "1AA6", "5MNX", "1IGT", "4CUP");
+		try (MmtfFetcher fetcher = new MmtfFetcher(2).setBaseUrl(server.getUrl("/full/").toString())) {
+			Map<String, CompletableFuture<MmtfStructure>> futures = fetcher.fetchAll(pdbIds);
+			assertEquals(6, futures.size());
+			for (Map.Entry<String, CompletableFuture<MmtfStructure>> entry : futures.entrySet()) {
+				MmtfStructure expected = ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/" + entry.getKey() + ".mmtf"));
+				MmtfStructure actual = entry.getValue().get();
+				assertEquals(expected.getStructureId(), actual.getStructureId());
+				assertEquals(expected.getNumAtoms(), actual.getNumAtoms());
+			}
+		}
+		assertEquals(6, numRequests.get());
+		assertTrue(maxInFlight.get() <= 2);
+	}
+
+	/**
+	 * Test that server errors are retried, and that missing structures are not.
+	 * @throws Exception an error fetching the data
+	 */
+	@Test
+	public void testRetries() throws Exception {
+		try (MmtfFetcher fetcher = new MmtfFetcher().setBaseUrl(server.getUrl("/full/").toString()).setRetryDelay(10)) {
+			assertEquals(1107, fetcher.fetch("FLAKY").get().getNumAtoms());
+			assertEquals(3, numRequests.get());
+			try {
+				fetcher.fetch("missing").get();
+				fail("The structure is not on the server");
+			}
+			catch (ExecutionException e) {
+				assertEquals(404, ((MmtfFetcher.HttpStatusException) e.getCause()).getStatus());
+			}
+			assertEquals(4, numRequests.get());
+			numFlakyRequests.set(0);
+			fetcher.setMaxRetries(1);
+			try {
+				fetcher.fetch("FLAKY").get();
+				fail("The server fails more often than retried");
+			}
+			catch (ExecutionException e) {
+				assertEquals(503, ((MmtfFetcher.HttpStatusException) e.getCause()).getStatus());
+			}
+			assertEquals(6, numRequests.get());
+		}
+	}
+
+	/**
+	 * Test that closing the fetcher fails the structures still queued or being fetched,
+	 * and the structures fetched after it is closed.
+	 * @throws Exception an error fetching the data
+	 */
+	@Test
+	public void testClose() throws Exception {
+		List<CompletableFuture<MmtfStructure>> futures = new ArrayList<>();
+		MmtfFetcher fetcher = new MmtfFetcher(1).setBaseUrl(server.getUrl("/full/").toString());
+		for (String pdbId : Arrays.asList("4CUP", "1O2F", "173D")) {
+			futures.add(fetcher.fetch(pdbId));
+		}
+		fetcher.close();
+		futures.add(fetcher.fetch("1AA6"));
+		for (CompletableFuture<MmtfStructure> future : futures) {
+			try {
+				future.get(5, TimeUnit.SECONDS);
+				fail("The fetcher is closed");
+			}
+			catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof RejectedExecutionException);
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.rcsb.mmtf.codec.Utils;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+
+/**
+ * Test that the {@link OffHeapStructureData} works.
+ */
+public class TestOffHeapStructureData {
+
+	/**
+	 * Check that the off-heap data is the same as the decoded data, whichever way it is built.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testSameAsGeneric() throws IOException {
+		MmtfStructure mmtfBean = ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf"));
+		GenericDecoder genericDecoder = new GenericDecoder(mmtfBean);
+		try (OffHeapStructureData fromStructure = new OffHeapStructureData(mmtfBean);
+				OffHeapStructureData fromDecoder = new OffHeapStructureData(genericDecoder);
+				OffHeapStructureData fromFile = OffHeapStructureData.fromFile(Utils.getResource("/mmtf/4CUP.mmtf"))) {
+			Utils.compareStructDataInfs(genericDecoder, fromStructure);
+			Utils.compareStructDataInfs(genericDecoder, fromDecoder);
+			Utils.compareStructDataInfs(genericDecoder, fromFile);
+			assertEquals(genericDecoder.getNumBonds(), fromStructure.getNumBonds());
+			assertEquals(genericDecoder.getxCoords()[10], fromStructure.getxCoord(10), 0.0f);
+			assertEquals(genericDecoder.getNumAtoms(), fromStructure.getxCoordBuffer().remaining());
+			assertTrue(fromStructure.getOffHeapSize() > genericDecoder.getNumAtoms() * 5 * Float.BYTES);
+			// The small group and bond columns are not copied on each call
+			assertSame(fromStructure.getInterGroupBondIndices(), fromStructure.getInterGroupBondIndices());
+			assertSame(fromStructure.getGroupTypeIndices(), fromStructure.getGroupTypeIndices());
+		}
+	}
+
+	/**
+	 * Check that the data cannot be accessed once released.
+	 * @throws IOException an error reading in data
+	 */
+	@Test(expected=IllegalStateException.class)
+	public void testClose() throws IOException {
+		MmtfStructure mmtfBean = ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf"));
+		OffHeapStructureData offHeapStructureData = new OffHeapStructureData(mmtfBean);
+		offHeapStructureData.close();
+		assertTrue(offHeapStructureData.isClosed());
+		offHeapStructureData.getxCoordBuffer();
+	}
+
+	/**
+	 * Check that the buffers taken before the data is released stay valid.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testViewsAfterClose() throws IOException {
+		MmtfStructure mmtfBean = ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf"));
+		float[] expected = new GenericDecoder(mmtfBean).getxCoords();
+		OffHeapStructureData offHeapStructureData = new OffHeapStructureData(mmtfBean);
+		FloatBuffer x = offHeapStructureData.getxCoordBuffer();
+		offHeapStructureData.close();
+		// Memory that could reuse the columns if they had been freed
+		List<ByteBuffer> others = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			ByteBuffer other = ByteBuffer.allocateDirect(expected.length * Float.BYTES);
+			while (other.hasRemaining()) {
+				other.put((byte) 0x7f);
+			}
+			others.add(other);
+		}
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], x.get(i), 0.0f);
+		}
+		assertEquals(16, others.size());
+		try {
+			offHeapStructureData.getxCoord(0);
+			fail("The data is released");
+		}
+		catch (IllegalStateException e) {
+			// Expected
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.rcsb.mmtf.api.StructureDataInterface;
+import org.rcsb.mmtf.codec.Utils;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+import org.rcsb.mmtf.encoder.GenericEncoder;
+import org.rcsb.mmtf.encoder.ReducedEncoder;
+
+/**
+ * Test that the {@link QuantizedStructureData} works.
+ */
+public class TestQuantizedStructureData {
+
+	/**
+	 * Check that the quantized data is the same as the decoded data, whichever way it is built.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testSameAsGeneric() throws IOException {
+		MmtfStructure mmtfBean = ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf"));
+		GenericDecoder genericDecoder = new GenericDecoder(mmtfBean);
+		QuantizedStructureData fromStructure = new QuantizedStructureData(mmtfBean);
+		QuantizedStructureData fromDecoder = new QuantizedStructureData(genericDecoder);
+		Utils.compareStructDataInfs(genericDecoder, fromStructure);
+		Utils.compareStructDataInfs(genericDecoder, fromDecoder);
+		assertEquals(genericDecoder.getNumBonds(), fromStructure.getNumBonds());
+		assertEquals(genericDecoder.getzCoords()[10], fromStructure.getzCoord(10), 0.0f);
+		assertEquals(MmtfStructure.COORD_DIVIDER, fromStructure.getCoordDivider());
+		assertEquals(MmtfStructure.OCCUPANCY_BFACTOR_DIVIDER, fromStructure.getbFactorDivider());
+		assertTrue(fromStructure.getQuantizedSize() <= genericDecoder.getNumAtoms() * 5 * Float.BYTES);
+	}
+
+	/**
+	 * Check that the coordinates of reduced data are held in 16 bits.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testReduced() throws IOException {
+		MmtfStructure mmtfBean = ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf"));
+		StructureDataInterface reduced = ReducedEncoder.getReduced(new GenericDecoder(mmtfBean));
+		MmtfStructure reducedBean = new GenericEncoder(reduced, 10).getMmtfEncodedStructure();
+		GenericDecoder reducedDecoder = new GenericDecoder(reducedBean);
+		QuantizedStructureData quantized = new QuantizedStructureData(reducedBean);
+		assertTrue(quantized.hasShortCoordinates());
+		assertEquals(reducedDecoder.getNumAtoms() * 5 * Short.BYTES, quantized.getQuantizedSize());
+		assertArrayEquals(reducedDecoder.getxCoords(), quantized.getxCoords(), 0.0f);
+		assertArrayEquals(reducedDecoder.getOccupancies(), quantized.getOccupancies(), 0.0f);
+		assertEquals(reducedDecoder.getyCoords()[3], quantized.getyCoord(3), 0.0f);
+	}
+}
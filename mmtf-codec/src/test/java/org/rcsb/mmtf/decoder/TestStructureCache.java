@@ -0,0 +1,198 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rcsb.mmtf.api.StructureDataInterface;
+import org.rcsb.mmtf.codec.Utils;
+
+/**
+ * Test the {@link StructureCache}.
+ */
+public class TestStructureCache {
+
+	/**
+	 * A temporary folder for a mirror.
+	 */
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	/**
+	 * Test the hits, the misses and the failed loads.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testHits() throws IOException {
+		StructureDataInterface structure = getStructure();
+		assertEquals(StructureCache.BYTES_PER_STRUCTURE + 1107L * StructureCache.BYTES_PER_ATOM
+				+ structure.getNumGroups() * StructureCache.BYTES_PER_GROUP, StructureCache.getWeight(structure));
+		StructureCache cache = new StructureCache(1 << 20);
+		AtomicInteger numLoads = new AtomicInteger();
+		StructureCache.Loader loader = () -> {
+			numLoads.incrementAndGet();
+			return structure;
+		};
+		assertSame(structure, cache.get("4CUP/full", loader));
+		assertSame(structure, cache.get("4CUP/full", loader));
+		assertEquals(1, numLoads.get());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getLoadCount());
+		assertEquals(StructureCache.getWeight(structure), cache.getWeight());
+		try {
+			cache.get("XXXX/full", () -> {
+				throw new IOException("Not found");
+			});
+			fail("The load fails");
+		}
+		catch (IOException e) {
+			assertNull(cache.getIfPresent("XXXX/full"));
+		}
+		cache.invalidate("4CUP/full");
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getWeight());
+	}
+
+	/**
+	 * Test that concurrent loads of the same structure are collapsed into one.
+	 * @throws Exception an error loading the structure
+	 */
+	@Test
+	public void testCollapsedLoads() throws Exception {
+		StructureDataInterface structure = getStructure();
+		StructureCache cache = new StructureCache(1 << 20);
+		AtomicInteger numLoads = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<StructureDataInterface>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> cache.get("4CUP/full", () -> {
+					numLoads.incrementAndGet();
+					try {
+						Thread.sleep(200);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return structure;
+				})));
+			}
+			for (Future<StructureDataInterface> future : futures) {
+				assertSame(structure, future.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertEquals(1, numLoads.get());
+		assertEquals(1, cache.getLoadCount());
+	}
+
+	/**
+	 * Test that the threads waiting for a load failing with an {@link Error} get the error too.
+	 * @throws Exception an error waiting for the threads
+	 */
+	@Test
+	public void testFailedCollapsedLoad() throws Exception {
+		StructureCache cache = new StructureCache(1 << 20);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<StructureDataInterface>> futures = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				futures.add(executor.submit(() -> cache.get("4CUP/full", () -> {
+					try {
+						Thread.sleep(200);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					throw new OutOfMemoryError("Test");
+				})));
+			}
+			for (Future<StructureDataInterface> future : futures) {
+				try {
+					future.get(5, TimeUnit.SECONDS);
+					fail("The load fails");
+				}
+				catch (ExecutionException e) {
+					assertTrue(e.getCause() instanceof OutOfMemoryError);
+				}
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * Test that structures used once are evicted before the structures used again.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testEviction() throws IOException {
+		StructureDataInterface structure = getStructure();
+		long weight = StructureCache.getWeight(structure);
+		StructureCache cache = new StructureCache(weight * 5 / 2);
+		cache.put("A", structure);
+		assertNotNull(cache.getIfPresent("A"));
+		cache.put("B", structure);
+		cache.put("C", structure);
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(2, cache.size());
+		assertNotNull(cache.getIfPresent("A"));
+		assertNull(cache.getIfPresent("B"));
+		assertNotNull(cache.getIfPresent("C"));
+		assertTrue(cache.getWeight() <= weight * 5 / 2);
+		// Too large to be kept
+		assertSame(structure, new StructureCache(weight - 1).get("A", () -> structure));
+	}
+
+	/**
+	 * Test the use of the cache by {@link ReaderUtils}, reading from a mirror.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testReaderUtils() throws IOException {
+		Path full = testFolder.newFolder().toPath();
+		Files.copy(Utils.getResource("/mmtf/4CUP.mmtf"), full.resolve("4CUP.mmtf"));
+		EntryResolver[] previous = ReaderUtils.getEntryResolvers();
+		StructureCache cache = new StructureCache(1 << 20);
+		try {
+			ReaderUtils.setEntryResolvers(new LocalMirror(full, LocalMirror.Layout.FLAT));
+			assertEquals(1107, ReaderUtils.getStructureFromUrl("4CUP").getNumAtoms());
+			ReaderUtils.setStructureCache(cache);
+			StructureDataInterface structure = ReaderUtils.getStructureFromUrl("4CUP");
+			assertSame(structure, ReaderUtils.getStructureFromUrl("4cup"));
+			assertSame(structure, cache.getIfPresent(StructureCache.getKey("4CUP", false)));
+			assertEquals(2, cache.getHitCount());
+		}
+		finally {
+			ReaderUtils.setEntryResolvers(previous);
+			ReaderUtils.setStructureCache(null);
+		}
+	}
+
+	private static StructureDataInterface getStructure() throws IOException {
+		return new GenericDecoder(ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf")));
+	}
+}
@@ -0,0 +1,96 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.rcsb.mmtf.api.StructureDataInterface;
+import org.rcsb.mmtf.codec.Utils;
+
+/**
+ * Test the cursors over a structure.
+ */
+public class TestStructureCursor {
+
+	/**
+	 * Go through the hierarchy and check it against the flat data.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testHierarchy() throws IOException {
+		StructureDataInterface structure = new GenericDecoder(ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf")));
+		ModelCursor model = new ModelCursor(structure);
+		int chainIndex = 0;
+		int groupIndex = 0;
+		int atomIndex = 0;
+		while (model.next()) {
+			ChainCursor chain = model.chains();
+			assertSame(chain, model.chains());
+			assertEquals(structure.getChainsPerModel()[model.index()], chain.size());
+			while (chain.next()) {
+				assertEquals(chainIndex++, chain.index());
+				assertEquals(structure.getChainIds()[chain.index()], chain.id());
+				assertEquals(model.index(), chain.modelIndex());
+				GroupCursor group = chain.groups();
+				while (group.next()) {
+					int groupType = structure.getGroupTypeIndices()[groupIndex];
+					assertEquals(groupIndex++, group.index());
+					assertEquals(structure.getGroupName(groupType), group.name());
+					assertEquals(structure.getGroupChemCompType(groupType), group.chemCompType());
+					assertEquals(structure.getGroupIds()[group.index()], group.groupNumber());
+					assertEquals(chain.index(), group.chainIndex());
+					AtomCursor atom = group.atoms();
+					int atomInGroup = 0;
+					while (atom.next()) {
+						assertEquals(atomIndex, atom.index());
+						assertEquals(structure.getxCoords()[atomIndex], atom.x(), 0.0f);
+						assertEquals(structure.getAtomIds()[atomIndex], atom.id());
+						assertEquals(structure.getGroupAtomNames(groupType)[atomInGroup], atom.name());
+						assertEquals(structure.getGroupElementNames(groupType)[atomInGroup], atom.element());
+						assertEquals(group.index(), atom.groupIndex());
+						atomIndex++;
+						atomInGroup++;
+					}
+					assertEquals(group.numAtoms(), atomInGroup);
+				}
+			}
+		}
+		assertEquals(structure.getNumChains(), chainIndex);
+		assertEquals(structure.getNumGroups(), groupIndex);
+		assertEquals(structure.getNumAtoms(), atomIndex);
+	}
+
+	/**
+	 * Check moving directly to an element.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testMoveTo() throws IOException {
+		StructureDataInterface structure = new GenericDecoder(ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf")));
+		ChainCursor chain = new ChainCursor(structure);
+		chain.moveTo(1);
+		AtomCursor atom = chain.atoms();
+		HierarchyIndex hierarchyIndex = new HierarchyIndex(structure);
+		assertEquals(hierarchyIndex.getNumAtomsInChain(1), atom.size());
+		atom.next();
+		assertEquals(hierarchyIndex.getFirstAtomInChain(1), atom.index());
+		assertEquals(structure.getzCoords()[atom.index()], atom.z(), 0.0f);
+		atom.moveTo(hierarchyIndex.getFirstAtomInChain(2) - 1);
+		assertFalse(atom.next());
+	}
+
+	/**
+	 * Check that moving out of the range of a cursor fails.
+	 * @throws IOException an error reading in data
+	 */
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testMoveOutOfRange() throws IOException {
+		StructureDataInterface structure = new GenericDecoder(ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf")));
+		ChainCursor chain = new ChainCursor(structure);
+		chain.next();
+		chain.groups().moveTo(structure.getNumGroups());
+	}
+}
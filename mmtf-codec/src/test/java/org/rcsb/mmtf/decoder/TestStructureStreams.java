@@ -0,0 +1,65 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.rcsb.mmtf.api.StructureDataInterface;
+import org.rcsb.mmtf.codec.Utils;
+
+/**
+ * Test the streams given by {@link StructureStreams}.
+ */
+public class TestStructureStreams {
+
+	/**
+	 * Check that the streams go through all the elements, sequentially or in parallel.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testStreams() throws IOException {
+		StructureDataInterface structure = new GenericDecoder(ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf")));
+		assertEquals(structure.getNumAtoms(), StructureStreams.atomIndices(structure).parallel().count());
+		assertEquals(structure.getNumGroups(), StructureStreams.groupIndices(structure).parallel().distinct().count());
+		assertEquals(structure.getNumChains(), StructureStreams.chainIndices(structure).count());
+		double sumX = 0.0;
+		for (float x : structure.getxCoords()) {
+			sumX += x;
+		}
+		assertEquals(sumX, StructureStreams.atoms(structure).parallel().mapToDouble(AtomCursor::x).sum(), 0.01);
+		// Count the atoms of each group name, in parallel
+		Map<String, Integer> atomsPerName = StructureStreams.groups(structure).parallel()
+				.collect(Collectors.groupingByConcurrent(GroupCursor::name, Collectors.summingInt(GroupCursor::numAtoms)));
+		assertEquals(structure.getNumAtoms(), atomsPerName.values().stream().mapToInt(Integer::intValue).sum());
+		AtomicInteger numGroups = new AtomicInteger();
+		StructureStreams.chains(structure).parallel().forEach(chain -> numGroups.addAndGet(chain.numGroups()));
+		assertEquals(structure.getNumGroups(), numGroups.get());
+	}
+
+	/**
+	 * Check that the atoms are never split within a group.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testSplitOnGroups() throws IOException {
+		StructureDataInterface structure = new GenericDecoder(ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf")));
+		int[] atomOffsets = new HierarchyIndex(structure).getAtomOffsets();
+		Spliterator.OfInt suffix = StructureStreams.atomIndices(structure).spliterator();
+		assertTrue(suffix.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+		for (int i = 0; i < 8; i++) {
+			Spliterator.OfInt prefix = suffix.trySplit();
+			assertNotNull(prefix);
+			AtomicInteger last = new AtomicInteger(-1);
+			prefix.forEachRemaining((int atomIndex) -> last.set(atomIndex));
+			assertTrue(Arrays.binarySearch(atomOffsets, last.get() + 1) >= 0);
+		}
+	}
+}
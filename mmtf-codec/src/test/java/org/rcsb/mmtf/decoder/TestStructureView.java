@@ -0,0 +1,184 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.rcsb.mmtf.api.StructureDataInterface;
+import org.rcsb.mmtf.codec.Utils;
+import org.rcsb.mmtf.encoder.GenericEncoder;
+import org.rcsb.mmtf.encoder.ReducedEncoder;
+
+/**
+ * Test that the {@link StructureView} works.
+ */
+public class TestStructureView {
+
+	/**
+	 * Check that the reduced view holds the same atoms as the reduced structure.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testReduced() throws IOException {
+		StructureDataInterface full = getStructure("/mmtf/4CUP.mmtf");
+		StructureDataInterface reduced = ReducedEncoder.getReduced(full);
+		StructureView view = StructureView.reduced(full);
+		assertEquals(reduced.getNumAtoms(), view.getNumAtoms());
+		assertEquals(reduced.getNumGroups(), view.getNumGroups());
+		assertArrayEquals(reduced.getxCoords(), view.getxCoords(), 0.0f);
+		assertArrayEquals(reduced.getAtomIds(), view.getAtomIds());
+		assertArrayEquals(reduced.getGroupIds(), view.getGroupIds());
+		assertArrayEquals(reduced.getInterGroupBondIndices(), view.getInterGroupBondIndices());
+		for (int i = 0; i < view.getNumAtoms(); i++) {
+			assertEquals(full.getzCoords()[view.getSourceAtomIndices()[i]], view.getzCoord(i), 0.0f);
+		}
+		// The view can be encoded
+		Utils.compare(view);
+	}
+
+	/**
+	 * Check that the reduced view and the reduced structure find the same polymer chains
+	 * in all the models of a structure.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testReducedModels() throws IOException {
+		StructureDataInterface full = getStructure("/mmtf/1O2F.mmtf");
+		boolean[] polymerChains = DecoderUtils.getPolymerChains(full);
+		assertTrue(full.getNumModels() > 1);
+		String[] chainIds = full.getChainIds();
+		for (int i = 0; i < chainIds.length; i++) {
+			for (int j = 0; j < i; j++) {
+				if (chainIds[i].equals(chainIds[j])) {
+					assertEquals(polymerChains[j], polymerChains[i]);
+				}
+			}
+		}
+		StructureDataInterface reduced = ReducedEncoder.getReduced(full);
+		StructureView view = StructureView.reduced(full);
+		assertEquals(reduced.getNumAtoms(), view.getNumAtoms());
+		assertArrayEquals(reduced.getChainIds(), view.getChainIds());
+		assertArrayEquals(reduced.getxCoords(), view.getxCoords(), 0.0f);
+	}
+
+	/**
+	 * Check the trace, backbone and heavy atom views.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testAtomSelections() throws IOException {
+		StructureDataInterface full = getStructure("/mmtf/4CUP.mmtf");
+		StructureView trace = StructureView.trace(full);
+		for (int groupIndex = 0; groupIndex < trace.getNumGroups(); groupIndex++) {
+			int groupType = trace.getGroupTypeIndices()[groupIndex];
+			assertArrayEquals(new String[] {"CA"}, trace.getGroupAtomNames(groupType));
+			assertEquals(0, trace.getGroupBondOrders(groupType).length);
+		}
+		assertEquals(trace.getNumGroups(), trace.getNumAtoms());
+		StructureView backbone = StructureView.backbone(full);
+		assertEquals(trace.getNumGroups(), backbone.getNumGroups());
+		assertTrue(backbone.getNumAtoms() > trace.getNumAtoms());
+		assertTrue(backbone.getNumBonds() > 0);
+		StructureView heavyAtoms = StructureView.heavyAtoms(full);
+		assertTrue(heavyAtoms.getNumAtoms() <= full.getNumAtoms());
+		for (int groupIndex = 0; groupIndex < heavyAtoms.getNumGroups(); groupIndex++) {
+			for (String element : heavyAtoms.getGroupElementNames(heavyAtoms.getGroupTypeIndices()[groupIndex])) {
+				assertTrue(!element.equals("H") && !element.equals("D"));
+			}
+		}
+		// The bonds of the views survive a round trip
+		StructureDataInterface roundTrip = new GenericDecoder(new GenericEncoder(backbone).getMmtfEncodedStructure());
+		assertEquals(backbone.getNumBonds(), roundTrip.getNumBonds());
+		assertArrayEquals(backbone.getyCoords(), roundTrip.getyCoords(), 0.001f);
+	}
+
+	/**
+	 * Check a view of a chain of a later model.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testChains() throws IOException {
+		StructureDataInterface full = getStructure("/mmtf/1O2F.mmtf");
+		HierarchyIndex hierarchyIndex = new HierarchyIndex(full);
+		int chainIndex = hierarchyIndex.getChainOffsets()[1];
+		StructureView view = StructureView.chains(full, chainIndex);
+		assertEquals(1, view.getNumModels());
+		assertEquals(1, view.getNumChains());
+		assertEquals(hierarchyIndex.getNumAtomsInChain(chainIndex), view.getNumAtoms());
+		assertEquals(full.getChainIds()[chainIndex], view.getChainIds()[0]);
+		assertEquals(full.getxCoords()[hierarchyIndex.getFirstAtomInChain(chainIndex)], view.getxCoord(0), 0.0f);
+		for (int bondAtom : view.getInterGroupBondIndices()) {
+			assertTrue(bondAtom < view.getNumAtoms());
+		}
+		StructureDataInterface roundTrip = new GenericDecoder(new GenericEncoder(view).getMmtfEncodedStructure());
+		assertEquals(view.getNumBonds(), roundTrip.getNumBonds());
+		assertArrayEquals(view.getGroupsPerChain(), roundTrip.getGroupsPerChain());
+	}
+
+	/**
+	 * Check that the chain indices can be given in any order and repeated.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testUnsortedChains() throws IOException {
+		StructureDataInterface full = getStructure("/mmtf/4CUP.mmtf");
+		StructureView sorted = StructureView.chains(full, 0, 2, 3);
+		StructureView unsorted = StructureView.chains(full, 3, 0, 2, 0, 3);
+		assertEquals(3, unsorted.getNumChains());
+		assertArrayEquals(sorted.getSourceChainIndices(), unsorted.getSourceChainIndices());
+		assertArrayEquals(sorted.getSourceAtomIndices(), unsorted.getSourceAtomIndices());
+		assertArrayEquals(sorted.getChainIds(), unsorted.getChainIds());
+		assertArrayEquals(sorted.getChainsPerModel(), unsorted.getChainsPerModel());
+		assertArrayEquals(sorted.getInterGroupBondIndices(), unsorted.getInterGroupBondIndices());
+		assertArrayEquals(sorted.getInterGroupBondOrders(), unsorted.getInterGroupBondOrders());
+		try {
+			StructureView.chains(full, 0, full.getNumChains());
+			fail("The chain index is out of range");
+		}
+		catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Check that the views over the compact sources and over other views read the atoms
+	 * of their source.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testCompactSources() throws IOException {
+		StructureDataInterface full = getStructure("/mmtf/4CUP.mmtf");
+		StructureView expected = StructureView.backbone(full);
+		OffHeapStructureData offHeap = new OffHeapStructureData(full);
+		QuantizedStructureData quantized = new QuantizedStructureData(full);
+		for (StructureDataInterface source : new StructureDataInterface[] {offHeap, quantized, StructureView.chains(full, (int[]) null)}) {
+			StructureView view = StructureView.backbone(source);
+			assertArrayEquals(expected.getSourceAtomIndices(), view.getSourceAtomIndices());
+			assertArrayEquals(expected.getxCoords(), view.getxCoords(), 0.001f);
+			assertArrayEquals(expected.getOccupancies(), view.getOccupancies(), 0.01f);
+			assertArrayEquals(expected.getAtomIds(), view.getAtomIds());
+			assertArrayEquals(expected.getAltLocIds(), view.getAltLocIds());
+			for (int i = 0; i < view.getNumAtoms(); i++) {
+				assertEquals(expected.getbFactor(i), view.getbFactor(i), 0.01f);
+			}
+		}
+		// The off-heap view reads the columns of its source on each call
+		StructureView view = StructureView.backbone(offHeap);
+		offHeap.close();
+		try {
+			view.getzCoord(0);
+			fail("The source is closed");
+		}
+		catch (IllegalStateException e) {
+			// Expected
+		}
+	}
+
+	private static StructureDataInterface getStructure(String resource) throws IOException {
+		return new GenericDecoder(ReaderUtils.getDataFromFile(Utils.getResource(resource)));
+	}
+}
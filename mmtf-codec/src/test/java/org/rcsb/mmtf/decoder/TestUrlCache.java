@@ -0,0 +1,151 @@
+package org.rcsb.mmtf.decoder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rcsb.mmtf.codec.Utils;
+import org.rcsb.mmtf.encoder.WriterUtils;
+
+/**
+ * Test the {@link UrlCache} against a local HTTP server.
+ */
+public class TestUrlCache {
+
+	/**
+	 * A temporary folder for the cache.
+	 */
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	private LocalHttpServer server;
+	private byte[] data;
+	private final AtomicInteger numRequests = new AtomicInteger();
+	private final AtomicInteger numNotModified = new AtomicInteger();
+	private final AtomicBoolean failing = new AtomicBoolean();
+
+	/**
+	 * Start a server giving the same data for every path but "missing", with an ETag,
+	 * or failing with a server error while {@link #failing} is set.
+	 * @throws IOException an error starting the server
+	 */
+	@Before
+	public void startServer() throws IOException {
+		data = WriterUtils.gzipCompress(Files.readAllBytes(Utils.getResource("/mmtf/4CUP.mmtf")));
+		server = new LocalHttpServer((path, headers) -> {
+			numRequests.incrementAndGet();
+			if (failing.get()) {
+				return new LocalHttpServer.Response(503, null);
+			}
+			if ("\"v1\"".equals(headers.get("if-none-match"))) {
+				numNotModified.incrementAndGet();
+				return new LocalHttpServer.Response(304, null).withHeader("ETag", "\"v1\"");
+			}
+			if (path.contains("missing")) {
+				return new LocalHttpServer.Response(404, null);
+			}
+			return new LocalHttpServer.Response(200, data).withHeader("ETag", "\"v1\"");
+		});
+	}
+
+	/**
+	 * Stop the server.
+	 * @throws IOException an error closing the server socket
+	 */
+	@After
+	public void stopServer() throws IOException {
+		server.close();
+	}
+
+	/**
+	 * Test that the data is fetched once while it is fresh, then revalidated.
+	 * @throws IOException an error fetching the data
+	 */
+	@Test
+	public void testFreshness() throws IOException {
+		Path directory = testFolder.newFolder().toPath();
+		UrlCache cache = new UrlCache(directory, Long.MAX_VALUE, 60000);
+		assertArrayEquals(data, cache.get("4CUP.full", getUrl("4CUP")));
+		assertArrayEquals(data, cache.get("4CUP.full", getUrl("4CUP")));
+		assertEquals(1, numRequests.get());
+		assertEquals(data.length, cache.getSize());
+		// The data can be decoded
+		assertEquals(1107, new GenericDecoder(ReaderUtils.getDataFromInputStream(
+				new ByteArrayInputStream(ReaderUtils.deflateGzip(cache.get("4CUP.full", getUrl("4CUP")))))).getNumAtoms());
+		// Without a time to live every use is a conditional request
+		UrlCache revalidating = new UrlCache(directory, Long.MAX_VALUE, 0);
+		assertTrue(revalidating.contains("4CUP.full"));
+		assertArrayEquals(data, revalidating.get("4CUP.full", getUrl("4CUP")));
+		assertEquals(2, numRequests.get());
+		assertEquals(1, numNotModified.get());
+		try {
+			revalidating.get("missing", getUrl("missing"));
+			fail("The server has no such data");
+		}
+		catch (IOException e) {
+			assertFalse(revalidating.contains("missing"));
+		}
+	}
+
+	/**
+	 * Test that a stale copy is used when the server fails, and only then.
+	 * @throws IOException an error fetching the data
+	 */
+	@Test
+	public void testServerError() throws IOException {
+		UrlCache cache = new UrlCache(testFolder.newFolder().toPath(), Long.MAX_VALUE, 0);
+		assertArrayEquals(data, cache.get("4CUP.full", getUrl("4CUP")));
+		failing.set(true);
+		assertArrayEquals(data, cache.get("4CUP.full", getUrl("4CUP")));
+		assertEquals(2, numRequests.get());
+		try {
+			cache.get("1O2F.full", getUrl("1O2F"));
+			fail("The server fails and there is no copy in the cache");
+		}
+		catch (IOException e) {
+			assertFalse(cache.contains("1O2F.full"));
+		}
+	}
+
+	/**
+	 * Test that the least recently used entries are evicted.
+	 * @throws IOException an error fetching the data
+	 */
+	@Test
+	public void testEviction() throws IOException {
+		Path directory = testFolder.newFolder().toPath();
+		UrlCache cache = new UrlCache(directory, 2L * data.length, 60000);
+		cache.get("A", getUrl("A"));
+		cache.get("B", getUrl("B"));
+		// A is now the most recently used
+		cache.get("A", getUrl("A"));
+		cache.get("C", getUrl("C"));
+		assertEquals(3, numRequests.get());
+		assertEquals(2, cache.getNumEntries());
+		assertTrue(cache.contains("A"));
+		assertFalse(cache.contains("B"));
+		assertFalse(Files.exists(directory.resolve("B.mmtf.gz")));
+		assertEquals(2L * data.length, cache.getSize());
+		// A smaller cache on the same directory evicts on opening
+		assertEquals(1, new UrlCache(directory, data.length, 60000).getNumEntries());
+	}
+
+	private URL getUrl(String name) throws IOException {
+		return server.getUrl("/" + name);
+	}
+}
@@ -1,18 +1,30 @@
 package org.rcsb.mmtf.encoder;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.rcsb.mmtf.api.StructureAdapterInterface;
+import org.rcsb.mmtf.codec.Utils;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
+import org.rcsb.mmtf.decoder.GenericDecoder;
+import org.rcsb.mmtf.decoder.ReaderUtils;
+import org.rcsb.mmtf.decoder.StructureDataToAdapter;
+import org.rcsb.mmtf.serialization.MessagePackSerialization;
 import org.unitils.reflectionassert.ReflectionAssert;
 
 /**
@@ -60,6 +72,139 @@ public class TestEncoder {
 	}
 
 
+	/**
+	 * Test that the atoms passed in bulk are the same as the input data.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testBulkAdapter() throws IOException {
+		GenericDecoder genericDecoder = new GenericDecoder(ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf")));
+		AdapterToStructureData adapterToStructureData = new AdapterToStructureData();
+		new StructureDataToAdapter(genericDecoder, adapterToStructureData);
+		assertArrayEquals(genericDecoder.getxCoords(), adapterToStructureData.getxCoords(), 0.0f);
+		assertArrayEquals(genericDecoder.getbFactors(), adapterToStructureData.getbFactors(), 0.0f);
+		assertArrayEquals(genericDecoder.getAtomIds(), adapterToStructureData.getAtomIds());
+		assertArrayEquals(genericDecoder.getAltLocIds(), adapterToStructureData.getAltLocIds());
+		for (int i = 0; i < genericDecoder.getNumGroups(); i++) {
+			int groupType = genericDecoder.getGroupTypeIndices()[i];
+			int otherGroupType = adapterToStructureData.getGroupTypeIndices()[i];
+			assertEquals(genericDecoder.getGroupName(groupType), adapterToStructureData.getGroupName(otherGroupType));
+			assertArrayEquals(genericDecoder.getGroupAtomNames(groupType), adapterToStructureData.getGroupAtomNames(otherGroupType));
+			assertArrayEquals(genericDecoder.getGroupElementNames(groupType), adapterToStructureData.getGroupElementNames(otherGroupType));
+		}
+	}
+
+	/**
+	 * Test that equal groups share a group type, numbered in order of first appearance.
+	 */
+	@Test
+	public void testGroupDeduplication() {
+		AdapterToStructureData adapterToStructureData = new AdapterToStructureData();
+		adapterToStructureData.initStructure(0, 4, 4, 1, 1, "ABC");
+		adapterToStructureData.setModelInfo(0, 1);
+		adapterToStructureData.setChainInfo("A", "A", 4);
+		String[] groupNames = {"ALA", "ALA", "GLY", "ALA"};
+		for (int i = 0; i < groupNames.length; i++) {
+			adapterToStructureData.setGroupInfo(groupNames[i], i + 1, '?', "L-PEPTIDE LINKING", 1, 0, 'A', i, -1);
+			adapterToStructureData.setAtomInfo("CA", i + 1, '\0', i, i, i, 1.0f, 1.0f, "C", 0);
+		}
+		adapterToStructureData.finalizeStructure();
+		assertArrayEquals(new int[] {0, 0, 1, 0}, adapterToStructureData.getGroupTypeIndices());
+		assertEquals("ALA", adapterToStructureData.getGroupName(0));
+		assertEquals("GLY", adapterToStructureData.getGroupName(1));
+	}
+
+	/**
+	 * Test that a structure can be added without knowing its totals up front.
+	 */
+	@Test
+	public void testGrowable() {
+		AdapterToStructureData adapterToStructureData = new AdapterToStructureData();
+		adapterToStructureData.initStructure("ABC");
+		int atomIndex = 0;
+		for (int modelIndex = 0; modelIndex < 2; modelIndex++) {
+			adapterToStructureData.setModelInfo(modelIndex, 3);
+			for (int chainIndex = 0; chainIndex < 3; chainIndex++) {
+				adapterToStructureData.setChainInfo("A" + chainIndex, "A" + chainIndex, 50);
+				for (int groupIndex = 0; groupIndex < 50; groupIndex++, atomIndex += 3) {
+					adapterToStructureData.setGroupInfo("GLY", groupIndex + 1, '?', "L-PEPTIDE LINKING", 3, 2, 'G', groupIndex, -1);
+					adapterToStructureData.setAtomInfo("N", atomIndex + 1, '\0', atomIndex, 0.0f, 0.0f, 1.0f, 1.0f, "N", 0);
+					adapterToStructureData.setAtomInfo("CA", atomIndex + 2, '\0', atomIndex, 1.0f, 0.0f, 1.0f, 1.0f, "C", 0);
+					adapterToStructureData.setAtomInfo("C", atomIndex + 3, '\0', atomIndex, 2.0f, 0.0f, 1.0f, 1.0f, "C", 0);
+					adapterToStructureData.setGroupBond(0, 1, 1);
+					adapterToStructureData.setGroupBond(1, 2, 1);
+				}
+			}
+		}
+		adapterToStructureData.setInterGroupBond(2, 3, 1);
+		adapterToStructureData.setEntityInfo(new int[] {0, 1, 2}, "", "", "polymer");
+		adapterToStructureData.setHeaderInfo(1.0f, 1.0f, 1.0f, "A", "A", "A", new String[1]);
+		adapterToStructureData.finalizeStructure();
+		assertEquals(2, adapterToStructureData.getNumModels());
+		assertEquals(6, adapterToStructureData.getNumChains());
+		assertEquals(300, adapterToStructureData.getNumGroups());
+		assertEquals(900, adapterToStructureData.getNumAtoms());
+		assertEquals(601, adapterToStructureData.getNumBonds());
+		assertEquals(300, adapterToStructureData.getGroupTypeIndices().length);
+		assertEquals(897.0f, adapterToStructureData.getxCoords()[899], 0.0f);
+		assertEquals(900, adapterToStructureData.getAtomIds()[899]);
+		GenericDecoder roundTrip = new GenericDecoder(new GenericEncoder(adapterToStructureData).getMmtfEncodedStructure());
+		assertEquals(adapterToStructureData.getNumBonds(), roundTrip.getNumBonds());
+		assertArrayEquals(adapterToStructureData.getGroupsPerChain(), roundTrip.getGroupsPerChain());
+	}
+
+	/**
+	 * Test that encoding the columns concurrently gives the same bytes as encoding them one after the other.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testParallelEncoding() throws IOException {
+		GenericDecoder genericDecoder = new GenericDecoder(ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf")));
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			byte[] serial = serialize(new GenericEncoder(genericDecoder).getMmtfEncodedStructure());
+			byte[] parallel = serialize(new GenericEncoder(genericDecoder, executor).getMmtfEncodedStructure());
+			assertArrayEquals(serial, parallel);
+			assertArrayEquals(serialize(new GenericEncoder(genericDecoder, 100).getMmtfEncodedStructure()),
+					serialize(new GenericEncoder(genericDecoder, 100, executor).getMmtfEncodedStructure()));
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Test the precision of each column and the error-bounded encoding.
+	 * @throws IOException an error reading in data
+	 */
+	@Test
+	public void testColumnPrecision() throws IOException {
+		GenericDecoder genericDecoder = new GenericDecoder(ReaderUtils.getDataFromFile(Utils.getResource("/mmtf/4CUP.mmtf")));
+		GenericEncoder encoder = new GenericEncoder(genericDecoder, 1000, 10, 100);
+		assertEquals(10, encoder.getbFactorDivider());
+		GenericDecoder decoded = new GenericDecoder(encoder.getMmtfEncodedStructure());
+		assertArrayEquals(genericDecoder.getxCoords(), decoded.getxCoords(), encoder.getMaxCoordError());
+		assertArrayEquals(genericDecoder.getbFactors(), decoded.getbFactors(), encoder.getMaxbFactorError());
+		assertArrayEquals(genericDecoder.getOccupancies(), decoded.getOccupancies(), 0.0f);
+		// The data of the file is stored to 0.001 and 0.01, so it is exact at these precisions
+		assertEquals(0.0f, new GenericEncoder(genericDecoder).getMaxOccupancyError(), 0.0f);
+		GenericEncoder bounded = GenericEncoder.withMaxError(genericDecoder, 0.051f, 0.51f, 0.005f);
+		assertEquals(10, bounded.getCoordDivider());
+		assertEquals(1, bounded.getbFactorDivider());
+		assertEquals(100, bounded.getOccupancyDivider());
+		assertTrue(bounded.getMaxCoordError() <= 0.051f);
+		assertTrue(bounded.getMaxbFactorError() <= 0.51f);
+		decoded = new GenericDecoder(bounded.getMmtfEncodedStructure());
+		assertArrayEquals(genericDecoder.getzCoords(), decoded.getzCoords(), bounded.getMaxCoordError());
+		assertArrayEquals(genericDecoder.getbFactors(), decoded.getbFactors(), bounded.getMaxbFactorError());
+	}
+
+	private static byte[] serialize(MmtfStructure mmtfStructure) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		new MessagePackSerialization().serialize(mmtfStructure, bos);
+		return bos.toByteArray();
+	}
+
 	/**
 	 * Test writing the data to a file.
 	 * @throws IOException an error accessing the file system
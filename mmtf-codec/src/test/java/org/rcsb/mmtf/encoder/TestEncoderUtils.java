@@ -153,6 +153,25 @@ public class TestEncoderUtils {
 		assertEquals(groupList.length, 29);
 	}
 
+	/**
+	 * Test that the coarsest divider keeping the error under a bound is found.
+	 */
+	@Test
+	public void testCoarsestDivider() {
+		float[] values = new float[] {1.25f, -3.75f, 10.0f};
+		assertEquals(0.25f, EncoderUtils.getMaxError(values, 1), 0.0f);
+		assertEquals(1, EncoderUtils.getCoarsestDivider(0.5f, values));
+		assertEquals(4, EncoderUtils.getCoarsestDivider(0.125f, values));
+		assertEquals(100, EncoderUtils.getCoarsestDivider(0.005f, values, new float[] {1.234f}));
+		try {
+			EncoderUtils.getCoarsestDivider(1.0f, new float[] {3.0e9f});
+			fail("The integers would overflow for any divider");
+		}
+		catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
 	/**
 	 * Get the default data for the full format.
 	 *
@@ -13,6 +13,7 @@ import java.text.ParseException;
 import org.junit.Test;
 import org.rcsb.mmtf.api.StructureDataInterface;
 import org.rcsb.mmtf.codec.Utils;
+import org.rcsb.mmtf.dataholders.MmtfStructure;
 import org.rcsb.mmtf.decoder.GenericDecoder;
 import org.rcsb.mmtf.decoder.ReaderUtils;
 
@@ -49,6 +50,75 @@ public class TestReducedEncoder {
 		// Check that all non water groups are included
 		assertEquals(removeWaters(full), reduced.getGroupTypeIndices().length);
 	}
+
+
+	/**
+	 * Test that only the C-alpha atoms of the polypeptide chains are kept, with no intra-group bonds.
+	 * @throws IOException error reading the file from the resource
+	 */
+	@Test
+	public void testReducedAtoms() throws IOException, ParseException {
+		StructureDataInterface full = getDefaultFullData();
+		StructureDataInterface reduced = ReducedEncoder.getReduced(full);
+		int numBonds = reduced.getInterGroupBondOrders().length;
+		for (int groupIndex = 0; groupIndex < reduced.getNumGroups(); groupIndex++) {
+			int groupType = reduced.getGroupTypeIndices()[groupIndex];
+			String[] atomNames = reduced.getGroupAtomNames(groupType);
+			if (atomNames.length == 1 && atomNames[0].equals("CA")) {
+				assertEquals(0, reduced.getGroupBondOrders(groupType).length);
+			}
+			numBonds += reduced.getGroupBondOrders(groupType).length;
+		}
+		assertEquals(reduced.getNumBonds(), numBonds);
+		// The atoms are taken from the full structure in order
+		int fullIndex = 0;
+		for (int i = 0; i < reduced.getNumAtoms(); i++, fullIndex++) {
+			while (full.getAtomIds()[fullIndex] != reduced.getAtomIds()[i]) {
+				fullIndex++;
+			}
+			assertEquals(full.getxCoords()[fullIndex], reduced.getxCoords()[i], 0.0f);
+		}
+		// The inter-group bonds refer to atoms of the reduced structure
+		for (int bondAtom : reduced.getInterGroupBondIndices()) {
+			assertTrue(bondAtom < reduced.getNumAtoms());
+		}
+	}
+
+
+	/**
+	 * Test the reduction profiles other than the default one.
+	 * @throws IOException error reading the file from the resource
+	 */
+	@Test
+	public void testProfiles() throws IOException, ParseException {
+		StructureDataInterface full = getDefaultFullData();
+		StructureDataInterface backbone = ReducedEncoder.getReduced(full, ReductionProfile.backbone());
+		for (int groupIndex = 0; groupIndex < backbone.getNumGroups(); groupIndex++) {
+			for (String atomName : backbone.getGroupAtomNames(backbone.getGroupTypeIndices()[groupIndex])) {
+				assertTrue(atomName.equals("N") || atomName.equals("CA") || atomName.equals("C")
+						|| atomName.equals("O") || atomName.equals("OXT"));
+			}
+		}
+		assertTrue(backbone.getNumBonds() > 0);
+		StructureDataInterface noAltLocs = ReducedEncoder.getReduced(full, ReductionProfile.noAltLocs());
+		assertTrue(noAltLocs.getNumAtoms() < full.getNumAtoms());
+		assertEquals(full.getNumGroups(), noAltLocs.getNumGroups());
+		for (char altLoc : noAltLocs.getAltLocIds()) {
+			assertTrue(altLoc == '\0' || altLoc == 'A');
+		}
+		StructureDataInterface pocket = ReducedEncoder.getReduced(full, ReductionProfile.ligandPocket(5.0f));
+		assertTrue(pocket.getNumGroups() > 0);
+		assertTrue(pocket.getNumGroups() < full.getNumGroups());
+		for (int groupIndex = 0; groupIndex < pocket.getNumGroups(); groupIndex++) {
+			assertNotEquals("HOH", pocket.getGroupName(pocket.getGroupTypeIndices()[groupIndex]));
+		}
+		// The bonds survive a round trip at the precision of the profile
+		MmtfStructure encoded = ReducedEncoder.getReducedEncoded(full, ReductionProfile.heavyAtoms().setPrecision(100));
+		StructureDataInterface decoded = new GenericDecoder(encoded);
+		StructureDataInterface heavyAtoms = ReducedEncoder.getReduced(full, ReductionProfile.heavyAtoms());
+		assertEquals(heavyAtoms.getNumBonds(), decoded.getNumBonds());
+		assertArrayEquals(heavyAtoms.getxCoords(), decoded.getxCoords(), 0.0051f);
+	}
 	
 	
 	private int removeWaters(StructureDataInterface structureDataInterface) {
@@ -3,12 +3,16 @@ package org.rcsb.mmtf.utils;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -47,6 +51,52 @@ public class Lines {
 		}
 	}
 
+	/**
+	 * Stream the lines of a gzipped resource specified by absolute path, without
+	 * loading them all into memory. The stream must be closed.
+	 *
+	 * @param name Name of the resource.
+	 * @return The lines of the gzipped resource, read as they are consumed.
+	 * @throws java.io.IOException if the resource cannot be opened
+	 */
+	public static Stream<String> streamResource(String name) throws IOException {
+		URL url = Lines.class.getResource(name);
+		if (url == null) {
+			throw new FileNotFoundException("No such resource: " + name);
+		}
+		return streamLines(url.openStream());
+	}
+
+	/**
+	 * Stream the lines of a gzipped file, without loading them all into memory.
+	 * The stream must be closed.
+	 *
+	 * @param f The input gzipped text file.
+	 * @return The lines of the gzipped file, read as they are consumed.
+	 * @throws java.io.IOException if the file cannot be opened
+	 */
+	public static Stream<String> streamFile(File f) throws IOException {
+		return streamLines(new FileInputStream(f));
+	}
+
+	private static Stream<String> streamLines(InputStream is) throws IOException {
+		BufferedReader br;
+		try {
+			br = new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(is), StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			is.close();
+			throw e;
+		}
+		return br.lines().onClose(() -> {
+			try {
+				br.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
 	private static String[] readLines(InputStream is) throws IOException {
 		BufferedReader br = new BufferedReader(new InputStreamReader(
 			new GZIPInputStream(is)));
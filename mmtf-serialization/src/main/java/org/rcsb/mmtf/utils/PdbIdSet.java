@@ -0,0 +1,256 @@
+package org.rcsb.mmtf.utils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/**
+ * A sorted set of PDB ids, each packed into a long.
+ * <p>
+ * The ids are made of up to {@value #MAX_LENGTH} digits, letters and underscores, so that both the
+ * 4 character ids (e.g. 4CUP) and the extended ids (e.g. PDB_00004CUP) fit. They are case
+ * insensitive and given back in upper case. Each character is a base 38 digit of the long,
+ * padded with zeros, so that the longs sort as the ids do. Looking up an id is a binary search,
+ * and the ranges of the set (e.g. to split the ids between jobs) share the array of the set.
+ */
+public class PdbIdSet implements Iterable<String> {
+
+	/** The largest number of characters of an id */
+	public static final int MAX_LENGTH = 12;
+	/** The resource of the PDB ids of the MMTF servers */
+	public static final String PDB_CODES_RESOURCE = "/mmtf/pdb_codes.gz";
+
+	private static final int BASE = 38;
+	private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_";
+
+	private final long[] codes;
+	private final int start;
+	private final int end;
+
+	private PdbIdSet(long[] codes, int start, int end) {
+		this.codes = codes;
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Create a set of ids.
+	 * @param pdbIds the ids, in any order and possibly repeated
+	 * @return the set
+	 * @throws IllegalArgumentException if an id is empty, too long or has other characters than digits, letters and underscores
+	 */
+	public static PdbIdSet of(Iterable<String> pdbIds) {
+		long[] codes = new long[1024];
+		int size = 0;
+		for (String pdbId : pdbIds) {
+			if (size == codes.length) {
+				codes = Arrays.copyOf(codes, size * 2);
+			}
+			codes[size++] = encode(pdbId);
+		}
+		return fromCodes(codes, size);
+	}
+
+	/**
+	 * Read the ids of the MMTF servers, from the {@value #PDB_CODES_RESOURCE} resource.
+	 * @return the set
+	 * @throws IOException an error reading the resource
+	 */
+	public static PdbIdSet readPdbCodes() throws IOException {
+		return readResource(PDB_CODES_RESOURCE);
+	}
+
+	/**
+	 * Read the ids of a gzipped resource, one per line: the first word of each non-empty line.
+	 * The lines are streamed, so that only the packed ids are kept in memory.
+	 * @param name the absolute path of the resource
+	 * @return the set
+	 * @throws IOException an error reading the resource
+	 * @see Lines#streamResource(String)
+	 */
+	public static PdbIdSet readResource(String name) throws IOException {
+		try (Stream<String> lines = Lines.streamResource(name)) {
+			return of(() -> lines.map(String::trim).filter(line -> !line.isEmpty())
+					.map(line -> line.split("\\s+", 2)[0]).iterator());
+		}
+	}
+
+	/**
+	 * Pack an id into a long.
+	 * @param pdbId the id
+	 * @return the packed id
+	 * @throws IllegalArgumentException if the id is empty, too long or has other characters than digits, letters and underscores
+	 */
+	public static long encode(String pdbId) {
+		if (pdbId.isEmpty() || pdbId.length() > MAX_LENGTH) {
+			throw new IllegalArgumentException("Invalid PDB id length: " + pdbId);
+		}
+		long code = 0;
+		for (int i = 0; i < MAX_LENGTH; i++) {
+			int digit = 0;
+			if (i < pdbId.length()) {
+				digit = ALPHABET.indexOf(Character.toUpperCase(pdbId.charAt(i))) + 1;
+				if (digit == 0) {
+					throw new IllegalArgumentException("Invalid PDB id character: " + pdbId);
+				}
+			}
+			code = code * BASE + digit;
+		}
+		return code;
+	}
+
+	/**
+	 * Unpack an id.
+	 * @param code the packed id
+	 * @return the id, in upper case
+	 */
+	public static String decode(long code) {
+		char[] chars = new char[MAX_LENGTH];
+		int length = 0;
+		for (int i = MAX_LENGTH - 1; i >= 0; i--) {
+			int digit = (int) (code % BASE);
+			code /= BASE;
+			if (digit > 0) {
+				chars[i] = ALPHABET.charAt(digit - 1);
+				length = Math.max(length, i + 1);
+			}
+		}
+		return new String(chars, 0, length);
+	}
+
+	/**
+	 * @return the number of ids
+	 */
+	public int size() {
+		return end - start;
+	}
+
+	/**
+	 * @param pdbId an id, in any case
+	 * @return true if the id is in the set
+	 */
+	public boolean contains(String pdbId) {
+		return indexOf(pdbId) >= 0;
+	}
+
+	/**
+	 * Find the position of an id.
+	 * @param pdbId an id, in any case
+	 * @return the index of the id, or -1 if it is not in the set (including ids that are not valid)
+	 */
+	public int indexOf(String pdbId) {
+		long code;
+		try {
+			code = encode(pdbId);
+		} catch (IllegalArgumentException e) {
+			return -1;
+		}
+		int index = Arrays.binarySearch(codes, start, end, code);
+		return index < 0 ? -1 : index - start;
+	}
+
+	/**
+	 * @param index the index of an id
+	 * @return the id, in upper case
+	 */
+	public String get(int index) {
+		return decode(getCode(index));
+	}
+
+	/**
+	 * @param index the index of an id
+	 * @return the packed id
+	 */
+	public long getCode(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+		}
+		return codes[start + index];
+	}
+
+	/**
+	 * Get the ids between two indices.
+	 * @param fromIndex the index of the first id, inclusive
+	 * @param toIndex the index of the last id, exclusive
+	 * @return the ids, sharing the array of this set
+	 */
+	public PdbIdSet subSet(int fromIndex, int toIndex) {
+		if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException("Range: " + fromIndex + " to " + toIndex + ", size: " + size());
+		}
+		return new PdbIdSet(codes, start + fromIndex, start + toIndex);
+	}
+
+	/**
+	 * Get the ids within a range, e.g. from "1" to "2" for the ids starting with 1.
+	 * @param fromId the lowest id, inclusive
+	 * @param toId the highest id, exclusive
+	 * @return the ids, sharing the array of this set
+	 */
+	public PdbIdSet range(String fromId, String toId) {
+		int fromIndex = insertionPoint(encode(fromId));
+		return subSet(fromIndex, Math.max(fromIndex, insertionPoint(encode(toId))));
+	}
+
+	/**
+	 * Split the set into ranges of consecutive ids, of sizes differing by at most one.
+	 * @param numPartitions the number of ranges
+	 * @return the ranges, sharing the array of this set
+	 */
+	public PdbIdSet[] partition(int numPartitions) {
+		if (numPartitions < 1) {
+			throw new IllegalArgumentException("The number of partitions must be positive: " + numPartitions);
+		}
+		PdbIdSet[] partitions = new PdbIdSet[numPartitions];
+		for (int i = 0; i < numPartitions; i++) {
+			partitions[i] = subSet((int) ((long) size() * i / numPartitions), (int) ((long) size() * (i + 1) / numPartitions));
+		}
+		return partitions;
+	}
+
+	/**
+	 * Iterate over the ids, in order.
+	 * @return an iterator over the ids, in upper case
+	 */
+	@Override
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+
+			private int next = start;
+
+			@Override
+			public boolean hasNext() {
+				return next < end;
+			}
+
+			@Override
+			public String next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return decode(codes[next++]);
+			}
+		};
+	}
+
+	private int insertionPoint(long code) {
+		int index = Arrays.binarySearch(codes, start, end, code);
+		return (index < 0 ? -index - 1 : index) - start;
+	}
+
+	/**
+	 * Sort and deduplicate packed ids.
+	 */
+	private static PdbIdSet fromCodes(long[] codes, int size) {
+		Arrays.sort(codes, 0, size);
+		int distinct = 0;
+		for (int i = 0; i < size; i++) {
+			if (distinct == 0 || codes[i] != codes[distinct - 1]) {
+				codes[distinct++] = codes[i];
+			}
+		}
+		return new PdbIdSet(distinct == codes.length ? codes : Arrays.copyOf(codes, distinct), 0, distinct);
+	}
+}
@@ -0,0 +1,88 @@
+package org.rcsb.mmtf.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+/**
+ * Test the {@link PdbIdSet} and the streaming of the lines of a resource.
+ */
+public class TestPdbIdSet {
+
+	/**
+	 * Test that the packed ids sort and unpack as the ids.
+	 */
+	@Test
+	public void testEncoding() {
+		List<String> pdbIds = Arrays.asList("1", "100D", "101M", "1A00", "4CUP", "9ZZZ", "A", "PDB_00004CUP", "ZZZZZZZZZZZZ", "____________");
+		for (int i = 0; i < pdbIds.size(); i++) {
+			assertEquals(pdbIds.get(i), PdbIdSet.decode(PdbIdSet.encode(pdbIds.get(i))));
+			if (i > 0) {
+				assertTrue(PdbIdSet.encode(pdbIds.get(i - 1)) < PdbIdSet.encode(pdbIds.get(i)));
+			}
+		}
+		assertEquals(PdbIdSet.encode("4CUP"), PdbIdSet.encode("4cup"));
+		for (String invalid : new String[] {"", "4CUP.mmtf", "PDB_000004CUP"}) {
+			try {
+				PdbIdSet.encode(invalid);
+				throw new AssertionError("Invalid id: " + invalid);
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	/**
+	 * Test the look up, the ranges and the partitions of a set.
+	 */
+	@Test
+	public void testSet() {
+		PdbIdSet set = PdbIdSet.of(Arrays.asList("4cup", "1O2F", "173D", "4CUP", "1AA6", "pdb_00001abc"));
+		assertEquals(5, set.size());
+		List<String> pdbIds = new ArrayList<>();
+		set.forEach(pdbIds::add);
+		assertEquals(Arrays.asList("173D", "1AA6", "1O2F", "4CUP", "PDB_00001ABC"), pdbIds);
+		assertEquals(3, set.indexOf("4Cup"));
+		assertEquals(-1, set.indexOf("5CUP"));
+		assertEquals(-1, set.indexOf("not an id"));
+		assertFalse(set.contains("1AA7"));
+		assertEquals("1O2F", set.get(2));
+		PdbIdSet ones = set.range("1", "2");
+		assertEquals(3, ones.size());
+		assertEquals("1O2F", ones.get(2));
+		assertEquals(-1, ones.indexOf("4CUP"));
+		assertEquals(0, set.range("2", "3").size());
+		PdbIdSet[] partitions = set.partition(2);
+		assertEquals(2, partitions[0].size());
+		assertEquals(3, partitions[1].size());
+		assertEquals("1O2F", partitions[1].get(0));
+		assertEquals(1, partitions[1].subSet(1, 3).indexOf("PDB_00001ABC"));
+	}
+
+	/**
+	 * Test reading the ids of the MMTF servers.
+	 * @throws IOException an error reading the resource
+	 */
+	@Test
+	public void testPdbCodes() throws IOException {
+		String[] lines = Lines.readResource(PdbIdSet.PDB_CODES_RESOURCE);
+		try (Stream<String> stream = Lines.streamResource(PdbIdSet.PDB_CODES_RESOURCE)) {
+			assertArrayEquals(lines, stream.collect(Collectors.toList()).toArray(new String[0]));
+		}
+		PdbIdSet set = PdbIdSet.readPdbCodes();
+		assertEquals(lines.length, set.size());
+		assertTrue(set.contains("4CUP"));
+		assertTrue(set.contains(lines[lines.length - 1]));
+		assertEquals(lines[0].toUpperCase(), set.get(0));
+	}
+}